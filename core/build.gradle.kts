@@ -0,0 +1,40 @@
+plugins {
+    `java-library`
+    id("org.javamodularity.moduleplugin")
+    id("me.champeau.jmh") version "0.6.8"
+}
+
+group = "ru.sibsutis.piratetigo.plttm"
+version = "1.0.0"
+description = "Ядро: КС-грамматики и алгоритмы их обработки без зависимости от JavaFX"
+
+repositories {
+    mavenLocal()
+    mavenCentral()
+}
+
+dependencies {
+    implementation("org.projectlombok:lombok:1.18.24")
+    implementation("com.fasterxml.jackson.core:jackson-databind:2.14.2")
+    implementation("com.google.guava:guava:31.1-jre")
+    annotationProcessor("org.projectlombok:lombok:1.18.24")
+    testImplementation("org.junit.jupiter:junit-jupiter:5.9.2")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+jmh {
+    // Приведение цепной грамматики из 10 и 20 тысяч правил: gradlew :core:jmh
+    includes.add("ChainGrammarBenchmark")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
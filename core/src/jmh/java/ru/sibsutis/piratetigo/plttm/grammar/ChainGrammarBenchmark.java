@@ -0,0 +1,75 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск производящих символов и приведение к каноническому виду на
+ * цепной грамматике, худшей для поиска перебором до неподвижной
+ * точки.
+ * <p>
+ * Нетерминал {@code N}<sub>i</sub> порождает
+ * {@code a<N}<sub>i+1</sub>{@code >} и {@code <N}<sub>i</sub>{@code >b},
+ * и только последний нетерминал цепочки порождает терминальную
+ * цепочку, поэтому каждый проход перебором добавляет не больше
+ * одного производящего символа. Кроме того, каждый нетерминал
+ * порождает бесплодный нетерминал {@code Z}, который удаляется при
+ * приведении.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChainGrammarBenchmark {
+
+    /** Количество правил вывода. */
+    @Param({"10000", "20000"})
+    public int rules;
+
+    private ContextFreeGrammar grammar;
+
+    /** Копия грамматики, приводимая к каноническому виду. */
+    private ContextFreeGrammar canonical;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int length = rules / 3;
+        StringBuilder nonTerminals = new StringBuilder("Z;");
+        for (int i = 0; i < length; i++) {
+            nonTerminals.append('N').append(i).append(';');
+        }
+        grammar = new ContextFreeGrammar();
+        grammar.setTerminals("ab");
+        grammar.setNonTerminals(nonTerminals.toString());
+        grammar.setGoal("N0");
+        for (int i = 0; i < length - 1; i++) {
+            grammar.addRule("N" + i + "→a<N" + (i + 1) + ">");
+            grammar.addRule("N" + i + "→<N" + i + ">b");
+            grammar.addRule("N" + i + "→<Z>a");
+        }
+        grammar.addRule("N" + (length - 1) + "→a");
+        grammar.addRule("Z→<Z>b");
+        grammar.compile();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        canonical = grammar.copy();
+    }
+
+    @Benchmark
+    public Set<String> productiveSymbols() {
+        return grammar.productiveSymbols();
+    }
+
+    @Benchmark
+    public ContextFreeGrammar toCanonical() {
+        canonical.toCanonical();
+        return canonical;
+    }
+
+}
@@ -0,0 +1,10 @@
+module plttm.core {
+    requires lombok;
+    requires java.logging;
+    requires com.fasterxml.jackson.databind;
+    requires com.google.common;
+    exports ru.sibsutis.piratetigo.plttm.chain.automaton;
+    exports ru.sibsutis.piratetigo.plttm.chain.parser;
+    exports ru.sibsutis.piratetigo.plttm.common;
+    exports ru.sibsutis.piratetigo.plttm.grammar;
+}
\ No newline at end of file
@@ -0,0 +1,375 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Моделирование недетерминированного конечного автомата над
+ * битовыми множествами состояний без построения подмножеств.
+ * <p>
+ * Множество активных состояний записывается словами {@code long[]}.
+ * Для каждого символа алфавита заранее вычисляются маски переходов:
+ * для каждой группы из {@link #GROUP_BITS} соседних состояний и
+ * каждого подмножества группы - множество состояний, в которые
+ * автомат переходит из этого подмножества по символу, вместе с
+ * λ-замыканием. Переход по символу - объединение масок непустых групп
+ * текущего множества, то есть несколько операций над словами на
+ * группу; для автоматов не больше чем из {@link Long#SIZE} состояний
+ * множество помещается в одно слово. Стоимость символа не зависит от
+ * количества подмножеств, поэтому моделирование подходит для
+ * автоматов, у которых построение подмножеств
+ * {@link NFA#determinize(int)} экспоненциально.
+ * <p>
+ * Маски занимают {@code k}·{@code n}/{@value #GROUP_BITS}·256·{@code w}
+ * слов, где {@code k} - размер алфавита, {@code n} - количество
+ * состояний, а {@code w} - количество слов в множестве; если это
+ * больше {@link #MAX_MASK_WORDS}, группы уменьшаются до четырех
+ * состояний. Если и с группами из четырех состояний маски занимают
+ * больше {@link #MAX_SMALL_GROUP_MASK_WORDS} слов, автомат не строится.
+ * Экземпляр неизменяем и может совместно использоваться несколькими
+ * потоками.
+ */
+public final class BitParallelNFA {
+
+    /** Количество состояний в группе масок переходов. */
+    public static final int GROUP_BITS = 8;
+
+    /** Наибольшее количество слов в масках переходов с группами по {@link #GROUP_BITS}. */
+    public static final int MAX_MASK_WORDS = 1 << 21;
+
+    /** Наибольшее количество слов в масках переходов с группами по четыре состояния (128 МиБ). */
+    public static final int MAX_SMALL_GROUP_MASK_WORDS = 1 << 24;
+
+    /** Размер буфера при чтении цепочки из потока. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Недетерминированный автомат. */
+    private final NFA nfa;
+
+    /** Номера символов алфавита, увеличенные на 1, по их кодам; 0 - символ вне алфавита. */
+    private final char[] classes;
+
+    /** Количество слов в множестве состояний. */
+    private final int words;
+
+    /** Количество состояний в группе. */
+    private final int groupBits;
+
+    /**
+     * Маски переходов по номерам символов: для группы {@code g} и
+     * подмножества группы {@code b} множество начинается с элемента
+     * {@code (g * 2^groupBits + b) * words}.
+     */
+    private final long[][] masks;
+
+    /** Конечные состояния. */
+    private final long[] acceptingStates;
+
+    /** λ-замыкание начального состояния. */
+    private final long[] startSet;
+
+    /**
+     * Строит маски переходов автомата.
+     *
+     * @param nfa Недетерминированный автомат.
+     * @throws IllegalArgumentException Если маски переходов с группами
+     * из четырех состояний занимают больше
+     * {@link #MAX_SMALL_GROUP_MASK_WORDS} слов.
+     */
+    public BitParallelNFA(NFA nfa) {
+        this.nfa = nfa;
+        char[] alphabet = nfa.getAlphabet();
+        int width = alphabet.length;
+        classes = new char[width == 0 ? 0 : alphabet[width - 1] + 1];
+        for (int symbol = 0; symbol < width; symbol++) {
+            classes[alphabet[symbol]] = (char) (symbol + 1);
+        }
+        int stateCount = nfa.getStateCount();
+        words = Math.max(1, (stateCount + Long.SIZE - 1) / Long.SIZE);
+        long groups8 = (stateCount + GROUP_BITS - 1) / GROUP_BITS;
+        long groups4 = (stateCount + GROUP_BITS / 2 - 1) / (GROUP_BITS / 2);
+        long smallGroupMaskWords = (long) width * groups4 * (1 << GROUP_BITS / 2) * words;
+        if (smallGroupMaskWords > MAX_SMALL_GROUP_MASK_WORDS) {
+            throw new IllegalArgumentException(
+                    "Маски переходов НКА из " + stateCount + " состояний над алфавитом из "
+                            + width + " символов занимают " + smallGroupMaskWords
+                            + " слов, допустимо " + MAX_SMALL_GROUP_MASK_WORDS);
+        }
+        groupBits = (long) width * groups8 * (1 << GROUP_BITS) * words <= MAX_MASK_WORDS
+                ? GROUP_BITS : GROUP_BITS / 2;
+        int groupCount = Math.max(1, (stateCount + groupBits - 1) / groupBits);
+        int subsets = 1 << groupBits;
+
+        int[][] moveIndex = nfa.moveIndex(alphabet);
+        int[] offsets = moveIndex[0];
+        int[] moves = moveIndex[1];
+        BitSet[] closures = nfa.closures();
+        long[][] closureWords = new long[stateCount][];
+        BitSet acceptingSet = new BitSet(stateCount);
+        for (int state = 0; state < stateCount; state++) {
+            closureWords[state] = Arrays.copyOf(closures[state].toLongArray(), words);
+            acceptingSet.set(state, nfa.isAccepting(state));
+        }
+        acceptingStates = Arrays.copyOf(acceptingSet.toLongArray(), words);
+        startSet = nfa.getStart() == NFA.NO_STATE
+                ? new long[words] : closureWords[nfa.getStart()].clone();
+
+        masks = new long[width][];
+        for (int symbol = 0; symbol < width; symbol++) {
+            long[] mask = new long[groupCount * subsets * words];
+            for (int group = 0; group < groupCount; group++) {
+                int base = group * subsets;
+                // Маска подмножества - объединение маски без старшего
+                // состояния и маски одного старшего состояния
+                for (int subset = 1; subset < subsets; subset++) {
+                    int high = Integer.highestOneBit(subset);
+                    int row = (base + subset) * words;
+                    int rest = (base + (subset ^ high)) * words;
+                    System.arraycopy(mask, rest, mask, row, words);
+                    int state = group * groupBits + Integer.numberOfTrailingZeros(high);
+                    if (state >= stateCount) {
+                        continue;
+                    }
+                    int column = state * width + symbol;
+                    for (int i = offsets[column]; i < offsets[column + 1]; i++) {
+                        long[] closure = closureWords[moves[i]];
+                        for (int j = 0; j < words; j++) {
+                            mask[row + j] |= closure[j];
+                        }
+                    }
+                }
+            }
+            masks[symbol] = mask;
+        }
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку автомата.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public boolean recognize(CharSequence chain) {
+        if (words == 1) {
+            long set = run(startSet[0], chain, 0, chain.length());
+            return (set & acceptingStates[0]) != 0;
+        }
+        long[] set = startSet.clone();
+        return run(set, new long[words], chain, 0, chain.length()) < 0
+                && intersects(set, acceptingStates);
+    }
+
+    /**
+     * Проверяет цепочку, читаемую из потока символов буферами
+     * фиксированного размера. Чтение прекращается, как только
+     * множество активных состояний становится пустым.
+     *
+     * @param reader Поток символов.
+     * @return Результат проверки со смещением ошибки.
+     */
+    public RecognitionReport recognize(Reader reader) throws IOException {
+        long[] set = startSet.clone();
+        long[] buffer = new long[words];
+        char[] chars = new char[BUFFER_SIZE];
+        CharBuffer chunk = CharBuffer.wrap(chars);
+        long position = 0;
+        int read;
+        while ((read = reader.read(chars)) >= 0) {
+            int failure = run(set, buffer, chunk, 0, read);
+            if (failure >= 0) {
+                return RecognitionReport.dead(position + failure);
+            }
+            position += read;
+        }
+        boolean accepted = intersects(set, acceptingStates);
+        return new RecognitionReport(accepted, position,
+                accepted ? RecognitionReport.NO_FAILURE : position, getStateName(set));
+    }
+
+    /**
+     * Возвращает λ-замыкание начального состояния.
+     */
+    public long[] getStart() {
+        return startSet.clone();
+    }
+
+    /**
+     * Вычисляет множество состояний, в которые автомат переходит по
+     * символу.
+     *
+     * @param set Текущее множество состояний.
+     * @param symbol Символ.
+     * @param result Множество результата; может совпадать с текущим.
+     * @return Признак непустого результата.
+     */
+    public boolean next(long[] set, char symbol, long[] result) {
+        int column = symbol < classes.length ? classes[symbol] - 1 : -1;
+        if (column < 0) {
+            Arrays.fill(result, 0);
+            return false;
+        }
+        long[] current = set == result ? set.clone() : set;
+        return step(masks[column], current, result);
+    }
+
+    /**
+     * Проверяет, что символ принадлежит алфавиту автомата.
+     *
+     * @param symbol Символ.
+     */
+    public boolean isSymbol(char symbol) {
+        return symbol < classes.length && classes[symbol] != 0;
+    }
+
+    /**
+     * Проверяет, что множество содержит конечное состояние.
+     *
+     * @param set Множество состояний.
+     */
+    public boolean isAccepting(long[] set) {
+        return intersects(set, acceptingStates);
+    }
+
+    /**
+     * Возвращает имя множества состояний - перечень имен состояний в
+     * фигурных скобках - или {@code null} для пустого множества.
+     *
+     * @param set Множество состояний.
+     */
+    public String getStateName(long[] set) {
+        BitSet states = BitSet.valueOf(set);
+        return states.isEmpty() ? null : nfa.subsetName(states);
+    }
+
+    /**
+     * Возвращает количество слов в масках переходов.
+     */
+    public long getMaskWords() {
+        long total = 0;
+        for (long[] mask : masks) {
+            total += mask.length;
+        }
+        return total;
+    }
+
+    /**
+     * Выполняет переходы по части цепочки для множеств из одного
+     * слова.
+     *
+     * @return Множество после чтения части цепочки; 0, если оно стало
+     * пустым.
+     */
+    private long run(long set, CharSequence chain, int from, int to) {
+        char[] classes = this.classes;
+        int limit = classes.length;
+        for (int i = from; i < to && set != 0; i++) {
+            char symbol = chain.charAt(i);
+            int column = symbol < limit ? classes[symbol] - 1 : -1;
+            set = column < 0 ? 0 : step(masks[column], set);
+        }
+        return set;
+    }
+
+    /**
+     * Выполняет переходы по части цепочки.
+     *
+     * @param set Текущее множество; заменяется множеством после чтения.
+     * @param buffer Буфер множества того же размера.
+     * @return Номер символа в части цепочки, после которого множество
+     * стало пустым, или -1.
+     */
+    private int run(long[] set, long[] buffer, CharSequence chain, int from, int to) {
+        char[] classes = this.classes;
+        int limit = classes.length;
+        if (words == 1) {
+            long current = set[0];
+            for (int i = from; i < to; i++) {
+                char symbol = chain.charAt(i);
+                int column = symbol < limit ? classes[symbol] - 1 : -1;
+                current = column < 0 ? 0 : step(masks[column], current);
+                if (current == 0) {
+                    set[0] = 0;
+                    return i - from;
+                }
+            }
+            set[0] = current;
+            return -1;
+        }
+        long[] current = set;
+        long[] next = buffer;
+        for (int i = from; i < to; i++) {
+            char symbol = chain.charAt(i);
+            int column = symbol < limit ? classes[symbol] - 1 : -1;
+            if (column < 0 || !step(masks[column], current, next)) {
+                Arrays.fill(set, 0);
+                return i - from;
+            }
+            long[] previous = current;
+            current = next;
+            next = previous;
+        }
+        if (current != set) {
+            System.arraycopy(current, 0, set, 0, words);
+        }
+        return -1;
+    }
+
+    /**
+     * Объединяет маски непустых групп множества из одного слова.
+     */
+    private long step(long[] mask, long set) {
+        int groupBits = this.groupBits;
+        long groupMask = (1L << groupBits) - 1;
+        long next = 0;
+        int base = 0;
+        for (long rest = set; rest != 0; rest >>>= groupBits, base += 1 << groupBits) {
+            next |= mask[base + (int) (rest & groupMask)];
+        }
+        return next;
+    }
+
+    /**
+     * Объединяет маски непустых групп множества.
+     */
+    private boolean step(long[] mask, long[] current, long[] result) {
+        Arrays.fill(result, 0);
+        int words = this.words;
+        int groupBits = this.groupBits;
+        long groupMask = (1L << groupBits) - 1;
+        int groupsPerWord = Long.SIZE / groupBits;
+        for (int word = 0; word < words; word++) {
+            int base = word * groupsPerWord << groupBits;
+            for (long rest = current[word]; rest != 0; rest >>>= groupBits, base += 1 << groupBits) {
+                int subset = (int) (rest & groupMask);
+                if (subset != 0) {
+                    int row = (base + subset) * words;
+                    for (int j = 0; j < words; j++) {
+                        result[j] |= mask[row + j];
+                    }
+                }
+            }
+        }
+        return !isEmpty(result);
+    }
+
+    private static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean intersects(long[] first, long[] second) {
+        for (int i = 0; i < first.length; i++) {
+            if ((first[i] & second[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
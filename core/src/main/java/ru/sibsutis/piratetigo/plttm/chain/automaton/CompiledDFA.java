@@ -0,0 +1,334 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Детерминированный конечный автомат, скомпилированный в плотную
+ * таблицу переходов для быстрой проверки длинных цепочек.
+ * <p>
+ * Символы, переходы по которым во всех состояниях совпадают,
+ * объединяются в классы; класс символа определяется по массиву,
+ * индексированному кодом символа, а символы вне алфавита относятся к
+ * классу 0, по которому все переходы ведут в тупиковое состояние.
+ * Тупиковое состояние {@link #DEAD} - состояние 0 таблицы: оно не
+ * является конечным и переходит само в себя, поэтому проверка не
+ * обрабатывает отсутствующие переходы отдельно.
+ * <p>
+ * Номер состояния в таблице уже умножен на количество классов, так
+ * что переход по символу - одно обращение к массиву без умножения:
+ * на символ цепочки не выполняется ни выделений памяти, ни обращений
+ * к коллекциям. Экземпляр неизменяем и может совместно использоваться
+ * несколькими потоками.
+ */
+public final class CompiledDFA {
+
+    /** Тупиковое состояние. */
+    public static final int DEAD = 0;
+
+    /** Классы символов по их кодам; коды за пределами массива - класс 0. */
+    private final char[] classes;
+
+    /** Количество классов символов, включая класс 0. */
+    private final int classCount;
+
+    /**
+     * Таблица переходов: для состояния {@code s} и класса {@code c}
+     * элемент {@code s + c} - следующее состояние. Состояния - номера
+     * строк, умноженные на количество классов.
+     */
+    private final int[] table;
+
+    private final int start;
+
+    /** Признаки конечных состояний по номерам строк. */
+    private final boolean[] accepting;
+
+    /** Имена состояний по номерам строк; строка 0 - тупиковое состояние. */
+    private final String[] stateNames;
+
+    /** Хеш-код функции переходов, вычисляемый при создании. */
+    private final int hash;
+
+    private CompiledDFA(char[] alphabet, int[][] targets, int start,
+                        boolean[] accepting, String[] stateNames) {
+        int rowCount = targets.length + 1;
+
+        // Столбцы таблицы по символам алфавита объединяются в классы
+        Map<List<Integer>, Integer> columns = new HashMap<>();
+        int maxSymbol = -1;
+        char[] symbolClasses = new char[alphabet.length];
+        for (int symbol = 0; symbol < alphabet.length; symbol++) {
+            List<Integer> column = new ArrayList<>(targets.length);
+            for (int[] row : targets) {
+                column.add(row[symbol]);
+            }
+            symbolClasses[symbol] = (char) (int) columns.computeIfAbsent(
+                    column, key -> columns.size() + 1);
+            maxSymbol = Math.max(maxSymbol, alphabet[symbol]);
+        }
+        classCount = columns.size() + 1;
+        classes = new char[maxSymbol + 1];
+        for (int symbol = 0; symbol < alphabet.length; symbol++) {
+            classes[alphabet[symbol]] = symbolClasses[symbol];
+        }
+
+        table = new int[rowCount * classCount];
+        for (int row = 1; row < rowCount; row++) {
+            for (int symbol = 0; symbol < alphabet.length; symbol++) {
+                int target = targets[row - 1][symbol];
+                table[row * classCount + symbolClasses[symbol]] =
+                        target == DFA.DEAD ? DEAD : (target + 1) * classCount;
+            }
+        }
+        this.start = start == DFA.DEAD ? DEAD : (start + 1) * classCount;
+        this.accepting = new boolean[rowCount];
+        System.arraycopy(accepting, 0, this.accepting, 1, accepting.length);
+        this.stateNames = new String[rowCount];
+        System.arraycopy(stateNames, 0, this.stateNames, 1, stateNames.length);
+        hash = Objects.hash(Arrays.hashCode(classes), classCount, Arrays.hashCode(table),
+                this.start, Arrays.hashCode(this.accepting));
+    }
+
+    /**
+     * Компилирует детерминированный конечный автомат.
+     *
+     * @param dfa Детерминированный конечный автомат.
+     */
+    public static CompiledDFA of(DFA dfa) {
+        char[] alphabet = dfa.getAlphabet();
+        int stateCount = dfa.getStateCount();
+        int[][] targets = new int[stateCount][alphabet.length];
+        boolean[] accepting = new boolean[stateCount];
+        String[] names = new String[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < alphabet.length; symbol++) {
+                targets[state][symbol] = dfa.getTarget(state, alphabet[symbol]);
+            }
+            accepting[state] = dfa.isAccepting(state);
+            names[state] = dfa.getStateName(state);
+        }
+        return new CompiledDFA(alphabet, targets, dfa.getStart(), accepting, names);
+    }
+
+    /**
+     * Компилирует автомат, заданный функцией переходов по именам
+     * состояний, как в распознавателе {@code DFSMRecognizer}.
+     * <p>
+     * Пустое или отсутствующее имя состояния означает отсутствующий
+     * переход; отсутствующий переход ведет в тупиковое состояние.
+     *
+     * @param startState Имя начального состояния.
+     * @param endStates Имена конечных состояний.
+     * @param transitions Переходы по именам состояний и символам.
+     */
+    public static CompiledDFA of(String startState,
+                                 Set<String> endStates,
+                                 Map<String, Map<Character, String>> transitions) {
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        TreeSet<Character> symbols = new TreeSet<>();
+        stateId(ids, startState);
+        transitions.forEach((state, cases) -> {
+            stateId(ids, state);
+            cases.forEach((symbol, target) -> {
+                symbols.add(symbol);
+                stateId(ids, target);
+            });
+        });
+        char[] alphabet = new char[symbols.size()];
+        int i = 0;
+        for (Character symbol : symbols) {
+            alphabet[i++] = symbol;
+        }
+        int stateCount = ids.size();
+        int[][] targets = new int[stateCount][alphabet.length];
+        for (int[] row : targets) {
+            Arrays.fill(row, DFA.DEAD);
+        }
+        transitions.forEach((state, cases) -> {
+            if (!isBlank(state)) {
+                cases.forEach((symbol, target) -> targets[ids.get(state)]
+                        [Arrays.binarySearch(alphabet, symbol)] = stateId(ids, target));
+            }
+        });
+        boolean[] accepting = new boolean[stateCount];
+        String[] names = ids.keySet().toArray(new String[0]);
+        for (int state = 0; state < stateCount; state++) {
+            accepting[state] = endStates.contains(names[state]);
+        }
+        return new CompiledDFA(alphabet, targets, stateId(ids, startState),
+                accepting, names);
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку автомата.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public boolean recognize(CharSequence chain) {
+        return accepting[run(start, chain, 0, chain.length()) / classCount];
+    }
+
+    /**
+     * Выполняет переходы по части цепочки.
+     *
+     * @param state Исходное состояние.
+     * @param chain Цепочка.
+     * @param from Начало части цепочки.
+     * @param to Конец части цепочки.
+     * @return Состояние после чтения части цепочки; {@link #DEAD},
+     * если автомат попал в тупиковое состояние.
+     */
+    public int run(int state, CharSequence chain, int from, int to) {
+        char[] classes = this.classes;
+        int[] table = this.table;
+        int limit = classes.length;
+        for (int i = from; i < to && state != DEAD; i++) {
+            char symbol = chain.charAt(i);
+            state = table[state + (symbol < limit ? classes[symbol] : 0)];
+        }
+        return state;
+    }
+
+    /**
+     * Выполняет переходы по части буфера символов.
+     *
+     * @param state Исходное состояние.
+     * @param chain Буфер символов.
+     * @param from Начало части буфера.
+     * @param to Конец части буфера.
+     * @return Состояние после чтения части буфера; {@link #DEAD},
+     * если автомат попал в тупиковое состояние.
+     */
+    public int run(int state, char[] chain, int from, int to) {
+        char[] classes = this.classes;
+        int[] table = this.table;
+        int limit = classes.length;
+        for (int i = from; i < to && state != DEAD; i++) {
+            char symbol = chain[i];
+            state = table[state + (symbol < limit ? classes[symbol] : 0)];
+        }
+        return state;
+    }
+
+    /**
+     * Выполняет переходы по части буфера байтов, каждый из которых
+     * считается символом с тем же кодом (как в кодировке ISO-8859-1).
+     * Позиция буфера не изменяется.
+     *
+     * @param state Исходное состояние.
+     * @param bytes Буфер байтов.
+     * @param from Начало части буфера.
+     * @param to Конец части буфера.
+     * @return Состояние после чтения части буфера; {@link #DEAD},
+     * если автомат попал в тупиковое состояние.
+     */
+    public int run(int state, ByteBuffer bytes, int from, int to) {
+        char[] classes = this.classes;
+        int[] table = this.table;
+        int limit = classes.length;
+        for (int i = from; i < to && state != DEAD; i++) {
+            int symbol = bytes.get(i) & 0xFF;
+            state = table[state + (symbol < limit ? classes[symbol] : 0)];
+        }
+        return state;
+    }
+
+    /**
+     * Возвращает состояние, в которое автомат переходит по символу.
+     *
+     * @param state Исходное состояние.
+     * @param symbol Символ.
+     */
+    public int next(int state, char symbol) {
+        return table[state + (symbol < classes.length ? classes[symbol] : 0)];
+    }
+
+    /**
+     * Возвращает начальное состояние.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Проверяет, что состояние является конечным.
+     *
+     * @param state Состояние.
+     */
+    public boolean isAccepting(int state) {
+        return accepting[state / classCount];
+    }
+
+    /**
+     * Возвращает имя состояния или {@code null} для тупикового
+     * состояния.
+     *
+     * @param state Состояние.
+     */
+    public String getStateName(int state) {
+        return stateNames[state / classCount];
+    }
+
+    /**
+     * Возвращает количество состояний, включая тупиковое.
+     */
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    /**
+     * Возвращает границу кодов символов алфавита: все символы с кодом
+     * не меньше границы не принадлежат алфавиту.
+     */
+    public int getSymbolLimit() {
+        return classes.length;
+    }
+
+    /**
+     * Возвращает количество классов символов, включая класс символов
+     * вне алфавита.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Автоматы равны, если совпадают их таблицы переходов, начальные и
+     * конечные состояния; имена состояний не сравниваются.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CompiledDFA)) {
+            return false;
+        }
+        CompiledDFA dfa = (CompiledDFA) other;
+        return hash == dfa.hash
+                && classCount == dfa.classCount
+                && start == dfa.start
+                && Arrays.equals(classes, dfa.classes)
+                && Arrays.equals(table, dfa.table)
+                && Arrays.equals(accepting, dfa.accepting);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static int stateId(Map<String, Integer> ids, String state) {
+        if (isBlank(state)) {
+            return DFA.DEAD;
+        }
+        return ids.computeIfAbsent(state, key -> ids.size());
+    }
+
+    private static boolean isBlank(String state) {
+        return state == null || state.isBlank();
+    }
+
+}
@@ -0,0 +1,711 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.*;
+
+/**
+ * Детерминированный конечный автомат.
+ * <p>
+ * Функция переходов - плотная таблица номеров состояний, строки
+ * которой соответствуют состояниям, а столбцы - символам
+ * упорядоченного алфавита; отсутствующий переход обозначается
+ * {@link #DEAD}. Проверка цепочки выполняется за время, линейное
+ * относительно её длины. Экземпляр неизменяем.
+ */
+public final class DFA {
+
+    /** Отсутствующий переход (переход в тупиковое состояние). */
+    public static final int DEAD = -1;
+
+    /** Упорядоченный алфавит. */
+    private final char[] alphabet;
+
+    /** Таблица переходов: состояние × номер символа алфавита. */
+    private final int[] transitions;
+
+    private final int start;
+
+    private final BitSet accepting;
+
+    private final String[] stateNames;
+
+    /**
+     * Исходные состояния по номерам состояний минимального автомата;
+     * {@code null}, если автомат не получен минимизацией.
+     */
+    private final List<Set<String>> sources;
+
+    /** Размеры автомата до и после минимизации. */
+    private final MinimizationReport minimizationReport;
+
+    /**
+     * Исходные состояния, из которых недостижимы конечные, удаленные
+     * при минимизации; {@code null}, если автомат не получен
+     * минимизацией.
+     */
+    private final Set<String> deadSources;
+
+    /**
+     * Имя тупикового состояния в функции переходов распознавателя;
+     * {@code null}, если переходы в него не записываются.
+     */
+    private final String deadStateName;
+
+    DFA(char[] alphabet, int[] transitions, int start, BitSet accepting, String[] stateNames) {
+        this(alphabet, transitions, start, accepting, stateNames, null);
+    }
+
+    DFA(char[] alphabet, int[] transitions, int start, BitSet accepting, String[] stateNames,
+        String deadStateName) {
+        this(alphabet, transitions, start, accepting, stateNames, null, null, null, deadStateName);
+    }
+
+    private DFA(char[] alphabet, int[] transitions, int start, BitSet accepting,
+                String[] stateNames, List<Set<String>> sources,
+                MinimizationReport minimizationReport, Set<String> deadSources,
+                String deadStateName) {
+        this.alphabet = alphabet;
+        this.transitions = transitions;
+        this.start = start;
+        this.accepting = accepting;
+        this.stateNames = stateNames;
+        this.sources = sources;
+        this.minimizationReport = minimizationReport;
+        this.deadSources = deadSources;
+        this.deadStateName = deadStateName;
+    }
+
+    /**
+     * Строит минимальный автомат, распознающий язык регулярной
+     * грамматики.
+     *
+     * @param grammar Праволинейная или леволинейная КС-грамматика.
+     * @throws IllegalArgumentException Если грамматика не является
+     * регулярной.
+     * @see NFA#of(CompiledGrammar)
+     */
+    public static DFA of(ContextFreeGrammar grammar) {
+        return of(grammar.compile());
+    }
+
+    /**
+     * Строит минимальный автомат, распознающий язык регулярной
+     * грамматики.
+     *
+     * @param grammar Снимок праволинейной или леволинейной КС-грамматики.
+     * @throws IllegalArgumentException Если грамматика не является
+     * регулярной.
+     * @see NFA#of(CompiledGrammar)
+     */
+    public static DFA of(CompiledGrammar grammar) {
+        return NFA.of(grammar).determinize().minimize();
+    }
+
+    /**
+     * Строит автомат, заданный функцией переходов по именам состояний,
+     * как в распознавателе {@code DFSMRecognizer}.
+     * <p>
+     * Пустое или отсутствующее имя состояния означает отсутствующий
+     * переход. Состояния нумеруются в порядке первого упоминания:
+     * начальное, затем исходные и целевые состояния переходов.
+     *
+     * @param startState Имя начального состояния.
+     * @param endStates Имена конечных состояний.
+     * @param transitions Переходы по именам состояний и символам.
+     * @throws IllegalArgumentException Если не задано начальное
+     * состояние.
+     */
+    public static DFA of(String startState,
+                         Set<String> endStates,
+                         Map<String, Map<Character, String>> transitions) {
+        if (isBlank(startState)) {
+            throw new IllegalArgumentException("Не задано начальное состояние ДКА");
+        }
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        TreeSet<Character> symbols = new TreeSet<>();
+        ids.put(startState, 0);
+        transitions.forEach((state, cases) -> {
+            if (!isBlank(state)) {
+                ids.putIfAbsent(state, ids.size());
+            }
+            cases.forEach((symbol, target) -> {
+                symbols.add(symbol);
+                if (!isBlank(target)) {
+                    ids.putIfAbsent(target, ids.size());
+                }
+            });
+        });
+        char[] alphabet = new char[symbols.size()];
+        int i = 0;
+        for (Character symbol : symbols) {
+            alphabet[i++] = symbol;
+        }
+        int[] table = new int[ids.size() * alphabet.length];
+        Arrays.fill(table, DEAD);
+        transitions.forEach((state, cases) -> {
+            if (!isBlank(state)) {
+                cases.forEach((symbol, target) -> {
+                    if (!isBlank(target)) {
+                        table[ids.get(state) * alphabet.length
+                                + Arrays.binarySearch(alphabet, symbol)] = ids.get(target);
+                    }
+                });
+            }
+        });
+        BitSet accepting = new BitSet(ids.size());
+        ids.forEach((state, id) -> accepting.set(id, endStates.contains(state)));
+        return new DFA(alphabet, table, 0, accepting, ids.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку автомата.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public boolean recognize(CharSequence chain) {
+        int width = alphabet.length;
+        int state = start;
+        for (int i = 0; i < chain.length(); i++) {
+            int symbol = Arrays.binarySearch(alphabet, chain.charAt(i));
+            if (symbol < 0) {
+                return false;
+            }
+            state = transitions[state * width + symbol];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting.get(state);
+    }
+
+    /**
+     * Возвращает все цепочки языка с длиной из заданного диапазона в
+     * лексикографическом порядке.
+     * <p>
+     * Перебор отсекает ветви, из которых конечное состояние
+     * недостижимо за оставшееся число символов, поэтому время работы
+     * пропорционально суммарной длине найденных цепочек.
+     *
+     * @param minLength Минимальная длина цепочки.
+     * @param maxLength Максимальная длина цепочки.
+     */
+    public List<String> chains(int minLength, int maxLength) {
+        int[] distances = distancesToAccepting();
+        List<String> result = new ArrayList<>();
+        if (distances[start] > maxLength) {
+            return result;
+        }
+        char[] buffer = new char[maxLength];
+        // Стек обхода: состояние и номер следующего символа на каждой глубине
+        int[] states = new int[maxLength + 1];
+        int[] nextSymbols = new int[maxLength + 1];
+        int depth = 0;
+        states[0] = start;
+        nextSymbols[0] = 0;
+        if (accepting.get(start) && minLength <= 0) {
+            result.add("");
+        }
+        while (depth >= 0) {
+            int state = states[depth];
+            int symbol = nextSymbols[depth]++;
+            if (symbol == alphabet.length || depth == maxLength) {
+                depth--;
+                continue;
+            }
+            int target = transitions[state * alphabet.length + symbol];
+            if (target == DEAD || distances[target] > maxLength - depth - 1) {
+                continue;
+            }
+            buffer[depth++] = alphabet[symbol];
+            states[depth] = target;
+            nextSymbols[depth] = 0;
+            if (accepting.get(target) && depth >= minLength) {
+                result.add(new String(buffer, 0, depth));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Строит минимальный автомат, распознающий тот же язык.
+     * <p>
+     * Сначала удаляются состояния, недостижимые из начального. Затем
+     * автомат дополняется тупиковым состоянием, в которое ведут
+     * отсутствующие переходы, и состояния разбиваются на классы
+     * эквивалентности алгоритмом Хопкрофта за время
+     * O(<i>k</i>·<i>n</i>·log <i>n</i>): исходное разбиение на конечные и
+     * прочие состояния уточняется по прообразам классов из очереди, а
+     * при разделении класса, которого нет в очереди, в неё добавляется
+     * меньшая часть. Класс тупикового состояния, то есть состояния, из
+     * которых недостижимы конечные, удаляется, переходы в него
+     * становятся отсутствующими. Состояния результата получают имена
+     * {@code q0}, {@code q1}, ... в порядке обхода в ширину из
+     * начального; исходные состояния каждого из них доступны через
+     * {@link #getSourceStates(int)}, а размеры автомата до и после
+     * минимизации - через {@link #getMinimizationReport()}.
+     */
+    public DFA minimize() {
+        int stateCount = stateNames.length;
+        int width = alphabet.length;
+
+        // Достижимые из начального состояния и их новые номера
+        int[] numbers = new int[stateCount];
+        Arrays.fill(numbers, DEAD);
+        int[] reachable = new int[stateCount];
+        int reachableCount = 0;
+        numbers[start] = reachableCount;
+        reachable[reachableCount++] = start;
+        for (int i = 0; i < reachableCount; i++) {
+            for (int symbol = 0; symbol < width; symbol++) {
+                int target = transitions[reachable[i] * width + symbol];
+                if (target != DEAD && numbers[target] == DEAD) {
+                    numbers[target] = reachableCount;
+                    reachable[reachableCount++] = target;
+                }
+            }
+        }
+
+        // Полная функция переходов с тупиковым состоянием sink
+        int n = reachableCount + 1;
+        int sink = reachableCount;
+        int[] delta = new int[n * width];
+        for (int i = 0; i < reachableCount; i++) {
+            for (int symbol = 0; symbol < width; symbol++) {
+                int target = transitions[reachable[i] * width + symbol];
+                delta[i * width + symbol] = target == DEAD ? sink : numbers[target];
+            }
+        }
+        Arrays.fill(delta, sink * width, n * width, sink);
+
+        // Обратные переходы по парам из символа и целевого состояния
+        int[] inverseOffsets = new int[width * n + 1];
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < width; symbol++) {
+                inverseOffsets[symbol * n + delta[state * width + symbol] + 1]++;
+            }
+        }
+        for (int i = 0; i < width * n; i++) {
+            inverseOffsets[i + 1] += inverseOffsets[i];
+        }
+        int[] inverse = new int[n * width];
+        int[] positions = Arrays.copyOf(inverseOffsets, width * n);
+        for (int state = 0; state < n; state++) {
+            for (int symbol = 0; symbol < width; symbol++) {
+                inverse[positions[symbol * n + delta[state * width + symbol]]++] = state;
+            }
+        }
+
+        // Разбиение: состояния каждого класса занимают отрезок массива elements
+        int[] elements = new int[n];
+        int[] locations = new int[n];
+        int[] blocks = new int[n];
+        int[] firsts = new int[n];
+        int[] ends = new int[n];
+        int[] marked = new int[n];
+        int blockCount = 0;
+        int size = 0;
+        for (boolean acceptingBlock : new boolean[]{true, false}) {
+            int first = size;
+            for (int state = 0; state < n; state++) {
+                if ((state != sink && accepting.get(reachable[state])) == acceptingBlock) {
+                    elements[size] = state;
+                    locations[state] = size++;
+                    blocks[state] = blockCount;
+                }
+            }
+            if (size > first) {
+                firsts[blockCount] = first;
+                ends[blockCount++] = size;
+            }
+        }
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
+        int queueSize = 0;
+        int initial = blockCount == 2 && ends[0] - firsts[0] > ends[1] - firsts[1] ? 1 : 0;
+        queue[queueSize++] = initial;
+        queued[initial] = true;
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (queueSize > 0) {
+            int block = queue[--queueSize];
+            queued[block] = false;
+            int splitterSize = ends[block] - firsts[block];
+            System.arraycopy(elements, firsts[block], splitter, 0, splitterSize);
+            for (int symbol = 0; symbol < width; symbol++) {
+                // Помечаем прообраз класса, перемещая его в начало своих классов
+                int touchedCount = 0;
+                for (int i = 0; i < splitterSize; i++) {
+                    int column = symbol * n + splitter[i];
+                    for (int j = inverseOffsets[column]; j < inverseOffsets[column + 1]; j++) {
+                        int state = inverse[j];
+                        int owner = blocks[state];
+                        int boundary = firsts[owner] + marked[owner];
+                        if (locations[state] < boundary) {
+                            continue;
+                        }
+                        if (marked[owner] == 0) {
+                            touched[touchedCount++] = owner;
+                        }
+                        int other = elements[boundary];
+                        elements[boundary] = state;
+                        elements[locations[state]] = other;
+                        locations[other] = locations[state];
+                        locations[state] = boundary;
+                        marked[owner]++;
+                    }
+                }
+                // Разделяем классы, помеченные не целиком
+                for (int i = 0; i < touchedCount; i++) {
+                    int owner = touched[i];
+                    int boundary = firsts[owner] + marked[owner];
+                    marked[owner] = 0;
+                    if (boundary == ends[owner]) {
+                        continue;
+                    }
+                    int added = blockCount++;
+                    firsts[added] = firsts[owner];
+                    ends[added] = boundary;
+                    firsts[owner] = boundary;
+                    for (int j = firsts[added]; j < ends[added]; j++) {
+                        blocks[elements[j]] = added;
+                    }
+                    int smaller = ends[added] - firsts[added] <= ends[owner] - firsts[owner]
+                            ? added : owner;
+                    int next = queued[owner] ? added : smaller;
+                    queue[queueSize++] = next;
+                    queued[next] = true;
+                }
+            }
+        }
+
+        // Нумерация классов в порядке обхода в ширину из начального
+        int deadBlock = blocks[sink];
+        int[] classNumbers = new int[blockCount];
+        Arrays.fill(classNumbers, DEAD);
+        int[] representatives = new int[blockCount];
+        int count = 0;
+        if (blocks[0] != deadBlock) {
+            classNumbers[blocks[0]] = count;
+            representatives[count++] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int state = representatives[i];
+            for (int symbol = 0; symbol < width; symbol++) {
+                int target = delta[state * width + symbol];
+                if (blocks[target] != deadBlock && classNumbers[blocks[target]] == DEAD) {
+                    classNumbers[blocks[target]] = count;
+                    representatives[count++] = target;
+                }
+            }
+        }
+        int deadCount = ends[deadBlock] - firsts[deadBlock] - 1;
+        MinimizationReport report = new MinimizationReport(stateCount,
+                stateCount - reachableCount, deadCount, Math.max(1, count));
+        Set<String> dead = new LinkedHashSet<>();
+        if (count == 0) {
+            // Язык пуст: одно начальное неконечное состояние, все
+            // переходы из которого ведут в тупиковое
+            for (int state = 0; state < stateCount; state++) {
+                if (numbers[state] != DEAD && state != start) {
+                    dead.addAll(getSourceStates(state));
+                }
+            }
+            int[] table = new int[width];
+            Arrays.fill(table, DEAD);
+            List<Set<String>> sources = List.of(new LinkedHashSet<>(getSourceStates(start)));
+            return new DFA(alphabet, table, 0, new BitSet(), new String[]{"q0"},
+                    sources, report, dead, "q1");
+        }
+        int[] table = new int[count * width];
+        BitSet minimalAccepting = new BitSet(count);
+        String[] names = new String[count];
+        List<Set<String>> sources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int state = representatives[i];
+            for (int symbol = 0; symbol < width; symbol++) {
+                int target = delta[state * width + symbol];
+                table[i * width + symbol] = blocks[target] == deadBlock
+                        ? DEAD : classNumbers[blocks[target]];
+            }
+            minimalAccepting.set(i, accepting.get(reachable[state]));
+            names[i] = "q" + i;
+            sources.add(new LinkedHashSet<>());
+        }
+        // Исходные состояния классов в порядке номеров исходного автомата
+        for (int state = 0; state < stateCount; state++) {
+            if (numbers[state] == DEAD) {
+                continue;
+            }
+            if (blocks[numbers[state]] == deadBlock) {
+                dead.addAll(getSourceStates(state));
+            } else {
+                sources.get(classNumbers[blocks[numbers[state]]]).addAll(getSourceStates(state));
+            }
+        }
+        return new DFA(alphabet, table, 0, minimalAccepting, names, sources, report,
+                dead, "q" + count);
+    }
+
+    /**
+     * Возвращает автомат, состояния которого названы по исходным
+     * состояниям: состояние с одним исходным получает его имя,
+     * остальные - перечень имен исходных в фигурных скобках, например
+     * {@code {A,C}}. Так протокол распознавания минимальным автоматом
+     * остается записанным в именах, заданных пользователем. Тупиковое
+     * состояние так же названо по исходным состояниям, из которых
+     * недостижимы конечные.
+     */
+    public DFA withSourceNames() {
+        String[] names = new String[stateNames.length];
+        Set<String> used = new HashSet<>();
+        for (int state = 0; state < stateNames.length; state++) {
+            names[state] = sourceName(getSourceStates(state), used);
+        }
+        String deadName = deadSources == null ? deadStateName : sourceName(deadSources, used);
+        return new DFA(alphabet, transitions, start, accepting, names, sources,
+                minimizationReport, deadSources, deadName);
+    }
+
+    /**
+     * Возвращает имя состояния по исходным: имя единственного
+     * исходного или перечень имен в фигурных скобках, отличный от уже
+     * занятых имен.
+     */
+    private static String sourceName(Set<String> stateSources, Set<String> used) {
+        String name = stateSources.size() == 1
+                ? stateSources.iterator().next()
+                : "{" + String.join(",", stateSources) + "}";
+        String base = name;
+        for (int i = 1; !used.add(name); i++) {
+            name = base + i;
+        }
+        return name;
+    }
+
+    /**
+     * Возвращает функцию переходов в формате распознавателя
+     * {@code DFSMRecognizer}: переходы по именам состояний и символам.
+     * Переходы в тупиковое состояние не записываются.
+     */
+    public Map<String, Map<Character, String>> toTransitionMap() {
+        return toTransitionMap(null);
+    }
+
+    /**
+     * Возвращает функцию переходов в формате распознавателя
+     * {@code DFSMRecognizer}, в которой тупиковое состояние записано
+     * явно: переходы в него ведут в состояние с заданным именем, а из
+     * него по каждому символу алфавита - в него же. Тупиковое
+     * состояние добавляется, только если в него есть переходы.
+     *
+     * @param deadName Имя тупикового состояния; {@code null} - переходы
+     * в тупиковое состояние не записываются.
+     * @throws IllegalArgumentException Если имя тупикового состояния
+     * совпадает с именем состояния автомата.
+     * @see #getDeadStateName()
+     */
+    public Map<String, Map<Character, String>> toTransitionMap(String deadName) {
+        if (deadName != null && Arrays.asList(stateNames).contains(deadName)) {
+            throw new IllegalArgumentException(
+                    "Имя тупикового состояния совпадает с именем состояния " + deadName);
+        }
+        Map<String, Map<Character, String>> result = new LinkedHashMap<>();
+        boolean deadUsed = false;
+        for (int state = 0; state < stateNames.length; state++) {
+            Map<Character, String> cases = new LinkedHashMap<>();
+            for (int symbol = 0; symbol < alphabet.length; symbol++) {
+                int target = transitions[state * alphabet.length + symbol];
+                if (target != DEAD) {
+                    cases.put(alphabet[symbol], stateNames[target]);
+                } else if (deadName != null) {
+                    cases.put(alphabet[symbol], deadName);
+                    deadUsed = true;
+                }
+            }
+            result.put(stateNames[state], cases);
+        }
+        if (deadUsed) {
+            Map<Character, String> cases = new LinkedHashMap<>();
+            for (char symbol : alphabet) {
+                cases.put(symbol, deadName);
+            }
+            result.put(deadName, cases);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает имя тупикового состояния для функции переходов
+     * {@link #toTransitionMap(String)}: у автомата, построенного
+     * построением подмножеств, - {@code {}}, у минимального - следующее
+     * свободное имя {@code q}<i>n</i> или, после
+     * {@link #withSourceNames()}, имя по исходным состояниям, из
+     * которых недостижимы конечные. Для остальных автоматов -
+     * {@code null}.
+     */
+    public String getDeadStateName() {
+        if (deadStateName == null) {
+            return null;
+        }
+        Set<String> names = getStateNames();
+        String name = deadStateName;
+        for (int i = 1; names.contains(name); i++) {
+            name = deadStateName + i;
+        }
+        return name;
+    }
+
+    /**
+     * Возвращает количество состояний.
+     */
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    /**
+     * Возвращает упорядоченный алфавит автомата.
+     */
+    public char[] getAlphabet() {
+        return alphabet.clone();
+    }
+
+    /**
+     * Возвращает номер начального состояния.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Проверяет, что состояние является конечным.
+     *
+     * @param state Номер состояния.
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Возвращает номер состояния, в которое автомат переходит по
+     * символу, или {@link #DEAD}.
+     *
+     * @param state Номер состояния.
+     * @param symbol Символ.
+     */
+    public int getTarget(int state, char symbol) {
+        int index = Arrays.binarySearch(alphabet, symbol);
+        return index < 0 ? DEAD : transitions[state * alphabet.length + index];
+    }
+
+    /**
+     * Возвращает имя состояния.
+     *
+     * @param state Номер состояния.
+     */
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Возвращает имена состояний исходного автомата, объединенных при
+     * минимизации в заданное состояние, в порядке их номеров. Для
+     * автомата, не полученного минимизацией, - имя самого состояния.
+     *
+     * @param state Номер состояния.
+     */
+    public Set<String> getSourceStates(int state) {
+        return sources == null
+                ? Set.of(stateNames[state])
+                : Collections.unmodifiableSet(sources.get(state));
+    }
+
+    /**
+     * Возвращает размеры автомата до и после минимизации или
+     * {@code null}, если автомат не получен минимизацией.
+     */
+    public MinimizationReport getMinimizationReport() {
+        return minimizationReport;
+    }
+
+    /**
+     * Возвращает имена состояний в порядке их номеров.
+     */
+    public Set<String> getStateNames() {
+        return new LinkedHashSet<>(Arrays.asList(stateNames));
+    }
+
+    /**
+     * Возвращает символы алфавита в порядке возрастания.
+     */
+    public Set<Character> getSymbols() {
+        Set<Character> result = new LinkedHashSet<>();
+        for (char symbol : alphabet) {
+            result.add(symbol);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает имена конечных состояний.
+     */
+    public Set<String> getEndStateNames() {
+        Set<String> result = new LinkedHashSet<>();
+        for (int state = accepting.nextSetBit(0); state >= 0; state = accepting.nextSetBit(state + 1)) {
+            result.add(stateNames[state]);
+        }
+        return result;
+    }
+
+    private static boolean isBlank(String state) {
+        return state == null || state.isBlank();
+    }
+
+    /**
+     * Вычисляет для каждого состояния наименьшую длину цепочки,
+     * переводящей его в конечное, или {@link Integer#MAX_VALUE}, если
+     * конечные состояния из него недостижимы.
+     */
+    private int[] distancesToAccepting() {
+        int stateCount = stateNames.length;
+        int width = alphabet.length;
+        // Обратные переходы
+        int[] offsets = new int[stateCount + 1];
+        for (int target : transitions) {
+            if (target != DEAD) {
+                offsets[target + 1]++;
+            }
+        }
+        for (int i = 0; i < stateCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sources = new int[offsets[stateCount]];
+        int[] positions = Arrays.copyOf(offsets, stateCount);
+        for (int i = 0; i < transitions.length; i++) {
+            if (transitions[i] != DEAD) {
+                sources[positions[transitions[i]]++] = i / width;
+            }
+        }
+        int[] distances = new int[stateCount];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        int[] queue = new int[stateCount];
+        int tail = 0;
+        for (int state = accepting.nextSetBit(0); state >= 0; state = accepting.nextSetBit(state + 1)) {
+            distances[state] = 0;
+            queue[tail++] = state;
+        }
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+                if (distances[sources[i]] == Integer.MAX_VALUE) {
+                    distances[sources[i]] = distances[state] + 1;
+                    queue[tail++] = sources[i];
+                }
+            }
+        }
+        return distances;
+    }
+
+}
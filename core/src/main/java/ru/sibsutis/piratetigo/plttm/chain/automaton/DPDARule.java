@@ -1,4 +1,4 @@
-package ru.sibsutis.piratetigo.plttm.chain.recognizer;
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -0,0 +1,256 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.parser.LL1Parser;
+import ru.sibsutis.piratetigo.plttm.common.Tools;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.*;
+
+/**
+ * Автомат с магазинной памятью, построенный по КС-грамматике.
+ * <p>
+ * Для LL(1)-грамматики строится детерминированный автомат.
+ * Так как правило автомата, читающее символ цепочки, сразу его
+ * поглощает, прочитанный символ запоминается в состоянии:
+ * в состоянии {@code q[a]} символ {@code a} уже прочитан, но еще не
+ * сравнен с вершиной магазина, в состоянии {@code q[λ]} прочитана вся
+ * цепочка. Нетерминальный символ на вершине магазина заменяется
+ * λ-правилом на тело правила вывода из ячейки управляющей таблицы
+ * LL(1)-анализатора, терминальный символ снимается при совпадении с
+ * запомненным, и одновременно читается следующий символ.
+ * <p>
+ * Для остальных грамматик строится недетерминированный автомат с
+ * одним рабочим состоянием {@code q}, который заменяет нетерминальный
+ * символ на вершине магазина телом любого его правила и снимает
+ * терминальный символ при совпадении с очередным символом цепочки.
+ * <p>
+ * Нетерминальный символ представлен в магазине первой буквой имени,
+ * а если она уже занята - первой свободной буквой.
+ */
+@Log
+@Getter
+public class GrammarPDA {
+
+    /** Начальное состояние автомата. */
+    public static final String START_STATE = "q0";
+
+    /** Конечное состояние автомата. */
+    public static final String END_STATE = "f";
+
+    /** Рабочее состояние недетерминированного автомата. */
+    private static final String WORK_STATE = "q";
+
+    /** Предпочтительный символ дна магазина. */
+    private static final char BOTTOM = '⊥';
+
+    private static final String NO_GOAL = "Не задан целевой символ грамматики";
+
+    /** Признак детерминированности автомата. */
+    private final boolean deterministic;
+
+    private final Set<String> states = new LinkedHashSet<>();
+
+    private final Set<Character> alphabet = new LinkedHashSet<>();
+
+    private final Set<String> endStates = Set.of(END_STATE);
+
+    private final Set<Character> stackAlphabet = new LinkedHashSet<>();
+
+    private final Character startStackSymbol;
+
+    private final Set<DPDARule> rules = new LinkedHashSet<>();
+
+    /** Символы магазина нетерминальных символов по их именам. */
+    private final Map<String, Character> stackSymbols = new LinkedHashMap<>();
+
+    /** Количество правил вывода грамматики. */
+    private final int grammarRuleCount;
+
+    /** Количество правил замены нетерминального символа. */
+    private int expandRuleCount;
+
+    /** Количество правил сравнения терминального символа. */
+    private int matchRuleCount;
+
+    private GrammarPDA(CompiledGrammar grammar, boolean deterministic) {
+        this.deterministic = deterministic;
+        grammarRuleCount = grammar.getRuleCount();
+        for (int terminal = 0; terminal < grammar.getTerminalCount(); terminal++) {
+            alphabet.add(grammar.getTerminal(terminal));
+        }
+        stackAlphabet.addAll(alphabet);
+        for (int i = 0; i < grammar.getNonTerminalCount(); i++) {
+            String name = grammar.getName(grammar.getTerminalCount() + i);
+            stackSymbols.put(name, allocate(name.charAt(0)));
+        }
+        startStackSymbol = allocate(BOTTOM);
+    }
+
+    /**
+     * Строит автомат с магазинной памятью по КС-грамматике.
+     *
+     * @param grammar КС-грамматика.
+     * @return Детерминированный автомат для LL(1)-грамматики,
+     * недетерминированный - для остальных.
+     * @throws IllegalArgumentException Если не задан целевой символ.
+     */
+    public static GrammarPDA of(ContextFreeGrammar grammar) {
+        CompiledGrammar compiled = grammar.compile();
+        if (compiled.getGoal() == CompiledGrammar.NO_SYMBOL) {
+            throw new IllegalArgumentException(NO_GOAL);
+        }
+        LL1Parser parser = new LL1Parser(compiled);
+        GrammarPDA pda = new GrammarPDA(compiled, parser.isLL1());
+        if (pda.deterministic) {
+            pda.buildDeterministic(compiled, parser);
+        } else {
+            pda.buildNondeterministic(compiled);
+        }
+        LOGGER.info("Построение МПА по грамматике. " + pda);
+        return pda;
+    }
+
+    /**
+     * Возвращает общее количество правил функции переходов.
+     */
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    /**
+     * Возвращает количество служебных правил: начальных правил и
+     * правила перехода в конечное состояние.
+     */
+    public int getServiceRuleCount() {
+        return rules.size() - expandRuleCount - matchRuleCount;
+    }
+
+    @Override
+    public String toString() {
+        return (deterministic ? "ДМПА" : "НМПА")
+                + ": правил вывода грамматики: " + grammarRuleCount
+                + ", состояний: " + states.size()
+                + ", символов магазина: " + stackAlphabet.size()
+                + ", правил переходов: " + rules.size()
+                + " (замена: " + expandRuleCount
+                + ", сравнение: " + matchRuleCount
+                + ", служебных: " + getServiceRuleCount() + ")";
+    }
+
+    private void buildDeterministic(CompiledGrammar grammar, LL1Parser parser) {
+        int endMarker = grammar.getAnalysis().getEndMarker();
+        String[] lookaheadStates = new String[endMarker + 1];
+        for (int lookahead = 0; lookahead <= endMarker; lookahead++) {
+            lookaheadStates[lookahead] = "q[" + (lookahead == endMarker
+                    ? Tools.LAMBDA : grammar.getTerminal(lookahead)) + "]";
+        }
+        states.add(START_STATE);
+        states.addAll(Arrays.asList(lookaheadStates));
+        states.add(END_STATE);
+
+        // Чтение первого символа и запись целевого символа в магазин
+        String goal = stackSymbols.get(grammar.getName(grammar.getGoal())) + ""
+                + startStackSymbol;
+        for (int lookahead = 0; lookahead <= endMarker; lookahead++) {
+            rules.add(new DPDARule(START_STATE, chainSymbol(grammar, lookahead),
+                    startStackSymbol, lookaheadStates[lookahead], goal));
+        }
+        for (int lookahead = 0; lookahead <= endMarker; lookahead++) {
+            String state = lookaheadStates[lookahead];
+            for (int i = 0; i < grammar.getNonTerminalCount(); i++) {
+                int nonTerminal = grammar.getTerminalCount() + i;
+                int rule = parser.getRule(nonTerminal, lookahead);
+                if (rule != CompiledGrammar.NO_SYMBOL) {
+                    rules.add(new DPDARule(state, Tools.LAMBDA,
+                            stackSymbols.get(grammar.getName(nonTerminal)),
+                            state, body(grammar, rule)));
+                    expandRuleCount++;
+                }
+            }
+            if (lookahead == endMarker) {
+                continue;
+            }
+            // Снятие совпавшего символа вместе с чтением следующего
+            char terminal = grammar.getTerminal(lookahead);
+            for (int next = 0; next <= endMarker; next++) {
+                rules.add(new DPDARule(state, chainSymbol(grammar, next),
+                        terminal, lookaheadStates[next], Tools.LAMBDA.toString()));
+                matchRuleCount++;
+            }
+        }
+        rules.add(new DPDARule(lookaheadStates[endMarker], Tools.LAMBDA,
+                startStackSymbol, END_STATE, Tools.LAMBDA.toString()));
+    }
+
+    private void buildNondeterministic(CompiledGrammar grammar) {
+        states.add(START_STATE);
+        states.add(WORK_STATE);
+        states.add(END_STATE);
+        rules.add(new DPDARule(START_STATE, Tools.LAMBDA, startStackSymbol, WORK_STATE,
+                stackSymbols.get(grammar.getName(grammar.getGoal())) + "" + startStackSymbol));
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            rules.add(new DPDARule(WORK_STATE, Tools.LAMBDA,
+                    stackSymbols.get(grammar.getName(grammar.getRuleHead(rule))),
+                    WORK_STATE, body(grammar, rule)));
+            expandRuleCount++;
+        }
+        for (Character terminal : alphabet) {
+            rules.add(new DPDARule(WORK_STATE, terminal, terminal, WORK_STATE,
+                    Tools.LAMBDA.toString()));
+            matchRuleCount++;
+        }
+        rules.add(new DPDARule(WORK_STATE, Tools.LAMBDA, startStackSymbol, END_STATE,
+                Tools.LAMBDA.toString()));
+    }
+
+    /**
+     * Возвращает запись тела правила вывода символами магазина.
+     */
+    private String body(CompiledGrammar grammar, int rule) {
+        int length = grammar.getRuleLength(rule);
+        if (length == 0) {
+            return Tools.LAMBDA.toString();
+        }
+        StringBuilder body = new StringBuilder(length);
+        for (int position = 0; position < length; position++) {
+            int symbol = grammar.getRuleSymbol(rule, position);
+            body.append(grammar.isTerminal(symbol)
+                    ? grammar.getTerminal(symbol)
+                    : stackSymbols.get(grammar.getName(symbol)));
+        }
+        return body.toString();
+    }
+
+    private static Character chainSymbol(CompiledGrammar grammar, int lookahead) {
+        return lookahead == grammar.getAnalysis().getEndMarker()
+                ? Tools.LAMBDA
+                : grammar.getTerminal(lookahead);
+    }
+
+    /**
+     * Добавляет в алфавит магазина заданный символ или, если он уже
+     * занят, первую свободную букву.
+     */
+    private Character allocate(char preferred) {
+        char symbol = preferred;
+        if (!isFree(symbol)) {
+            symbol = 'A';
+            while (!isFree(symbol) || !Character.isLetter(symbol)) {
+                symbol++;
+            }
+        }
+        stackAlphabet.add(symbol);
+        return symbol;
+    }
+
+    private boolean isFree(char symbol) {
+        return !stackAlphabet.contains(symbol)
+                && symbol != Tools.LAMBDA
+                && symbol != Tools.ARROW
+                && symbol != Tools.RULE;
+    }
+
+}
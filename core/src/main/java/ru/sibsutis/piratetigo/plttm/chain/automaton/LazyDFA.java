@@ -0,0 +1,519 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Детерминированный конечный автомат, состояния которого строятся по
+ * недетерминированному автомату во время проверки цепочек.
+ * <p>
+ * Состояние - λ-замыкание множества состояний исходного автомата,
+ * записанное словами {@code long[]}. Переход вычисляется при первом
+ * обращении к нему и записывается в таблицу, поэтому на часто
+ * проходимых путях проверка символа - одно обращение к таблице, как в
+ * {@link CompiledDFA}, а состояния, которые цепочки не посещают, не
+ * строятся вовсе. Количество хранимых состояний ограничено размером
+ * кеша: когда для нового состояния нет места, кеш очищается целиком и
+ * построение продолжается с текущего состояния. Расход памяти поэтому
+ * ограничен даже для автоматов, у которых построение подмножеств
+ * {@link NFA#determinize(int)} экспоненциально.
+ * <p>
+ * Если кеш очищается чаще, чем раз в {@link #THRASH_FACTOR} размеров
+ * кеша прочитанных символов, почти каждый символ строит новое
+ * состояние, и таблица только замедляет проверку. Тогда оставшаяся
+ * часть цепочки проверяется моделированием недетерминированного
+ * автомата над битовыми множествами с текущего множества состояний,
+ * а следующая цепочка снова начинает проверяться таблицей.
+ * <p>
+ * Кеш общий для всех проверок, поэтому методы экземпляра
+ * синхронизированы.
+ */
+public final class LazyDFA {
+
+    /** Тупиковое состояние: пустое множество состояний. */
+    public static final int DEAD = -1;
+
+    /** Размер кеша по умолчанию. */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 12;
+
+    /**
+     * Во сколько раз количество символов, прочитанных между очистками
+     * кеша, должно превышать его размер, чтобы проверка продолжалась
+     * таблицей.
+     */
+    public static final int THRASH_FACTOR = 10;
+
+    /** Наименьший размер кеша: текущее и следующее состояния. */
+    private static final int MIN_CACHE_SIZE = 2;
+
+    /** Еще не вычисленный переход. */
+    private static final int UNKNOWN = -2;
+
+    /** Размер буфера при чтении цепочки из потока. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Недетерминированный автомат. */
+    @Getter
+    private final NFA nfa;
+
+    /** Номера символов алфавита, увеличенные на 1, по их кодам; 0 - символ вне алфавита. */
+    private final char[] classes;
+
+    /** Размер алфавита. */
+    private final int width;
+
+    /** Переходы исходного автомата, см. {@link NFA#moveIndex(char[])}. */
+    private final int[] offsets;
+
+    private final int[] moves;
+
+    /** λ-замыкания состояний исходного автомата. */
+    private final long[][] closures;
+
+    /** Конечные состояния исходного автомата. */
+    private final long[] acceptingStates;
+
+    /** λ-замыкание начального состояния. */
+    private final long[] startSet;
+
+    /** Количество слов в множестве состояний. */
+    private final int words;
+
+    /** Наибольшее количество хранимых состояний. */
+    @Getter
+    private final int cacheSize;
+
+    /** Номера хранимых состояний по множествам. */
+    private final Map<Subset, Integer> index = new HashMap<>();
+
+    /** Множества хранимых состояний по номерам. */
+    private final long[][] sets;
+
+    /** Таблица переходов: состояние × номер символа алфавита. */
+    private final int[] table;
+
+    /** Признаки конечных состояний по номерам. */
+    private final boolean[] accepting;
+
+    /** Буфер множества при вычислении перехода. */
+    private final long[] next;
+
+    /** Количество хранимых состояний. */
+    private int count;
+
+    /** Номер начального состояния или {@link #UNKNOWN}, если его нет в кеше. */
+    private int start = UNKNOWN;
+
+    /** Количество символов, прочитанных таблицей за все проверки. */
+    private long processed;
+
+    /** Значение {@link #processed} при последней очистке кеша. */
+    private long flushedAt;
+
+    /** Количество очисток кеша. */
+    @Getter
+    private long flushCount;
+
+    /** Количество переходов к моделированию исходного автомата. */
+    @Getter
+    private long fallbackCount;
+
+    /**
+     * Создает ленивый автомат с кешем размера {@link #DEFAULT_CACHE_SIZE}.
+     *
+     * @param nfa Недетерминированный автомат.
+     */
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Создает ленивый автомат.
+     *
+     * @param nfa Недетерминированный автомат.
+     * @param cacheSize Наибольшее количество хранимых состояний.
+     * @throws IllegalArgumentException Если размер кеша меньше двух.
+     */
+    public LazyDFA(NFA nfa, int cacheSize) {
+        if (cacheSize < MIN_CACHE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Размер кеша состояний должен быть не меньше " + MIN_CACHE_SIZE);
+        }
+        this.nfa = nfa;
+        this.cacheSize = cacheSize;
+        char[] alphabet = nfa.getAlphabet();
+        width = alphabet.length;
+        classes = new char[width == 0 ? 0 : alphabet[width - 1] + 1];
+        for (int symbol = 0; symbol < width; symbol++) {
+            classes[alphabet[symbol]] = (char) (symbol + 1);
+        }
+        int[][] moveIndex = nfa.moveIndex(alphabet);
+        offsets = moveIndex[0];
+        moves = moveIndex[1];
+        BitSet[] stateClosures = nfa.closures();
+        int stateCount = nfa.getStateCount();
+        words = Math.max(1, (stateCount + Long.SIZE - 1) / Long.SIZE);
+        closures = new long[stateCount][];
+        BitSet acceptingSet = new BitSet(stateCount);
+        for (int state = 0; state < stateCount; state++) {
+            closures[state] = Arrays.copyOf(stateClosures[state].toLongArray(), words);
+            acceptingSet.set(state, nfa.isAccepting(state));
+        }
+        acceptingStates = Arrays.copyOf(acceptingSet.toLongArray(), words);
+        startSet = nfa.getStart() == NFA.NO_STATE
+                ? new long[words] : closures[nfa.getStart()].clone();
+        sets = new long[cacheSize][];
+        table = new int[cacheSize * width];
+        Arrays.fill(table, UNKNOWN);
+        accepting = new boolean[cacheSize];
+        next = new long[words];
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку автомата.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public synchronized boolean recognize(CharSequence chain) {
+        Run run = new Run();
+        run.feed(chain, 0, chain.length());
+        return run.report().isAccepted();
+    }
+
+    /**
+     * Проверяет цепочку, читаемую из потока символов буферами
+     * фиксированного размера. Чтение прекращается, как только автомат
+     * попадает в тупиковое состояние.
+     *
+     * @param reader Поток символов.
+     * @return Результат проверки со смещением ошибки.
+     */
+    public synchronized RecognitionReport recognize(Reader reader) throws IOException {
+        Run run = new Run();
+        char[] buffer = new char[BUFFER_SIZE];
+        CharBuffer chunk = CharBuffer.wrap(buffer);
+        int read;
+        while (!run.isFailed() && (read = reader.read(buffer)) >= 0) {
+            run.feed(chunk, 0, read);
+        }
+        return run.report();
+    }
+
+    /**
+     * Возвращает начальное состояние.
+     * <p>
+     * Номера состояний, возвращаемые {@link #getStart()} и
+     * {@link #next(int, char)}, действительны до следующего обращения
+     * к автомату, так как обращение может очистить кеш.
+     */
+    public synchronized int getStart() {
+        if (start == UNKNOWN) {
+            start = find(startSet.clone(), DEAD)[0];
+        }
+        return start;
+    }
+
+    /**
+     * Возвращает состояние, в которое автомат переходит по символу,
+     * строя его при необходимости.
+     *
+     * @param state Исходное состояние.
+     * @param symbol Символ.
+     * @return Следующее состояние или {@link #DEAD}.
+     */
+    public synchronized int next(int state, char symbol) {
+        if (state == DEAD || symbol >= classes.length || classes[symbol] == 0) {
+            return DEAD;
+        }
+        int target = table[state * width + classes[symbol] - 1];
+        return target == UNKNOWN ? build(state, classes[symbol] - 1) : target;
+    }
+
+    /**
+     * Проверяет, что символ принадлежит алфавиту автомата.
+     *
+     * @param symbol Символ.
+     */
+    public boolean isSymbol(char symbol) {
+        return symbol < classes.length && classes[symbol] != 0;
+    }
+
+    /**
+     * Проверяет, что состояние является конечным.
+     *
+     * @param state Состояние.
+     */
+    public synchronized boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    /**
+     * Возвращает имя состояния - перечень имен состояний исходного
+     * автомата в фигурных скобках - или {@code null} для тупикового
+     * состояния.
+     *
+     * @param state Состояние.
+     */
+    public synchronized String getStateName(int state) {
+        return state == DEAD ? null : name(sets[state]);
+    }
+
+    /**
+     * Возвращает количество хранимых состояний.
+     */
+    public synchronized int getCachedStateCount() {
+        return count;
+    }
+
+    /**
+     * Вычисляет и записывает в таблицу переход по символу.
+     *
+     * @param state Исходное состояние.
+     * @param symbol Номер символа алфавита.
+     * @return Следующее состояние или {@link #DEAD}.
+     */
+    private int build(int state, int symbol) {
+        if (!successors(sets[state], symbol, next)) {
+            table[state * width + symbol] = DEAD;
+            return DEAD;
+        }
+        int[] found = find(next.clone(), state);
+        table[found[1] * width + symbol] = found[0];
+        return found[0];
+    }
+
+    /**
+     * Ищет состояние в кеше, добавляя его при отсутствии. Если кеш
+     * заполнен, он очищается, а исходное состояние добавляется
+     * заново.
+     *
+     * @param set Множество состояний.
+     * @param source Исходное состояние или {@link #DEAD}.
+     * @return Номер найденного состояния и номер исходного после
+     * возможной очистки кеша.
+     */
+    private int[] find(long[] set, int source) {
+        if (isEmpty(set)) {
+            return new int[]{DEAD, source};
+        }
+        Subset key = new Subset(set);
+        Integer target = index.get(key);
+        if (target != null) {
+            return new int[]{target, source};
+        }
+        if (count == cacheSize) {
+            long[] kept = source == DEAD ? null : sets[source];
+            index.clear();
+            Arrays.fill(sets, null);
+            Arrays.fill(table, UNKNOWN);
+            count = 0;
+            start = UNKNOWN;
+            flushCount++;
+            if (kept != null) {
+                source = add(new Subset(kept));
+            }
+        }
+        return new int[]{add(key), source};
+    }
+
+    private int add(Subset key) {
+        sets[count] = key.words;
+        accepting[count] = intersects(key.words, acceptingStates);
+        index.put(key, count);
+        return count++;
+    }
+
+    /**
+     * Вычисляет множество состояний, в которые исходный автомат
+     * переходит по символу, с λ-замыканием.
+     *
+     * @param current Текущее множество.
+     * @param symbol Номер символа алфавита.
+     * @param result Множество результата.
+     * @return Признак непустого результата.
+     */
+    private boolean successors(long[] current, int symbol, long[] result) {
+        Arrays.fill(result, 0);
+        boolean found = false;
+        for (int word = 0; word < words; word++) {
+            for (long bits = current[word]; bits != 0; bits &= bits - 1) {
+                int column = (word * Long.SIZE + Long.numberOfTrailingZeros(bits)) * width + symbol;
+                for (int i = offsets[column]; i < offsets[column + 1]; i++) {
+                    long[] closure = closures[moves[i]];
+                    for (int j = 0; j < words; j++) {
+                        result[j] |= closure[j];
+                    }
+                    found = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    private String name(long[] set) {
+        return nfa.subsetName(BitSet.valueOf(set));
+    }
+
+    private static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean intersects(long[] first, long[] second) {
+        for (int i = 0; i < first.length; i++) {
+            if ((first[i] & second[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверка одной цепочки, возможно читаемой частями.
+     */
+    private final class Run {
+
+        /** Текущее состояние при проверке таблицей. */
+        private int state = getStart();
+
+        /**
+         * Текущее множество состояний при моделировании исходного
+         * автомата; {@code null} при проверке таблицей.
+         */
+        private long[] set;
+
+        /** Буфер следующего множества при моделировании. */
+        private long[] following;
+
+        /** Количество прочитанных символов. */
+        private long position;
+
+        private long failure = RecognitionReport.NO_FAILURE;
+
+        boolean isFailed() {
+            return failure != RecognitionReport.NO_FAILURE;
+        }
+
+        /**
+         * Читает часть цепочки.
+         */
+        void feed(CharSequence chain, int from, int to) {
+            if (isFailed()) {
+                return;
+            }
+            if (set != null) {
+                simulate(chain, from, to);
+                return;
+            }
+            int[] table = LazyDFA.this.table;
+            char[] classes = LazyDFA.this.classes;
+            int limit = classes.length;
+            int state = this.state;
+            for (int i = from; i < to; i++) {
+                char symbol = chain.charAt(i);
+                int column = symbol < limit ? classes[symbol] - 1 : -1;
+                int target = state == DEAD || column < 0 ? DEAD : table[state * width + column];
+                if (target == UNKNOWN) {
+                    long flushes = flushCount;
+                    target = build(state, column);
+                    if (flushCount != flushes) {
+                        long now = processed + i - from;
+                        boolean thrashing = now - flushedAt < (long) THRASH_FACTOR * cacheSize;
+                        flushedAt = now;
+                        if (thrashing && target != DEAD) {
+                            // Остаток цепочки - моделированием исходного автомата
+                            fallbackCount++;
+                            set = sets[target].clone();
+                            following = new long[words];
+                            processed += i + 1 - from;
+                            position += i + 1 - from;
+                            simulate(chain, i + 1, to);
+                            return;
+                        }
+                    }
+                }
+                if (target == DEAD) {
+                    processed += i + 1 - from;
+                    failure = position + i - from;
+                    position = failure + 1;
+                    this.state = DEAD;
+                    return;
+                }
+                state = target;
+            }
+            processed += to - from;
+            position += to - from;
+            this.state = state;
+        }
+
+        private void simulate(CharSequence chain, int from, int to) {
+            char[] classes = LazyDFA.this.classes;
+            int limit = classes.length;
+            for (int i = from; i < to; i++) {
+                char symbol = chain.charAt(i);
+                int column = symbol < limit ? classes[symbol] - 1 : -1;
+                if (column < 0 || !successors(set, column, following)) {
+                    failure = position + i - from;
+                    position = failure + 1;
+                    return;
+                }
+                long[] previous = set;
+                set = following;
+                following = previous;
+            }
+            position += to - from;
+        }
+
+        RecognitionReport report() {
+            if (isFailed()) {
+                return RecognitionReport.dead(failure);
+            }
+            boolean accepted;
+            String stateName;
+            if (set != null) {
+                accepted = intersects(set, acceptingStates);
+                stateName = name(set);
+            } else {
+                accepted = isAccepting(state);
+                stateName = getStateName(state);
+            }
+            return new RecognitionReport(accepted, position,
+                    accepted ? RecognitionReport.NO_FAILURE : position, stateName);
+        }
+    }
+
+    /**
+     * Множество состояний - ключ кеша.
+     */
+    private static final class Subset {
+
+        private final long[] words;
+
+        private final int hash;
+
+        Subset(long[] words) {
+            this.words = words;
+            hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Subset && Arrays.equals(words, ((Subset) other).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Размеры конечного автомата до и после минимизации.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MinimizationReport {
+    private final int stateCountBefore;
+    private final int unreachableCount;
+    private final int deadCount;
+    private final int stateCountAfter;
+
+    @Override
+    public String toString() {
+        return "Состояний: " + stateCountBefore + " → " + stateCountAfter
+                + " (недостижимых: " + unreachableCount
+                + ", тупиковых: " + deadCount + ")";
+    }
+}
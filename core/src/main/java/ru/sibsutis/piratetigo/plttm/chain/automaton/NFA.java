@@ -0,0 +1,493 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.common.Tools;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.RegularForm;
+
+import java.util.*;
+
+/**
+ * Недетерминированный конечный автомат с λ-переходами.
+ * <p>
+ * Состояния нумеруются подряд с нуля в порядке добавления и имеют
+ * имена для протоколов и переноса в формат
+ * {@link DFA#toTransitionMap()}. Переходы хранятся в массивах
+ * целых чисел и упорядочиваются по состоянию и символу только при
+ * детерминизации.
+ */
+public final class NFA {
+
+    /** Отсутствующее состояние. */
+    public static final int NO_STATE = -1;
+
+    private static final String NOT_REGULAR =
+            "Грамматика не является праволинейной или леволинейной";
+
+    private final List<String> stateNames = new ArrayList<>();
+
+    private final BitSet accepting = new BitSet();
+
+    /** Начальное состояние. */
+    @Getter
+    private int start = NO_STATE;
+
+    /** Переходы по символам: исходное состояние, символ, целевое состояние. */
+    private int[] sources = new int[16];
+
+    private char[] symbols = new char[16];
+
+    private int[] targets = new int[16];
+
+    private int transitionCount;
+
+    /** λ-переходы: исходное и целевое состояния. */
+    private int[] emptySources = new int[16];
+
+    private int[] emptyTargets = new int[16];
+
+    private int emptyCount;
+
+    /**
+     * Строит автомат, распознающий язык регулярной грамматики.
+     *
+     * @param grammar Праволинейная или леволинейная КС-грамматика.
+     * @throws IllegalArgumentException Если грамматика не является
+     * регулярной.
+     * @see ru.sibsutis.piratetigo.plttm.grammar.GrammarAnalysis#getRegularForm()
+     */
+    public static NFA of(ContextFreeGrammar grammar) {
+        return of(grammar.compile());
+    }
+
+    /**
+     * Строит автомат, распознающий язык регулярной грамматики.
+     * <p>
+     * Для праволинейной грамматики состояние нетерминального символа
+     * распознает выводимые из него цепочки: правило
+     * {@code A→a}<sub>1</sub>...{@code a}<sub>k</sub>{@code B} становится
+     * цепочкой переходов из состояния A в состояние B, правило без
+     * нетерминального символа ведет в конечное состояние. Для
+     * леволинейной грамматики переходы строятся в обратную сторону:
+     * правило {@code A→Ba}<sub>1</sub>...{@code a}<sub>k</sub> ведет из
+     * состояния B в состояние A, правило без нетерминального символа -
+     * из нового начального состояния, а конечным становится состояние
+     * целевого символа.
+     *
+     * @param grammar Снимок праволинейной или леволинейной КС-грамматики.
+     * @throws IllegalArgumentException Если грамматика не является
+     * регулярной.
+     */
+    public static NFA of(CompiledGrammar grammar) {
+        RegularForm form = grammar.getAnalysis().getRegularForm();
+        if (form == RegularForm.NONE) {
+            throw new IllegalArgumentException(NOT_REGULAR);
+        }
+        NFA nfa = new NFA();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < grammar.getNonTerminalCount(); i++) {
+            String name = grammar.getName(grammar.getTerminalCount() + i);
+            names.add(name);
+            nfa.addState(name);
+        }
+        if (grammar.getGoal() == CompiledGrammar.NO_SYMBOL) {
+            nfa.setStart(nfa.addState(freshName("S", names)));
+            return nfa;
+        }
+        int goal = grammar.getNonTerminalIndex(grammar.getGoal());
+        boolean right = form == RegularForm.RIGHT_LINEAR;
+        // Дополнительное состояние: конечное для праволинейной грамматики
+        // и начальное для леволинейной
+        int extra = nfa.addState(freshName(right ? "F" : "S", names));
+        if (right) {
+            nfa.setStart(goal);
+            nfa.setAccepting(extra, true);
+        } else {
+            nfa.setStart(extra);
+            nfa.setAccepting(goal, true);
+        }
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            int head = grammar.getNonTerminalIndex(grammar.getRuleHead(rule));
+            int length = grammar.getRuleLength(rule);
+            int from = extra;
+            int to = head;
+            int first = 0;
+            int end = length;
+            if (right) {
+                from = head;
+                to = extra;
+                if (length > 0 && !grammar.isTerminal(grammar.getRuleSymbol(rule, length - 1))) {
+                    to = grammar.getNonTerminalIndex(grammar.getRuleSymbol(rule, --end));
+                }
+            } else if (length > 0 && !grammar.isTerminal(grammar.getRuleSymbol(rule, 0))) {
+                from = grammar.getNonTerminalIndex(grammar.getRuleSymbol(rule, first++));
+            }
+            if (first == end) {
+                nfa.addEmptyTransition(from, to);
+                continue;
+            }
+            for (int position = first; position < end; position++) {
+                int next = position == end - 1
+                        ? to
+                        : nfa.addState(freshName(grammar.getName(grammar.getRuleHead(rule)), names));
+                nfa.addTransition(from, grammar.getTerminal(grammar.getRuleSymbol(rule, position)), next);
+                from = next;
+            }
+        }
+        return nfa;
+    }
+
+    /**
+     * Строит автомат, заданный функцией переходов по именам состояний.
+     * <p>
+     * Переходы по символу {@link Tools#LAMBDA} считаются λ-переходами.
+     * Пустые имена целевых состояний пропускаются, без начального
+     * состояния автомат не допускает ни одной цепочки. Состояния нумеруются
+     * в порядке первого упоминания: начальное, затем исходные и
+     * целевые состояния переходов.
+     *
+     * @param startState Имя начального состояния.
+     * @param endStates Имена конечных состояний.
+     * @param transitions Множества целевых состояний по именам
+     * состояний и символам.
+     */
+    public static NFA of(String startState,
+                         Set<String> endStates,
+                         Map<String, Map<Character, Set<String>>> transitions) {
+        NFA nfa = new NFA();
+        Map<String, Integer> ids = new HashMap<>();
+        if (startState != null && !startState.isBlank()) {
+            nfa.setStart(nfa.stateId(ids, startState));
+        }
+        transitions.forEach((state, cases) -> {
+            int from = nfa.stateId(ids, state);
+            cases.forEach((symbol, targets) -> targets.forEach(target -> {
+                if (target == null || target.isBlank()) {
+                    return;
+                }
+                int to = nfa.stateId(ids, target);
+                if (symbol.equals(Tools.LAMBDA)) {
+                    nfa.addEmptyTransition(from, to);
+                } else {
+                    nfa.addTransition(from, symbol, to);
+                }
+            }));
+        });
+        endStates.forEach(state -> nfa.setAccepting(nfa.stateId(ids, state), true));
+        return nfa;
+    }
+
+    /**
+     * Добавляет состояние.
+     *
+     * @param name Имя состояния.
+     * @return Номер состояния.
+     */
+    public int addState(String name) {
+        stateNames.add(name);
+        return stateNames.size() - 1;
+    }
+
+    /**
+     * Устанавливает начальное состояние.
+     *
+     * @param state Номер состояния.
+     */
+    public void setStart(int state) {
+        checkState(state);
+        start = state;
+    }
+
+    /**
+     * Устанавливает признак конечного состояния.
+     *
+     * @param state Номер состояния.
+     * @param value Признак конечного состояния.
+     */
+    public void setAccepting(int state, boolean value) {
+        checkState(state);
+        accepting.set(state, value);
+    }
+
+    /**
+     * Добавляет переход по символу.
+     *
+     * @param from Исходное состояние.
+     * @param symbol Символ.
+     * @param to Целевое состояние.
+     */
+    public void addTransition(int from, char symbol, int to) {
+        checkState(from);
+        checkState(to);
+        if (transitionCount == sources.length) {
+            int capacity = transitionCount * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+        sources[transitionCount] = from;
+        symbols[transitionCount] = symbol;
+        targets[transitionCount++] = to;
+    }
+
+    /**
+     * Добавляет λ-переход.
+     *
+     * @param from Исходное состояние.
+     * @param to Целевое состояние.
+     */
+    public void addEmptyTransition(int from, int to) {
+        checkState(from);
+        checkState(to);
+        if (emptyCount == emptySources.length) {
+            emptySources = Arrays.copyOf(emptySources, emptyCount * 2);
+            emptyTargets = Arrays.copyOf(emptyTargets, emptyCount * 2);
+        }
+        emptySources[emptyCount] = from;
+        emptyTargets[emptyCount++] = to;
+    }
+
+    /**
+     * Возвращает количество состояний.
+     */
+    public int getStateCount() {
+        return stateNames.size();
+    }
+
+    /**
+     * Возвращает имя состояния.
+     *
+     * @param state Номер состояния.
+     */
+    public String getStateName(int state) {
+        return stateNames.get(state);
+    }
+
+    /**
+     * Проверяет, что состояние является конечным.
+     *
+     * @param state Номер состояния.
+     */
+    public boolean isAccepting(int state) {
+        return accepting.get(state);
+    }
+
+    /**
+     * Возвращает упорядоченный алфавит автомата: символы, по которым
+     * есть хотя бы один переход.
+     */
+    public char[] getAlphabet() {
+        char[] alphabet = Arrays.copyOf(symbols, transitionCount);
+        Arrays.sort(alphabet);
+        int count = 0;
+        for (int i = 0; i < alphabet.length; i++) {
+            if (i == 0 || alphabet[i] != alphabet[i - 1]) {
+                alphabet[count++] = alphabet[i];
+            }
+        }
+        return Arrays.copyOf(alphabet, count);
+    }
+
+    /**
+     * Строит детерминированный автомат построением подмножеств.
+     * <p>
+     * Состояние результата - λ-замыкание множества состояний
+     * исходного автомата, записанное битовым множеством; уже
+     * построенные множества ищутся по хеш-индексу. Строятся только
+     * достижимые состояния, переходы в пустое множество не
+     * записываются.
+     */
+    public DFA determinize() {
+        return determinize(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Строит детерминированный автомат построением подмножеств,
+     * ограничивая количество его состояний.
+     * <p>
+     * Количество подмножеств может экспоненциально превышать
+     * количество состояний исходного автомата, поэтому построение
+     * прекращается, как только найдено подмножество сверх допустимого
+     * количества.
+     *
+     * @param stateLimit Допустимое количество состояний.
+     * @throws StateLimitExceededException Если количество состояний
+     * превышает допустимое.
+     * @see #determinize()
+     */
+    public DFA determinize(int stateLimit) {
+        char[] alphabet = getAlphabet();
+        int stateCount = stateNames.size();
+        int width = alphabet.length;
+
+        int[][] moveIndex = moveIndex(alphabet);
+        int[] offsets = moveIndex[0];
+        int[] moves = moveIndex[1];
+        BitSet[] closures = closures();
+
+        List<BitSet> subsets = new ArrayList<>();
+        Map<BitSet, Integer> index = new HashMap<>();
+        int[] table = new int[16 * Math.max(1, width)];
+        BitSet initial = start == NO_STATE ? new BitSet() : (BitSet) closures[start].clone();
+        subsets.add(initial);
+        index.put(initial, 0);
+        BitSet next = new BitSet(stateCount);
+        for (int current = 0; current < subsets.size(); current++) {
+            BitSet subset = subsets.get(current);
+            if ((current + 1) * width > table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            for (int symbol = 0; symbol < width; symbol++) {
+                next.clear();
+                for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+                    int column = state * width + symbol;
+                    for (int i = offsets[column]; i < offsets[column + 1]; i++) {
+                        next.or(closures[moves[i]]);
+                    }
+                }
+                if (next.isEmpty()) {
+                    table[current * width + symbol] = DFA.DEAD;
+                    continue;
+                }
+                Integer target = index.get(next);
+                if (target == null) {
+                    if (subsets.size() >= stateLimit) {
+                        throw new StateLimitExceededException(stateCount, stateLimit,
+                                subsets.stream().mapToInt(BitSet::cardinality).max().orElse(0));
+                    }
+                    BitSet added = (BitSet) next.clone();
+                    target = subsets.size();
+                    subsets.add(added);
+                    index.put(added, target);
+                }
+                table[current * width + symbol] = target;
+            }
+        }
+
+        String[] names = new String[subsets.size()];
+        BitSet dfaAccepting = new BitSet(subsets.size());
+        for (int i = 0; i < subsets.size(); i++) {
+            BitSet subset = subsets.get(i);
+            names[i] = subsetName(subset);
+            dfaAccepting.set(i, subset.intersects(accepting));
+        }
+        return new DFA(alphabet, Arrays.copyOf(table, subsets.size() * width),
+                0, dfaAccepting, names, subsetName(new BitSet()));
+    }
+
+    /**
+     * Упорядочивает переходы по парам из состояния и номера символа
+     * алфавита: состояния, в которые ведут переходы из состояния
+     * {@code s} по символу с номером {@code c}, записаны в массиве
+     * {@code moves} с позиции {@code offsets[s * k + c]} до позиции
+     * {@code offsets[s * k + c + 1]}, где {@code k} - размер алфавита.
+     *
+     * @param alphabet Упорядоченный алфавит, содержащий все символы
+     * переходов.
+     * @return Массивы {@code offsets} и {@code moves}.
+     */
+    int[][] moveIndex(char[] alphabet) {
+        int stateCount = stateNames.size();
+        int width = alphabet.length;
+        int[] offsets = new int[stateCount * width + 1];
+        int[] columns = new int[transitionCount];
+        for (int i = 0; i < transitionCount; i++) {
+            columns[i] = sources[i] * width + Arrays.binarySearch(alphabet, symbols[i]);
+            offsets[columns[i] + 1]++;
+        }
+        for (int i = 0; i < stateCount * width; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] moves = new int[transitionCount];
+        int[] positions = Arrays.copyOf(offsets, stateCount * width);
+        for (int i = 0; i < transitionCount; i++) {
+            moves[positions[columns[i]]++] = targets[i];
+        }
+        return new int[][]{offsets, moves};
+    }
+
+    /**
+     * Возвращает имя состояния детерминированного автомата - перечень
+     * имен состояний подмножества в фигурных скобках.
+     *
+     * @param subset Подмножество состояний.
+     */
+    String subsetName(BitSet subset) {
+        StringJoiner joiner = new StringJoiner(",", "{", "}");
+        for (int state = subset.nextSetBit(0); state >= 0; state = subset.nextSetBit(state + 1)) {
+            joiner.add(stateNames.get(state));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Вычисляет λ-замыкания всех состояний.
+     */
+    BitSet[] closures() {
+        int stateCount = stateNames.size();
+        int[] offsets = new int[stateCount + 1];
+        for (int i = 0; i < emptyCount; i++) {
+            offsets[emptySources[i] + 1]++;
+        }
+        for (int i = 0; i < stateCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] moves = new int[emptyCount];
+        int[] positions = Arrays.copyOf(offsets, stateCount);
+        for (int i = 0; i < emptyCount; i++) {
+            moves[positions[emptySources[i]]++] = emptyTargets[i];
+        }
+        BitSet[] closures = new BitSet[stateCount];
+        int[] stack = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            BitSet closure = new BitSet(stateCount);
+            closure.set(state);
+            int top = 0;
+            stack[top++] = state;
+            while (top > 0) {
+                int current = stack[--top];
+                for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                    if (!closure.get(moves[i])) {
+                        closure.set(moves[i]);
+                        stack[top++] = moves[i];
+                    }
+                }
+            }
+            closures[state] = closure;
+        }
+        return closures;
+    }
+
+    /**
+     * Возвращает номер состояния с заданным именем, добавляя его при
+     * первом упоминании.
+     */
+    private int stateId(Map<String, Integer> ids, String name) {
+        Integer state = ids.get(name);
+        if (state == null) {
+            state = addState(name);
+            ids.put(name, state);
+        }
+        return state;
+    }
+
+    private void checkState(int state) {
+        if (state < 0 || state >= stateNames.size()) {
+            throw new IllegalArgumentException("Неизвестное состояние " + state);
+        }
+    }
+
+    /**
+     * Возвращает имя, отличное от уже занятых, и занимает его.
+     */
+    private static String freshName(String base, Set<String> names) {
+        String name = base;
+        for (int i = 1; names.contains(name); i++) {
+            name = base + i;
+        }
+        names.add(name);
+        return name;
+    }
+
+}
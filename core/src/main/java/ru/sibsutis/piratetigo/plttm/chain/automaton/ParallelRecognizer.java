@@ -0,0 +1,419 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Параллельная проверка длинных цепочек скомпилированным конечным
+ * автоматом.
+ * <p>
+ * Цепочка делится на части, которые обрабатываются одновременно в
+ * пуле потоков. Состояние автомата в начале части заранее неизвестно,
+ * поэтому часть читается сразу из всех состояний, в которых автомат
+ * может оказаться: это образ множества всех состояний после чтения
+ * нескольких предшествующих символов. Для каждой части строится
+ * отображение состояния в начале в состояние в конце; состояния,
+ * которые при чтении совпали, дальше обрабатываются один раз, поэтому
+ * для большинства автоматов стоимость части быстро сводится к
+ * стоимости последовательной проверки. Затем отображения частей
+ * последовательно применяются к начальному состоянию, как при
+ * вычислении префиксной суммы.
+ * <p>
+ * Множество предполагаемых состояний всегда содержит фактическое,
+ * поэтому результат, включая смещение ошибки, совпадает с результатом
+ * последовательной проверки. Если у автомата больше предполагаемых
+ * состояний, чем потоков в пуле, параллельная проверка не дает
+ * выигрыша, и цепочка проверяется последовательно.
+ * <p>
+ * Проверяемая последовательность символов не должна изменяться во
+ * время проверки. Экземпляр неизменяем и может совместно
+ * использоваться несколькими потоками.
+ */
+@Getter
+public final class ParallelRecognizer {
+
+    /** Размер части цепочки по умолчанию. */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Количество символов перед частью цепочки, по которым вычисляется
+     * множество предполагаемых состояний в её начале.
+     */
+    private static final int LOOKBACK = 256;
+
+    /**
+     * Количество символов, после чтения которых совпавшие состояния
+     * части объединяются.
+     */
+    private static final int SEGMENT = 64;
+
+    /** Наибольший размер окна файла, отображаемого в память. */
+    private static final long MAPPING_WINDOW = 1L << 30;
+
+    /** Скомпилированный автомат. */
+    private final CompiledDFA dfa;
+
+    /** Кодировка цепочек в файлах. */
+    private final Charset charset;
+
+    /** Пул потоков. */
+    private final ForkJoinPool pool;
+
+    /** Размер части цепочки. */
+    private final int chunkSize;
+
+    /** Размер окна файла, отображаемого в память. */
+    @Getter(AccessLevel.NONE)
+    private final long mappingWindow;
+
+    /**
+     * Создает распознаватель цепочек в кодировке UTF-8, использующий
+     * общий пул потоков и части размера {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param dfa Скомпилированный автомат.
+     */
+    public ParallelRecognizer(CompiledDFA dfa) {
+        this(dfa, StandardCharsets.UTF_8, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Создает распознаватель.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param charset Кодировка цепочек в файлах.
+     * @param pool Пул потоков.
+     * @param chunkSize Размер части цепочки.
+     * @throws IllegalArgumentException Если размер части меньше
+     * количества символов, по которым вычисляются предполагаемые
+     * состояния.
+     */
+    public ParallelRecognizer(CompiledDFA dfa, Charset charset,
+                              ForkJoinPool pool, int chunkSize) {
+        this(dfa, charset, pool, chunkSize, MAPPING_WINDOW);
+    }
+
+    /**
+     * Создает распознаватель с заданным размером окна файла,
+     * отображаемого в память.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param charset Кодировка цепочек в файлах.
+     * @param pool Пул потоков.
+     * @param chunkSize Размер части цепочки.
+     * @param mappingWindow Размер окна, не больше {@link #MAPPING_WINDOW}.
+     * @throws IllegalArgumentException Если размер части меньше
+     * количества символов, по которым вычисляются предполагаемые
+     * состояния, или размер окна не положителен.
+     */
+    ParallelRecognizer(CompiledDFA dfa, Charset charset,
+                       ForkJoinPool pool, int chunkSize, long mappingWindow) {
+        if (chunkSize < LOOKBACK) {
+            throw new IllegalArgumentException(
+                    "Размер части цепочки должен быть не меньше " + LOOKBACK);
+        }
+        if (mappingWindow <= 0 || mappingWindow > MAPPING_WINDOW) {
+            throw new IllegalArgumentException("Некорректный размер окна файла");
+        }
+        this.dfa = dfa;
+        this.charset = charset;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.mappingWindow = mappingWindow;
+    }
+
+    /**
+     * Проверяет цепочку.
+     *
+     * @param chain Цепочка.
+     */
+    public RecognitionReport recognize(CharSequence chain) {
+        Source source = new Source() {
+            @Override
+            public int run(int state, int from, int to) {
+                return dfa.run(state, chain, from, to);
+            }
+
+            @Override
+            public int next(int state, int index) {
+                return dfa.next(state, chain.charAt(index));
+            }
+        };
+        long result = scan(source, chain.length(), dfa.getStart());
+        return result < 0
+                ? RecognitionReport.dead(-result - 1)
+                : RecognitionReport.finished(dfa, (int) result, chain.length());
+    }
+
+    /**
+     * Проверяет цепочку, записанную в области файла. Если байты можно
+     * подавать автомату без декодирования, область отображается в
+     * память окнами, и каждое окно проверяется параллельно; иначе
+     * область проверяется последовательно распознавателем
+     * {@link StreamingRecognizer}. Канал не закрывается.
+     *
+     * @param channel Файловый канал.
+     * @param position Начало области.
+     * @param size Размер области в байтах.
+     * @throws IllegalArgumentException Если начало или размер
+     * области отрицательны.
+     */
+    public RecognitionReport recognize(FileChannel channel, long position, long size)
+            throws IOException {
+        if (!StreamingRecognizer.isDirect(dfa, charset)) {
+            return new StreamingRecognizer(dfa, charset, StreamingRecognizer.DEFAULT_BUFFER_SIZE)
+                    .recognize(channel, position, size);
+        }
+        if (position < 0 || size < 0) {
+            throw new IllegalArgumentException("Некорректная область файла");
+        }
+        int state = dfa.getStart();
+        long offset = 0;
+        while (offset < size) {
+            int length = (int) Math.min(mappingWindow, size - offset);
+            ByteBuffer window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position + offset, length);
+            Source source = new Source() {
+                @Override
+                public int run(int state, int from, int to) {
+                    return dfa.run(state, window, from, to);
+                }
+
+                @Override
+                public int next(int state, int index) {
+                    return dfa.next(state, (char) (window.get(index) & 0xFF));
+                }
+            };
+            long result = scan(source, length, state);
+            if (result < 0) {
+                return RecognitionReport.dead(offset - result - 1);
+            }
+            state = (int) result;
+            offset += length;
+        }
+        return RecognitionReport.finished(dfa, state, size);
+    }
+
+    /**
+     * Проверяет цепочку, записанную в файле.
+     *
+     * @param file Путь к файлу.
+     */
+    public RecognitionReport recognize(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return recognize(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Выполняет переходы по символам источника.
+     *
+     * @param source Источник символов.
+     * @param length Количество символов.
+     * @param state Исходное состояние.
+     * @return Состояние после чтения всех символов или, если автомат
+     * попал в тупиковое состояние, {@code -(i + 1)}, где {@code i} -
+     * номер символа, после которого это произошло.
+     */
+    private long scan(Source source, int length, int state) {
+        int chunkCount = (int) ((length + (long) chunkSize - 1) / chunkSize);
+        if (chunkCount < 2 || guesses(source, chunkSize).length > pool.getParallelism()) {
+            return sequential(source, state, 0, length);
+        }
+        // Части, которые еще не начали обрабатываться, после ошибки пропускаются
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<ForkJoinTask<ChunkMap>> tasks = new ArrayList<>(chunkCount - 1);
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            int from = chunk * chunkSize;
+            int to = (int) Math.min(length, (long) from + chunkSize);
+            tasks.add(pool.submit(() -> stopped.get()
+                    ? null : map(source, from, to, guesses(source, from))));
+        }
+        try {
+            // Первая часть начинается в известном состоянии
+            int next = source.run(state, 0, chunkSize);
+            if (next == CompiledDFA.DEAD) {
+                stopped.set(true);
+                return sequential(source, state, 0, chunkSize);
+            }
+            state = next;
+            for (int chunk = 1; chunk < chunkCount; chunk++) {
+                next = tasks.get(chunk - 1).join().apply(state);
+                if (next == CompiledDFA.DEAD) {
+                    stopped.set(true);
+                    int from = chunk * chunkSize;
+                    return sequential(source, state, from,
+                            (int) Math.min(length, (long) from + chunkSize));
+                }
+                state = next;
+            }
+            return state;
+        } finally {
+            // Источник, например отображенное в память окно файла, не
+            // должен использоваться после возврата из метода
+            stopped.set(true);
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+        }
+    }
+
+    /**
+     * Последовательно выполняет переходы по части символов источника.
+     *
+     * @return Результат в формате {@link #scan(Source, int, int)}.
+     */
+    private long sequential(Source source, int state, int from, int to) {
+        int next = source.run(state, from, to);
+        if (next != CompiledDFA.DEAD) {
+            return next;
+        }
+        for (int i = from; i < to; i++) {
+            state = source.next(state, i);
+            if (state == CompiledDFA.DEAD) {
+                return -(i + 1L);
+            }
+        }
+        throw new IllegalStateException("Автомат не попал в тупиковое состояние");
+    }
+
+    /**
+     * Вычисляет упорядоченное множество предполагаемых состояний в
+     * позиции источника: образ множества всех состояний, кроме
+     * тупикового, после чтения предшествующих символов.
+     */
+    private int[] guesses(Source source, int position) {
+        int rowCount = dfa.getStateCount();
+        int[] states = new int[rowCount - 1];
+        for (int row = 1; row < rowCount; row++) {
+            states[row - 1] = row * dfa.getClassCount();
+        }
+        ChunkMap map = map(source, position - LOOKBACK, position, states);
+        int[] result = Arrays.copyOf(map.exits, map.exitCount);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Строит отображение состояний в начале части источника в
+     * состояния в её конце.
+     *
+     * @param entries Упорядоченное множество состояний в начале части.
+     */
+    private ChunkMap map(Source source, int from, int to, int[] entries) {
+        int[] current = entries.clone();
+        int count = current.length;
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = i;
+        }
+        int[] index = new int[dfa.getStateCount()];
+        Arrays.fill(index, -1);
+        int position = from;
+        while (position < to && count > 1) {
+            int end = Math.min(to, position + SEGMENT);
+            for (int i = 0; i < count; i++) {
+                current[i] = source.run(current[i], position, end);
+            }
+            count = merge(current, count, slots, index);
+            position = end;
+        }
+        if (position < to && count == 1) {
+            current[0] = source.run(current[0], position, to);
+        }
+        return new ChunkMap(entries, slots, current, count);
+    }
+
+    /**
+     * Объединяет совпавшие состояния части и перенаправляет на
+     * оставшиеся ссылки из состояний в начале части.
+     *
+     * @return Количество различных состояний.
+     */
+    private int merge(int[] current, int count, int[] slots, int[] index) {
+        int classCount = dfa.getClassCount();
+        int[] remap = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            int row = current[i] / classCount;
+            if (index[row] < 0) {
+                index[row] = distinct;
+                current[distinct++] = current[i];
+            }
+            remap[i] = index[row];
+        }
+        for (int i = 0; i < distinct; i++) {
+            index[current[i] / classCount] = -1;
+        }
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = remap[slots[i]];
+        }
+        return distinct;
+    }
+
+    /**
+     * Источник символов цепочки.
+     */
+    private interface Source {
+
+        /**
+         * Выполняет переходы по символам с номерами из диапазона.
+         */
+        int run(int state, int from, int to);
+
+        /**
+         * Выполняет переход по символу с заданным номером.
+         */
+        int next(int state, int index);
+    }
+
+    /**
+     * Отображение состояний в начале части цепочки в состояния в её
+     * конце.
+     */
+    private static final class ChunkMap {
+
+        /** Упорядоченные состояния в начале части. */
+        private final int[] entries;
+
+        /** Номера состояний в конце части по номерам состояний в начале. */
+        private final int[] slots;
+
+        /** Различные состояния в конце части. */
+        private final int[] exits;
+
+        private final int exitCount;
+
+        ChunkMap(int[] entries, int[] slots, int[] exits, int exitCount) {
+            this.entries = entries;
+            this.slots = slots;
+            this.exits = exits;
+            this.exitCount = exitCount;
+        }
+
+        /**
+         * Возвращает состояние в конце части по состоянию в начале.
+         *
+         * @throws IllegalStateException Если состояние не входит в
+         * множество предполагаемых.
+         */
+        int apply(int state) {
+            int entry = Arrays.binarySearch(entries, state);
+            if (entry < 0) {
+                throw new IllegalStateException("Состояние " + state
+                        + " отсутствует среди предполагаемых");
+            }
+            return exits[slots[entry]];
+        }
+    }
+
+}
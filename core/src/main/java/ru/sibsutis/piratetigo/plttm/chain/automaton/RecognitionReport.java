@@ -0,0 +1,70 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Результат потоковой проверки цепочки конечным автоматом.
+ * <p>
+ * Смещения считаются в символах цепочки от начала проверяемых
+ * данных. Если цепочка не принадлежит языку, смещение ошибки - номер
+ * первого символа, после которого автомат попал в тупиковое
+ * состояние, или длина цепочки, если цепочка прочитана целиком, но
+ * автомат остановился в неконечном состоянии.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RecognitionReport {
+
+    /** Смещение ошибки для цепочки, принадлежащей языку. */
+    public static final long NO_FAILURE = -1;
+
+    /** Признак принадлежности цепочки языку. */
+    private final boolean accepted;
+
+    /** Количество прочитанных символов. */
+    private final long length;
+
+    /** Смещение ошибки или {@link #NO_FAILURE}. */
+    private final long failureOffset;
+
+    /** Имя состояния, в котором остановился автомат; {@code null} - тупиковое. */
+    private final String stateName;
+
+    /**
+     * Создает результат проверки, при которой автомат попал в
+     * тупиковое состояние.
+     *
+     * @param offset Смещение символа, после которого автомат попал в
+     * тупиковое состояние.
+     */
+    static RecognitionReport dead(long offset) {
+        return new RecognitionReport(false, offset + 1, offset, null);
+    }
+
+    /**
+     * Создает результат проверки прочитанной целиком цепочки.
+     *
+     * @param dfa Автомат.
+     * @param state Состояние после чтения цепочки.
+     * @param length Длина цепочки.
+     */
+    static RecognitionReport finished(CompiledDFA dfa, int state, long length) {
+        boolean accepted = dfa.isAccepting(state);
+        return new RecognitionReport(accepted, length,
+                accepted ? NO_FAILURE : length, dfa.getStateName(state));
+    }
+
+    @Override
+    public String toString() {
+        if (accepted) {
+            return "Цепочка принадлежит языку, прочитано символов: " + length;
+        }
+        if (stateName == null) {
+            return "Цепочка не принадлежит языку: нет перехода по символу в позиции "
+                    + failureOffset;
+        }
+        return "Цепочка не принадлежит языку: после чтения " + length
+                + " символов автомат находится в незаключительном состоянии " + stateName;
+    }
+}
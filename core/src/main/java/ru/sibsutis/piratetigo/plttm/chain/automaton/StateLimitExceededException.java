@@ -0,0 +1,37 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.Getter;
+
+/**
+ * Выбрасывается, если при построении подмножеств количество состояний
+ * детерминированного автомата превышает допустимое. Построение
+ * прекращается, как только найдено подмножество сверх допустимого
+ * количества.
+ */
+@Getter
+public class StateLimitExceededException extends RuntimeException {
+
+    /** Количество состояний недетерминированного автомата. */
+    private final int nfaStateCount;
+
+    /** Допустимое количество состояний детерминированного автомата. */
+    private final int stateLimit;
+
+    /** Наибольшее количество состояний в одном построенном подмножестве. */
+    private final int maxSubsetSize;
+
+    public StateLimitExceededException(int nfaStateCount, int stateLimit, int maxSubsetSize) {
+        super(
+                "Количество состояний ДКА превышает допустимое " + stateLimit
+                        + " (состояний НКА: " + nfaStateCount
+                        + ", наибольшее подмножество: " + maxSubsetSize + ")",
+                null,
+                false,
+                false
+        );
+        this.nfaStateCount = nfaStateCount;
+        this.stateLimit = stateLimit;
+        this.maxSubsetSize = maxSubsetSize;
+    }
+
+}
@@ -0,0 +1,362 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Потоковая проверка цепочек скомпилированным конечным автоматом.
+ * <p>
+ * Цепочка читается буферами фиксированного размера, между буферами
+ * сохраняется только текущее состояние автомата, поэтому расход
+ * памяти не зависит от длины цепочки. Чтение прекращается, как только
+ * автомат попадает в тупиковое состояние; позиция ошибки находится
+ * повторным проходом по последнему буферу.
+ * <p>
+ * Если каждый символ алфавита записывается в кодировке цепочки одним
+ * байтом с тем же кодом (ISO-8859-1 или ASCII-алфавит в UTF-8 и
+ * US-ASCII), байты подаются автомату без декодирования, а файлы
+ * отображаются в память окнами; байт с кодом вне алфавита при этом
+ * приводит в тупиковое состояние так же, как декодированный символ.
+ * В остальных случаях байты декодируются, а некорректные
+ * последовательности заменяются символом, не принадлежащим алфавиту.
+ * Экземпляр неизменяем и может совместно использоваться несколькими
+ * потоками.
+ */
+@Getter
+public final class StreamingRecognizer {
+
+    /** Размер буфера по умолчанию. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** Наибольший размер окна файла, отображаемого в память. */
+    private static final long MAPPING_WINDOW = 1L << 28;
+
+    /** Скомпилированный автомат. */
+    private final CompiledDFA dfa;
+
+    /** Кодировка цепочек в байтовых каналах. */
+    private final Charset charset;
+
+    /** Размер буфера в символах или байтах. */
+    private final int bufferSize;
+
+    /** Признак чтения байтов без декодирования. */
+    @Getter(AccessLevel.NONE)
+    private final boolean direct;
+
+    /** Размер окна файла, отображаемого в память. */
+    @Getter(AccessLevel.NONE)
+    private final long mappingWindow;
+
+    /**
+     * Создает распознаватель цепочек в кодировке UTF-8 с буфером
+     * размера {@link #DEFAULT_BUFFER_SIZE}.
+     *
+     * @param dfa Скомпилированный автомат.
+     */
+    public StreamingRecognizer(CompiledDFA dfa) {
+        this(dfa, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Создает распознаватель.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param charset Кодировка цепочек в байтовых каналах.
+     * @param bufferSize Размер буфера.
+     * @throws IllegalArgumentException Если размер буфера не положителен.
+     */
+    public StreamingRecognizer(CompiledDFA dfa, Charset charset, int bufferSize) {
+        this(dfa, charset, bufferSize, MAPPING_WINDOW);
+    }
+
+    /**
+     * Создает распознаватель с заданным размером окна файла,
+     * отображаемого в память.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param charset Кодировка цепочек в байтовых каналах.
+     * @param bufferSize Размер буфера.
+     * @param mappingWindow Размер окна, не больше {@link #MAPPING_WINDOW}.
+     * @throws IllegalArgumentException Если размер буфера или окна не
+     * положителен.
+     */
+    StreamingRecognizer(CompiledDFA dfa, Charset charset, int bufferSize, long mappingWindow) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным");
+        }
+        if (mappingWindow <= 0 || mappingWindow > MAPPING_WINDOW) {
+            throw new IllegalArgumentException("Некорректный размер окна файла");
+        }
+        this.dfa = dfa;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
+        this.mappingWindow = mappingWindow;
+        direct = isDirect(dfa, charset);
+    }
+
+    /**
+     * Проверяет цепочку, читаемую из потока символов. Поток не
+     * закрывается.
+     *
+     * @param reader Поток символов.
+     */
+    public RecognitionReport recognize(Reader reader) throws IOException {
+        char[] buffer = new char[bufferSize];
+        int state = dfa.getStart();
+        long offset = 0;
+        int count;
+        while ((count = reader.read(buffer)) != -1) {
+            int next = dfa.run(state, buffer, 0, count);
+            if (next == CompiledDFA.DEAD) {
+                return RecognitionReport.dead(offset + failure(state, buffer, count));
+            }
+            state = next;
+            offset += count;
+        }
+        return RecognitionReport.finished(dfa, state, offset);
+    }
+
+    /**
+     * Проверяет цепочку, читаемую из байтового канала в кодировке
+     * распознавателя. Канал не закрывается.
+     *
+     * @param channel Байтовый канал.
+     */
+    public RecognitionReport recognize(ReadableByteChannel channel) throws IOException {
+        if (!direct) {
+            return recognize(Channels.newReader(channel, decoder(charset), bufferSize));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        int state = dfa.getStart();
+        long offset = 0;
+        while (channel.read(buffer) != -1) {
+            int count = buffer.position();
+            int next = dfa.run(state, buffer, 0, count);
+            if (next == CompiledDFA.DEAD) {
+                return RecognitionReport.dead(offset + failure(state, buffer, 0, count));
+            }
+            state = next;
+            offset += count;
+            buffer.clear();
+        }
+        return RecognitionReport.finished(dfa, state, offset);
+    }
+
+    /**
+     * Проверяет цепочку, записанную в области файла. Если байты
+     * подаются автомату без декодирования, область отображается в
+     * память окнами, иначе читается буферами без изменения позиции
+     * канала. Канал не закрывается.
+     *
+     * @param channel Файловый канал.
+     * @param position Начало области.
+     * @param size Размер области в байтах.
+     * @throws IllegalArgumentException Если начало или размер
+     * области отрицательны.
+     */
+    public RecognitionReport recognize(FileChannel channel, long position, long size)
+            throws IOException {
+        if (position < 0 || size < 0) {
+            throw new IllegalArgumentException("Некорректная область файла");
+        }
+        if (!direct) {
+            return recognize(new RegionChannel(channel, position, size));
+        }
+        int state = dfa.getStart();
+        long offset = 0;
+        while (offset < size) {
+            int length = (int) Math.min(mappingWindow, size - offset);
+            MappedByteBuffer window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position + offset, length);
+            for (int from = 0; from < length; from += bufferSize) {
+                int to = (int) Math.min(length, (long) from + bufferSize);
+                int next = dfa.run(state, window, from, to);
+                if (next == CompiledDFA.DEAD) {
+                    return RecognitionReport.dead(offset + failure(state, window, from, to));
+                }
+                state = next;
+            }
+            offset += length;
+        }
+        return RecognitionReport.finished(dfa, state, size);
+    }
+
+    /**
+     * Проверяет цепочку, записанную в файле.
+     *
+     * @param file Путь к файлу.
+     */
+    public RecognitionReport recognize(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return recognize(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Вычисляет размер цепочки, записанной в файле: один завершающий
+     * перевод строки ({@code \n} или {@code \r\n} в кодировке файла),
+     * который добавляет большинство редакторов, не считается частью
+     * цепочки. Позиция канала не изменяется.
+     *
+     * @param channel Файловый канал.
+     * @param charset Кодировка файла.
+     * @return Размер цепочки в байтах от начала файла.
+     */
+    public static long chainSize(FileChannel channel, Charset charset) throws IOException {
+        long size = channel.size();
+        for (String terminator : new String[]{"\r\n", "\n"}) {
+            byte[] expected = encode(terminator, charset);
+            if (size < expected.length) {
+                continue;
+            }
+            long from = size - expected.length;
+            ByteBuffer tail = ByteBuffer.allocate(expected.length);
+            while (tail.hasRemaining() && channel.read(tail, from + tail.position()) > 0) {
+                // Канал может вернуть окончание файла за несколько чтений
+            }
+            if (!tail.hasRemaining() && Arrays.equals(expected, tail.array())) {
+                return size - expected.length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Открывает поток символов цепочки, записанной в файле, без
+     * завершающего перевода строки (см. {@link #chainSize}).
+     * Некорректные последовательности байтов заменяются символом, не
+     * принадлежащим алфавиту. Файловый канал при закрытии потока не
+     * закрывается.
+     *
+     * @param channel Файловый канал.
+     * @param charset Кодировка файла.
+     */
+    public static Reader chainReader(FileChannel channel, Charset charset) throws IOException {
+        return Channels.newReader(
+                new RegionChannel(channel, 0, chainSize(channel, charset)),
+                decoder(charset), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Кодирует символы без метки порядка байтов, которую некоторые
+     * кодировки записывают перед первым символом.
+     */
+    private static byte[] encode(String chars, Charset charset) {
+        byte[] prefix = "\n".getBytes(charset);
+        byte[] all = ("\n" + chars).getBytes(charset);
+        return Arrays.copyOfRange(all, prefix.length, all.length);
+    }
+
+    private static CharsetDecoder decoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Находит номер символа буфера, после которого автомат попал в
+     * тупиковое состояние.
+     */
+    private int failure(int state, char[] buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            state = dfa.next(state, buffer[i]);
+            if (state == CompiledDFA.DEAD) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Автомат не попал в тупиковое состояние");
+    }
+
+    /**
+     * Находит номер байта буфера, после которого автомат попал в
+     * тупиковое состояние.
+     */
+    private int failure(int state, ByteBuffer bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            state = dfa.next(state, (char) (bytes.get(i) & 0xFF));
+            if (state == CompiledDFA.DEAD) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Автомат не попал в тупиковое состояние");
+    }
+
+    /**
+     * Проверяет, что каждый символ алфавита автомата записывается в
+     * кодировке одним байтом с тем же кодом, и байты можно подавать
+     * автомату без декодирования.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param charset Кодировка.
+     */
+    static boolean isDirect(CompiledDFA dfa, Charset charset) {
+        return charset.equals(StandardCharsets.ISO_8859_1)
+                || (charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII))
+                && dfa.getSymbolLimit() <= 0x80;
+    }
+
+    /**
+     * Байтовый канал, читающий область файла без изменения позиции
+     * файлового канала.
+     */
+    private static final class RegionChannel implements ReadableByteChannel {
+
+        private final FileChannel channel;
+
+        private long position;
+
+        private long remaining;
+
+        RegionChannel(FileChannel channel, long position, long size) {
+            this.channel = channel;
+            this.position = position;
+            remaining = size;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int limit = target.limit();
+            if (target.remaining() > remaining) {
+                target.limit(target.position() + (int) remaining);
+            }
+            int count = channel.read(target, position);
+            target.limit(limit);
+            if (count > 0) {
+                position += count;
+                remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // Файловый канал закрывает его владелец
+        }
+    }
+
+}
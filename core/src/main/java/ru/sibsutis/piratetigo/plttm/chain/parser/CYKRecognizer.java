@@ -0,0 +1,326 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Распознаватель Кока-Янгера-Касами, проверяющий принадлежность
+ * цепочки языку КС-грамматики в Бинарной Нормальной Форме (Хомского).
+ * <p>
+ * Ячейка таблицы разбора для подцепочки - битовое множество
+ * порядковых номеров нетерминальных символов, из которых она
+ * выводится, записанное в словах {@code long}. Треугольная таблица
+ * упакована в один массив по строкам: сначала все ячейки подцепочек
+ * длины 1, затем длины 2 и так далее.
+ * <p>
+ * По заполненной таблице метод {@link #parse(CharSequence)} строит лес
+ * разбора со всеми деревьями вывода цепочки.
+ * <p>
+ * Таблица повторно используется между проверками, поэтому экземпляр
+ * не предназначен для одновременной работы из нескольких потоков;
+ * снимок грамматики при этом можно разделять между экземплярами.
+ */
+public class CYKRecognizer {
+
+    private static final String NOT_CHOMSKY =
+            "Грамматика не приведена к Бинарной Нормальной Форме";
+
+    /** Наибольший размер таблицы разбора в словах. */
+    private static final long MAX_CHART_SIZE = Integer.MAX_VALUE - 8;
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Количество слов в ячейке таблицы. */
+    private final int words;
+
+    /** Ячейки подцепочек длины 1 по номерам терминальных символов. */
+    private final long[][] terminalCells;
+
+    /** Начала диапазонов правил {@code A→BC} по номеру символа B. */
+    private final int[] binaryOffsets;
+
+    /** Символы C правил {@code A→BC}. */
+    private final int[] binaryRight;
+
+    /** Символы A правил {@code A→BC}. */
+    private final int[] binaryHeads;
+
+    /** Признак принадлежности языку пустой цепочки. */
+    private final boolean acceptsEmpty;
+
+    /** Таблица разбора. */
+    private long[] chart = new long[0];
+
+    /**
+     * Создает распознаватель для КС-грамматики.
+     *
+     * @param grammar КС-грамматика в Бинарной Нормальной Форме.
+     * @throws IllegalArgumentException Если грамматика не приведена
+     * к Бинарной Нормальной Форме.
+     * @see ContextFreeGrammar#toChomsky()
+     */
+    public CYKRecognizer(ContextFreeGrammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * Создает распознаватель для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики в Бинарной Нормальной Форме.
+     * @throws IllegalArgumentException Если грамматика не приведена
+     * к Бинарной Нормальной Форме.
+     */
+    public CYKRecognizer(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        int nonTerminalCount = grammar.getNonTerminalCount();
+        words = Math.max(1, (nonTerminalCount + Long.SIZE - 1) / Long.SIZE);
+        terminalCells = new long[grammar.getTerminalCount()][words];
+        binaryOffsets = new int[nonTerminalCount + 1];
+        boolean hasEmptyRule = false;
+        boolean goalInBodies = false;
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            int head = grammar.getNonTerminalIndex(grammar.getRuleHead(rule));
+            switch (grammar.getRuleLength(rule)) {
+                case 0:
+                    if (grammar.getRuleHead(rule) != grammar.getGoal()) {
+                        throw new IllegalArgumentException(NOT_CHOMSKY);
+                    }
+                    hasEmptyRule = true;
+                    break;
+                case 1:
+                    int terminal = grammar.getRuleSymbol(rule, 0);
+                    if (!grammar.isTerminal(terminal)) {
+                        throw new IllegalArgumentException(NOT_CHOMSKY);
+                    }
+                    setBit(terminalCells[terminal], 0, head);
+                    break;
+                case 2:
+                    int left = grammar.getRuleSymbol(rule, 0);
+                    int right = grammar.getRuleSymbol(rule, 1);
+                    if (grammar.isTerminal(left) || grammar.isTerminal(right)) {
+                        throw new IllegalArgumentException(NOT_CHOMSKY);
+                    }
+                    goalInBodies |= left == grammar.getGoal()
+                            || right == grammar.getGoal();
+                    binaryOffsets[grammar.getNonTerminalIndex(left) + 1]++;
+                    break;
+                default:
+                    throw new IllegalArgumentException(NOT_CHOMSKY);
+            }
+        }
+        if (hasEmptyRule && goalInBodies) {
+            throw new IllegalArgumentException(NOT_CHOMSKY);
+        }
+        acceptsEmpty = hasEmptyRule;
+
+        for (int i = 0; i < nonTerminalCount; i++) {
+            binaryOffsets[i + 1] += binaryOffsets[i];
+        }
+        binaryRight = new int[binaryOffsets[nonTerminalCount]];
+        binaryHeads = new int[binaryOffsets[nonTerminalCount]];
+        int[] positions = Arrays.copyOf(binaryOffsets, nonTerminalCount);
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            if (grammar.getRuleLength(rule) == 2) {
+                int left = grammar.getNonTerminalIndex(grammar.getRuleSymbol(rule, 0));
+                int position = positions[left]++;
+                binaryRight[position] =
+                        grammar.getNonTerminalIndex(grammar.getRuleSymbol(rule, 1));
+                binaryHeads[position] =
+                        grammar.getNonTerminalIndex(grammar.getRuleHead(rule));
+            }
+        }
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики.
+     * <p>
+     * Время работы - O(n<sup>3</sup>·|P|), память - O(n<sup>2</sup>·|N|/64)
+     * слов, где n - длина цепочки.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     * @throws IllegalArgumentException Если таблица разбора цепочки не
+     * помещается в массив.
+     */
+    public boolean recognize(CharSequence chain) {
+        int goal = grammar.getGoal();
+        if (goal == CompiledGrammar.NO_SYMBOL) {
+            return false;
+        }
+        int length = chain.length();
+        if (length == 0) {
+            return acceptsEmpty;
+        }
+        long chartSize = rowOffset(length + 1, length) * words;
+        if (chartSize > MAX_CHART_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "Цепочка длины %d слишком длинна для алгоритма Кока-Янгера-Касами: "
+                            + "таблица разбора из %d слов больше допустимых %d",
+                    length, chartSize, MAX_CHART_SIZE));
+        }
+        if (chart.length < chartSize) {
+            chart = new long[(int) chartSize];
+        } else {
+            Arrays.fill(chart, 0, (int) chartSize, 0L);
+        }
+        for (int start = 0; start < length; start++) {
+            int terminal = grammar.getTerminalId(chain.charAt(start));
+            if (terminal == CompiledGrammar.NO_SYMBOL) {
+                return false;
+            }
+            System.arraycopy(terminalCells[terminal], 0, chart, start * words, words);
+        }
+
+        for (int spanLength = 2; spanLength <= length; spanLength++) {
+            for (int start = 0; start + spanLength <= length; start++) {
+                int cell = cell(spanLength, start, length);
+                for (int split = 1; split < spanLength; split++) {
+                    int left = cell(split, start, length);
+                    int right = cell(spanLength - split, start + split, length);
+                    combine(left, right, cell);
+                }
+            }
+        }
+        return testBit(chart, cell(length, 0, length), grammar.getNonTerminalIndex(goal));
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек,
+     * используя одну таблицу разбора.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     */
+    public boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    /**
+     * Строит лес разбора цепочки, содержащий все её деревья разбора.
+     * <p>
+     * Узлы леса создаются сверху вниз только для символов, выводящих
+     * подцепочку по таблице разбора, поэтому тупиковых узлов в лесу нет.
+     *
+     * @param chain Цепочка.
+     * @return Лес разбора или {@code null}, если цепочка не
+     * принадлежит языку.
+     * @throws IllegalArgumentException Если таблица разбора цепочки не
+     * помещается в массив.
+     */
+    public ParseForest parse(CharSequence chain) {
+        if (!recognize(chain)) {
+            return null;
+        }
+        int length = chain.length();
+        ParseForest forest = new ParseForest(grammar, length);
+        if (length == 0) {
+            forest.setRoot(forest.addEmptyNode(grammar.getGoal(), 0));
+            return forest;
+        }
+        int[] pending = new int[16];
+        int pendingCount = 0;
+        int[] children = new int[2];
+        int root = forest.addNode(grammar.getGoal(), 0, length);
+        pending[pendingCount++] = root;
+        while (pendingCount > 0) {
+            int node = pending[--pendingCount];
+            int symbol = forest.getSymbol(node);
+            int start = forest.getStart(node);
+            int spanLength = forest.getEnd(node) - start;
+            for (int rule = grammar.getFirstRule(symbol); rule < grammar.getEndRule(symbol); rule++) {
+                if (grammar.getRuleLength(rule) == 1) {
+                    int terminal = grammar.getRuleSymbol(rule, 0);
+                    if (spanLength == 1
+                            && grammar.getTerminalId(chain.charAt(start)) == terminal) {
+                        children[0] = forest.addNode(terminal, start, start + 1);
+                        forest.addPacked(node, rule, children);
+                    }
+                } else if (grammar.getRuleLength(rule) == 2) {
+                    int left = grammar.getRuleSymbol(rule, 0);
+                    int right = grammar.getRuleSymbol(rule, 1);
+                    for (int split = 1; split < spanLength; split++) {
+                        int leftCell = cell(split, start, length);
+                        int rightCell = cell(spanLength - split, start + split, length);
+                        if (!testBit(chart, leftCell, grammar.getNonTerminalIndex(left))
+                                || !testBit(chart, rightCell, grammar.getNonTerminalIndex(right))) {
+                            continue;
+                        }
+                        for (int i = 0; i < 2; i++) {
+                            int child = i == 0 ? left : right;
+                            int childStart = i == 0 ? start : start + split;
+                            int childEnd = i == 0 ? start + split : start + spanLength;
+                            int count = forest.getNodeCount();
+                            children[i] = forest.addNode(child, childStart, childEnd);
+                            if (children[i] == count) {
+                                if (pendingCount == pending.length) {
+                                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                                }
+                                pending[pendingCount++] = children[i];
+                            }
+                        }
+                        forest.addPacked(node, rule, children);
+                    }
+                }
+            }
+        }
+        forest.setRoot(root);
+        return forest;
+    }
+
+    /**
+     * Добавляет в ячейку символы A всех правил {@code A→BC}, у которых
+     * символ B выводит левую часть подцепочки, а символ C - правую.
+     */
+    private void combine(int left, int right, int cell) {
+        for (int word = 0; word < words; word++) {
+            long bits = chart[left + word];
+            while (bits != 0) {
+                int symbol = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int rule = binaryOffsets[symbol]; rule < binaryOffsets[symbol + 1]; rule++) {
+                    if (testBit(chart, right, binaryRight[rule])) {
+                        setBit(chart, cell, binaryHeads[rule]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает смещение в таблице разбора ячейки подцепочки. Размер
+     * таблицы проверен при её заполнении, поэтому смещение помещается
+     * в {@code int}.
+     */
+    private int cell(int spanLength, int start, int length) {
+        return (int) ((rowOffset(spanLength, length) + start) * words);
+    }
+
+    /**
+     * Возвращает номер первой ячейки строки подцепочек заданной длины.
+     * Для длинных цепочек номер не помещается в {@code int}.
+     */
+    private static long rowOffset(int spanLength, int length) {
+        long previousRows = spanLength - 1;
+        return previousRows * (length + 1) - previousRows * spanLength / 2;
+    }
+
+    private static boolean testBit(long[] bits, int offset, int index) {
+        return (bits[offset + index / Long.SIZE] & 1L << index) != 0;
+    }
+
+    private static void setBit(long[] bits, int offset, int index) {
+        bits[offset + index / Long.SIZE] |= 1L << index;
+    }
+
+}
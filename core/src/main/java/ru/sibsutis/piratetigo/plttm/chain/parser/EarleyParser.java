@@ -0,0 +1,701 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.*;
+
+/**
+ * Распознаватель Эрли, проверяющий принадлежность цепочки языку
+ * произвольной КС-грамматики без приведения её к каноническому виду
+ * или Бинарной Нормальной Форме, в том числе при наличии λ-правил.
+ * <p>
+ * Ситуация Эрли - пара из позиции точки в правиле и номера множества,
+ * в котором началось её распознавание. Позиции всех правил
+ * пронумерованы подряд, а ситуации всех множеств хранятся в общих
+ * массивах целых чисел.
+ * <p>
+ * Используются два улучшения классического алгоритма:
+ * <ul>
+ *  <li>поправка Эйкока-Хорспула: при предсказании аннулируемого
+ *  символа точка сразу переносится через него, поэтому λ-правила не
+ *  требуют повторного завершения в том же множестве;</li>
+ *  <li>оптимизация Лео: при завершении символа, которого ожидает
+ *  единственная ситуация с точкой перед последним символом, цепочка
+ *  таких ситуаций сворачивается в одну верхнюю ситуацию, поэтому
+ *  праворекурсивные правила разбираются за линейное время.</li>
+ * </ul>
+ * На однозначных грамматиках время работы близко к линейному, в общем
+ * случае - не более чем кубическое.
+ * <p>
+ * Массивы ситуаций повторно используются между проверками, поэтому
+ * экземпляр не предназначен для одновременной работы из нескольких
+ * потоков.
+ */
+public class EarleyParser {
+
+    /** Признак отсутствия ситуации. */
+    private static final long NO_ITEM = -1L;
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Аннулируемые символы. */
+    private final BitSet nullable;
+
+    /** Номера позиций точки в начале правил. */
+    private final int[] ruleStarts;
+
+    /** Символы после точки по номерам позиций или {@code NO_SYMBOL}. */
+    private final int[] nextSymbols;
+
+    /** Порождающие символы правил по номерам позиций. */
+    private final int[] heads;
+
+    /** Начальная позиция дополнительного правила {@code S'→•S}. */
+    private final int startPosition;
+
+    /** Символ {@code S'} дополнительного правила. */
+    private final int startSymbol;
+
+    /** Позиции ситуаций всех множеств. */
+    private int[] itemPositions = new int[64];
+
+    /** Начала ситуаций всех множеств. */
+    private int[] itemOrigins = new int[64];
+
+    /** Количество ситуаций всех множеств. */
+    private int itemCount;
+
+    /** Начала множеств в массивах ситуаций. */
+    private int[] setStarts = new int[16];
+
+    /**
+     * Ситуации, ожидающие нетерминальный символ, упорядоченные по
+     * множествам, а внутри множества - по ожидаемому символу.
+     * Ключ - символ в старших 32 битах и номер ситуации в младших.
+     */
+    private long[] waitingItems = new long[64];
+
+    /** Начала ожидающих ситуаций множеств. */
+    private int[] waitingStarts = new int[16];
+
+    /** Начало текущего множества в массивах ситуаций. */
+    private int currentSetStart;
+
+    /** Ситуации, перенесенные в следующее множество при сдвиге. */
+    private long[] scannedItems = new long[16];
+
+    /** Хеш-таблица ситуаций текущего множества. */
+    private long[] itemTable = new long[64];
+
+    /** Метки поколений ячеек хеш-таблицы ситуаций. */
+    private int[] itemTableStamps = new int[64];
+
+    /** Метки поколений предсказанных символов. */
+    private final int[] predictedStamps;
+
+    /** Поколение текущего множества. */
+    private int stamp = 0;
+
+    /**
+     * Хеш-таблица верхних ситуаций Лео: ключ - номер множества в
+     * старших 32 битах и символ в младших.
+     */
+    private long[] leoKeys = new long[64];
+
+    /** Верхние ситуации Лео или {@link #NO_ITEM} по ячейкам хеш-таблицы. */
+    private long[] leoValues = new long[64];
+
+    /** Метки проверок ячеек хеш-таблицы ситуаций Лео. */
+    private int[] leoStamps = new int[64];
+
+    /** Количество ключей хеш-таблицы ситуаций Лео в текущей проверке. */
+    private int leoCount;
+
+    /** Номер текущей проверки для хеш-таблицы ситуаций Лео. */
+    private int leoStamp = 0;
+
+    /** Ключи звеньев проходимой цепочки ситуаций Лео. */
+    private long[] leoPathKeys = new long[16];
+
+    /** Ситуации звеньев проходимой цепочки ситуаций Лео. */
+    private long[] leoPathItems = new long[16];
+
+    /**
+     * Метки символов, пройденных в цепочке ситуаций Лео внутри одного
+     * множества.
+     */
+    private final int[] leoVisitedStamps;
+
+    /** Поколение меток пройденных символов. */
+    private int leoVisit = 0;
+
+    /**
+     * Признак использования ситуаций Лео; при построении леса разбора
+     * они не используются, так как пропускают промежуточные ситуации.
+     */
+    private boolean leoEnabled = true;
+
+    /**
+     * Создает распознаватель для КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public EarleyParser(ContextFreeGrammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * Создает распознаватель для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public EarleyParser(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        nullable = grammar.getAnalysis().getNullable();
+        int ruleCount = grammar.getRuleCount();
+        ruleStarts = new int[ruleCount];
+        int positionCount = 0;
+        for (int rule = 0; rule < ruleCount; rule++) {
+            ruleStarts[rule] = positionCount;
+            positionCount += grammar.getRuleLength(rule) + 1;
+        }
+        startPosition = positionCount;
+        startSymbol = grammar.getSymbolCount();
+        nextSymbols = new int[positionCount + 2];
+        heads = new int[positionCount + 2];
+        for (int rule = 0; rule < ruleCount; rule++) {
+            int length = grammar.getRuleLength(rule);
+            for (int dot = 0; dot <= length; dot++) {
+                nextSymbols[ruleStarts[rule] + dot] = dot < length
+                        ? grammar.getRuleSymbol(rule, dot)
+                        : CompiledGrammar.NO_SYMBOL;
+                heads[ruleStarts[rule] + dot] = grammar.getRuleHead(rule);
+            }
+        }
+        nextSymbols[startPosition] = grammar.getGoal();
+        nextSymbols[startPosition + 1] = CompiledGrammar.NO_SYMBOL;
+        heads[startPosition] = startSymbol;
+        heads[startPosition + 1] = startSymbol;
+        predictedStamps = new int[grammar.getSymbolCount()];
+        leoVisitedStamps = new int[startSymbol + 1];
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public boolean recognize(CharSequence chain) {
+        return run(chain);
+    }
+
+    /**
+     * Строит лес разбора цепочки, содержащий все её деревья разбора.
+     * <p>
+     * Лес строится сверху вниз по множествам ситуаций: вариант вывода
+     * подцепочки {@code [i, j)} по правилу {@code A→X}<sub>1</sub>...{@code X}<sub>k</sub>
+     * существует, если в множестве j есть завершенная ситуация правила
+     * с началом i; границы подцепочек символов тела восстанавливаются
+     * справа налево по ситуациям с точкой перед каждым символом.
+     *
+     * @param chain Цепочка.
+     * @return Лес разбора или {@code null}, если цепочка не
+     * принадлежит языку.
+     */
+    public ParseForest parse(CharSequence chain) {
+        leoEnabled = false;
+        try {
+            if (!run(chain)) {
+                return null;
+            }
+        } finally {
+            leoEnabled = true;
+        }
+        return new EarleyForestBuilder(chain).build();
+    }
+
+    private boolean run(CharSequence chain) {
+        if (grammar.getGoal() == CompiledGrammar.NO_SYMBOL) {
+            return false;
+        }
+        int length = chain.length();
+        itemCount = 0;
+        leoStamp++;
+        leoCount = 0;
+        if (setStarts.length < length + 2) {
+            setStarts = new int[length + 2];
+            waitingStarts = new int[length + 2];
+        }
+        waitingStarts[0] = 0;
+        int scannedCount = 1;
+        scannedItems[0] = toItem(startPosition, 0);
+        for (int set = 0; set <= length; set++) {
+            int terminal = set < length
+                    ? grammar.getTerminalId(chain.charAt(set))
+                    : CompiledGrammar.NO_SYMBOL;
+            if (set < length && terminal == CompiledGrammar.NO_SYMBOL) {
+                return false;
+            }
+            setStarts[set] = itemCount;
+            currentSetStart = itemCount;
+            stamp++;
+            for (int i = 0; i < scannedCount; i++) {
+                addItem(position(scannedItems[i]), origin(scannedItems[i]));
+            }
+            scannedCount = 0;
+            for (int item = setStarts[set]; item < itemCount; item++) {
+                int position = itemPositions[item];
+                int symbol = nextSymbols[position];
+                if (symbol == CompiledGrammar.NO_SYMBOL) {
+                    complete(heads[position], itemOrigins[item], set);
+                } else if (!grammar.isTerminal(symbol)) {
+                    predict(symbol, set);
+                    if (nullable.get(symbol)) {
+                        addItem(position + 1, itemOrigins[item]);
+                    }
+                } else if (symbol == terminal) {
+                    if (scannedCount == scannedItems.length) {
+                        scannedItems = Arrays.copyOf(scannedItems, scannedCount * 2);
+                    }
+                    scannedItems[scannedCount++] = toItem(position + 1, itemOrigins[item]);
+                }
+            }
+            indexWaitingItems(set);
+            if (scannedCount == 0 && set < length) {
+                return false;
+            }
+        }
+        for (int item = setStarts[length]; item < itemCount; item++) {
+            if (itemPositions[item] == startPosition + 1 && itemOrigins[item] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     */
+    public boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет в текущее множество начальные ситуации правил символа.
+     */
+    private void predict(int symbol, int set) {
+        if (predictedStamps[symbol] == stamp) {
+            return;
+        }
+        predictedStamps[symbol] = stamp;
+        for (int rule = grammar.getFirstRule(symbol); rule < grammar.getEndRule(symbol); rule++) {
+            addItem(ruleStarts[rule], set);
+        }
+    }
+
+    /**
+     * Переносит точку через завершенный символ во всех ситуациях
+     * множества {@code origin}, ожидающих этот символ.
+     * <p>
+     * Ситуации, начатые в текущем множестве, не завершаются: по
+     * поправке Эйкока-Хорспула точка уже перенесена через аннулируемый
+     * символ при его предсказании.
+     */
+    private void complete(int symbol, int origin, int set) {
+        if (origin == set) {
+            return;
+        }
+        long leoItem = leoEnabled ? leoItem(origin, symbol) : NO_ITEM;
+        if (leoItem != NO_ITEM) {
+            addItem(position(leoItem), origin(leoItem));
+            return;
+        }
+        int end = waitingEnd(origin, symbol);
+        for (int i = waitingStart(origin, symbol); i < end; i++) {
+            int item = (int) waitingItems[i];
+            addItem(itemPositions[item] + 1, itemOrigins[item]);
+        }
+    }
+
+    /**
+     * Возвращает верхнюю ситуацию Лео для символа, ожидаемого
+     * в завершенном множестве, или {@link #NO_ITEM}.
+     * <p>
+     * Цепочка проходится итеративно, а найденная верхняя ситуация
+     * запоминается для всех звеньев цепочки. Номер множества вдоль
+     * цепочки не возрастает, поэтому повтор звена возможен только
+     * внутри одного множества и определяется по меткам символов; цикл
+     * по цепным правилам обрывает цепочку.
+     */
+    private long leoItem(int set, int symbol) {
+        int length = 0;
+        long result = NO_ITEM;
+        leoVisit++;
+        while (true) {
+            long key = (long) set << Integer.SIZE | symbol;
+            int slot = leoSlot(key);
+            if (leoStamps[slot] == leoStamp) {
+                result = leoValues[slot];
+                break;
+            }
+            if (leoVisitedStamps[symbol] == leoVisit) {
+                break;
+            }
+            leoVisitedStamps[symbol] = leoVisit;
+            int start = waitingStart(set, symbol);
+            if (waitingEnd(set, symbol) - start != 1) {
+                break;
+            }
+            int item = (int) waitingItems[start];
+            int position = itemPositions[item] + 1;
+            if (nextSymbols[position] != CompiledGrammar.NO_SYMBOL) {
+                break;
+            }
+            if (length == leoPathKeys.length) {
+                leoPathKeys = Arrays.copyOf(leoPathKeys, length * 2);
+                leoPathItems = Arrays.copyOf(leoPathItems, length * 2);
+            }
+            leoPathKeys[length] = key;
+            leoPathItems[length++] = toItem(position, itemOrigins[item]);
+            if (itemOrigins[item] != set) {
+                leoVisit++;
+            }
+            set = itemOrigins[item];
+            symbol = heads[position];
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (result == NO_ITEM) {
+                result = leoPathItems[i];
+            }
+            putLeoItem(leoPathKeys[i], result);
+        }
+        return result;
+    }
+
+    /**
+     * Находит ячейку хеш-таблицы ситуаций Лео с ключом или свободную
+     * ячейку, в которую его следует поместить.
+     */
+    private int leoSlot(long key) {
+        int mask = leoKeys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (leoStamps[slot] == leoStamp && leoKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void putLeoItem(long key, long item) {
+        int slot = leoSlot(key);
+        if (leoStamps[slot] != leoStamp) {
+            leoStamps[slot] = leoStamp;
+            leoKeys[slot] = key;
+            leoCount++;
+        }
+        leoValues[slot] = item;
+        if (leoCount * 2 > leoKeys.length) {
+            growLeoTable();
+        }
+    }
+
+    private void growLeoTable() {
+        long[] oldKeys = leoKeys;
+        long[] oldValues = leoValues;
+        int[] oldStamps = leoStamps;
+        leoKeys = new long[oldKeys.length * 2];
+        leoValues = new long[oldKeys.length * 2];
+        leoStamps = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == leoStamp) {
+                int slot = leoSlot(oldKeys[i]);
+                leoStamps[slot] = leoStamp;
+                leoKeys[slot] = oldKeys[i];
+                leoValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Добавляет ситуацию в текущее множество, если её там еще нет.
+     */
+    private void addItem(int position, int origin) {
+        long key = toItem(position, origin);
+        int mask = itemTable.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (itemTableStamps[slot] == stamp) {
+            if (itemTable[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        itemTable[slot] = key;
+        itemTableStamps[slot] = stamp;
+        if (itemCount == itemPositions.length) {
+            itemPositions = Arrays.copyOf(itemPositions, itemCount * 2);
+            itemOrigins = Arrays.copyOf(itemOrigins, itemCount * 2);
+        }
+        itemPositions[itemCount] = position;
+        itemOrigins[itemCount++] = origin;
+        if ((itemCount - currentSetStart) * 2 > itemTable.length) {
+            growItemTable();
+        }
+    }
+
+    private void growItemTable() {
+        long[] oldTable = itemTable;
+        int[] oldStamps = itemTableStamps;
+        itemTable = new long[oldTable.length * 2];
+        itemTableStamps = new int[oldTable.length * 2];
+        int mask = itemTable.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldStamps[i] == stamp) {
+                int slot = Long.hashCode(oldTable[i] * 0x9E3779B97F4A7C15L) & mask;
+                while (itemTableStamps[slot] == stamp) {
+                    slot = (slot + 1) & mask;
+                }
+                itemTable[slot] = oldTable[i];
+                itemTableStamps[slot] = stamp;
+            }
+        }
+    }
+
+    /**
+     * Строит упорядоченный по ожидаемому символу список ситуаций
+     * завершенного множества, ожидающих нетерминальный символ.
+     */
+    private void indexWaitingItems(int set) {
+        int start = waitingStarts[set];
+        int count = start;
+        for (int item = setStarts[set]; item < itemCount; item++) {
+            int symbol = nextSymbols[itemPositions[item]];
+            if (symbol != CompiledGrammar.NO_SYMBOL && !grammar.isTerminal(symbol)) {
+                if (count == waitingItems.length) {
+                    waitingItems = Arrays.copyOf(waitingItems, count * 2);
+                }
+                waitingItems[count++] = (long) symbol << Integer.SIZE | item;
+            }
+        }
+        Arrays.sort(waitingItems, start, count);
+        waitingStarts[set + 1] = count;
+    }
+
+    private int waitingStart(int set, int symbol) {
+        return lowerBound(waitingStarts[set], waitingStarts[set + 1], (long) symbol << Integer.SIZE);
+    }
+
+    private int waitingEnd(int set, int symbol) {
+        return lowerBound(waitingStarts[set], waitingStarts[set + 1], (long) (symbol + 1) << Integer.SIZE);
+    }
+
+    private int lowerBound(int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (waitingItems[middle] < key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private static long toItem(int position, int origin) {
+        return (long) position << Integer.SIZE | origin;
+    }
+
+    private static int position(long item) {
+        return (int) (item >>> Integer.SIZE);
+    }
+
+    private static int origin(long item) {
+        return (int) item;
+    }
+
+    /**
+     * Построение леса разбора по множествам ситуаций последней
+     * проверки.
+     */
+    private final class EarleyForestBuilder {
+
+        /** Номера символов цепочки. */
+        private final int[] symbols;
+
+        /**
+         * Ситуации множеств, упорядоченные внутри каждого множества;
+         * ключ - позиция в старших 32 битах и начало в младших.
+         */
+        private final long[] items;
+
+        /**
+         * Завершенные символы множеств, упорядоченные внутри каждого
+         * множества; ключ - символ в старших 32 битах и начало в младших.
+         */
+        private final long[] completed;
+
+        /** Начала завершенных символов множеств. */
+        private final int[] completedStarts;
+
+        private final ParseForest forest;
+
+        /** Узлы, варианты вывода которых еще не построены. */
+        private int[] pending = new int[16];
+
+        private int pendingCount;
+
+        /** Узлы символов тела правила текущего варианта вывода. */
+        private int[] children = new int[8];
+
+        EarleyForestBuilder(CharSequence chain) {
+            int length = chain.length();
+            symbols = new int[length];
+            for (int i = 0; i < length; i++) {
+                symbols[i] = grammar.getTerminalId(chain.charAt(i));
+            }
+            setStarts[length + 1] = itemCount;
+            items = new long[itemCount];
+            completed = new long[itemCount];
+            completedStarts = new int[length + 2];
+            int completedCount = 0;
+            for (int set = 0; set <= length; set++) {
+                completedStarts[set] = completedCount;
+                for (int item = setStarts[set]; item < setStarts[set + 1]; item++) {
+                    int position = itemPositions[item];
+                    items[item] = toItem(position, itemOrigins[item]);
+                    if (nextSymbols[position] == CompiledGrammar.NO_SYMBOL) {
+                        completed[completedCount++] = toItem(heads[position], itemOrigins[item]);
+                    }
+                }
+                Arrays.sort(items, setStarts[set], setStarts[set + 1]);
+                Arrays.sort(completed, completedStarts[set], completedCount);
+            }
+            completedStarts[length + 1] = completedCount;
+            forest = new ParseForest(grammar, length);
+        }
+
+        ParseForest build() {
+            int root = node(grammar.getGoal(), 0, symbols.length);
+            while (pendingCount > 0) {
+                int node = pending[--pendingCount];
+                int symbol = forest.getSymbol(node);
+                int start = forest.getStart(node);
+                int end = forest.getEnd(node);
+                for (int rule = grammar.getFirstRule(symbol); rule < grammar.getEndRule(symbol); rule++) {
+                    int length = grammar.getRuleLength(rule);
+                    if (hasItem(end, ruleStarts[rule] + length, start)) {
+                        if (children.length < length) {
+                            children = new int[length * 2];
+                        }
+                        addDerivations(node, rule, length, start, end);
+                    }
+                }
+            }
+            forest.setRoot(root);
+            return forest;
+        }
+
+        /**
+         * Добавляет варианты вывода узла по правилу, перебирая границы
+         * подцепочки символа тела с номером {@code count - 1}.
+         *
+         * @param count Количество еще не сопоставленных символов тела.
+         * @param end Конец подцепочки этих символов.
+         */
+        private void addDerivations(int node, int rule, int count, int start, int end) {
+            if (count == 0) {
+                if (end == start) {
+                    forest.addPacked(node, rule, children);
+                }
+                return;
+            }
+            int symbol = grammar.getRuleSymbol(rule, count - 1);
+            int position = ruleStarts[rule] + count - 1;
+            if (grammar.isTerminal(symbol)) {
+                if (end > start && symbols[end - 1] == symbol && hasItem(end - 1, position, start)) {
+                    children[count - 1] = forest.addNode(symbol, end - 1, end);
+                    addDerivations(node, rule, count - 1, start, end - 1);
+                }
+                return;
+            }
+            if (count == 1) {
+                // Первый символ тела выводит подцепочку от начала узла
+                if (start == end ? nullable.get(symbol) : Arrays.binarySearch(completed,
+                        completedStarts[end], completedStarts[end + 1], toItem(symbol, start)) >= 0) {
+                    children[0] = node(symbol, start, end);
+                    addDerivations(node, rule, 0, start, start);
+                }
+                return;
+            }
+            if (nullable.get(symbol) && hasItem(end, position, start)) {
+                children[count - 1] = node(symbol, end, end);
+                addDerivations(node, rule, count - 1, start, end);
+            }
+            // Начала непустых подцепочек символа - начала его завершенных
+            // ситуаций в множестве end
+            long previous = NO_ITEM;
+            int limit = completedStarts[end + 1];
+            for (int i = lowerBound(completedStarts[end], limit, toItem(symbol, start));
+                 i < limit && position(completed[i]) == symbol; i++) {
+                int middle = origin(completed[i]);
+                if (completed[i] != previous && middle < end && hasItem(middle, position, start)) {
+                    children[count - 1] = node(symbol, middle, end);
+                    addDerivations(node, rule, count - 1, start, middle);
+                }
+                previous = completed[i];
+            }
+        }
+
+        /**
+         * Возвращает первый индекс диапазона завершенных символов с ключом
+         * не меньше заданного.
+         */
+        private int lowerBound(int from, int to, long key) {
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (completed[middle] < key) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+
+        /**
+         * Возвращает узел символа, при создании ставя его в очередь на
+         * построение вариантов вывода.
+         */
+        private int node(int symbol, int start, int end) {
+            if (start == end) {
+                return forest.addEmptyNode(symbol, start);
+            }
+            int count = forest.getNodeCount();
+            int node = forest.addNode(symbol, start, end);
+            if (node == count) {
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingCount * 2);
+                }
+                pending[pendingCount++] = node;
+            }
+            return node;
+        }
+
+        private boolean hasItem(int set, int position, int origin) {
+            return Arrays.binarySearch(items, setStarts[set], setStarts[set + 1],
+                    toItem(position, origin)) >= 0;
+        }
+    }
+
+}
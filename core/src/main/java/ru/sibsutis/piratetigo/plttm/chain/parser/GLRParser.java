@@ -0,0 +1,497 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Обобщенный LR-анализатор (RNGLR Скотта-Джонстон) для произвольных
+ * КС-грамматик, в том числе неоднозначных и содержащих λ-правила.
+ * <p>
+ * Анализатор использует таблицы {@link LALRTable}: в ячейках без
+ * конфликтов он работает как обычный LR-анализатор, а при конфликте
+ * выполняет все действия ячейки. Стеки всех вариантов разбора
+ * объединены в граф (GSS): вершина - состояние на уровне, равном
+ * количеству прочитанных символов, дуга - узел леса разбора символа,
+ * снятого со стека. Вершины одного уровня с одинаковым состоянием
+ * совпадают, поэтому число вершин уровня не превосходит числа
+ * состояний.
+ * <p>
+ * Свертки ситуаций {@code A→α•β} с аннулируемой β выполняются сразу
+ * после чтения α, а β в лесе разбора представляется узлами пустых
+ * выводов. Это избавляет от повторных проходов по пустым частям
+ * правил и делает алгоритм корректным для любых λ-правил.
+ * <p>
+ * Граф и очереди действий повторно используются между разборами,
+ * поэтому экземпляр не предназначен для одновременной работы из
+ * нескольких потоков.
+ */
+public class GLRParser {
+
+    /** Таблицы анализатора. */
+    @Getter
+    private final LALRTable table;
+
+    /** Снимок грамматики. */
+    private final CompiledGrammar grammar;
+
+    /** Состояние, в которое автомат переходит по целевому символу. */
+    private final int acceptState;
+
+    /** Состояния вершин графа. */
+    private int[] vertexStates = new int[64];
+
+    /** Уровни вершин графа. */
+    private int[] vertexLevels = new int[64];
+
+    /** Первые дуги вершин графа. */
+    private int[] vertexFirstEdges = new int[64];
+
+    private int vertexCount;
+
+    /** Вершины, в которые ведут дуги. */
+    private int[] edgeTargets = new int[64];
+
+    /** Узлы леса разбора на дугах. */
+    private int[] edgeLabels = new int[64];
+
+    /** Следующие дуги той же вершины. */
+    private int[] edgeNext = new int[64];
+
+    private int edgeCount;
+
+    /** Вершины текущего уровня по состояниям. */
+    private int[] levelVertices;
+
+    /** Метки уровня вершин текущего уровня. */
+    private int[] levelStamps;
+
+    /** Вершины следующего уровня по состояниям. */
+    private int[] nextVertices;
+
+    /** Метки уровня вершин следующего уровня. */
+    private int[] nextStamps;
+
+    /**
+     * Очередь сверток: вершина, с которой начинается путь, правило,
+     * количество снимаемых символов и узел на первой дуге пути.
+     */
+    private int[] reductions = new int[64];
+
+    private int reductionCount;
+
+    /** Очередь сдвигов: вершина и состояние после сдвига. */
+    private int[] shifts = new int[32];
+
+    private int shiftCount;
+
+    /** Очередь сдвигов, заполняемая при выполнении сдвигов уровня. */
+    private int[] nextShifts = new int[32];
+
+    /** Узлы леса разбора символов пути свертки. */
+    private int[] pathLabels = new int[16];
+
+    /** Состояние сдвига ячейки таблицы или {@code NO_SYMBOL}. */
+    private int cellShift;
+
+    /** Правила сверток ячейки таблицы. */
+    private int[] cellRules = new int[8];
+
+    /** Количество символов, снимаемых свертками ячейки таблицы. */
+    private int[] cellLengths = new int[8];
+
+    private int cellReductionCount;
+
+    /** Лес разбора текущей цепочки или {@code null} при проверке. */
+    private ParseForest forest;
+
+    /**
+     * Создает анализатор для КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public GLRParser(ContextFreeGrammar grammar) {
+        this(new LALRTable(grammar));
+    }
+
+    /**
+     * Создает анализатор для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public GLRParser(CompiledGrammar grammar) {
+        this(new LALRTable(grammar));
+    }
+
+    /**
+     * Создает анализатор по готовым таблицам.
+     *
+     * @param table Таблицы LALR(1)-анализатора, возможно с конфликтами.
+     */
+    public GLRParser(LALRTable table) {
+        this.table = table;
+        grammar = table.getGrammar();
+        acceptState = grammar.getGoal() == CompiledGrammar.NO_SYMBOL
+                ? CompiledGrammar.NO_SYMBOL
+                : table.getGoto(0, grammar.getGoal());
+        levelVertices = new int[table.getStateCount()];
+        levelStamps = new int[table.getStateCount()];
+        nextVertices = new int[table.getStateCount()];
+        nextStamps = new int[table.getStateCount()];
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики без построения
+     * леса разбора.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public boolean recognize(CharSequence chain) {
+        return run(chain, null);
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     */
+    public boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    /**
+     * Строит лес разбора цепочки, содержащий все её деревья разбора.
+     *
+     * @param chain Цепочка.
+     * @return Лес разбора или {@code null}, если цепочка не
+     * принадлежит языку.
+     */
+    public ParseForest parse(CharSequence chain) {
+        ParseForest result = new ParseForest(grammar, chain.length());
+        if (!run(chain, result)) {
+            return null;
+        }
+        result.setRoot(result.findNode(grammar.getGoal(), 0, chain.length()));
+        return result;
+    }
+
+    private boolean run(CharSequence chain, ParseForest target) {
+        int length = chain.length();
+        for (int i = 0; i < length; i++) {
+            if (grammar.getTerminalId(chain.charAt(i)) == CompiledGrammar.NO_SYMBOL) {
+                return false;
+            }
+        }
+        if (acceptState == CompiledGrammar.NO_SYMBOL) {
+            return false;
+        }
+        forest = target;
+        vertexCount = 0;
+        edgeCount = 0;
+        reductionCount = 0;
+        shiftCount = 0;
+        Arrays.fill(levelStamps, 0);
+        Arrays.fill(nextStamps, 0);
+        try {
+            int start = addVertex(0, 0, levelVertices, levelStamps);
+            int lookahead = nextSymbol(chain, 0);
+            collectActions(0, lookahead);
+            queueShift(start);
+            queueEmptyReductions(start);
+            for (int level = 0; level <= length; level++) {
+                lookahead = nextSymbol(chain, level);
+                while (reductionCount > 0) {
+                    reduce(level, lookahead);
+                }
+                if (level == length) {
+                    return levelStamps[acceptState] == level + 1;
+                }
+                if (shiftCount == 0) {
+                    return false;
+                }
+                shift(level, lookahead, nextSymbol(chain, level + 1));
+            }
+            return false;
+        } finally {
+            forest = null;
+        }
+    }
+
+    /**
+     * Выполняет свертку из очереди: для каждого пути нужной длины
+     * добавляет дугу по символу правила из вершины текущего уровня
+     * в конец пути.
+     */
+    private void reduce(int level, int lookahead) {
+        reductionCount -= 4;
+        int vertex = reductions[reductionCount];
+        int rule = reductions[reductionCount + 1];
+        int length = reductions[reductionCount + 2];
+        if (length == 0) {
+            completeReduction(vertex, level, lookahead, rule, 0);
+            return;
+        }
+        if (pathLabels.length < length) {
+            pathLabels = new int[length * 2];
+        }
+        // Первая дуга пути уже пройдена: свертка поставлена в очередь
+        // при её создании вместе с узлом на ней
+        pathLabels[length - 1] = reductions[reductionCount + 3];
+        reducePaths(vertex, length - 1, level, lookahead, rule, length);
+    }
+
+    /**
+     * Перебирает пути заданной длины от вершины, запоминая узлы на
+     * дугах, и завершает свертку в конце каждого пути.
+     */
+    private void reducePaths(int vertex, int remaining, int level, int lookahead, int rule, int length) {
+        if (remaining == 0) {
+            completeReduction(vertex, level, lookahead, rule, length);
+            return;
+        }
+        for (int edge = vertexFirstEdges[vertex]; edge != ParseForest.NO_NODE; edge = edgeNext[edge]) {
+            pathLabels[remaining - 1] = edgeLabels[edge];
+            reducePaths(edgeTargets[edge], remaining - 1, level, lookahead, rule, length);
+        }
+    }
+
+    /**
+     * Завершает свертку на пути, оканчивающемся в вершине.
+     *
+     * @param vertex Конец пути.
+     * @param length Количество символов, снятых со стека.
+     */
+    private void completeReduction(int vertex, int level, int lookahead, int rule, int length) {
+        int head = grammar.getRuleHead(rule);
+        int label = ParseForest.NO_NODE;
+        if (forest != null) {
+            label = addDerivation(head, vertexLevels[vertex], level, rule, length);
+        }
+        int state = table.getGoto(vertexStates[vertex], head);
+        if (levelStamps[state] == level + 1) {
+            int existing = levelVertices[state];
+            if (hasEdge(existing, vertex)) {
+                return;
+            }
+            addEdge(existing, vertex, label);
+            if (length > 0) {
+                collectActions(state, lookahead);
+                queueLongReductions(vertex, label);
+            }
+            return;
+        }
+        int created = addVertex(state, level, levelVertices, levelStamps);
+        addEdge(created, vertex, label);
+        collectActions(state, lookahead);
+        queueShift(created);
+        queueEmptyReductions(created);
+        if (length > 0) {
+            queueLongReductions(vertex, label);
+        }
+    }
+
+    /**
+     * Добавляет в лес разбора вариант вывода подцепочки по правилу и
+     * возвращает узел символа правила.
+     */
+    private int addDerivation(int head, int start, int end, int rule, int length) {
+        if (start == end) {
+            // Узел пустого вывода содержит все варианты сразу
+            return forest.addEmptyNode(head, end);
+        }
+        int node = forest.addNode(head, start, end);
+        int[] ruleChildren = new int[grammar.getRuleLength(rule)];
+        System.arraycopy(pathLabels, 0, ruleChildren, 0, length);
+        for (int i = length; i < ruleChildren.length; i++) {
+            ruleChildren[i] = forest.addEmptyNode(grammar.getRuleSymbol(rule, i), end);
+        }
+        forest.addPacked(node, rule, ruleChildren);
+        return node;
+    }
+
+    /**
+     * Выполняет сдвиги текущего уровня, создавая вершины следующего.
+     */
+    private void shift(int level, int lookahead, int nextLookahead) {
+        int label = forest == null
+                ? ParseForest.NO_NODE
+                : forest.addNode(lookahead, level, level + 1);
+        int count = shiftCount;
+        int[] queued = shifts;
+        shifts = nextShifts;
+        shiftCount = 0;
+        for (int i = 0; i < count; i += 2) {
+            int vertex = queued[i];
+            int state = queued[i + 1];
+            collectActions(state, nextLookahead);
+            if (nextStamps[state] == level + 2) {
+                addEdge(nextVertices[state], vertex, label);
+            } else {
+                int created = addVertex(state, level + 1, nextVertices, nextStamps);
+                addEdge(created, vertex, label);
+                queueShift(created);
+                queueEmptyReductions(created);
+            }
+            queueLongReductions(vertex, label);
+        }
+        nextShifts = queued;
+        int[] swap = levelVertices;
+        levelVertices = nextVertices;
+        nextVertices = swap;
+        swap = levelStamps;
+        levelStamps = nextStamps;
+        nextStamps = swap;
+    }
+
+    /**
+     * Запоминает действия ячейки таблицы: сдвиг, свертки и свертки с
+     * аннулируемым остатком.
+     */
+    private void collectActions(int state, int lookahead) {
+        cellShift = CompiledGrammar.NO_SYMBOL;
+        cellReductionCount = 0;
+        if (table.hasConflict(state, lookahead)) {
+            for (int action : table.getActions(state, lookahead)) {
+                collectAction(action);
+            }
+        } else {
+            collectAction(table.getAction(state, lookahead));
+        }
+        for (int reduction = table.getFirstNulledReduction(state);
+             reduction < table.getEndNulledReduction(state);
+             reduction++) {
+            if (table.isNulledLookahead(reduction, lookahead)) {
+                collectReduction(
+                        table.getNulledReductionRule(reduction),
+                        table.getNulledReductionLength(reduction)
+                );
+            }
+        }
+    }
+
+    private void collectAction(int action) {
+        if (LALRTable.isShift(action)) {
+            cellShift = LALRTable.getState(action);
+        } else if (LALRTable.isReduce(action)) {
+            int rule = LALRTable.getRule(action);
+            collectReduction(rule, grammar.getRuleLength(rule));
+        }
+    }
+
+    private void collectReduction(int rule, int length) {
+        if (cellReductionCount == cellRules.length) {
+            cellRules = Arrays.copyOf(cellRules, cellReductionCount * 2);
+            cellLengths = Arrays.copyOf(cellLengths, cellReductionCount * 2);
+        }
+        cellRules[cellReductionCount] = rule;
+        cellLengths[cellReductionCount++] = length;
+    }
+
+    /**
+     * Ставит в очередь сдвиг из вершины по запомненной ячейке.
+     */
+    private void queueShift(int vertex) {
+        if (cellShift == CompiledGrammar.NO_SYMBOL) {
+            return;
+        }
+        if (shiftCount + 2 > shifts.length) {
+            shifts = Arrays.copyOf(shifts, shifts.length * 2);
+        }
+        shifts[shiftCount++] = vertex;
+        shifts[shiftCount++] = cellShift;
+    }
+
+    /**
+     * Ставит в очередь свертки запомненной ячейки, не снимающие
+     * символов со стека.
+     */
+    private void queueEmptyReductions(int vertex) {
+        for (int i = 0; i < cellReductionCount; i++) {
+            if (cellLengths[i] == 0) {
+                queueReduction(vertex, cellRules[i], 0, ParseForest.NO_NODE);
+            }
+        }
+    }
+
+    /**
+     * Ставит в очередь свертки запомненной ячейки, проходящие через
+     * новую дугу.
+     *
+     * @param below Вершина, в которую ведет новая дуга.
+     * @param label Узел леса разбора на новой дуге.
+     */
+    private void queueLongReductions(int below, int label) {
+        for (int i = 0; i < cellReductionCount; i++) {
+            if (cellLengths[i] > 0) {
+                queueReduction(below, cellRules[i], cellLengths[i], label);
+            }
+        }
+    }
+
+    private void queueReduction(int vertex, int rule, int length, int label) {
+        if (reductionCount + 4 > reductions.length) {
+            reductions = Arrays.copyOf(reductions, reductions.length * 2);
+        }
+        reductions[reductionCount++] = vertex;
+        reductions[reductionCount++] = rule;
+        reductions[reductionCount++] = length;
+        reductions[reductionCount++] = label;
+    }
+
+    private boolean hasEdge(int vertex, int target) {
+        for (int edge = vertexFirstEdges[vertex]; edge != ParseForest.NO_NODE; edge = edgeNext[edge]) {
+            if (edgeTargets[edge] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int addVertex(int state, int level, int[] vertices, int[] stamps) {
+        if (vertexCount == vertexStates.length) {
+            int capacity = vertexCount * 2;
+            vertexStates = Arrays.copyOf(vertexStates, capacity);
+            vertexLevels = Arrays.copyOf(vertexLevels, capacity);
+            vertexFirstEdges = Arrays.copyOf(vertexFirstEdges, capacity);
+        }
+        vertexStates[vertexCount] = state;
+        vertexLevels[vertexCount] = level;
+        vertexFirstEdges[vertexCount] = ParseForest.NO_NODE;
+        vertices[state] = vertexCount;
+        stamps[state] = level + 1;
+        return vertexCount++;
+    }
+
+    private void addEdge(int vertex, int target, int label) {
+        if (edgeCount == edgeTargets.length) {
+            int capacity = edgeCount * 2;
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeLabels = Arrays.copyOf(edgeLabels, capacity);
+            edgeNext = Arrays.copyOf(edgeNext, capacity);
+        }
+        edgeTargets[edgeCount] = target;
+        edgeLabels[edgeCount] = label;
+        edgeNext[edgeCount] = vertexFirstEdges[vertex];
+        vertexFirstEdges[vertex] = edgeCount++;
+    }
+
+    /**
+     * Возвращает номер символа цепочки или маркер конца цепочки.
+     */
+    private int nextSymbol(CharSequence chain, int position) {
+        return position < chain.length()
+                ? grammar.getTerminalId(chain.charAt(position))
+                : table.getEndMarker();
+    }
+
+}
@@ -0,0 +1,548 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Построение LR(0)-автомата КС-грамматики и LALR(1)-предпросмотров
+ * его свёрток методом ДеРемера-Пеннелло.
+ * <p>
+ * Грамматика дополняется правилом {@code S'→S}, номер которого равен
+ * количеству правил грамматики. Позиции точки во всех правилах
+ * пронумерованы подряд; состояние автомата определяется упорядоченным
+ * набором позиций своего ядра.
+ * <p>
+ * Предпросмотры вычисляются не для каждой ситуации, а для переходов
+ * по нетерминальным символам: множество Read перехода - терминальные
+ * символы, читаемые после него, возможно через аннулируемые символы,
+ * множество Follow - объединение Read по отношению includes.
+ * Оба отношения замыкаются алгоритмом digraph, который обрабатывает
+ * каждую компоненту сильной связности один раз. Предпросмотр свёртки
+ * - объединение множеств Follow переходов, связанных с ней отношением
+ * lookback.
+ * <p>
+ * Для обобщенного анализа, кроме того, строятся свёртки ситуаций
+ * {@code A→α•β} с аннулируемой β (свёртки с аннулируемым остатком),
+ * которые избавляют от прохода по пустым частям правил в стеке.
+ */
+final class LALRBuilder {
+
+    private final CompiledGrammar grammar;
+
+    /** Аннулируемые символы. */
+    private final BitSet nullable;
+
+    /** Номер маркера конца цепочки. */
+    private final int endMarker;
+
+    /** Номер дополнительного правила {@code S'→S}. */
+    private final int startRule;
+
+    /** Номера позиций точки в начале правил. */
+    private final int[] ruleStarts;
+
+    /** Символы после точки по номерам позиций или {@code NO_SYMBOL}. */
+    private final int[] nextSymbols;
+
+    /** Правила по номерам позиций. */
+    private final int[] positionRules;
+
+    /** Ядра состояний. */
+    private final List<int[]> kernels = new ArrayList<>();
+
+    /** Номера состояний по ядрам. */
+    private final Map<IntBuffer, Integer> stateIds = new HashMap<>();
+
+    /** Начала переходов состояний. */
+    private int[] transitionOffsets = new int[16];
+
+    /** Состояния, из которых выполняются переходы. */
+    private int[] transitionSources = new int[16];
+
+    /** Символы переходов; переходы состояния упорядочены по символу. */
+    private int[] transitionSymbols = new int[16];
+
+    /** Состояния, в которые выполняются переходы. */
+    private int[] transitionTargets = new int[16];
+
+    private int transitionCount;
+
+    /** Начала свёрток состояний. */
+    private int[] reductionOffsets = new int[16];
+
+    /** Правила свёрток. */
+    private int[] reductionRules = new int[16];
+
+    private int reductionCount;
+
+    /** Предпросмотры свёрток. */
+    private BitSet[] lookaheads;
+
+    /** Начала свёрток с аннулируемым остатком тела правила по состояниям. */
+    private int[] nulledOffsets = new int[16];
+
+    /** Правила свёрток с аннулируемым остатком. */
+    private int[] nulledRules = new int[16];
+
+    /** Позиции точки свёрток с аннулируемым остатком. */
+    private int[] nulledLengths = new int[16];
+
+    private int nulledCount;
+
+    /** Предпросмотры свёрток с аннулируемым остатком. */
+    private BitSet[] nulledLookaheads;
+
+    /** Признаки аннулируемости части тела правила после позиции. */
+    private final boolean[] nullableSuffixes;
+
+    LALRBuilder(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        nullable = grammar.getAnalysis().getNullable();
+        endMarker = grammar.getAnalysis().getEndMarker();
+        startRule = grammar.getRuleCount();
+        ruleStarts = new int[startRule + 1];
+        int positionCount = 0;
+        for (int rule = 0; rule < startRule; rule++) {
+            ruleStarts[rule] = positionCount;
+            positionCount += grammar.getRuleLength(rule) + 1;
+        }
+        ruleStarts[startRule] = positionCount;
+        nextSymbols = new int[positionCount + 2];
+        positionRules = new int[positionCount + 2];
+        nullableSuffixes = new boolean[positionCount + 2];
+        for (int rule = 0; rule < startRule; rule++) {
+            int length = grammar.getRuleLength(rule);
+            int start = ruleStarts[rule];
+            nullableSuffixes[start + length] = true;
+            for (int dot = length; dot >= 0; dot--) {
+                positionRules[start + dot] = rule;
+                if (dot < length) {
+                    int symbol = grammar.getRuleSymbol(rule, dot);
+                    nextSymbols[start + dot] = symbol;
+                    nullableSuffixes[start + dot] =
+                            nullableSuffixes[start + dot + 1] && nullable.get(symbol);
+                } else {
+                    nextSymbols[start + dot] = CompiledGrammar.NO_SYMBOL;
+                }
+            }
+        }
+        nextSymbols[positionCount] = grammar.getGoal();
+        nextSymbols[positionCount + 1] = CompiledGrammar.NO_SYMBOL;
+        positionRules[positionCount] = startRule;
+        positionRules[positionCount + 1] = startRule;
+        nullableSuffixes[positionCount + 1] = true;
+    }
+
+    /**
+     * Строит автомат и предпросмотры свёрток.
+     */
+    void build() {
+        buildStates();
+        computeLookaheads();
+        computeNulledLookaheads();
+    }
+
+    int getStateCount() {
+        return kernels.size();
+    }
+
+    int getStartRule() {
+        return startRule;
+    }
+
+    int getFirstTransition(int state) {
+        return transitionOffsets[state];
+    }
+
+    int getEndTransition(int state) {
+        return transitionOffsets[state + 1];
+    }
+
+    int getTransitionSymbol(int transition) {
+        return transitionSymbols[transition];
+    }
+
+    int getTransitionTarget(int transition) {
+        return transitionTargets[transition];
+    }
+
+    int getFirstReduction(int state) {
+        return reductionOffsets[state];
+    }
+
+    int getEndReduction(int state) {
+        return reductionOffsets[state + 1];
+    }
+
+    int getReductionRule(int reduction) {
+        return reductionRules[reduction];
+    }
+
+    BitSet getLookaheads(int reduction) {
+        return lookaheads[reduction];
+    }
+
+    int getFirstNulledReduction(int state) {
+        return nulledOffsets[state];
+    }
+
+    int getEndNulledReduction(int state) {
+        return nulledOffsets[state + 1];
+    }
+
+    int getNulledReductionRule(int reduction) {
+        return nulledRules[reduction];
+    }
+
+    int getNulledReductionLength(int reduction) {
+        return nulledLengths[reduction];
+    }
+
+    BitSet getNulledLookaheads(int reduction) {
+        return nulledLookaheads[reduction];
+    }
+
+    /**
+     * Строит состояния LR(0)-автомата обходом в ширину от начального
+     * состояния с ядром {@code S'→•S}.
+     */
+    private void buildStates() {
+        addState(new int[]{ruleStarts[startRule]});
+        int[] items = new int[16];
+        int[] stamps = new int[grammar.getNonTerminalCount()];
+        long[] moves = new long[16];
+        for (int state = 0; state < kernels.size(); state++) {
+            // Замыкание ядра: ситуации с точкой в начале правил символов,
+            // стоящих после точки
+            int[] kernel = kernels.get(state);
+            int itemCount = kernel.length;
+            if (items.length < itemCount) {
+                items = Arrays.copyOf(items, itemCount * 2);
+            }
+            System.arraycopy(kernel, 0, items, 0, itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                int symbol = nextSymbols[items[i]];
+                if (symbol == CompiledGrammar.NO_SYMBOL || grammar.isTerminal(symbol)) {
+                    continue;
+                }
+                int index = grammar.getNonTerminalIndex(symbol);
+                if (stamps[index] == state + 1) {
+                    continue;
+                }
+                stamps[index] = state + 1;
+                int first = grammar.getFirstRule(symbol);
+                int end = grammar.getEndRule(symbol);
+                if (items.length < itemCount + end - first) {
+                    items = Arrays.copyOf(items, Math.max(items.length * 2, itemCount + end - first));
+                }
+                for (int rule = first; rule < end; rule++) {
+                    items[itemCount++] = ruleStarts[rule];
+                }
+            }
+
+            // Переходы: ситуации группируются по символу после точки,
+            // ключ - символ в старших 32 битах и следующая позиция в младших
+            int moveCount = 0;
+            reductionOffsets = ensureCapacity(reductionOffsets, state + 2);
+            reductionOffsets[state] = reductionCount;
+            nulledOffsets = ensureCapacity(nulledOffsets, state + 2);
+            nulledOffsets[state] = nulledCount;
+            for (int i = 0; i < itemCount; i++) {
+                int position = items[i];
+                int symbol = nextSymbols[position];
+                int rule = positionRules[position];
+                if (symbol == CompiledGrammar.NO_SYMBOL) {
+                    reductionRules = ensureCapacity(reductionRules, reductionCount + 1);
+                    reductionRules[reductionCount++] = rule;
+                    continue;
+                }
+                if (nullableSuffixes[position] && rule != startRule) {
+                    nulledRules = ensureCapacity(nulledRules, nulledCount + 1);
+                    nulledLengths = ensureCapacity(nulledLengths, nulledCount + 1);
+                    nulledRules[nulledCount] = rule;
+                    nulledLengths[nulledCount++] = position - ruleStarts[rule];
+                }
+                if (moves.length == moveCount) {
+                    moves = Arrays.copyOf(moves, moveCount * 2);
+                }
+                moves[moveCount++] = (long) symbol << Integer.SIZE | position + 1;
+            }
+            reductionOffsets[state + 1] = reductionCount;
+            nulledOffsets[state + 1] = nulledCount;
+            Arrays.sort(moves, 0, moveCount);
+
+            transitionOffsets = ensureCapacity(transitionOffsets, state + 2);
+            transitionOffsets[state] = transitionCount;
+            for (int start = 0, end; start < moveCount; start = end) {
+                int symbol = (int) (moves[start] >>> Integer.SIZE);
+                end = start + 1;
+                while (end < moveCount && (int) (moves[end] >>> Integer.SIZE) == symbol) {
+                    end++;
+                }
+                int[] target = new int[end - start];
+                for (int i = start; i < end; i++) {
+                    target[i - start] = (int) moves[i];
+                }
+                addTransition(state, symbol, addState(target));
+            }
+            transitionOffsets[state + 1] = transitionCount;
+        }
+    }
+
+    /**
+     * Возвращает номер состояния с заданным ядром, создавая его при
+     * первом обращении.
+     */
+    private int addState(int[] kernel) {
+        IntBuffer key = IntBuffer.wrap(kernel);
+        Integer state = stateIds.get(key);
+        if (state == null) {
+            state = kernels.size();
+            kernels.add(kernel);
+            stateIds.put(key, state);
+        }
+        return state;
+    }
+
+    private void addTransition(int source, int symbol, int target) {
+        transitionSources = ensureCapacity(transitionSources, transitionCount + 1);
+        transitionSymbols = ensureCapacity(transitionSymbols, transitionCount + 1);
+        transitionTargets = ensureCapacity(transitionTargets, transitionCount + 1);
+        transitionSources[transitionCount] = source;
+        transitionSymbols[transitionCount] = symbol;
+        transitionTargets[transitionCount] = target;
+        transitionCount++;
+    }
+
+    /**
+     * Возвращает номер перехода из состояния по символу или
+     * {@code NO_SYMBOL}, если перехода нет.
+     */
+    private int findTransition(int state, int symbol) {
+        int low = transitionOffsets[state];
+        int high = transitionOffsets[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = transitionSymbols[middle];
+            if (current < symbol) {
+                low = middle + 1;
+            } else if (current > symbol) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return CompiledGrammar.NO_SYMBOL;
+    }
+
+    /**
+     * Вычисляет предпросмотры свёрток по отношениям reads, includes
+     * и lookback.
+     */
+    private void computeLookaheads() {
+        // Множества DR: терминальные символы, по которым есть переход из
+        // состояния, в которое ведет переход по нетерминальному символу
+        BitSet[] sets = new BitSet[transitionCount];
+        EdgeList reads = new EdgeList();
+        for (int transition = 0; transition < transitionCount; transition++) {
+            if (grammar.isTerminal(transitionSymbols[transition])) {
+                continue;
+            }
+            BitSet set = new BitSet(endMarker + 1);
+            int target = transitionTargets[transition];
+            for (int next = transitionOffsets[target]; next < transitionOffsets[target + 1]; next++) {
+                int symbol = transitionSymbols[next];
+                if (grammar.isTerminal(symbol)) {
+                    set.set(symbol);
+                } else if (nullable.get(symbol)) {
+                    reads.add(transition, next);
+                }
+            }
+            if (transitionSources[transition] == 0 && transitionSymbols[transition] == grammar.getGoal()) {
+                set.set(endMarker);
+            }
+            sets[transition] = set;
+        }
+        digraph(sets, reads.toAdjacency(transitionCount), reads.targets);
+
+        // Отношения includes и lookback получаются проходом по телу
+        // каждого правила символа B от состояния перехода по B
+        EdgeList includes = new EdgeList();
+        EdgeList lookbacks = new EdgeList();
+        for (int transition = 0; transition < transitionCount; transition++) {
+            int head = transitionSymbols[transition];
+            if (grammar.isTerminal(head)) {
+                continue;
+            }
+            for (int rule = grammar.getFirstRule(head); rule < grammar.getEndRule(head); rule++) {
+                int state = transitionSources[transition];
+                for (int i = 0; i < grammar.getRuleLength(rule); i++) {
+                    int symbol = grammar.getRuleSymbol(rule, i);
+                    int next = findTransition(state, symbol);
+                    if (!grammar.isTerminal(symbol)
+                            && nullableSuffixes[ruleStarts[rule] + i + 1]) {
+                        includes.add(next, transition);
+                    }
+                    state = transitionTargets[next];
+                }
+                lookbacks.add(findReduction(state, rule), transition);
+            }
+        }
+        for (int transition = 0; transition < transitionCount; transition++) {
+            if (sets[transition] != null) {
+                sets[transition] = (BitSet) sets[transition].clone();
+            }
+        }
+        digraph(sets, includes.toAdjacency(transitionCount), includes.targets);
+
+        lookaheads = new BitSet[reductionCount];
+        for (int reduction = 0; reduction < reductionCount; reduction++) {
+            lookaheads[reduction] = new BitSet(endMarker + 1);
+            if (reductionRules[reduction] == startRule) {
+                lookaheads[reduction].set(endMarker);
+            }
+        }
+        for (int i = 0; i < lookbacks.size; i++) {
+            lookaheads[lookbacks.sources[i]].or(sets[lookbacks.targets[i]]);
+        }
+    }
+
+    /**
+     * Вычисляет предпросмотры свёрток ситуаций {@code A→α•β}, где β
+     * аннулируема: переходы по символам β ведут в состояние со
+     * свёрткой {@code A→αβ•}, предпросмотр которой и используется.
+     */
+    private void computeNulledLookaheads() {
+        nulledLookaheads = new BitSet[nulledCount];
+        for (int state = 0; state < getStateCount(); state++) {
+            for (int reduction = nulledOffsets[state]; reduction < nulledOffsets[state + 1]; reduction++) {
+                int rule = nulledRules[reduction];
+                int target = state;
+                for (int i = nulledLengths[reduction]; i < grammar.getRuleLength(rule); i++) {
+                    target = transitionTargets[findTransition(target, grammar.getRuleSymbol(rule, i))];
+                }
+                nulledLookaheads[reduction] = lookaheads[findReduction(target, rule)];
+            }
+        }
+    }
+
+    private int findReduction(int state, int rule) {
+        for (int reduction = reductionOffsets[state]; reduction < reductionOffsets[state + 1]; reduction++) {
+            if (reductionRules[reduction] == rule) {
+                return reduction;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Дополняет множество каждой вершины множествами вершин, достижимых
+     * из неё по отношению; вершины одной компоненты сильной связности
+     * получают общее множество. Вершины без множества не обходятся.
+     *
+     * @param sets Множества вершин.
+     * @param offsets Начала дуг вершин.
+     * @param targets Концы дуг.
+     */
+    private static void digraph(BitSet[] sets, int[] offsets, int[] targets) {
+        int count = sets.length;
+        // Глубина стека при входе в вершину и наименьшая глубина вершины
+        // стека, достижимой из неё
+        int[] depths = new int[count];
+        int[] order = new int[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        // Стек обхода в глубину: вершина и следующая просматриваемая дуга
+        int[] path = new int[count];
+        int[] cursors = new int[count];
+        for (int root = 0; root < count; root++) {
+            if (sets[root] == null || order[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            path[depth] = root;
+            cursors[depth++] = offsets[root];
+            stack[stackSize++] = root;
+            order[root] = depths[root] = stackSize;
+            while (depth > 0) {
+                int vertex = path[depth - 1];
+                if (cursors[depth - 1] < offsets[vertex + 1]) {
+                    int successor = targets[cursors[depth - 1]++];
+                    if (order[successor] == 0) {
+                        path[depth] = successor;
+                        cursors[depth++] = offsets[successor];
+                        stack[stackSize++] = successor;
+                        order[successor] = depths[successor] = stackSize;
+                    } else {
+                        order[vertex] = Math.min(order[vertex], order[successor]);
+                        sets[vertex].or(sets[successor]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    order[parent] = Math.min(order[parent], order[vertex]);
+                    sets[parent].or(sets[vertex]);
+                }
+                if (order[vertex] != depths[vertex]) {
+                    continue;
+                }
+                // Вершина - корень компоненты: компонента снимается со стека
+                int member;
+                do {
+                    member = stack[--stackSize];
+                    order[member] = Integer.MAX_VALUE;
+                    sets[member] = sets[vertex];
+                } while (member != vertex);
+            }
+        }
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(array.length * 2, size));
+    }
+
+    /**
+     * Список дуг отношения.
+     */
+    private static final class EdgeList {
+
+        private int[] sources = new int[16];
+
+        private int[] targets = new int[16];
+
+        private int size;
+
+        void add(int source, int target) {
+            sources = ensureCapacity(sources, size + 1);
+            targets = ensureCapacity(targets, size + 1);
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+
+        /**
+         * Упорядочивает дуги по началу и возвращает начала дуг вершин.
+         */
+        int[] toAdjacency(int vertexCount) {
+            int[] offsets = new int[vertexCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int i = 0; i < vertexCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] positions = Arrays.copyOf(offsets, vertexCount);
+            int[] sortedTargets = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedTargets[positions[sources[i]]++] = targets[i];
+            }
+            targets = sortedTargets;
+            return offsets;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Анализатор типа «перенос-свертка» для LALR(1)-грамматик.
+ * <p>
+ * Разбор выполняется по таблицам {@link LALRTable} на стеке номеров
+ * состояний за время, линейное относительно длины цепочки. Стек
+ * повторно используется между проверками, поэтому экземпляр не
+ * предназначен для одновременной работы из нескольких потоков;
+ * таблицы при этом можно разделять между экземплярами.
+ */
+public class LALRParser {
+
+    private static final String NOT_LALR1 =
+            "Грамматика не является LALR(1)-грамматикой";
+
+    /** Таблицы анализатора. */
+    @Getter
+    private final LALRTable table;
+
+    /** Снимок грамматики. */
+    private final CompiledGrammar grammar;
+
+    /** Стек состояний. */
+    private int[] stack = new int[64];
+
+    /** Номера правил сверток последнего разбора. */
+    private int[] reductions = new int[64];
+
+    /** Количество сверток последнего разбора. */
+    private int reductionCount;
+
+    /**
+     * Создает анализатор для КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public LALRParser(ContextFreeGrammar grammar) {
+        this(new LALRTable(grammar));
+    }
+
+    /**
+     * Создает анализатор для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public LALRParser(CompiledGrammar grammar) {
+        this(new LALRTable(grammar));
+    }
+
+    /**
+     * Создает анализатор по готовым таблицам.
+     *
+     * @param table Таблицы LALR(1)-анализатора.
+     */
+    public LALRParser(LALRTable table) {
+        this.table = table;
+        grammar = table.getGrammar();
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     * @throws IllegalStateException Если грамматика не является
+     * LALR(1)-грамматикой.
+     */
+    public boolean recognize(CharSequence chain) {
+        return run(chain, false);
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     * @throws IllegalStateException Если грамматика не является
+     * LALR(1)-грамматикой.
+     */
+    public boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    /**
+     * Строит правый вывод цепочки.
+     *
+     * @param chain Цепочка.
+     * @return Номера правил правого вывода в порядке их применения или
+     * {@code null}, если цепочка не принадлежит языку.
+     * @throws IllegalStateException Если грамматика не является
+     * LALR(1)-грамматикой.
+     * @see CompiledGrammar#getRule(int)
+     */
+    public int[] parse(CharSequence chain) {
+        if (!run(chain, true)) {
+            return null;
+        }
+        // Свертки выполняются в порядке, обратном правому выводу
+        int[] derivation = new int[reductionCount];
+        for (int i = 0; i < reductionCount; i++) {
+            derivation[i] = reductions[reductionCount - 1 - i];
+        }
+        return derivation;
+    }
+
+    private boolean run(CharSequence chain, boolean record) {
+        if (!table.isLALR1()) {
+            throw new IllegalStateException(NOT_LALR1);
+        }
+        if (grammar.getGoal() == CompiledGrammar.NO_SYMBOL) {
+            return false;
+        }
+        reductionCount = 0;
+        int top = 0;
+        stack[0] = 0;
+        int position = 0;
+        int lookahead = nextSymbol(chain, position);
+        while (lookahead != CompiledGrammar.NO_SYMBOL) {
+            int action = table.getAction(stack[top], lookahead);
+            if (LALRTable.isShift(action)) {
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top] = LALRTable.getState(action);
+                lookahead = nextSymbol(chain, ++position);
+            } else if (LALRTable.isReduce(action)) {
+                int rule = LALRTable.getRule(action);
+                top -= grammar.getRuleLength(rule);
+                int target = table.getGoto(stack[top], grammar.getRuleHead(rule));
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top] = target;
+                if (record) {
+                    if (reductionCount == reductions.length) {
+                        reductions = Arrays.copyOf(reductions, reductionCount * 2);
+                    }
+                    reductions[reductionCount++] = rule;
+                }
+            } else {
+                return action == LALRTable.ACCEPT;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает номер символа цепочки, маркер конца цепочки или
+     * {@link CompiledGrammar#NO_SYMBOL} для символа вне алфавита.
+     */
+    private int nextSymbol(CharSequence chain, int position) {
+        return position < chain.length()
+                ? grammar.getTerminalId(chain.charAt(position))
+                : table.getEndMarker();
+    }
+
+}
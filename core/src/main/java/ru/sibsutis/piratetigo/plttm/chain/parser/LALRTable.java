@@ -0,0 +1,409 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.*;
+
+/**
+ * Таблицы действий и переходов LALR(1)-анализатора.
+ * <p>
+ * Действие кодируется одним целым числом: {@link #ERROR}, сдвиг с
+ * переходом в состояние s - число {@code s + 1}, свертка по правилу
+ * r - число {@code -(r + 1)}, {@link #ACCEPT} - допуск. Обе таблицы
+ * упакованы методом смещения строк. Строка действий состояния хранит
+ * наиболее частую свертку как действие по умолчанию, поэтому ошибка
+ * может обнаруживаться на несколько сверток позже, но никогда после
+ * лишнего сдвига. Строка переходов нетерминального символа хранит
+ * наиболее частое целевое состояние.
+ * <p>
+ * В ячейках с конфликтами таблица действий содержит сдвиг, если он
+ * возможен, иначе свертку по правилу с наименьшим номером; все
+ * действия таких ячеек доступны через {@link #getActions(int, int)}.
+ * <p>
+ * Для обобщенного анализа таблицы дополнительно хранят свертки
+ * ситуаций {@code A→α•β} с аннулируемой β: такая свертка снимает со
+ * стека только символы α, а β соответствует пустому выводу.
+ * Таблицы неизменяемы и могут разделяться несколькими анализаторами.
+ */
+public final class LALRTable {
+
+    /** Ошибка. */
+    public static final int ERROR = 0;
+
+    /** Допуск цепочки. */
+    public static final int ACCEPT = Integer.MIN_VALUE;
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Количество состояний автомата. */
+    @Getter
+    private final int stateCount;
+
+    /** Номер маркера конца цепочки. */
+    private final int endMarker;
+
+    /** Действия по состояниям и входным символам. */
+    private final PackedTable actions;
+
+    /** Переходы по порядковым номерам нетерминальных символов и состояниям. */
+    private final PackedTable gotos;
+
+    /** Все действия ячеек с конфликтами по ключу из состояния и символа. */
+    private final Map<Long, int[]> conflictActions = new HashMap<>();
+
+    /** Конфликты таблицы действий. */
+    private final List<ParseConflict> conflicts;
+
+    /** Начала сверток с аннулируемым остатком тела правила по состояниям. */
+    private final int[] nulledOffsets;
+
+    /** Правила сверток с аннулируемым остатком. */
+    private final int[] nulledRules;
+
+    /** Длины прочитанной части правила сверток с аннулируемым остатком. */
+    private final int[] nulledLengths;
+
+    /** Предпросмотры сверток с аннулируемым остатком. */
+    private final BitSet[] nulledLookaheads;
+
+    /**
+     * Строит таблицы для КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public LALRTable(ContextFreeGrammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * Строит таблицы для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public LALRTable(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        endMarker = grammar.getAnalysis().getEndMarker();
+        LALRBuilder builder = new LALRBuilder(grammar);
+        builder.build();
+        stateCount = builder.getStateCount();
+
+        int[][] actionColumns = new int[stateCount][];
+        int[][] actionValues = new int[stateCount][];
+        int[] defaultActions = new int[stateCount];
+        List<ParseConflict> newConflicts = new ArrayList<>();
+        // Действия строки текущего состояния; stamps отмечает заполненные
+        // ячейки, cellActions - все действия ячеек с конфликтами
+        int[] row = new int[endMarker + 1];
+        int[] stamps = new int[endMarker + 1];
+        TreeMap<Integer, List<Integer>> cellActions = new TreeMap<>();
+        Map<Integer, Integer> reductionCounts = new HashMap<>();
+        for (int state = 0; state < stateCount; state++) {
+            cellActions.clear();
+            for (int transition = builder.getFirstTransition(state);
+                 transition < builder.getEndTransition(state);
+                 transition++) {
+                int symbol = builder.getTransitionSymbol(transition);
+                if (grammar.isTerminal(symbol)) {
+                    row[symbol] = shift(builder.getTransitionTarget(transition));
+                    stamps[symbol] = state + 1;
+                }
+            }
+            for (int reduction = builder.getFirstReduction(state);
+                 reduction < builder.getEndReduction(state);
+                 reduction++) {
+                int rule = builder.getReductionRule(reduction);
+                int action = rule == builder.getStartRule() ? ACCEPT : reduce(rule);
+                BitSet lookaheads = builder.getLookaheads(reduction);
+                for (int symbol = lookaheads.nextSetBit(0);
+                     symbol >= 0;
+                     symbol = lookaheads.nextSetBit(symbol + 1)) {
+                    if (stamps[symbol] != state + 1) {
+                        row[symbol] = action;
+                        stamps[symbol] = state + 1;
+                        continue;
+                    }
+                    List<Integer> cell = cellActions.computeIfAbsent(
+                            symbol,
+                            (k) -> new ArrayList<>(List.of(row[k]))
+                    );
+                    cell.add(action);
+                    if (isReduce(row[symbol]) && getRule(action) < getRule(row[symbol])) {
+                        row[symbol] = action;
+                    }
+                }
+            }
+            for (Map.Entry<Integer, List<Integer>> cell : cellActions.entrySet()) {
+                int symbol = cell.getKey();
+                List<String> descriptions = new ArrayList<>();
+                for (int action : cell.getValue()) {
+                    descriptions.add(describe(action));
+                }
+                newConflicts.add(new ParseConflict(
+                        String.valueOf(state),
+                        symbol == endMarker ? LL1Parser.END_MARKER : grammar.getName(symbol),
+                        Collections.unmodifiableList(descriptions)
+                ));
+                conflictActions.put(
+                        (long) state << Integer.SIZE | symbol,
+                        cell.getValue().stream().mapToInt(Integer::intValue).toArray()
+                );
+            }
+
+            // Наиболее частая свертка ячеек без конфликтов становится
+            // действием по умолчанию
+            reductionCounts.clear();
+            int defaultAction = ERROR;
+            int defaultCount = 0;
+            for (int symbol = 0; symbol <= endMarker; symbol++) {
+                if (stamps[symbol] == state + 1 && isReduce(row[symbol])
+                        && !cellActions.containsKey(symbol)) {
+                    int count = reductionCounts.merge(row[symbol], 1, Integer::sum);
+                    if (count > defaultCount || count == defaultCount
+                            && getRule(row[symbol]) < getRule(defaultAction)) {
+                        defaultAction = row[symbol];
+                        defaultCount = count;
+                    }
+                }
+            }
+            int entryCount = 0;
+            for (int symbol = 0; symbol <= endMarker; symbol++) {
+                if (stamps[symbol] == state + 1 && row[symbol] != defaultAction) {
+                    entryCount++;
+                }
+            }
+            actionColumns[state] = new int[entryCount];
+            actionValues[state] = new int[entryCount];
+            defaultActions[state] = defaultAction;
+            int entry = 0;
+            for (int symbol = 0; symbol <= endMarker; symbol++) {
+                if (stamps[symbol] == state + 1 && row[symbol] != defaultAction) {
+                    actionColumns[state][entry] = symbol;
+                    actionValues[state][entry++] = row[symbol];
+                }
+            }
+        }
+        actions = PackedTable.pack(actionColumns, actionValues, defaultActions);
+        conflicts = Collections.unmodifiableList(newConflicts);
+        gotos = packGotos(builder);
+
+        nulledOffsets = new int[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            nulledOffsets[state + 1] = builder.getEndNulledReduction(state);
+        }
+        nulledRules = new int[nulledOffsets[stateCount]];
+        nulledLengths = new int[nulledRules.length];
+        nulledLookaheads = new BitSet[nulledRules.length];
+        for (int reduction = 0; reduction < nulledRules.length; reduction++) {
+            nulledRules[reduction] = builder.getNulledReductionRule(reduction);
+            nulledLengths[reduction] = builder.getNulledReductionLength(reduction);
+            nulledLookaheads[reduction] = builder.getNulledLookaheads(reduction);
+        }
+    }
+
+    /**
+     * Возвращает конфликты таблицы действий; пустой список означает,
+     * что грамматика является LALR(1)-грамматикой.
+     */
+    public List<ParseConflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Проверяет, что грамматика является LALR(1)-грамматикой.
+     */
+    public boolean isLALR1() {
+        return conflicts.isEmpty();
+    }
+
+    /**
+     * Возвращает номер маркера конца цепочки.
+     */
+    public int getEndMarker() {
+        return endMarker;
+    }
+
+    /**
+     * Возвращает действие из таблицы действий.
+     *
+     * @param state Номер состояния.
+     * @param lookahead Номер терминального символа или маркера конца
+     *                  цепочки.
+     */
+    public int getAction(int state, int lookahead) {
+        return actions.get(state, lookahead);
+    }
+
+    /**
+     * Проверяет, что в ячейке таблицы действий есть конфликт.
+     *
+     * @param state Номер состояния.
+     * @param lookahead Номер терминального символа или маркера конца
+     *                  цепочки.
+     */
+    public boolean hasConflict(int state, int lookahead) {
+        return !conflictActions.isEmpty()
+                && conflictActions.containsKey((long) state << Integer.SIZE | lookahead);
+    }
+
+    /**
+     * Возвращает все действия ячейки таблицы действий: несколько
+     * действий при конфликте, иначе не более одного.
+     *
+     * @param state Номер состояния.
+     * @param lookahead Номер терминального символа или маркера конца
+     *                  цепочки.
+     */
+    public int[] getActions(int state, int lookahead) {
+        int[] cell = conflictActions.get((long) state << Integer.SIZE | lookahead);
+        if (cell != null) {
+            return cell.clone();
+        }
+        int action = getAction(state, lookahead);
+        return action == ERROR ? new int[0] : new int[]{action};
+    }
+
+    /**
+     * Возвращает состояние, в которое автомат переходит по
+     * нетерминальному символу после свертки.
+     *
+     * @param state Номер состояния.
+     * @param nonTerminal Номер нетерминального символа.
+     */
+    public int getGoto(int state, int nonTerminal) {
+        return gotos.get(grammar.getNonTerminalIndex(nonTerminal), state);
+    }
+
+    /**
+     * Возвращает количество элементов массивов упакованных таблиц.
+     */
+    public int getPackedSize() {
+        return actions.size() + gotos.size();
+    }
+
+    /**
+     * Возвращает номер первой свертки состояния, выполняемой до чтения
+     * аннулируемого остатка тела правила.
+     */
+    int getFirstNulledReduction(int state) {
+        return nulledOffsets[state];
+    }
+
+    int getEndNulledReduction(int state) {
+        return nulledOffsets[state + 1];
+    }
+
+    int getNulledReductionRule(int reduction) {
+        return nulledRules[reduction];
+    }
+
+    /**
+     * Возвращает количество символов правила, снимаемых со стека
+     * сверткой с аннулируемым остатком.
+     */
+    int getNulledReductionLength(int reduction) {
+        return nulledLengths[reduction];
+    }
+
+    boolean isNulledLookahead(int reduction, int lookahead) {
+        return nulledLookaheads[reduction].get(lookahead);
+    }
+
+    /**
+     * Проверяет, что действие - сдвиг.
+     */
+    public static boolean isShift(int action) {
+        return action > 0;
+    }
+
+    /**
+     * Проверяет, что действие - свертка.
+     */
+    public static boolean isReduce(int action) {
+        return action < 0 && action != ACCEPT;
+    }
+
+    /**
+     * Возвращает состояние, в которое выполняется сдвиг.
+     */
+    public static int getState(int shift) {
+        return shift - 1;
+    }
+
+    /**
+     * Возвращает правило, по которому выполняется свертка.
+     */
+    public static int getRule(int reduce) {
+        return -reduce - 1;
+    }
+
+    private static int shift(int state) {
+        return state + 1;
+    }
+
+    private static int reduce(int rule) {
+        return -rule - 1;
+    }
+
+    private String describe(int action) {
+        if (isShift(action)) {
+            return "сдвиг " + getState(action);
+        }
+        return action == ACCEPT ? "допуск" : "свертка " + grammar.getRule(getRule(action));
+    }
+
+    /**
+     * Упаковывает переходы по нетерминальным символам; наиболее частое
+     * целевое состояние символа становится переходом по умолчанию.
+     */
+    private PackedTable packGotos(LALRBuilder builder) {
+        int count = grammar.getNonTerminalCount();
+        List<List<int[]>> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new ArrayList<>());
+        }
+        for (int state = 0; state < stateCount; state++) {
+            for (int transition = builder.getFirstTransition(state);
+                 transition < builder.getEndTransition(state);
+                 transition++) {
+                int symbol = builder.getTransitionSymbol(transition);
+                if (!grammar.isTerminal(symbol)) {
+                    entries.get(grammar.getNonTerminalIndex(symbol))
+                            .add(new int[]{state, builder.getTransitionTarget(transition)});
+                }
+            }
+        }
+        int[][] columns = new int[count][];
+        int[][] values = new int[count][];
+        int[] defaults = new int[count];
+        Map<Integer, Integer> targetCounts = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            targetCounts.clear();
+            int defaultTarget = CompiledGrammar.NO_SYMBOL;
+            int defaultCount = 0;
+            for (int[] entry : entries.get(i)) {
+                int targetCount = targetCounts.merge(entry[1], 1, Integer::sum);
+                if (targetCount > defaultCount) {
+                    defaultTarget = entry[1];
+                    defaultCount = targetCount;
+                }
+            }
+            int target = defaultTarget;
+            int[][] rest = entries.get(i).stream()
+                    .filter(entry -> entry[1] != target)
+                    .toArray(int[][]::new);
+            columns[i] = new int[rest.length];
+            values[i] = new int[rest.length];
+            for (int j = 0; j < rest.length; j++) {
+                columns[i][j] = rest[j][0];
+                values[i][j] = rest[j][1];
+            }
+            defaults[i] = defaultTarget;
+        }
+        return PackedTable.pack(columns, values, defaults);
+    }
+
+}
@@ -0,0 +1,255 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarAnalysis;
+
+import java.util.*;
+
+/**
+ * Предсказывающий анализатор для LL(1)-грамматик.
+ * <p>
+ * Управляющая таблица - плотный массив номеров правил, строки
+ * которого соответствуют порядковым номерам нетерминальных символов,
+ * а столбцы - номерам терминальных символов и маркеру конца цепочки.
+ * Правило {@code A→α} записывается в ячейки всех символов из
+ * FIRST(α), а если α аннулируема - ещё и в ячейки символов из
+ * FOLLOW(A). Ячейки, в которые попадает несколько правил, образуют
+ * отчет о конфликтах.
+ * <p>
+ * Разбор выполняется без рекурсии на явном стеке номеров символов за
+ * время, линейное относительно длины цепочки. Стек повторно
+ * используется между проверками, поэтому экземпляр не предназначен
+ * для одновременной работы из нескольких потоков.
+ */
+public class LL1Parser {
+
+    /** Обозначение маркера конца цепочки в отчете о конфликтах. */
+    public static final String END_MARKER = "$";
+
+    private static final String NOT_LL1 =
+            "Грамматика не является LL(1)-грамматикой";
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Номер маркера конца цепочки. */
+    private final int endMarker;
+
+    /** Управляющая таблица. */
+    private final int[][] table;
+
+    /** Конфликты управляющей таблицы. */
+    private final List<ParseConflict> conflicts;
+
+    /** Стек символов. */
+    private int[] stack = new int[64];
+
+    /** Номера правил последнего левого вывода. */
+    private int[] derivation = new int[64];
+
+    /** Длина последнего левого вывода. */
+    private int derivationLength;
+
+    /**
+     * Создает анализатор для КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public LL1Parser(ContextFreeGrammar grammar) {
+        this(grammar.compile());
+    }
+
+    /**
+     * Создает анализатор для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public LL1Parser(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        GrammarAnalysis analysis = grammar.getAnalysis();
+        endMarker = analysis.getEndMarker();
+        table = new int[grammar.getNonTerminalCount()][endMarker + 1];
+        for (int[] row : table) {
+            Arrays.fill(row, CompiledGrammar.NO_SYMBOL);
+        }
+
+        // Все правила ячеек с конфликтами по ключу из строки и столбца
+        TreeMap<Long, Set<Integer>> conflictCells = new TreeMap<>();
+        BitSet lookaheads = new BitSet(endMarker + 1);
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            int head = grammar.getRuleHead(rule);
+            int row = grammar.getNonTerminalIndex(head);
+            lookaheads.clear();
+            if (analysis.addFirst(rule, 0, lookaheads)) {
+                lookaheads.or(analysis.getFollow(head));
+            }
+            for (int column = lookaheads.nextSetBit(0);
+                 column >= 0;
+                 column = lookaheads.nextSetBit(column + 1)) {
+                int current = table[row][column];
+                if (current == CompiledGrammar.NO_SYMBOL) {
+                    table[row][column] = rule;
+                } else {
+                    Set<Integer> cell = conflictCells.computeIfAbsent(
+                            (long) row << Integer.SIZE | column,
+                            (k) -> new TreeSet<>()
+                    );
+                    cell.add(current);
+                    cell.add(rule);
+                }
+            }
+        }
+
+        List<ParseConflict> newConflicts = new ArrayList<>();
+        conflictCells.forEach((cell, rules) -> {
+            int row = (int) (cell >>> Integer.SIZE);
+            int column = (int) (long) cell;
+            List<String> actions = new ArrayList<>();
+            for (int rule : rules) {
+                actions.add(grammar.getRule(rule));
+            }
+            newConflicts.add(new ParseConflict(
+                    grammar.getName(row + grammar.getTerminalCount()),
+                    column == endMarker ? END_MARKER : grammar.getName(column),
+                    Collections.unmodifiableList(actions)
+            ));
+        });
+        conflicts = Collections.unmodifiableList(newConflicts);
+    }
+
+    /**
+     * Возвращает конфликты управляющей таблицы; пустой список
+     * означает, что грамматика является LL(1)-грамматикой.
+     */
+    public List<ParseConflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Проверяет, что грамматика является LL(1)-грамматикой.
+     */
+    public boolean isLL1() {
+        return conflicts.isEmpty();
+    }
+
+    /**
+     * Возвращает номер правила из ячейки управляющей таблицы или
+     * {@link CompiledGrammar#NO_SYMBOL}, если ячейка пуста. При
+     * конфликте возвращается правило с наименьшим номером.
+     *
+     * @param nonTerminal Номер нетерминального символа.
+     * @param lookahead Номер терминального символа или маркера конца
+     *                  цепочки.
+     * @see GrammarAnalysis#getEndMarker()
+     */
+    public int getRule(int nonTerminal, int lookahead) {
+        return table[grammar.getNonTerminalIndex(nonTerminal)][lookahead];
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     * @throws IllegalStateException Если грамматика не является
+     * LL(1)-грамматикой.
+     */
+    public boolean recognize(CharSequence chain) {
+        return run(chain, false);
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     * @throws IllegalStateException Если грамматика не является
+     * LL(1)-грамматикой.
+     */
+    public boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    /**
+     * Строит левый вывод цепочки.
+     *
+     * @param chain Цепочка.
+     * @return Номера правил левого вывода в порядке их применения или
+     * {@code null}, если цепочка не принадлежит языку.
+     * @throws IllegalStateException Если грамматика не является
+     * LL(1)-грамматикой.
+     * @see CompiledGrammar#getRule(int)
+     */
+    public int[] parse(CharSequence chain) {
+        return run(chain, true)
+                ? Arrays.copyOf(derivation, derivationLength)
+                : null;
+    }
+
+    private boolean run(CharSequence chain, boolean record) {
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException(NOT_LL1);
+        }
+        int goal = grammar.getGoal();
+        if (goal == CompiledGrammar.NO_SYMBOL) {
+            return false;
+        }
+        derivationLength = 0;
+        int top = 0;
+        stack[top++] = goal;
+        int position = 0;
+        int lookahead = nextSymbol(chain, position);
+        while (top > 0) {
+            if (lookahead == CompiledGrammar.NO_SYMBOL) {
+                return false;
+            }
+            int symbol = stack[--top];
+            if (grammar.isTerminal(symbol)) {
+                if (symbol != lookahead) {
+                    return false;
+                }
+                lookahead = nextSymbol(chain, ++position);
+                continue;
+            }
+            int rule = table[grammar.getNonTerminalIndex(symbol)][lookahead];
+            if (rule == CompiledGrammar.NO_SYMBOL) {
+                return false;
+            }
+            if (record) {
+                if (derivationLength == derivation.length) {
+                    derivation = Arrays.copyOf(derivation, derivationLength * 2);
+                }
+                derivation[derivationLength++] = rule;
+            }
+            int length = grammar.getRuleLength(rule);
+            if (stack.length < top + length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + length));
+            }
+            // Тело помещается в стек в обратном порядке, чтобы его
+            // первый символ оказался на вершине
+            for (int i = length - 1; i >= 0; i--) {
+                stack[top++] = grammar.getRuleSymbol(rule, i);
+            }
+        }
+        return lookahead == endMarker;
+    }
+
+    /**
+     * Возвращает номер символа цепочки, маркер конца цепочки или
+     * {@link CompiledGrammar#NO_SYMBOL} для символа вне алфавита.
+     */
+    private int nextSymbol(CharSequence chain, int position) {
+        return position < chain.length()
+                ? grammar.getTerminalId(chain.charAt(position))
+                : endMarker;
+    }
+
+}
@@ -0,0 +1,129 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import java.util.Arrays;
+
+/**
+ * Разреженная таблица целых чисел, упакованная методом смещения строк.
+ * <p>
+ * Каждая строка хранит значение по умолчанию, остальные её элементы
+ * размещаются в общем массиве начиная со смещения строки так, чтобы
+ * не пересекаться с элементами других строк. Массив проверок хранит
+ * номер строки, которой принадлежит элемент, поэтому чтение ячейки
+ * выполняется за постоянное время.
+ */
+final class PackedTable {
+
+    /** Признак свободного элемента упакованного массива. */
+    private static final int FREE = -1;
+
+    /** Смещения строк. */
+    private final int[] bases;
+
+    /** Значения строк по умолчанию. */
+    private final int[] defaults;
+
+    /** Номера строк, которым принадлежат элементы. */
+    private final int[] checks;
+
+    /** Значения элементов. */
+    private final int[] values;
+
+    private PackedTable(int[] bases, int[] defaults, int[] checks, int[] values) {
+        this.bases = bases;
+        this.defaults = defaults;
+        this.checks = checks;
+        this.values = values;
+    }
+
+    /**
+     * Упаковывает таблицу.
+     *
+     * @param columns Номера столбцов элементов каждой строки по
+     *                возрастанию.
+     * @param rowValues Значения элементов каждой строки.
+     * @param defaults Значения строк по умолчанию.
+     * @return Упакованная таблица.
+     */
+    static PackedTable pack(int[][] columns, int[][] rowValues, int[] defaults) {
+        int rowCount = columns.length;
+        // Сначала размещаются самые заполненные строки: промежутки между
+        // их элементами заполняются более короткими строками
+        Integer[] order = new Integer[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            order[row] = row;
+        }
+        Arrays.sort(order, (a, b) -> columns[b].length - columns[a].length);
+
+        int[] bases = new int[rowCount];
+        int[] checks = new int[64];
+        int[] values = new int[64];
+        Arrays.fill(checks, FREE);
+        int firstFree = 0;
+        int size = 0;
+        for (int row : order) {
+            int[] rowColumns = columns[row];
+            if (rowColumns.length == 0) {
+                continue;
+            }
+            int base = firstFree - rowColumns[0];
+            while (true) {
+                int end = base + rowColumns[rowColumns.length - 1] + 1;
+                if (end > checks.length) {
+                    int oldLength = checks.length;
+                    checks = Arrays.copyOf(checks, Math.max(oldLength * 2, end));
+                    values = Arrays.copyOf(values, checks.length);
+                    Arrays.fill(checks, oldLength, checks.length, FREE);
+                }
+                if (fits(checks, base, rowColumns)) {
+                    break;
+                }
+                base++;
+            }
+            bases[row] = base;
+            for (int i = 0; i < rowColumns.length; i++) {
+                checks[base + rowColumns[i]] = row;
+                values[base + rowColumns[i]] = rowValues[row][i];
+            }
+            size = Math.max(size, base + rowColumns[rowColumns.length - 1] + 1);
+            while (firstFree < checks.length && checks[firstFree] != FREE) {
+                firstFree++;
+            }
+        }
+        return new PackedTable(
+                bases,
+                defaults.clone(),
+                Arrays.copyOf(checks, size),
+                Arrays.copyOf(values, size)
+        );
+    }
+
+    /**
+     * Возвращает значение ячейки таблицы.
+     *
+     * @param row Номер строки.
+     * @param column Номер столбца.
+     */
+    int get(int row, int column) {
+        int index = bases[row] + column;
+        return index >= 0 && index < checks.length && checks[index] == row
+                ? values[index]
+                : defaults[row];
+    }
+
+    /**
+     * Возвращает количество элементов массивов упакованной таблицы.
+     */
+    int size() {
+        return bases.length + defaults.length + checks.length + values.length;
+    }
+
+    private static boolean fits(int[] checks, int base, int[] columns) {
+        for (int column : columns) {
+            if (checks[base + column] != FREE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
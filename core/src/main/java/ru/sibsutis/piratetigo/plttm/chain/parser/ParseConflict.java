@@ -0,0 +1,30 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Конфликт таблицы разбора: для одной ячейки таблицы грамматика
+ * допускает несколько действий.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ParseConflict {
+
+    /** Строка таблицы: нетерминальный символ или состояние. */
+    private final String row;
+
+    /** Входной символ или маркер конца цепочки. */
+    private final String lookahead;
+
+    /** Конфликтующие действия. */
+    private final List<String> actions;
+
+    @Override
+    public String toString() {
+        return "Конфликт в ячейке [" + row + ", " + lookahead + "]: "
+                + String.join(" | ", actions);
+    }
+}
@@ -0,0 +1,552 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import lombok.Getter;
+import ru.sibsutis.piratetigo.plttm.common.InferenceType;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Разделяемый упакованный лес разбора (SPPF) цепочки.
+ * <p>
+ * Узел символа соответствует выводу подцепочки {@code [start, end)}
+ * из символа грамматики; одинаковые узлы не повторяются. Варианты
+ * вывода узла нетерминального символа - упакованные узлы, каждый из
+ * которых хранит правило и узлы символов его тела. Поэтому даже при
+ * экспоненциальном числе деревьев разбора размер леса остается
+ * полиномиальным. Узлы аннулируемых символов с пустой подцепочкой
+ * могут образовывать циклы.
+ * <p>
+ * Лес хранится в массивах целых чисел: узлы символов и упакованные
+ * узлы нумеруются подряд, дети упакованных узлов хранятся в общем
+ * массиве.
+ * <p>
+ * Выводы цепочки извлекаются из леса по одному по мере обхода
+ * итератора {@link #derivations(InferenceType)}, поэтому для их
+ * перебора достаточно памяти на одно дерево разбора.
+ */
+public final class ParseForest {
+
+    /** Номер отсутствующего узла. */
+    public static final int NO_NODE = -1;
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Длина цепочки. */
+    @Getter
+    private final int length;
+
+    /** Корень леса - узел целевого символа, выводящего всю цепочку. */
+    @Getter
+    private int root = NO_NODE;
+
+    /** Символы узлов. */
+    private int[] nodeSymbols = new int[64];
+
+    /** Начала подцепочек узлов. */
+    private int[] nodeStarts = new int[64];
+
+    /** Концы подцепочек узлов. */
+    private int[] nodeEnds = new int[64];
+
+    /** Первые упакованные узлы узлов символов. */
+    private int[] nodeFirstPacked = new int[64];
+
+    private int nodeCount;
+
+    /** Правила упакованных узлов. */
+    private int[] packedRules = new int[64];
+
+    /** Начала детей упакованных узлов в массиве {@link #children}. */
+    private int[] packedChildren = new int[64];
+
+    /** Следующие упакованные узлы того же узла символа. */
+    private int[] packedNext = new int[64];
+
+    private int packedCount;
+
+    /** Дети всех упакованных узлов. */
+    private int[] children = new int[64];
+
+    private int childCount;
+
+    /**
+     * Хеш-таблица с открытой адресацией номеров узлов символов по
+     * ключу из символа и подцепочки; пустые ячейки содержат -1.
+     */
+    private long[] nodeKeys = new long[128];
+
+    /** Номера узлов символов ячеек хеш-таблицы. */
+    private int[] nodeSlots = new int[128];
+
+    ParseForest(CompiledGrammar grammar, int length) {
+        this.grammar = grammar;
+        this.length = length;
+        Arrays.fill(nodeKeys, -1L);
+    }
+
+    /**
+     * Возвращает количество узлов символов.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Возвращает количество упакованных узлов.
+     */
+    public int getPackedCount() {
+        return packedCount;
+    }
+
+    /**
+     * Возвращает узел символа или {@link #NO_NODE}, если символ не
+     * выводит подцепочку.
+     *
+     * @param symbol Номер символа.
+     * @param start Начало подцепочки.
+     * @param end Конец подцепочки.
+     */
+    public int findNode(int symbol, int start, int end) {
+        long key = key(symbol, start, end);
+        int slot = slot(key);
+        return nodeKeys[slot] == key ? nodeSlots[slot] : NO_NODE;
+    }
+
+    /**
+     * Возвращает символ узла.
+     */
+    public int getSymbol(int node) {
+        return nodeSymbols[node];
+    }
+
+    /**
+     * Возвращает начало подцепочки узла.
+     */
+    public int getStart(int node) {
+        return nodeStarts[node];
+    }
+
+    /**
+     * Возвращает конец подцепочки узла.
+     */
+    public int getEnd(int node) {
+        return nodeEnds[node];
+    }
+
+    /**
+     * Возвращает первый упакованный узел узла символа или
+     * {@link #NO_NODE} для узла терминального символа.
+     */
+    public int getFirstPacked(int node) {
+        return nodeFirstPacked[node];
+    }
+
+    /**
+     * Возвращает следующий упакованный узел того же узла символа или
+     * {@link #NO_NODE}.
+     */
+    public int getNextPacked(int packed) {
+        return packedNext[packed];
+    }
+
+    /**
+     * Возвращает правило упакованного узла.
+     */
+    public int getRule(int packed) {
+        return packedRules[packed];
+    }
+
+    /**
+     * Возвращает узел символа тела правила упакованного узла.
+     *
+     * @param packed Номер упакованного узла.
+     * @param index Позиция символа в теле правила.
+     */
+    public int getChild(int packed, int index) {
+        return children[packedChildren[packed] + index];
+    }
+
+    /**
+     * Проверяет, что у цепочки больше одного дерева разбора, то есть
+     * у некоторого узла леса несколько вариантов вывода.
+     */
+    public boolean isAmbiguous() {
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeFirstPacked[node] != NO_NODE && packedNext[nodeFirstPacked[node]] != NO_NODE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает первый вывод цепочки.
+     *
+     * @param type Тип вывода.
+     * @return Номера правил вывода в порядке их применения или
+     * {@code null}, если лес пуст.
+     * @see CompiledGrammar#getRule(int)
+     */
+    public int[] getDerivation(InferenceType type) {
+        Iterator<int[]> derivations = derivations(type);
+        return derivations.hasNext() ? derivations.next() : null;
+    }
+
+    /**
+     * Возвращает итератор выводов цепочки: каждому дереву разбора леса
+     * соответствует один левосторонний и один правосторонний вывод.
+     * <p>
+     * Деревья строятся по требованию. Деревья, в которых узел
+     * повторяется на пути от корня (возможные только при циклических
+     * выводах пустой цепочки или цепных правилах), пропускаются,
+     * поэтому перебор всегда конечен.
+     *
+     * @param type Тип вывода.
+     * @return Итератор номеров правил выводов в порядке их применения.
+     */
+    public Iterator<int[]> derivations(InferenceType type) {
+        return new DerivationIterator(type);
+    }
+
+    void setRoot(int root) {
+        this.root = root;
+    }
+
+    /**
+     * Возвращает узел символа, создавая его при первом обращении.
+     */
+    int addNode(int symbol, int start, int end) {
+        long key = key(symbol, start, end);
+        int slot = slot(key);
+        if (nodeKeys[slot] == key) {
+            return nodeSlots[slot];
+        }
+        if (nodeCount == nodeSymbols.length) {
+            int capacity = nodeCount * 2;
+            nodeSymbols = Arrays.copyOf(nodeSymbols, capacity);
+            nodeStarts = Arrays.copyOf(nodeStarts, capacity);
+            nodeEnds = Arrays.copyOf(nodeEnds, capacity);
+            nodeFirstPacked = Arrays.copyOf(nodeFirstPacked, capacity);
+        }
+        nodeSymbols[nodeCount] = symbol;
+        nodeStarts[nodeCount] = start;
+        nodeEnds[nodeCount] = end;
+        nodeFirstPacked[nodeCount] = NO_NODE;
+        nodeKeys[slot] = key;
+        nodeSlots[slot] = nodeCount;
+        if (++nodeCount * 2 > nodeKeys.length) {
+            rehash();
+        }
+        return nodeCount - 1;
+    }
+
+    /**
+     * Добавляет узлу символа вариант вывода, если такого варианта еще
+     * нет.
+     *
+     * @param node Номер узла символа.
+     * @param rule Номер правила.
+     * @param ruleChildren Узлы символов тела правила.
+     * @return Признак добавления нового варианта.
+     */
+    boolean addPacked(int node, int rule, int[] ruleChildren) {
+        int count = grammar.getRuleLength(rule);
+        for (int packed = nodeFirstPacked[node]; packed != NO_NODE; packed = packedNext[packed]) {
+            if (packedRules[packed] == rule && Arrays.equals(
+                    children, packedChildren[packed], packedChildren[packed] + count,
+                    ruleChildren, 0, count)) {
+                return false;
+            }
+        }
+        if (packedCount == packedRules.length) {
+            int capacity = packedCount * 2;
+            packedRules = Arrays.copyOf(packedRules, capacity);
+            packedChildren = Arrays.copyOf(packedChildren, capacity);
+            packedNext = Arrays.copyOf(packedNext, capacity);
+        }
+        if (children.length < childCount + count) {
+            children = Arrays.copyOf(children, Math.max(children.length * 2, childCount + count));
+        }
+        System.arraycopy(ruleChildren, 0, children, childCount, count);
+        packedRules[packedCount] = rule;
+        packedChildren[packedCount] = childCount;
+        packedNext[packedCount] = nodeFirstPacked[node];
+        nodeFirstPacked[node] = packedCount;
+        childCount += count;
+        packedCount++;
+        return true;
+    }
+
+    /**
+     * Возвращает узел пустого вывода аннулируемого символа со всеми
+     * его вариантами, создавая его при первом обращении.
+     *
+     * @param symbol Номер аннулируемого символа.
+     * @param position Позиция пустой подцепочки.
+     */
+    int addEmptyNode(int symbol, int position) {
+        int node = findNode(symbol, position, position);
+        if (node != NO_NODE) {
+            return node;
+        }
+        node = addNode(symbol, position, position);
+        for (int rule = grammar.getFirstRule(symbol); rule < grammar.getEndRule(symbol); rule++) {
+            if (isNullableRule(rule)) {
+                int[] ruleChildren = new int[grammar.getRuleLength(rule)];
+                for (int i = 0; i < ruleChildren.length; i++) {
+                    ruleChildren[i] = addEmptyNode(grammar.getRuleSymbol(rule, i), position);
+                }
+                addPacked(node, rule, ruleChildren);
+            }
+        }
+        return node;
+    }
+
+    private boolean isNullableRule(int rule) {
+        for (int i = 0; i < grammar.getRuleLength(rule); i++) {
+            if (!grammar.getAnalysis().isNullable(grammar.getRuleSymbol(rule, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает ячейку хеш-таблицы с ключом или пустую ячейку, в
+     * которую ключ должен быть помещен.
+     */
+    private int slot(long key) {
+        int mask = nodeKeys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (nodeKeys[slot] != -1L && nodeKeys[slot] != key) {
+            slot = slot + 1 & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = nodeKeys;
+        int[] oldSlots = nodeSlots;
+        nodeKeys = new long[oldKeys.length * 2];
+        nodeSlots = new int[oldKeys.length * 2];
+        Arrays.fill(nodeKeys, -1L);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1L) {
+                int slot = slot(oldKeys[i]);
+                nodeKeys[slot] = oldKeys[i];
+                nodeSlots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    private long key(int symbol, int start, int end) {
+        long width = length + 1L;
+        return ((long) symbol * width + start) * width + end;
+    }
+
+    /**
+     * Итератор выводов цепочки.
+     * <p>
+     * Дерево разбора определяется последовательностью выборов
+     * упакованных узлов в порядке обхода дерева: слева направо для
+     * левостороннего вывода и справа налево для правостороннего; правила
+     * выбранных узлов в этом порядке и образуют вывод. Последовательности
+     * перебираются в лексикографическом порядке поиском с возвратом:
+     * для следующего дерева последний выбор, у которого есть ещё
+     * допустимый вариант, заменяется этим вариантом, а дальнейшие
+     * выборы делаются заново. Выбор недопустим, если ребенок узла уже
+     * лежит на пути от корня.
+     */
+    private final class DerivationIterator implements Iterator<int[]> {
+
+        private static final int COMPLETE = 0;
+
+        private static final int STUCK = 1;
+
+        private static final int STOPPED = 2;
+
+        private final boolean leftmost;
+
+        /** Выбранные упакованные узлы. */
+        private int[] choices = new int[16];
+
+        private int choiceCount;
+
+        /** Признаки нахождения узлов на пути от корня. */
+        private final boolean[] onPath = new boolean[nodeCount];
+
+        /** Стек обхода: узел, его упакованный узел и следующий ребенок. */
+        private int[] frameNodes = new int[16];
+
+        private int[] framePacked = new int[16];
+
+        private int[] frameNext = new int[16];
+
+        private int top;
+
+        /** Узел, на выборе которого остановлен обход. */
+        private int stoppedNode;
+
+        /** Признак вычисленного следующего вывода. */
+        private boolean ready;
+
+        /** Признак исчерпания выводов. */
+        private boolean exhausted;
+
+        private boolean started;
+
+        DerivationIterator(InferenceType type) {
+            leftmost = type == InferenceType.LEFT;
+            exhausted = root == NO_NODE;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready && !exhausted) {
+                ready = started ? advance() && search() : search();
+                started = true;
+                exhausted = !ready;
+            }
+            return ready;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            int[] derivation = new int[choiceCount];
+            for (int i = 0; i < choiceCount; i++) {
+                derivation[i] = packedRules[choices[i]];
+            }
+            return derivation;
+        }
+
+        /**
+         * Достраивает текущие выборы до полного дерева, при
+         * необходимости возвращаясь к предыдущим выборам.
+         */
+        private boolean search() {
+            while (traverse(-1) != COMPLETE) {
+                if (!advance()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Заменяет последний выбор, у которого есть ещё допустимый
+         * вариант, следующим вариантом и отбрасывает выборы после него.
+         */
+        private boolean advance() {
+            while (choiceCount > 0) {
+                int decision = choiceCount - 1;
+                traverse(decision);
+                int packed = nextValid(stoppedNode, packedNext[choices[decision]]);
+                if (packed != NO_NODE) {
+                    choices[decision] = packed;
+                    return true;
+                }
+                choiceCount = decision;
+            }
+            return false;
+        }
+
+        /**
+         * Обходит дерево, определяемое выборами, делая недостающие
+         * выборы первыми допустимыми вариантами.
+         *
+         * @param stopAt Номер выбора, перед которым обход
+         *               останавливается, или -1.
+         * @return {@link #COMPLETE}, если дерево построено,
+         * {@link #STUCK}, если для некоторого узла нет допустимых
+         * вариантов, или {@link #STOPPED}, если обход остановлен.
+         */
+        private int traverse(int stopAt) {
+            while (top > 0) {
+                onPath[frameNodes[--top]] = false;
+            }
+            int decision = 0;
+            int pending = root;
+            while (true) {
+                if (nodeFirstPacked[pending] != NO_NODE) {
+                    if (decision == stopAt) {
+                        stoppedNode = pending;
+                        return STOPPED;
+                    }
+                    int packed;
+                    if (decision < choiceCount) {
+                        packed = choices[decision];
+                    } else {
+                        packed = nextValid(pending, nodeFirstPacked[pending]);
+                        if (packed == NO_NODE) {
+                            choiceCount = decision;
+                            return STUCK;
+                        }
+                        if (choiceCount == choices.length) {
+                            choices = Arrays.copyOf(choices, choiceCount * 2);
+                        }
+                        choices[choiceCount++] = packed;
+                    }
+                    decision++;
+                    push(pending, packed);
+                }
+                // Следующий узел - очередной ребенок ближайшего узла стека
+                while (top > 0 && frameNext[top - 1] == grammar.getRuleLength(packedRules[framePacked[top - 1]])) {
+                    onPath[frameNodes[--top]] = false;
+                }
+                if (top == 0) {
+                    return COMPLETE;
+                }
+                int packed = framePacked[top - 1];
+                int index = frameNext[top - 1]++;
+                pending = getChild(packed, leftmost
+                        ? index
+                        : grammar.getRuleLength(packedRules[packed]) - 1 - index);
+            }
+        }
+
+        /**
+         * Возвращает первый допустимый вариант узла, начиная с заданного,
+         * или {@link #NO_NODE}.
+         */
+        private int nextValid(int node, int packed) {
+            for (; packed != NO_NODE; packed = packedNext[packed]) {
+                if (isValid(node, packed)) {
+                    return packed;
+                }
+            }
+            return NO_NODE;
+        }
+
+        private boolean isValid(int node, int packed) {
+            for (int i = 0; i < grammar.getRuleLength(packedRules[packed]); i++) {
+                int child = getChild(packed, i);
+                if (child == node || onPath[child]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void push(int node, int packed) {
+            if (top == frameNodes.length) {
+                frameNodes = Arrays.copyOf(frameNodes, top * 2);
+                framePacked = Arrays.copyOf(framePacked, top * 2);
+                frameNext = Arrays.copyOf(frameNext, top * 2);
+            }
+            frameNodes[top] = node;
+            framePacked[top] = packed;
+            frameNext[top++] = 0;
+            onPath[node] = true;
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import lombok.Getter;
+import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.DFA;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.RegularForm;
+
+import java.util.List;
+
+/**
+ * Распознаватель, выбирающий самый дешевый алгоритм проверки
+ * принадлежности цепочки языку по классу грамматики.
+ * <p>
+ * Классы проверяются в порядке возрастания стоимости алгоритма:
+ * регулярная грамматика распознается минимальным конечным автоматом,
+ * LL(1)-грамматика - предсказывающим анализатором, LALR(1)-грамматика -
+ * анализатором типа «перенос-свертка», остальные грамматики -
+ * алгоритмом Эрли. Выбранный алгоритм и причина выбора доступны
+ * через {@link #getEngine()} и {@link #getReason()}.
+ * <p>
+ * Распознаватели кешируются по снимку грамматики: снимки одинаковых
+ * грамматик равны, поэтому повторный вызов {@link #of(ContextFreeGrammar)}
+ * для неизменившейся грамматики не строит таблицы заново. Проверки
+ * одного распознавателя выполняются последовательно, так как
+ * анализаторы повторно используют свои стеки.
+ */
+@Log
+public final class Recognizer {
+
+    /** Наибольшее количество распознавателей в кеше. */
+    private static final int CACHE_SIZE = 64;
+
+    private static final LoadingCache<CompiledGrammar, Recognizer> CACHE =
+            CacheBuilder.newBuilder()
+                    .maximumSize(CACHE_SIZE)
+                    .build(CacheLoader.from(Recognizer::new));
+
+    /** Снимок грамматики. */
+    @Getter
+    private final CompiledGrammar grammar;
+
+    /** Выбранный алгоритм. */
+    @Getter
+    private final RecognizerEngine engine;
+
+    /** Причина выбора алгоритма. */
+    @Getter
+    private final String reason;
+
+    private DFA dfa;
+
+    private LL1Parser ll1Parser;
+
+    private LALRParser lalrParser;
+
+    private EarleyParser earleyParser;
+
+    private Recognizer(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        RegularForm form = grammar.getAnalysis().getRegularForm();
+        if (form != RegularForm.NONE) {
+            dfa = DFA.of(grammar);
+            engine = RecognizerEngine.DFA;
+            reason = "Грамматика " + (form == RegularForm.RIGHT_LINEAR
+                    ? "праволинейная" : "леволинейная")
+                    + ", минимальный автомат имеет состояний: " + dfa.getStateCount();
+        } else {
+            LL1Parser ll1 = new LL1Parser(grammar);
+            if (ll1.isLL1()) {
+                ll1Parser = ll1;
+                engine = RecognizerEngine.LL1;
+                reason = "Грамматика не регулярная, но является LL(1)-грамматикой";
+            } else {
+                LALRTable table = new LALRTable(grammar);
+                if (table.isLALR1()) {
+                    lalrParser = new LALRParser(table);
+                    engine = RecognizerEngine.LALR1;
+                    reason = "Грамматика не является LL(1)-грамматикой (конфликтов: "
+                            + ll1.getConflicts().size() + "), но является LALR(1)-грамматикой";
+                } else {
+                    earleyParser = new EarleyParser(grammar);
+                    engine = RecognizerEngine.EARLEY;
+                    reason = "Грамматика не является LALR(1)-грамматикой (конфликтов: "
+                            + table.getConflicts().size() + ")";
+                }
+            }
+        }
+        LOGGER.info("Выбор распознавателя. " + this);
+    }
+
+    /**
+     * Возвращает распознаватель для текущего состояния КС-грамматики.
+     *
+     * @param grammar КС-грамматика.
+     */
+    public static Recognizer of(ContextFreeGrammar grammar) {
+        return of(grammar.compile());
+    }
+
+    /**
+     * Возвращает распознаватель для снимка КС-грамматики.
+     *
+     * @param grammar Снимок КС-грамматики.
+     */
+    public static Recognizer of(CompiledGrammar grammar) {
+        return CACHE.getUnchecked(grammar);
+    }
+
+    /**
+     * Проверяет принадлежность цепочки языку грамматики.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    public synchronized boolean recognize(CharSequence chain) {
+        switch (engine) {
+            case DFA:
+                return dfa.recognize(chain);
+            case LL1:
+                return ll1Parser.recognize(chain);
+            case LALR1:
+                return lalrParser.recognize(chain);
+            default:
+                return earleyParser.recognize(chain);
+        }
+    }
+
+    /**
+     * Проверяет принадлежность языку грамматики каждой из цепочек.
+     *
+     * @param chains Цепочки.
+     * @return Признаки принадлежности цепочек языку в порядке цепочек.
+     */
+    public synchronized boolean[] recognizeAll(List<? extends CharSequence> chains) {
+        boolean[] result = new boolean[chains.size()];
+        int i = 0;
+        for (CharSequence chain : chains) {
+            result[i++] = recognize(chain);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return engine.getValue() + ": " + reason;
+    }
+
+}
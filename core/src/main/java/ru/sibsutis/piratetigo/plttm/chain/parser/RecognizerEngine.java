@@ -0,0 +1,30 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+/**
+ * Перечисляет алгоритмы проверки принадлежности цепочки языку,
+ * которые может выбрать {@link Recognizer}, в порядке возрастания
+ * их стоимости.
+ */
+public enum RecognizerEngine {
+    /** Минимальный детерминированный конечный автомат. */
+    DFA("Конечный автомат"),
+    /** Предсказывающий анализатор по LL(1)-таблице. */
+    LL1("LL(1)-анализатор"),
+    /** Анализатор типа «перенос-свертка» по LALR(1)-таблицам. */
+    LALR1("LALR(1)-анализатор"),
+    /** Алгоритм Эрли для произвольной КС-грамматики. */
+    EARLEY("Алгоритм Эрли");
+
+    private final String value;
+
+    RecognizerEngine(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Возвращает строковое значение алгоритма.
+     */
+    public String getValue() {
+        return value;
+    }
+}
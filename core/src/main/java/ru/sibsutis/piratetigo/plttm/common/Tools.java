@@ -1,10 +1,9 @@
 package ru.sibsutis.piratetigo.plttm.common;
 
-import com.google.common.collect.Sets;
-import javafx.scene.control.TextInputControl;
 import lombok.experimental.UtilityClass;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @UtilityClass
@@ -20,20 +19,21 @@ public class Tools {
     /**
      * Вычисляет множество уникальных символов (алфавит) на основе
      * переданной строки символов {@code newSymbols}, уже имеющегося
-     * множества символов {@code oldAlphabet}, javafx-элемента текстового
-     * типа {@code textSrc} и множества {@code excluded} исключаемых символов
-     * (запрещенных).
+     * множества символов {@code oldAlphabet}, получателя {@code textSrc}
+     * текстового представления отклоненного ввода и множества
+     * {@code excluded} исключаемых символов (запрещенных).
      *
      * @param newSymbols Источник нового набора символов.
      * @param oldAlphabet Имеющийся алфавит.
-     * @param textSrc Элемент управления, отображающий ввод пользователя.
+     * @param textSrc Получатель прежнего алфавита в текстовом виде,
+     * вызываемый при отклонении ввода пользователя.
      * @param excluded Запрещенные для ввода символы.
      * @return Вычисленный алфавит.
      */
     public Set<Character> calculateAlphabet(
             String newSymbols,
             Set<Character> oldAlphabet,
-            TextInputControl textSrc,
+            Consumer<String> textSrc,
             Set<String> excluded) {
         Set<Character> alphabet = new HashSet<>();
         if (isUnique(newSymbols, alphabet)) {
@@ -41,7 +41,7 @@ public class Tools {
                 return alphabet;
             }
         }
-        textSrc.textProperty().set(
+        textSrc.accept(
                 oldAlphabet.stream()
                         .map(String::valueOf)
                         .collect(Collectors.joining())
@@ -52,19 +52,21 @@ public class Tools {
     /**
      * Вычисляет множество уникальных строк на основе переданной строки
      * элементов {@code items}, разделенных запятой, а также уже
-     * имеющегося множества строк {@code oldItems}, javafx-элемента текстового
-     * типа {@code textSrc} и множества {@code excluded} исключаемых строк (запрещенных).
+     * имеющегося множества строк {@code oldItems}, получателя {@code textSrc}
+     * текстового представления отклоненного ввода и множества
+     * {@code excluded} исключаемых строк (запрещенных).
      *
      * @param items Источник нового набора элементов.
      * @param oldItems Имеющееся множество элементов.
-     * @param textSrc Элемент управления, отображающий ввод пользователя.
+     * @param textSrc Получатель прежнего множества элементов в текстовом
+     * виде, вызываемый при отклонении ввода пользователя.
      * @param excluded Запрещенные для ввода строки.
      * @return Вычисленное множество элементов.
      */
     public Set<String> calculateUniqueItems(
             String items,
             Set<String> oldItems,
-            TextInputControl textSrc,
+            Consumer<String> textSrc,
             Set<String> excluded) {
         Set<String> newItems = new HashSet<>();
         String itemsReplaced = items.replace(',', ';');
@@ -75,7 +77,7 @@ public class Tools {
                 && areNotIntersected(newItems, excluded)) {
             return newItems;
         }
-        textSrc.textProperty().set(
+        textSrc.accept(
                 oldItems.stream()
                         .map(String::valueOf)
                         .collect(Collectors.joining(";"))
@@ -210,40 +212,6 @@ public class Tools {
                 .replace(">", "");
     }
 
-    /**
-     * Формирует все возможные комбинации символов из исходного
-     * множества.
-     *
-     * @param lexemes Множество символов.
-     * @return Наборы комбинаций символов.
-     */
-    public Set<Set<String>> createCombination(Set<String> lexemes) {
-        Set<Set<String>> result = new HashSet<>();
-        result.add(lexemes);
-        for (int i = 1; i < lexemes.size(); i++) {
-            Set<Set<String>> intermediateResult =
-                    Sets.combinations(lexemes, i);
-            result.addAll(intermediateResult);
-        }
-        return result;
-    }
-
-    /**
-     * Вычисляет последний индекс начальной подстроки строки.
-     *
-     * @param string Строка.
-     * @param startSubstring Начальная подстрока.
-     * @return Индекс.
-     */
-    public int getLastIndexOf(String string, String startSubstring) {
-        int i;
-        for (i = 0; i < string.length() && i < startSubstring.length(); i++) {
-            if (string.charAt(i) != startSubstring.charAt(i)) {
-                break;
-            }
-        }
-        return i;
-    }
     /**
      * Проверяет, что тело правила вывода содержит единственный нетерминальный символ.
      *
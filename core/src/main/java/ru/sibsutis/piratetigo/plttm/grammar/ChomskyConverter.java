@@ -0,0 +1,181 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import java.util.*;
+
+import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
+
+/**
+ * Перевод КС-грамматики в Бинарную Нормальную Форму (Хомского).
+ * <p>
+ * Новые нетерминальные символы разделяются всеми правилами
+ * грамматики: терминальный символ оборачивается одним символом
+ * {@code [a]}, а хвост тела правила {@code X}<sub>i</sub>...{@code X}<sub>n</sub>
+ * заменяется одним символом, определяемым парой из первого символа
+ * хвоста и символа, заменившего оставшуюся часть хвоста. Поэтому
+ * одинаковые хвосты разных правил порождают одно новое правило, а
+ * разбиение каждого тела выполняется за время, линейное относительно
+ * его длины.
+ */
+final class ChomskyConverter {
+
+    private static final String COMPACT_PREFIX = "X";
+
+    private final CompiledGrammar compiled;
+
+    private final ChomskyNaming naming;
+
+    /** Нетерминальные символы результата. */
+    private final Set<String> nonTerminals;
+
+    /** Правила вывода результата. */
+    private final HashMap<String, Set<String>> rules = new HashMap<>();
+
+    /** Имена новых символов; их номера следуют за номерами снимка. */
+    private final List<String> newNames = new ArrayList<>();
+
+    /** Символы-обертки терминальных символов по номерам терминальных символов. */
+    private final int[] wrappers;
+
+    /** Символы хвостов по паре из первого символа и символа остатка. */
+    private final Map<Long, Integer> suffixes = new HashMap<>();
+
+    private int compactIndex = 0;
+
+    ChomskyConverter(
+            CompiledGrammar compiled,
+            Set<String> nonTerminals,
+            ChomskyNaming naming) {
+        this.compiled = compiled;
+        this.nonTerminals = new HashSet<>(nonTerminals);
+        this.naming = naming;
+        wrappers = new int[compiled.getTerminalCount()];
+        Arrays.fill(wrappers, CompiledGrammar.NO_SYMBOL);
+    }
+
+    /**
+     * Возвращает нетерминальные символы результата.
+     */
+    Set<String> getNonTerminals() {
+        return nonTerminals;
+    }
+
+    /**
+     * Строит правила вывода в Бинарной Нормальной Форме.
+     * <p>
+     * λ-правило сохраняется только для целевого символа, цепные
+     * правила отбрасываются: предполагается, что грамматика уже
+     * приведена к каноническому виду.
+     *
+     * @return Правила вывода.
+     */
+    HashMap<String, Set<String>> convert() {
+        int[] body = new int[0];
+        for (int rule = 0; rule < compiled.getRuleCount(); rule++) {
+            int head = compiled.getRuleHead(rule);
+            int length = compiled.getRuleLength(rule);
+            if (length == 0) {
+                if (head == compiled.getGoal()) {
+                    addRule(head, LAMBDA.toString());
+                }
+                continue;
+            }
+            if (length == 1) {
+                if (compiled.isTerminal(compiled.getRuleSymbol(rule, 0))) {
+                    addRule(head, compiled.getRuleBody(rule));
+                }
+                continue;
+            }
+            if (body.length < length) {
+                body = new int[length];
+            }
+            for (int i = 0; i < length; i++) {
+                int symbol = compiled.getRuleSymbol(rule, i);
+                body[i] = compiled.isTerminal(symbol) ? wrap(symbol) : symbol;
+            }
+            int right = body[length - 1];
+            for (int i = length - 2; i > 0; i--) {
+                right = suffix(rule, i, body[i], right);
+            }
+            addRule(head, lexeme(body[0]) + lexeme(right));
+        }
+        return rules;
+    }
+
+    /**
+     * Возвращает символ-обертку терминального символа, создавая его
+     * при первом обращении.
+     */
+    private int wrap(int terminal) {
+        if (wrappers[terminal] == CompiledGrammar.NO_SYMBOL) {
+            wrappers[terminal] = newSymbol("[" + compiled.getName(terminal) + "]");
+            addRule(wrappers[terminal], compiled.getName(terminal));
+        }
+        return wrappers[terminal];
+    }
+
+    /**
+     * Возвращает символ хвоста тела правила, начинающегося с позиции
+     * {@code position}, создавая его при первом обращении.
+     *
+     * @param rule Номер правила в снимке.
+     * @param position Начало хвоста.
+     * @param first Первый символ хвоста.
+     * @param rest Символ, заменяющий оставшуюся часть хвоста.
+     */
+    private int suffix(int rule, int position, int first, int rest) {
+        long key = (long) first << Integer.SIZE | rest;
+        Integer symbol = suffixes.get(key);
+        if (symbol == null) {
+            symbol = newSymbol(naming == ChomskyNaming.COMPACT
+                    ? nextCompactName()
+                    : describeSuffix(rule, position));
+            suffixes.put(key, symbol);
+            addRule(symbol, lexeme(first) + lexeme(rest));
+        }
+        return symbol;
+    }
+
+    private String describeSuffix(int rule, int position) {
+        StringBuilder name = new StringBuilder();
+        for (int i = position; i < compiled.getRuleLength(rule); i++) {
+            name.append(compiled.getName(compiled.getRuleSymbol(rule, i)));
+        }
+        return name.toString();
+    }
+
+    private String nextCompactName() {
+        return COMPACT_PREFIX + ++compactIndex;
+    }
+
+    /**
+     * Создает новый нетерминальный символ, при совпадении имени с уже
+     * существующим дополняя его штрихами.
+     */
+    private int newSymbol(String name) {
+        String uniqueName = name;
+        while (nonTerminals.contains(uniqueName)) {
+            uniqueName = naming == ChomskyNaming.COMPACT
+                    ? nextCompactName()
+                    : uniqueName + '\'';
+        }
+        nonTerminals.add(uniqueName);
+        newNames.add(uniqueName);
+        return compiled.getSymbolCount() + newNames.size() - 1;
+    }
+
+    private String name(int symbol) {
+        return symbol < compiled.getSymbolCount()
+                ? compiled.getName(symbol)
+                : newNames.get(symbol - compiled.getSymbolCount());
+    }
+
+    private String lexeme(int symbol) {
+        String name = name(symbol);
+        return name.length() == 1 ? name : toLexeme(name);
+    }
+
+    private void addRule(int head, String body) {
+        rules.computeIfAbsent(name(head), (h) -> new HashSet<>()).add(body);
+    }
+
+}
@@ -0,0 +1,15 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+/**
+ * Перечисляет способы именования нетерминальных символов, создаваемых
+ * при переводе грамматики в Бинарную Нормальную Форму (Хомского).
+ */
+public enum ChomskyNaming {
+    /**
+     * Имя символа составляется из имен символов заменяемой им части
+     * тела правила.
+     */
+    DESCRIPTIVE,
+    /** Символы получают короткие порядковые имена. */
+    COMPACT
+}
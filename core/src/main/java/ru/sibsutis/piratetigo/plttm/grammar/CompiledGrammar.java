@@ -0,0 +1,694 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import java.util.*;
+
+import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
+
+/**
+ * Скомпилированный неизменяемый снимок КС-грамматики.
+ * <p>
+ * Все символы грамматики пронумерованы: терминальные символы получают
+ * номера {@code [0, terminalCount)}, нетерминальные -
+ * {@code [terminalCount, symbolCount)}. Тела правил хранятся подряд
+ * в одном массиве номеров символов (формат CSR), правила упорядочены
+ * по порождающему символу, поэтому правила каждого нетерминального
+ * символа занимают непрерывный диапазон номеров. Пустое тело
+ * соответствует λ-правилу.
+ * <p>
+ * Снимок не изменяется после создания и может совместно
+ * использоваться несколькими потоками. Результаты анализа грамматики
+ * вычисляются при первом обращении и сохраняются в снимке.
+ */
+public final class CompiledGrammar {
+
+    /** Номер отсутствующего символа. */
+    public static final int NO_SYMBOL = -1;
+
+    /** Имена символов по их номерам. */
+    private final String[] names;
+
+    /** Терминальные символы по их номерам. */
+    private final char[] terminals;
+
+    /** Номера терминальных символов. */
+    private final Map<Character, Integer> terminalIds;
+
+    /** Номера нетерминальных символов. */
+    private final Map<String, Integer> nonTerminalIds;
+
+    /** Номер целевого символа. */
+    private final int goal;
+
+    /** Порождающие символы правил. */
+    private final int[] ruleHeads;
+
+    /** Начала тел правил в массиве {@link #ruleSymbols}. */
+    private final int[] ruleOffsets;
+
+    /** Символы тел всех правил. */
+    private final int[] ruleSymbols;
+
+    /** Начала диапазонов правил нетерминальных символов. */
+    private final int[] headOffsets;
+
+    /** Отпечаток снимка. */
+    private final long fingerprint;
+
+    /** Результаты анализа грамматики, вычисляемые при первом обращении. */
+    private volatile GrammarAnalysis analysis;
+
+    /**
+     * Компилирует КС-грамматику.
+     * <p>
+     * Символы нумеруются в лексикографическом порядке, правила
+     * одного нетерминального символа также упорядочиваются, поэтому
+     * одинаковые грамматики дают одинаковые снимки. Совпадающие
+     * тела правил одного нетерминального символа (например,
+     * {@code aA} и {@code a<A>}) объединяются.
+     *
+     * @param grammar КС-грамматика.
+     * @return Снимок грамматики.
+     */
+    public static CompiledGrammar of(ContextFreeGrammar grammar) {
+        return new CompiledGrammar(
+                grammar.getTerminals(),
+                grammar.getNonTerminals(),
+                grammar.getGoal(),
+                grammar.getRules()
+        );
+    }
+
+    private CompiledGrammar(
+            Set<Character> srcTerminals,
+            Set<String> srcNonTerminals,
+            String srcGoal,
+            Map<String, Set<String>> srcRules) {
+        // Нетерминальные символы, встречающиеся только в правилах,
+        // также попадают в таблицу символов
+        TreeSet<String> allNonTerminals = new TreeSet<>(srcNonTerminals);
+        allNonTerminals.addAll(srcRules.keySet());
+        if (srcGoal != null) {
+            allNonTerminals.add(srcGoal);
+        }
+        TreeMap<String, List<int[]>> parsedRules = new TreeMap<>();
+        TreeSet<Character> allTerminals = new TreeSet<>(srcTerminals);
+        srcRules.forEach((head, bodies) -> bodies.forEach(body -> {
+            for (String lexeme : stringToLexemes(body)) {
+                if (lexeme.charAt(0) == LESS_THAN || srcNonTerminals.contains(lexeme)) {
+                    allNonTerminals.add(fromLexeme(lexeme));
+                } else if (!lexeme.equals(LAMBDA.toString())) {
+                    allTerminals.add(lexeme.charAt(0));
+                }
+            }
+        }));
+
+        int terminalCount = allTerminals.size();
+        names = new String[terminalCount + allNonTerminals.size()];
+        terminals = new char[terminalCount];
+        HashMap<Character, Integer> newTerminalIds = new HashMap<>();
+        HashMap<String, Integer> newNonTerminalIds = new HashMap<>();
+        int id = 0;
+        for (Character terminal : allTerminals) {
+            names[id] = terminal.toString();
+            terminals[id] = terminal;
+            newTerminalIds.put(terminal, id++);
+        }
+        for (String nonTerminal : allNonTerminals) {
+            names[id] = nonTerminal;
+            newNonTerminalIds.put(nonTerminal, id++);
+        }
+        terminalIds = Collections.unmodifiableMap(newTerminalIds);
+        nonTerminalIds = Collections.unmodifiableMap(newNonTerminalIds);
+        goal = srcGoal == null ? NO_SYMBOL : nonTerminalIds.get(srcGoal);
+
+        int ruleCount = 0;
+        int symbolCount = 0;
+        for (Map.Entry<String, Set<String>> entry : srcRules.entrySet()) {
+            TreeSet<int[]> bodies = new TreeSet<>(Arrays::compare);
+            for (String body : entry.getValue()) {
+                bodies.add(toSymbols(body));
+            }
+            parsedRules.put(entry.getKey(), new ArrayList<>(bodies));
+            ruleCount += bodies.size();
+            for (int[] body : bodies) {
+                symbolCount += body.length;
+            }
+        }
+
+        ruleHeads = new int[ruleCount];
+        ruleOffsets = new int[ruleCount + 1];
+        ruleSymbols = new int[symbolCount];
+        headOffsets = new int[allNonTerminals.size() + 1];
+        int rule = 0;
+        int offset = 0;
+        int nonTerminalIndex = 0;
+        for (String nonTerminal : allNonTerminals) {
+            headOffsets[nonTerminalIndex++] = rule;
+            List<int[]> bodies = parsedRules.getOrDefault(nonTerminal, List.of());
+            int head = nonTerminalIds.get(nonTerminal);
+            for (int[] body : bodies) {
+                ruleHeads[rule] = head;
+                ruleOffsets[rule] = offset;
+                System.arraycopy(body, 0, ruleSymbols, offset, body.length);
+                offset += body.length;
+                rule++;
+            }
+        }
+        headOffsets[nonTerminalIndex] = rule;
+        ruleOffsets[rule] = offset;
+        fingerprint = computeFingerprint();
+    }
+
+    /**
+     * Возвращает количество символов грамматики.
+     */
+    public int getSymbolCount() {
+        return names.length;
+    }
+
+    /**
+     * Возвращает количество терминальных символов.
+     */
+    public int getTerminalCount() {
+        return terminals.length;
+    }
+
+    /**
+     * Возвращает количество нетерминальных символов.
+     */
+    public int getNonTerminalCount() {
+        return names.length - terminals.length;
+    }
+
+    /**
+     * Возвращает количество правил вывода.
+     */
+    public int getRuleCount() {
+        return ruleHeads.length;
+    }
+
+    /**
+     * Возвращает номер целевого символа или {@link #NO_SYMBOL},
+     * если целевой символ не задан.
+     */
+    public int getGoal() {
+        return goal;
+    }
+
+    /**
+     * Проверяет, что символ является терминальным.
+     *
+     * @param symbol Номер символа.
+     */
+    public boolean isTerminal(int symbol) {
+        return symbol < terminals.length;
+    }
+
+    /**
+     * Возвращает порядковый номер нетерминального символа среди
+     * нетерминальных символов, в диапазоне {@code [0, nonTerminalCount)}.
+     *
+     * @param symbol Номер нетерминального символа.
+     */
+    public int getNonTerminalIndex(int symbol) {
+        return symbol - terminals.length;
+    }
+
+    /**
+     * Возвращает имя символа: терминальный символ или имя
+     * нетерминального символа без угловых скобок.
+     *
+     * @param symbol Номер символа.
+     */
+    public String getName(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * Возвращает лексему символа в том виде, в котором она
+     * записывается в теле правила вывода.
+     *
+     * @param symbol Номер символа.
+     */
+    public String getLexeme(int symbol) {
+        String name = names[symbol];
+        return isTerminal(symbol) || name.length() == 1 ? name : toLexeme(name);
+    }
+
+    /**
+     * Возвращает терминальный символ.
+     *
+     * @param symbol Номер терминального символа.
+     */
+    public char getTerminal(int symbol) {
+        return terminals[symbol];
+    }
+
+    /**
+     * Возвращает номер терминального символа или {@link #NO_SYMBOL},
+     * если символ не принадлежит алфавиту грамматики.
+     *
+     * @param terminal Терминальный символ.
+     */
+    public int getTerminalId(char terminal) {
+        return terminalIds.getOrDefault(terminal, NO_SYMBOL);
+    }
+
+    /**
+     * Возвращает номер нетерминального символа или {@link #NO_SYMBOL},
+     * если такого символа нет.
+     *
+     * @param nonTerminal Имя нетерминального символа без угловых скобок.
+     */
+    public int getNonTerminalId(String nonTerminal) {
+        return nonTerminalIds.getOrDefault(nonTerminal, NO_SYMBOL);
+    }
+
+    /**
+     * Возвращает номер первого правила нетерминального символа.
+     *
+     * @param nonTerminal Номер нетерминального символа.
+     */
+    public int getFirstRule(int nonTerminal) {
+        return headOffsets[getNonTerminalIndex(nonTerminal)];
+    }
+
+    /**
+     * Возвращает номер, следующий за последним правилом
+     * нетерминального символа.
+     *
+     * @param nonTerminal Номер нетерминального символа.
+     */
+    public int getEndRule(int nonTerminal) {
+        return headOffsets[getNonTerminalIndex(nonTerminal) + 1];
+    }
+
+    /**
+     * Возвращает порождающий символ правила.
+     *
+     * @param rule Номер правила.
+     */
+    public int getRuleHead(int rule) {
+        return ruleHeads[rule];
+    }
+
+    /**
+     * Возвращает длину тела правила; λ-правило имеет длину 0.
+     *
+     * @param rule Номер правила.
+     */
+    public int getRuleLength(int rule) {
+        return ruleOffsets[rule + 1] - ruleOffsets[rule];
+    }
+
+    /**
+     * Возвращает символ тела правила.
+     *
+     * @param rule Номер правила.
+     * @param position Позиция символа в теле правила.
+     */
+    public int getRuleSymbol(int rule, int position) {
+        return ruleSymbols[ruleOffsets[rule] + position];
+    }
+
+    /**
+     * Проверяет, что правило цепное, то есть его тело состоит из
+     * единственного нетерминального символа.
+     *
+     * @param rule Номер правила.
+     */
+    public boolean isUnitRule(int rule) {
+        return getRuleLength(rule) == 1 && !isTerminal(getRuleSymbol(rule, 0));
+    }
+
+    /**
+     * Копирует тело правила в массив.
+     *
+     * @param rule Номер правила.
+     * @param target Массив-приемник.
+     * @param targetOffset Позиция в массиве-приемнике.
+     * @return Длина тела правила.
+     */
+    public int copyRuleBody(int rule, int[] target, int targetOffset) {
+        int length = getRuleLength(rule);
+        System.arraycopy(ruleSymbols, ruleOffsets[rule], target, targetOffset, length);
+        return length;
+    }
+
+    /**
+     * Возвращает тело правила в строковом виде.
+     *
+     * @param rule Номер правила.
+     */
+    public String getRuleBody(int rule) {
+        int length = getRuleLength(rule);
+        if (length == 0) {
+            return LAMBDA.toString();
+        }
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            body.append(getLexeme(getRuleSymbol(rule, i)));
+        }
+        return body.toString();
+    }
+
+    /**
+     * Возвращает правило в строковом виде, в котором оно записывается
+     * в грамматике.
+     *
+     * @param rule Номер правила.
+     */
+    public String getRule(int rule) {
+        return getName(getRuleHead(rule)) + ARROW + getRuleBody(rule);
+    }
+
+    /**
+     * Возвращает результаты анализа грамматики: аннулируемые символы,
+     * множества FIRST и FOLLOW.
+     * <p>
+     * Анализ выполняется при первом обращении; все последующие
+     * обращения, в том числе из других потоков, получают тот же
+     * неизменяемый результат.
+     */
+    public GrammarAnalysis getAnalysis() {
+        GrammarAnalysis result = analysis;
+        if (result == null) {
+            result = new GrammarAnalysis(this);
+            analysis = result;
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает 64-битный отпечаток снимка, зависящий только от
+     * содержания грамматики: одинаковые грамматики имеют одинаковые
+     * отпечатки.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Сравнивает снимки по содержанию грамматики.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CompiledGrammar)) {
+            return false;
+        }
+        CompiledGrammar grammar = (CompiledGrammar) other;
+        return fingerprint == grammar.fingerprint
+                && goal == grammar.goal
+                && terminals.length == grammar.terminals.length
+                && Arrays.equals(names, grammar.names)
+                && Arrays.equals(ruleHeads, grammar.ruleHeads)
+                && Arrays.equals(ruleOffsets, grammar.ruleOffsets)
+                && Arrays.equals(ruleSymbols, grammar.ruleSymbols);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint);
+    }
+
+    /**
+     * Вычисляет множество производящих символов грамматики, то есть
+     * символов, из которых выводится терминальная цепочка.
+     * <p>
+     * Терминальные символы производящие по определению. Время работы
+     * линейно относительно размера грамматики.
+     *
+     * @return Номера производящих символов.
+     * @see #closeOverRules(BitSet)
+     */
+    public BitSet productiveSymbols() {
+        BitSet productive = new BitSet(names.length);
+        productive.set(0, terminals.length);
+        return closeOverRules(productive);
+    }
+
+    /**
+     * Вычисляет множество аннулируемых нетерминальных символов,
+     * то есть символов, из которых выводится пустая цепочка.
+     * <p>
+     * Время работы линейно относительно размера грамматики.
+     *
+     * @return Номера аннулируемых символов.
+     * @see #closeOverRules(BitSet)
+     */
+    public BitSet nullableSymbols() {
+        return closeOverRules(new BitSet(names.length));
+    }
+
+    /**
+     * Вычисляет множество символов, достижимых из целевого символа.
+     *
+     * @return Номера достижимых символов; пустое множество, если
+     * целевой символ не задан.
+     * @see #reachableSymbols(int)
+     */
+    public BitSet reachableSymbols() {
+        return reachableSymbols(goal);
+    }
+
+    /**
+     * Вычисляет множество символов, достижимых из заданного символа,
+     * то есть встречающихся в сентенциальных формах, выводимых из него.
+     * <p>
+     * Диапазоны правил нетерминальных символов вместе с телами правил
+     * образуют граф зависимостей символов, который обходится в ширину.
+     * Правила каждого нетерминального символа просматриваются один раз,
+     * поэтому время работы линейно относительно размера грамматики.
+     *
+     * @param start Номер начального символа или {@link #NO_SYMBOL}.
+     * @return Номера достижимых символов, включая начальный символ.
+     */
+    public BitSet reachableSymbols(int start) {
+        BitSet reachable = new BitSet(names.length);
+        if (start == NO_SYMBOL) {
+            return reachable;
+        }
+        reachable.set(start);
+        if (isTerminal(start)) {
+            return reachable;
+        }
+        int[] queue = new int[getNonTerminalCount()];
+        int queueEnd = 0;
+        queue[queueEnd++] = start;
+        for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+            int nonTerminal = queue[queueStart];
+            for (int i = ruleOffsets[getFirstRule(nonTerminal)];
+                 i < ruleOffsets[getEndRule(nonTerminal)];
+                 i++) {
+                int symbol = ruleSymbols[i];
+                if (!reachable.get(symbol)) {
+                    reachable.set(symbol);
+                    if (!isTerminal(symbol)) {
+                        queue[queueEnd++] = symbol;
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Вычисляет для каждого нетерминального символа A множество
+     * нетерминальных символов B, для которых A ⇒* B только по цепным
+     * правилам; сам символ A входит в свое множество.
+     * <p>
+     * Граф цепных правил сжимается в компоненты сильной связности
+     * (алгоритм Тарьяна), которые завершаются в обратном
+     * топологическом порядке, поэтому множество компоненты
+     * получается объединением уже готовых множеств ее преемников.
+     * Объединение выполняется над словами битовых множеств.
+     * Нетерминальные символы одной компоненты разделяют один
+     * экземпляр множества, поэтому результат не следует изменять.
+     *
+     * @return Множества номеров символов, индексированные порядковыми
+     * номерами нетерминальных символов.
+     * @see #getNonTerminalIndex(int)
+     */
+    public BitSet[] unitClosure() {
+        int count = getNonTerminalCount();
+        BitSet[] closure = new BitSet[count];
+        int[] order = new int[count];
+        int[] low = new int[count];
+        Arrays.fill(order, NO_SYMBOL);
+        boolean[] onStack = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        // Стек обхода в глубину: вершина и следующее просматриваемое правило
+        int[] path = new int[count];
+        int[] cursors = new int[count];
+        int nextOrder = 0;
+        for (int root = 0; root < count; root++) {
+            if (order[root] != NO_SYMBOL) {
+                continue;
+            }
+            int depth = 0;
+            path[depth] = root;
+            cursors[depth++] = headOffsets[root];
+            order[root] = low[root] = nextOrder++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                int vertex = path[depth - 1];
+                if (cursors[depth - 1] < headOffsets[vertex + 1]) {
+                    int rule = cursors[depth - 1]++;
+                    if (!isUnitRule(rule)) {
+                        continue;
+                    }
+                    int successor = getNonTerminalIndex(getRuleSymbol(rule, 0));
+                    if (order[successor] == NO_SYMBOL) {
+                        path[depth] = successor;
+                        cursors[depth++] = headOffsets[successor];
+                        order[successor] = low[successor] = nextOrder++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                    } else if (onStack[successor]) {
+                        low[vertex] = Math.min(low[vertex], order[successor]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = path[depth - 1];
+                    low[parent] = Math.min(low[parent], low[vertex]);
+                }
+                if (low[vertex] != order[vertex]) {
+                    continue;
+                }
+                int componentStart = stackSize;
+                do {
+                    componentStart--;
+                } while (stack[componentStart] != vertex);
+                BitSet component = new BitSet(names.length);
+                for (int i = componentStart; i < stackSize; i++) {
+                    component.set(stack[i] + terminals.length);
+                }
+                for (int i = componentStart; i < stackSize; i++) {
+                    for (int rule = headOffsets[stack[i]]; rule < headOffsets[stack[i] + 1]; rule++) {
+                        if (isUnitRule(rule)) {
+                            // Множества других компонент уже построены
+                            BitSet successorClosure =
+                                    closure[getNonTerminalIndex(getRuleSymbol(rule, 0))];
+                            if (successorClosure != null) {
+                                component.or(successorClosure);
+                            }
+                        }
+                    }
+                }
+                for (int i = componentStart; i < stackSize; i++) {
+                    closure[stack[i]] = component;
+                    onStack[stack[i]] = false;
+                }
+                stackSize = componentStart;
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Дополняет множество символов порождающими символами правил,
+     * все символы тел которых принадлежат множеству, до неподвижной
+     * точки.
+     * <p>
+     * Для каждого правила хранится счетчик символов тела, еще не
+     * попавших во множество; добавленный символ уменьшает счетчики
+     * всех правил, в тела которых он входит, а правило с нулевым
+     * счетчиком добавляет во множество свой порождающий символ.
+     * Каждое вхождение символа обрабатывается один раз, поэтому время
+     * работы линейно относительно размера грамматики.
+     *
+     * @param resolved Исходное множество символов, дополняемое на месте.
+     * @return Дополненное множество.
+     */
+    private BitSet closeOverRules(BitSet resolved) {
+        int ruleCount = getRuleCount();
+        int[] occurrenceOffsets = new int[names.length + 1];
+        int[] counters = new int[ruleCount];
+        for (int rule = 0; rule < ruleCount; rule++) {
+            for (int i = ruleOffsets[rule]; i < ruleOffsets[rule + 1]; i++) {
+                if (!resolved.get(ruleSymbols[i])) {
+                    counters[rule]++;
+                    occurrenceOffsets[ruleSymbols[i] + 1]++;
+                }
+            }
+        }
+        // Обратные списки вхождений: правила, в тела которых входит символ
+        for (int symbol = 0; symbol < names.length; symbol++) {
+            occurrenceOffsets[symbol + 1] += occurrenceOffsets[symbol];
+        }
+        int[] occurrences = new int[occurrenceOffsets[names.length]];
+        int[] positions = Arrays.copyOf(occurrenceOffsets, names.length);
+        for (int rule = 0; rule < ruleCount; rule++) {
+            for (int i = ruleOffsets[rule]; i < ruleOffsets[rule + 1]; i++) {
+                if (!resolved.get(ruleSymbols[i])) {
+                    occurrences[positions[ruleSymbols[i]]++] = rule;
+                }
+            }
+        }
+
+        int[] queue = new int[getNonTerminalCount()];
+        int queueEnd = 0;
+        for (int rule = 0; rule < ruleCount; rule++) {
+            if (counters[rule] == 0 && !resolved.get(ruleHeads[rule])) {
+                resolved.set(ruleHeads[rule]);
+                queue[queueEnd++] = ruleHeads[rule];
+            }
+        }
+        for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+            int symbol = queue[queueStart];
+            for (int i = occurrenceOffsets[symbol]; i < occurrenceOffsets[symbol + 1]; i++) {
+                int rule = occurrences[i];
+                if (--counters[rule] == 0 && !resolved.get(ruleHeads[rule])) {
+                    resolved.set(ruleHeads[rule]);
+                    queue[queueEnd++] = ruleHeads[rule];
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private long computeFingerprint() {
+        long hash = terminals.length * 31L + goal;
+        for (String name : names) {
+            hash = mix(hash, name.hashCode());
+        }
+        for (int rule = 0; rule < ruleHeads.length; rule++) {
+            hash = mix(hash, ruleHeads[rule]);
+            hash = mix(hash, ruleOffsets[rule + 1] - ruleOffsets[rule]);
+        }
+        for (int symbol : ruleSymbols) {
+            hash = mix(hash, symbol);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ value) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    }
+
+    private int[] toSymbols(String body) {
+        LinkedList<String> lexemes = stringToLexemes(body);
+        int[] symbols = new int[lexemes.size()];
+        int length = 0;
+        for (String lexeme : lexemes) {
+            if (lexeme.equals(LAMBDA.toString())) {
+                continue;
+            }
+            Integer terminal = lexeme.length() == 1
+                    ? terminalIds.get(lexeme.charAt(0))
+                    : null;
+            symbols[length++] = terminal != null && !nonTerminalIds.containsKey(lexeme)
+                    ? terminal
+                    : nonTerminalIds.get(fromLexeme(lexeme));
+        }
+        return Arrays.copyOf(symbols, length);
+    }
+
+}
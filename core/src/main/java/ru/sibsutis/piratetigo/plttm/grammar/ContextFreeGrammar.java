@@ -0,0 +1,856 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
+
+/**
+ * Контекстно-свободная грамматика.
+ * <p>
+ * Грамматика не зависит от элементов пользовательского интерфейса:
+ * формы подписываются на её изменения с помощью
+ * {@link #addListener(GrammarChangeListener)} и получают одно
+ * уведомление по завершении каждой операции.
+ */
+@Log
+public class ContextFreeGrammar {
+
+    private static final String RULE_DELIMITER = "|";
+
+    private static final String RULE_FORMAT_VIOLATION =
+            "Нарушен формат ввода правила вывода";
+
+    /**
+     * Допустимое по умолчанию количество правил вывода, порождаемых
+     * преобразованиями грамматики.
+     */
+    public static final int DEFAULT_RULE_LIMIT = 100_000;
+
+    /** Наблюдатели изменений грамматики. */
+    private final List<GrammarChangeListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    /** Изменившиеся за время текущей операции части грамматики. */
+    private final Set<GrammarPart> changes = EnumSet.noneOf(GrammarPart.class);
+
+    /** Глубина вложенности выполняемых операций над грамматикой. */
+    private int operationDepth = 0;
+
+    private ObjectMapper objectMapper;
+
+    {
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+    }
+
+    /** Множество терминальных символов. */
+    @Getter
+    private Set<Character> terminals = new HashSet<>();
+
+    /** Множество нетерминальных символов. */
+    @Getter
+    private Set<String> nonTerminals = new HashSet<>();
+
+    /** Целевой символ. */
+    @Getter
+    private String goal;
+
+    /**
+     * Правила вывода. Изменяются только методами грамматики, иначе
+     * снимок грамматики не будет обновлен.
+     *
+     * @see #addRule(String)
+     * @see #clearRules()
+     */
+    @Getter
+    private HashMap<String, Set<String>> rules = new HashMap<>();
+
+    /** Снимок грамматики; сбрасывается при любом её изменении. */
+    private CompiledGrammar snapshot;
+
+    /**
+     * Допустимое количество правил вывода, порождаемых
+     * преобразованиями грамматики.
+     */
+    @Getter
+    @Setter
+    private int ruleLimit = DEFAULT_RULE_LIMIT;
+
+    /**
+     * Подписывает наблюдателя на изменения грамматики.
+     *
+     * @param listener Наблюдатель.
+     */
+    public void addListener(GrammarChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписывает наблюдателя от изменений грамматики.
+     *
+     * @param listener Наблюдатель.
+     */
+    public void removeListener(GrammarChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Задает множество терминальных символов на основе переданной строки.
+     * <p>
+     * На строку накладываются ограничения:
+     * <ul>
+     *  <li>Она не должна содержать пробельных символов;
+     *  <li>Каждый символ строки рассматривается как терминальных символ.
+     * </ul>
+     * Если строка отклонена, наблюдатели получают уведомление
+     * об изменении {@link GrammarPart#TERMINALS}, чтобы восстановить
+     * прежнее значение.
+     *
+     * @param newValue Строка символов.
+     */
+    public void setTerminals(String newValue) {
+        beginOperation();
+        try {
+            invalidate();
+            terminals = calculateAlphabet(
+                    newValue.trim(),
+                    terminals,
+                    oldValue -> markChanged(GrammarPart.TERMINALS),
+                    nonTerminals
+            );
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Задает множество нетерминальных символов на основе переданной строки.
+     * <p>
+     * На строку накладываются ограничения:
+     * <ul>
+     *  <li>Она не должна содержать пробельных символов;
+     *  <li>Все лексемы нетерминальных символов должны быть разделены
+     *  запятыми или точками с запятой.</li>
+     *  <li>Лексемы нетерминальных символов не должны содержать
+     *  символы {@code <} и {@code >}.</li>
+     * </ul>
+     * Если строка отклонена, наблюдатели получают уведомление
+     * об изменении {@link GrammarPart#NON_TERMINALS}.
+     *
+     * @param newValue Строка символов.
+     */
+    public void setNonTerminals(String newValue) {
+        beginOperation();
+        try {
+            invalidate();
+            nonTerminals = calculateUniqueItems(
+                    newValue.trim(),
+                    nonTerminals,
+                    oldValue -> markChanged(GrammarPart.NON_TERMINALS),
+                    symbolsToStrings(terminals)
+            );
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Устанавливает целевой символ грамматики.
+     * <p>
+     * Формат задания целевого символа:
+     * <ul>
+     *  <li>Целевой символ должен принадлежать множеству нетерминальных
+     *  символов;</li>
+     *  <li>Целевой символ не может содержать символы обертки
+     *  {@code <} и {@code >}.</li>
+     * </ul>
+     * @param goal Целевой символ.
+     */
+    public void setGoal(String goal) {
+        if (setContainsLexeme(goal, nonTerminals, false)) {
+            invalidate();
+            this.goal = goal;
+        } else {
+            throw new IllegalArgumentException(
+                    "Нарушен формат задания целевого символа"
+            );
+        }
+    }
+
+    /**
+     * Добавляет правило вывода в список, учитывая корректность
+     * его задания.
+     * <p>
+     * Для корректного задания правила вывода необходимо придерживаться
+     * следующего формата:
+     * <ul>
+     *  <li>Порождающий символ и тело правила должны быть разделены
+     *  символом →;</li>
+     *  <li>Порождающий символ должен быть одной из лексем множества
+     *  нетерминальных символов;</li>
+     *  <li>Порождающий символ не может быть обернут в символы
+     *  {@code <} и {@code >};</li>
+     *  <li>Все лексемы тела правила должны быть либо нетерминальными
+     *  символами, либо терминальными, либо символом λ;</li>
+     *  <li>Если символ λ присутствует в теле правила, то оно
+     *  не может содержать других символов;</li>
+     *  <li>Лексемы нетерминальных символов могут быть обернуты в
+     *  символы {@code <} и {@code >}.</li>
+     * </ul>
+     * Добавление правила не сопровождается уведомлением наблюдателей:
+     * правило вводится пользователем, и форма уже отображает его.
+     *
+     * @param rule Добавляемое правило.
+     * @throws IllegalArgumentException Если правило не соответствует формату.
+     */
+    public void addRule(String rule) {
+        String[] splitRule = rule.split(ARROW.toString());
+        if (splitRule.length != 2
+                || !setContainsLexeme(splitRule[0], nonTerminals, false)) {
+            throw new IllegalArgumentException(RULE_FORMAT_VIOLATION);
+        }
+        HashSet<String> allLexemes = new HashSet<>();
+        allLexemes.addAll(symbolsToStrings(terminals));
+        allLexemes.addAll(nonTerminals);
+        allLexemes.add(LAMBDA.toString());
+        for (String lexeme : stringToLexemes(splitRule[1])) {
+            if (lexeme.charAt(0) == LESS_THAN) {
+                if (!setContainsLexeme(lexeme, nonTerminals, true)) {
+                    throw new IllegalArgumentException(RULE_FORMAT_VIOLATION);
+                }
+                continue;
+            }
+            if (!setContainsLexeme(lexeme, allLexemes, false)) {
+                throw new IllegalArgumentException(RULE_FORMAT_VIOLATION);
+            }
+            if (lexeme.contains(LAMBDA.toString())) {
+                if (lexeme.length() > 1 || splitRule[1].length() > 1) {
+                    throw new IllegalArgumentException(RULE_FORMAT_VIOLATION);
+                }
+            }
+        }
+        invalidate();
+        rules.computeIfAbsent(splitRule[0], k -> new HashSet<>())
+                .add(splitRule[1]);
+    }
+
+    /**
+     * Удаляет все правила вывода.
+     * <p>
+     * Как и добавление правила, удаление не сопровождается уведомлением
+     * наблюдателей.
+     */
+    public void clearRules() {
+        invalidate();
+        rules.clear();
+    }
+
+    /**
+     * Загружает КС-грамматику из файла.
+     *
+     * @param file Файл с КС-грамматикой в формате JSON.
+     * @throws IOException При ошибках десериализации или работы с файлом.
+     */
+    public void load(File file) throws IOException {
+        GrammarDTO grammarDTO = objectMapper.readValue(file, GrammarDTO.class);
+        beginOperation();
+        try {
+            setTerminals(grammarDTO.getTerminals());
+            markChanged(GrammarPart.TERMINALS);
+            setNonTerminals(grammarDTO.getNonTerminals());
+            markChanged(GrammarPart.NON_TERMINALS);
+            setGoal(grammarDTO.getGoal());
+            markChanged(GrammarPart.GOAL);
+            clearRules();
+            grammarDTO.getRules().forEach(ruleDTO -> {
+                String[] ruleBodies = ruleDTO.getBody().split("\\" + RULE_DELIMITER);
+                for (String ruleBody: ruleBodies) {
+                    String rule = ruleDTO.getHead()
+                            + ARROW
+                            + ruleBody;
+                    rule = rule.replace("<lambda>", LAMBDA.toString());
+                    addRule(rule);
+                }
+            });
+            markChanged(GrammarPart.RULES);
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Сохраняет КС-грамматику в файл.
+     *
+     * @param file Файл для сохранения КС-грамматики в формате JSON.
+     * @throws IOException При ошибках сериализации или работы с файлом.
+     */
+    public void save(File file) throws IOException {
+        GrammarDTO grammarDTO = new GrammarDTO();
+        grammarDTO.setTerminals(terminalsAsString());
+        grammarDTO.setNonTerminals(nonTerminalsAsString());
+        grammarDTO.setGoal(goal);
+        List<GrammarDTO.RuleDTO> ruleDTOList = new ArrayList<>();
+        rules.forEach((head, bodies) -> {
+            GrammarDTO.RuleDTO ruleDTO = new GrammarDTO.RuleDTO();
+            ruleDTO.setHead(head);
+            String bodiesString = String.join(RULE_DELIMITER, bodies);
+            bodiesString = bodiesString.replace(LAMBDA.toString(), "<lambda>");
+            ruleDTO.setBody(bodiesString);
+            ruleDTOList.add(ruleDTO);
+        });
+        grammarDTO.setRules(ruleDTOList);
+        objectMapper.writeValue(file, grammarDTO);
+    }
+
+    /**
+     * Переводит грамматику в канонический вид.
+     */
+    public void toCanonical() {
+        beginOperation();
+        try {
+            deleteBarrenSymbols();
+            deleteUnreachableSymbols();
+            deleteLambdaRules();
+            deleteChainRules();
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Переводит грамматику в Бинарную Нормальную Форму (Хомского),
+     * составляя имена новых нетерминальных символов из имен
+     * заменяемых ими символов.
+     *
+     * @return Размеры грамматики до и после перевода.
+     * @see #toChomsky(ChomskyNaming)
+     */
+    public ConversionReport toChomsky() {
+        return toChomsky(ChomskyNaming.DESCRIPTIVE);
+    }
+
+    /**
+     * Переводит грамматику в Бинарную Нормальную Форму (Хомского).
+     * <p>
+     * Обертки терминальных символов и общие хвосты тел правил
+     * заменяются общими для всей грамматики нетерминальными символами,
+     * поэтому размер результата линеен относительно размера грамматики.
+     *
+     * @param naming Способ именования новых нетерминальных символов.
+     * @return Размеры грамматики до и после перевода.
+     */
+    public ConversionReport toChomsky(ChomskyNaming naming) {
+        beginOperation();
+        try {
+            int ruleCountBefore = getRuleCount();
+            int nonTerminalCountBefore = nonTerminals.size();
+            ChomskyConverter converter = new ChomskyConverter(
+                    compile(),
+                    nonTerminals,
+                    naming
+            );
+            rules = converter.convert();
+            nonTerminals = converter.getNonTerminals();
+            markChanged(GrammarPart.NON_TERMINALS);
+            markChanged(GrammarPart.GOAL);
+            markChanged(GrammarPart.RULES);
+            ConversionReport report = new ConversionReport(
+                    ruleCountBefore,
+                    nonTerminalCountBefore,
+                    getRuleCount(),
+                    nonTerminals.size()
+            );
+            LOGGER.info(String.format("Перевод в БНФ. %s", report));
+            return report;
+        } finally {
+            endOperation();
+        }
+    }
+
+    /**
+     * Создает новый экземпляр КС-грамматики на основе этой грамматики.
+     * <p>
+     * Наблюдатели изменений исходной грамматики не копируются.
+     *
+     * @return Новый экземпляр КС-грамматики.
+     */
+    public ContextFreeGrammar copy() {
+        ContextFreeGrammar copy = new ContextFreeGrammar();
+        copy.terminals = new HashSet<>(terminals);
+        copy.nonTerminals = new HashSet<>(nonTerminals);
+        copy.goal = goal;
+        copy.ruleLimit = ruleLimit;
+        copy.snapshot = snapshot;
+        copy.rules = new HashMap<>();
+        rules.forEach((head, ruleBodies) ->
+            copy.rules.computeIfAbsent(head, (h) -> new HashSet<>())
+                .addAll(ruleBodies));
+        return copy;
+    }
+
+    /**
+     * Компилирует грамматику в неизменяемый снимок с целочисленными
+     * номерами символов, используемый алгоритмами генерации,
+     * преобразования и разбора.
+     * <p>
+     * Снимок сохраняется до следующего изменения грамматики, поэтому
+     * повторные вызовы, как и результаты анализа снимка, не требуют
+     * повторных вычислений.
+     *
+     * @return Снимок грамматики.
+     */
+    public CompiledGrammar compile() {
+        if (snapshot == null) {
+            snapshot = CompiledGrammar.of(this);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Возвращает результаты анализа грамматики: аннулируемые символы,
+     * множества FIRST и FOLLOW.
+     *
+     * @return Результаты анализа текущего снимка грамматики.
+     */
+    public GrammarAnalysis getAnalysis() {
+        return compile().getAnalysis();
+    }
+
+    /**
+     * Вычисляет множество производящих нетерминальных символов,
+     * то есть символов, из которых выводится терминальная цепочка.
+     * <p>
+     * Время работы линейно относительно размера грамматики.
+     *
+     * @return Производящие нетерминальные символы.
+     */
+    public Set<String> productiveSymbols() {
+        CompiledGrammar compiled = compile();
+        return toNonTerminalNames(compiled, compiled.productiveSymbols());
+    }
+
+    /**
+     * Вычисляет множество символов, достижимых из заданного символа,
+     * то есть встречающихся в сентенциальных формах, выводимых из него.
+     * <p>
+     * Время работы линейно относительно размера грамматики.
+     *
+     * @param start Начальный символ: терминальный символ или имя
+     *              нетерминального символа без угловых скобок.
+     * @return Достижимые терминальные и нетерминальные символы,
+     * включая начальный; пустое множество, если символ не
+     * принадлежит грамматике.
+     */
+    public Set<String> reachableSymbols(String start) {
+        CompiledGrammar compiled = compile();
+        int startSymbol = compiled.getNonTerminalId(start);
+        if (startSymbol == CompiledGrammar.NO_SYMBOL && start.length() == 1) {
+            startSymbol = compiled.getTerminalId(start.charAt(0));
+        }
+        BitSet reachable = compiled.reachableSymbols(startSymbol);
+        Set<String> result = new HashSet<>();
+        for (int symbol = reachable.nextSetBit(0);
+             symbol >= 0;
+             symbol = reachable.nextSetBit(symbol + 1)) {
+            result.add(compiled.getName(symbol));
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает количество правил вывода.
+     */
+    public int getRuleCount() {
+        return rules.values().stream()
+                .mapToInt(Set::size)
+                .sum();
+    }
+
+    /**
+     * Возвращает множество терминальных символов в виде строки.
+     */
+    public String terminalsAsString() {
+        return terminals.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining());
+    }
+
+    /**
+     * Возвращает множество нетерминальных символов в виде строки,
+     * в которой символы разделены точками с запятой.
+     */
+    public String nonTerminalsAsString() {
+        return nonTerminals.stream()
+                .collect(Collectors.joining(";", "", ";"));
+    }
+
+    /**
+     * Возвращает правила вывода в виде списка строк формата
+     * {@code A→α}.
+     */
+    public List<String> rulesAsList() {
+        List<String> result = new ArrayList<>();
+        rules.forEach((head, ruleBodies) ->
+                ruleBodies.forEach(ruleBody ->
+                        result.add(head + ARROW + ruleBody)));
+        return result;
+    }
+
+    /**
+     * Вывести информацию о грамматике в журнал приложения.
+     */
+    public void log() {
+        StringJoiner stringedRules = new StringJoiner(
+                ", ",
+                "Целевой символ: " + goal + "\nИсходные правила: [",
+                "]"
+        );
+        rules.forEach((left, right) -> {
+            StringJoiner oneRule = new StringJoiner(
+                    "|",
+                    left + "=>",
+                    ""
+            );
+            for (String rule: right) {
+                oneRule.add(rule.replace(LAMBDA.toString(), "<lambda>"));
+            }
+            stringedRules.add(oneRule.toString());
+        });
+        LOGGER.info(stringedRules.toString());
+    }
+
+    /**
+     * Удаляет бесплодные символы.
+     */
+    private void deleteBarrenSymbols() {
+        CompiledGrammar compiled = compile();
+        BitSet productive = compiled.productiveSymbols();
+        Set<String> ySet = toNonTerminalNames(compiled, productive);
+        if (ySet.size() != nonTerminals.size()) {
+            setNonTerminals(String.join(";", ySet) + ";");
+            rules = collectRules(compiled, rule ->
+                    isRuleOver(compiled, rule, productive));
+            markChanged(GrammarPart.NON_TERMINALS);
+            markChanged(GrammarPart.GOAL);
+            markChanged(GrammarPart.RULES);
+        }
+    }
+
+    /**
+     * Удаляет недостижимые символы.
+     */
+    private void deleteUnreachableSymbols() {
+        CompiledGrammar compiled = compile();
+        BitSet reachable = compiled.reachableSymbols();
+        // Символы, не объявленные в грамматике, недостижимы
+        for (int symbol = reachable.nextSetBit(0);
+             symbol >= 0;
+             symbol = reachable.nextSetBit(symbol + 1)) {
+            if (compiled.isTerminal(symbol)
+                    ? !terminals.contains(compiled.getTerminal(symbol))
+                    : !nonTerminals.contains(compiled.getName(symbol))) {
+                reachable.clear(symbol);
+            }
+        }
+
+        StringBuilder newTerminals = new StringBuilder();
+        for (int symbol = reachable.nextSetBit(0);
+             symbol >= 0 && compiled.isTerminal(symbol);
+             symbol = reachable.nextSetBit(symbol + 1)) {
+            newTerminals.append(compiled.getTerminal(symbol));
+        }
+        setTerminals(newTerminals.toString());
+        setNonTerminals(String.join(";",
+                toNonTerminalNames(compiled, reachable)) + ";");
+        rules = collectRules(compiled, rule ->
+                isRuleOver(compiled, rule, reachable));
+        markChanged(GrammarPart.TERMINALS);
+        markChanged(GrammarPart.NON_TERMINALS);
+        markChanged(GrammarPart.GOAL);
+        markChanged(GrammarPart.RULES);
+    }
+
+    /**
+     * Удаляет лямбда-правила.
+     * <p>
+     * Для каждого правила перебираются только варианты удаления
+     * вхождений аннулируемых символов в его тело, поэтому правило
+     * с k такими вхождениями порождает не более 2<sup>k</sup> правил.
+     * Тела новых правил интернируются, и повторяющиеся правила
+     * отбрасываются по номерам тел без сравнения строк.
+     * <p>
+     * Количество новых правил оценивается до их построения.
+     *
+     * @throws GrammarSizeExceededException Если оценка превышает
+     * {@link #getRuleLimit()}.
+     */
+    private void deleteLambdaRules() {
+        CompiledGrammar compiled = compile();
+        BitSet nullable = compiled.getAnalysis().getNullable();
+        long expectedRuleCount = 0;
+        int maxRuleLength = 0;
+        for (int rule = 0; rule < compiled.getRuleCount(); rule++) {
+            int length = compiled.getRuleLength(rule);
+            if (length == 0) {
+                continue;
+            }
+            int nullableCount = 0;
+            for (int i = 0; i < length; i++) {
+                if (nullable.get(compiled.getRuleSymbol(rule, i))) {
+                    nullableCount++;
+                }
+            }
+            expectedRuleCount = nullableCount >= Long.SIZE - 2
+                    ? Long.MAX_VALUE
+                    : Math.min(Long.MAX_VALUE - expectedRuleCount, 1L << nullableCount)
+                            + expectedRuleCount;
+            maxRuleLength = Math.max(maxRuleLength, length);
+        }
+        if (expectedRuleCount > ruleLimit) {
+            throw new GrammarSizeExceededException(expectedRuleCount, ruleLimit);
+        }
+
+        HashMap<IntBuffer, Integer> bodyIds = new HashMap<>();
+        List<String> bodies = new ArrayList<>();
+        Set<Long> addedRules = new HashSet<>();
+        HashMap<String, Set<String>> newRules = new HashMap<>();
+        int[] nullablePositions = new int[maxRuleLength];
+        int[] variant = new int[maxRuleLength];
+        for (int rule = 0; rule < compiled.getRuleCount(); rule++) {
+            int length = compiled.getRuleLength(rule);
+            int head = compiled.getRuleHead(rule);
+            int nullableCount = 0;
+            for (int i = 0; i < length; i++) {
+                if (nullable.get(compiled.getRuleSymbol(rule, i))) {
+                    nullablePositions[nullableCount++] = i;
+                }
+            }
+            // Единичный бит маски удаляет соответствующее вхождение
+            for (int mask = 0; length > 0 && mask < 1 << nullableCount; mask++) {
+                int variantLength = 0;
+                int next = 0;
+                for (int i = 0; i < length; i++) {
+                    if (next < nullableCount && nullablePositions[next] == i
+                            && (mask & 1 << next++) != 0) {
+                        continue;
+                    }
+                    variant[variantLength++] = compiled.getRuleSymbol(rule, i);
+                }
+                if (variantLength == 0
+                        || variantLength == 1 && variant[0] == head) {
+                    continue;
+                }
+                Integer bodyId = bodyIds.get(IntBuffer.wrap(variant, 0, variantLength));
+                if (bodyId == null) {
+                    bodyId = bodies.size();
+                    bodyIds.put(
+                            IntBuffer.wrap(Arrays.copyOf(variant, variantLength)),
+                            bodyId
+                    );
+                    bodies.add(toRuleBody(compiled, variant, variantLength));
+                }
+                if (addedRules.add((long) head << Integer.SIZE | bodyId)) {
+                    newRules.computeIfAbsent(compiled.getName(head), (h) -> new HashSet<>())
+                            .add(bodies.get(bodyId));
+                }
+            }
+        }
+
+        int goalSymbol = compiled.getGoal();
+        if (goalSymbol != CompiledGrammar.NO_SYMBOL && nullable.get(goalSymbol)) {
+            if (isInRuleBodies(compiled, goalSymbol)) {
+                String newGoal = goal + '\'';
+                while (nonTerminals.contains(newGoal)) {
+                    newGoal += '\'';
+                }
+                setNonTerminals(String.join(";", nonTerminals) + ";" + newGoal + ";");
+                newRules.put(newGoal, new HashSet<>());
+                newRules.get(newGoal).add(LAMBDA.toString());
+                newRules.get(newGoal).add(compiled.getLexeme(goalSymbol));
+                goal = newGoal;
+                markChanged(GrammarPart.NON_TERMINALS);
+                markChanged(GrammarPart.GOAL);
+            } else {
+                // Пустая цепочка выводится непосредственно из целевого символа
+                newRules.computeIfAbsent(goal, (h) -> new HashSet<>())
+                        .add(LAMBDA.toString());
+            }
+        }
+        rules = newRules;
+        markChanged(GrammarPart.RULES);
+    }
+
+    /**
+     * Удаляет цепные правила.
+     * <p>
+     * Замыкание цепных правил вычисляется один раз для всех
+     * нетерминальных символов, после чего каждый символ за один проход
+     * получает нецепные правила всех символов своего замыкания.
+     */
+    private void deleteChainRules() {
+        CompiledGrammar compiled = compile();
+        BitSet[] closure = compiled.unitClosure();
+        String[] ruleBodies = new String[compiled.getRuleCount()];
+        HashMap<String, Set<String>> newRules = new HashMap<>();
+        for (int index = 0; index < compiled.getNonTerminalCount(); index++) {
+            Set<String> headBodies = new HashSet<>();
+            for (int symbol = closure[index].nextSetBit(0);
+                 symbol >= 0;
+                 symbol = closure[index].nextSetBit(symbol + 1)) {
+                for (int rule = compiled.getFirstRule(symbol);
+                     rule < compiled.getEndRule(symbol);
+                     rule++) {
+                    if (!compiled.isUnitRule(rule)) {
+                        if (ruleBodies[rule] == null) {
+                            ruleBodies[rule] = compiled.getRuleBody(rule);
+                        }
+                        headBodies.add(ruleBodies[rule]);
+                    }
+                }
+            }
+            if (!headBodies.isEmpty()) {
+                newRules.put(
+                        compiled.getName(index + compiled.getTerminalCount()),
+                        headBodies
+                );
+            }
+        }
+
+        rules = newRules;
+        markChanged(GrammarPart.RULES);
+    }
+
+    /**
+     * Собирает правила вывода скомпилированной грамматики,
+     * удовлетворяющие условию.
+     *
+     * @param compiled Скомпилированная грамматика.
+     * @param filter Условие отбора правил по их номерам.
+     * @return Правила вывода.
+     */
+    private HashMap<String, Set<String>> collectRules(
+            CompiledGrammar compiled,
+            IntPredicate filter) {
+        HashMap<String, Set<String>> result = new HashMap<>();
+        for (int rule = 0; rule < compiled.getRuleCount(); rule++) {
+            if (filter.test(rule)) {
+                result.computeIfAbsent(
+                        compiled.getName(compiled.getRuleHead(rule)),
+                        (h) -> new HashSet<>()
+                ).add(compiled.getRuleBody(rule));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, что порождающий символ и все символы тела правила
+     * принадлежат множеству.
+     */
+    private boolean isRuleOver(CompiledGrammar compiled, int rule, BitSet symbols) {
+        if (!symbols.get(compiled.getRuleHead(rule))) {
+            return false;
+        }
+        for (int i = 0; i < compiled.getRuleLength(rule); i++) {
+            if (!symbols.get(compiled.getRuleSymbol(rule, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, что символ входит в тело хотя бы одного правила.
+     */
+    private boolean isInRuleBodies(CompiledGrammar compiled, int symbol) {
+        for (int rule = 0; rule < compiled.getRuleCount(); rule++) {
+            for (int i = 0; i < compiled.getRuleLength(rule); i++) {
+                if (compiled.getRuleSymbol(rule, i) == symbol) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Записывает тело правила из номеров символов в строковом виде.
+     */
+    private String toRuleBody(CompiledGrammar compiled, int[] symbols, int length) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            body.append(compiled.getLexeme(symbols[i]));
+        }
+        return body.toString();
+    }
+
+    /**
+     * Возвращает имена нетерминальных символов, входящих во множество.
+     */
+    private Set<String> toNonTerminalNames(CompiledGrammar compiled, BitSet symbols) {
+        Set<String> result = new HashSet<>();
+        for (int symbol = symbols.nextSetBit(compiled.getTerminalCount());
+             symbol >= 0;
+             symbol = symbols.nextSetBit(symbol + 1)) {
+            result.add(compiled.getName(symbol));
+        }
+        return result;
+    }
+
+    /**
+     * Начинает операцию над грамматикой.
+     * <p>
+     * Операции могут быть вложенными: уведомление наблюдателей
+     * выполняется по завершении внешней операции.
+     */
+    private void beginOperation() {
+        operationDepth++;
+    }
+
+    /**
+     * Завершает операцию над грамматикой и, если она внешняя,
+     * уведомляет наблюдателей о всех накопленных изменениях.
+     */
+    private void endOperation() {
+        operationDepth--;
+        if (operationDepth > 0 || changes.isEmpty()) {
+            return;
+        }
+        Set<GrammarPart> changedParts = Collections.unmodifiableSet(
+                EnumSet.copyOf(changes)
+        );
+        changes.clear();
+        listeners.forEach(listener ->
+                listener.grammarChanged(this, changedParts));
+    }
+
+    /**
+     * Отмечает часть грамматики как изменившуюся в ходе текущей операции.
+     *
+     * @param part Изменившаяся часть грамматики.
+     */
+    private void markChanged(GrammarPart part) {
+        invalidate();
+        changes.add(part);
+    }
+
+    /**
+     * Сбрасывает снимок грамматики перед её изменением.
+     */
+    private void invalidate() {
+        snapshot = null;
+    }
+
+}
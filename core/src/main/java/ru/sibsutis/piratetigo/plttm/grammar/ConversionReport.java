@@ -0,0 +1,23 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Размеры грамматики до и после преобразования.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ConversionReport {
+    private final int ruleCountBefore;
+    private final int nonTerminalCountBefore;
+    private final int ruleCountAfter;
+    private final int nonTerminalCountAfter;
+
+    @Override
+    public String toString() {
+        return "Правил вывода: " + ruleCountBefore + " → " + ruleCountAfter
+                + ", нетерминальных символов: " + nonTerminalCountBefore
+                + " → " + nonTerminalCountAfter;
+    }
+}
@@ -0,0 +1,198 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import java.util.BitSet;
+
+/**
+ * Результаты анализа КС-грамматики: множество аннулируемых символов,
+ * множества FIRST<sub>1</sub> и FOLLOW<sub>1</sub>, форма регулярной
+ * грамматики.
+ * <p>
+ * Множества FIRST и FOLLOW - битовые множества номеров терминальных
+ * символов; множества FOLLOW, кроме того, могут содержать маркер конца
+ * цепочки {@link #getEndMarker()}. Множества вычисляются один раз
+ * итерациями до неподвижной точки над словами битовых множеств.
+ * <p>
+ * Анализ создается снимком грамматики при первом обращении и
+ * разделяется всеми алгоритмами, работающими с этим снимком.
+ * Экземпляр неизменяем: методы возвращают копии множеств.
+ *
+ * @see CompiledGrammar#getAnalysis()
+ */
+public final class GrammarAnalysis {
+
+    private final CompiledGrammar grammar;
+
+    /** Аннулируемые символы. */
+    private final BitSet nullable;
+
+    /** Множества FIRST по порядковым номерам нетерминальных символов. */
+    private final BitSet[] first;
+
+    /** Множества FOLLOW по порядковым номерам нетерминальных символов. */
+    private final BitSet[] follow;
+
+    /** Форма регулярной грамматики. */
+    private final RegularForm regularForm;
+
+    GrammarAnalysis(CompiledGrammar grammar) {
+        this.grammar = grammar;
+        nullable = grammar.nullableSymbols();
+        int count = grammar.getNonTerminalCount();
+        first = new BitSet[count];
+        follow = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            first[i] = new BitSet(grammar.getTerminalCount());
+            follow[i] = new BitSet(grammar.getTerminalCount() + 1);
+        }
+        computeFirst();
+        computeFollow();
+        regularForm = computeRegularForm();
+    }
+
+    /**
+     * Возвращает номер маркера конца цепочки во множествах FOLLOW.
+     */
+    public int getEndMarker() {
+        return grammar.getTerminalCount();
+    }
+
+    /**
+     * Возвращает множество номеров аннулируемых символов.
+     */
+    public BitSet getNullable() {
+        return (BitSet) nullable.clone();
+    }
+
+    /**
+     * Проверяет, что из символа выводится пустая цепочка.
+     *
+     * @param symbol Номер символа.
+     */
+    public boolean isNullable(int symbol) {
+        return nullable.get(symbol);
+    }
+
+    /**
+     * Возвращает множество FIRST символа.
+     *
+     * @param symbol Номер символа.
+     * @return Номера терминальных символов, с которых начинаются
+     * цепочки, выводимые из символа.
+     */
+    public BitSet getFirst(int symbol) {
+        if (grammar.isTerminal(symbol)) {
+            BitSet result = new BitSet(grammar.getTerminalCount());
+            result.set(symbol);
+            return result;
+        }
+        return (BitSet) first[grammar.getNonTerminalIndex(symbol)].clone();
+    }
+
+    /**
+     * Возвращает множество FOLLOW нетерминального символа.
+     *
+     * @param nonTerminal Номер нетерминального символа.
+     * @return Номера терминальных символов, которые могут следовать за
+     * символом в сентенциальных формах, и, возможно, маркер конца цепочки.
+     */
+    public BitSet getFollow(int nonTerminal) {
+        return (BitSet) follow[grammar.getNonTerminalIndex(nonTerminal)].clone();
+    }
+
+    /**
+     * Возвращает форму регулярной грамматики. Грамматика, все правила
+     * которой имеют обе формы, считается праволинейной.
+     */
+    public RegularForm getRegularForm() {
+        return regularForm;
+    }
+
+    /**
+     * Добавляет во множество FIRST части тела правила, начинающейся
+     * с заданной позиции.
+     *
+     * @param rule Номер правила.
+     * @param position Начало части тела правила.
+     * @param target Множество, в которое добавляются номера терминальных
+     *               символов.
+     * @return Признак аннулируемости части тела правила.
+     */
+    public boolean addFirst(int rule, int position, BitSet target) {
+        for (int i = position; i < grammar.getRuleLength(rule); i++) {
+            int symbol = grammar.getRuleSymbol(rule, i);
+            if (grammar.isTerminal(symbol)) {
+                target.set(symbol);
+                return false;
+            }
+            target.or(first[grammar.getNonTerminalIndex(symbol)]);
+            if (!nullable.get(symbol)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void computeFirst() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+                BitSet target = first[grammar.getNonTerminalIndex(grammar.getRuleHead(rule))];
+                int size = target.cardinality();
+                addFirst(rule, 0, target);
+                changed |= target.cardinality() != size;
+            }
+        }
+    }
+
+    private void computeFollow() {
+        if (grammar.getGoal() != CompiledGrammar.NO_SYMBOL) {
+            follow[grammar.getNonTerminalIndex(grammar.getGoal())].set(getEndMarker());
+        }
+        BitSet trailer = new BitSet(grammar.getTerminalCount() + 1);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+                // Тело просматривается справа налево: trailer - множество
+                // символов, которые могут следовать за текущей позицией
+                trailer.clear();
+                trailer.or(follow[grammar.getNonTerminalIndex(grammar.getRuleHead(rule))]);
+                for (int i = grammar.getRuleLength(rule) - 1; i >= 0; i--) {
+                    int symbol = grammar.getRuleSymbol(rule, i);
+                    if (grammar.isTerminal(symbol)) {
+                        trailer.clear();
+                        trailer.set(symbol);
+                        continue;
+                    }
+                    BitSet target = follow[grammar.getNonTerminalIndex(symbol)];
+                    int size = target.cardinality();
+                    target.or(trailer);
+                    changed |= target.cardinality() != size;
+                    if (!nullable.get(symbol)) {
+                        trailer.clear();
+                    }
+                    trailer.or(first[grammar.getNonTerminalIndex(symbol)]);
+                }
+            }
+        }
+    }
+
+    private RegularForm computeRegularForm() {
+        boolean rightLinear = true;
+        boolean leftLinear = true;
+        for (int rule = 0; rule < grammar.getRuleCount(); rule++) {
+            int length = grammar.getRuleLength(rule);
+            for (int i = 0; i < length; i++) {
+                if (!grammar.isTerminal(grammar.getRuleSymbol(rule, i))) {
+                    rightLinear &= i == length - 1;
+                    leftLinear &= i == 0;
+                }
+            }
+        }
+        return rightLinear ? RegularForm.RIGHT_LINEAR
+                : leftLinear ? RegularForm.LEFT_LINEAR
+                : RegularForm.NONE;
+    }
+
+}
@@ -0,0 +1,23 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import java.util.Set;
+
+/**
+ * Наблюдатель изменений КС-грамматики.
+ * <p>
+ * Уведомление поступает один раз по завершении операции над
+ * грамматикой (загрузки, приведения к каноническому виду и т.п.)
+ * и содержит все изменившиеся за время операции части грамматики.
+ */
+@FunctionalInterface
+public interface GrammarChangeListener {
+
+    /**
+     * Обрабатывает изменение грамматики.
+     *
+     * @param grammar Изменившаяся грамматика.
+     * @param parts Изменившиеся части грамматики.
+     */
+    void grammarChanged(ContextFreeGrammar grammar, Set<GrammarPart> parts);
+
+}
@@ -0,0 +1,16 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+/**
+ * Перечисляет составные части КС-грамматики, об изменении
+ * которых уведомляются наблюдатели.
+ */
+public enum GrammarPart {
+    /** Множество терминальных символов. */
+    TERMINALS,
+    /** Множество нетерминальных символов. */
+    NON_TERMINALS,
+    /** Целевой символ. */
+    GOAL,
+    /** Правила вывода. */
+    RULES
+}
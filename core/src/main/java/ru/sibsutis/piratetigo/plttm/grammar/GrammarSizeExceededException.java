@@ -0,0 +1,31 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import lombok.Getter;
+
+/**
+ * Выбрасывается, если ожидаемый размер результата преобразования
+ * грамматики превышает допустимый. Проверка выполняется до построения
+ * новых правил вывода.
+ */
+@Getter
+public class GrammarSizeExceededException extends RuntimeException {
+
+    /** Ожидаемое количество правил вывода. */
+    private final long expectedRuleCount;
+
+    /** Допустимое количество правил вывода. */
+    private final long ruleLimit;
+
+    public GrammarSizeExceededException(long expectedRuleCount, long ruleLimit) {
+        super(
+                "Ожидаемое количество правил вывода " + expectedRuleCount
+                        + " превышает допустимое " + ruleLimit,
+                null,
+                false,
+                false
+        );
+        this.expectedRuleCount = expectedRuleCount;
+        this.ruleLimit = ruleLimit;
+    }
+
+}
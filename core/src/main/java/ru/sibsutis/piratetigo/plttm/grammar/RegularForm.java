@@ -0,0 +1,23 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+/**
+ * Перечисляет формы регулярных (автоматных) грамматик.
+ *
+ * @see GrammarAnalysis#getRegularForm()
+ */
+public enum RegularForm {
+    /**
+     * Праволинейная грамматика: тело каждого правила - цепочка
+     * терминальных символов, за которой может следовать один
+     * нетерминальный символ.
+     */
+    RIGHT_LINEAR,
+    /**
+     * Леволинейная грамматика: тело каждого правила - цепочка
+     * терминальных символов, которой может предшествовать один
+     * нетерминальный символ.
+     */
+    LEFT_LINEAR,
+    /** Грамматика не является ни праволинейной, ни леволинейной. */
+    NONE
+}
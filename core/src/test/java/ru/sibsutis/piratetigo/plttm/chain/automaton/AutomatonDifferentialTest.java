@@ -0,0 +1,255 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение распознавателей конечных автоматов с эталоном: прямым
+ * моделированием недетерминированного автомата по спискам его
+ * переходов.
+ * <p>
+ * Проверяются все цепочки длины не больше {@link #MAX_LENGTH} и
+ * несколько длинных случайных цепочек, которые делятся на части при
+ * параллельном распознавании.
+ */
+class AutomatonDifferentialTest {
+
+    /** Наибольшая длина перечисляемых цепочек. */
+    private static final int MAX_LENGTH = 6;
+
+    /** Количество случайных автоматов. */
+    private static final int RANDOM_AUTOMATA = 100;
+
+    /** Размер части цепочки при параллельном распознавании. */
+    private static final int CHUNK_SIZE = 256;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void randomAutomata() throws IOException {
+        Random random = new Random(23);
+        for (int i = 0; i < RANDOM_AUTOMATA; i++) {
+            Automaton automaton = Automaton.random(random, 1 + random.nextInt(8), 1 + random.nextInt(3));
+            List<String> chains = chains(automaton.alphabet);
+            for (int j = 0; j < 3; j++) {
+                chains.add(randomChain(random, automaton.alphabet, 600 + random.nextInt(600)));
+            }
+            compareEngines(automaton, chains);
+        }
+    }
+
+    /**
+     * Автоматы больше одного слова множества состояний проверяются
+     * только без построения подмножеств.
+     */
+    @Test
+    void wideAutomata() throws IOException {
+        Random random = new Random(29);
+        for (int i = 0; i < 20; i++) {
+            Automaton automaton = Automaton.random(random, 65 + random.nextInt(100), 2);
+            List<String> chains = chains(automaton.alphabet);
+            for (int j = 0; j < 5; j++) {
+                chains.add(randomChain(random, automaton.alphabet, 500));
+            }
+            BitParallelNFA bitParallel = new BitParallelNFA(automaton.nfa);
+            LazyDFA lazy = new LazyDFA(automaton.nfa, 2);
+            for (String chain : chains) {
+                boolean expected = automaton.simulate(chain);
+                assertEquals(expected, bitParallel.recognize(chain), "BitParallelNFA: " + chain);
+                assertEquals(expected, bitParallel.recognize(new StringReader(chain)).isAccepted(),
+                        "BitParallelNFA (поток): " + chain);
+                assertEquals(expected, lazy.recognize(chain), "LazyDFA: " + chain);
+            }
+        }
+    }
+
+    /**
+     * Сравнивает все распознаватели автомата с эталоном.
+     */
+    private static void compareEngines(Automaton automaton, List<String> chains) throws IOException {
+        NFA nfa = automaton.nfa;
+        DFA dfa = nfa.determinize();
+        DFA minimal = dfa.minimize();
+        assertEquals(MinimizationTest.mooreStateCount(dfa), minimal.getStateCount(), "minimize " + automaton);
+        CompiledDFA compiled = CompiledDFA.of(dfa);
+        CompiledDFA compiledMinimal = CompiledDFA.of(minimal);
+        StreamingRecognizer streaming = new StreamingRecognizer(compiled, StandardCharsets.UTF_8, 7);
+        ParallelRecognizer parallel = new ParallelRecognizer(compiled, StandardCharsets.UTF_8, pool, CHUNK_SIZE);
+        LazyDFA lazy = new LazyDFA(nfa, 2);
+        BitParallelNFA bitParallel = new BitParallelNFA(nfa);
+        String name = automaton.toString();
+        for (String chain : chains) {
+            boolean expected = automaton.simulate(chain);
+            String message = name + " '" + abbreviate(chain) + "'";
+            assertEquals(expected, dfa.recognize(chain), "determinize " + message);
+            assertEquals(expected, minimal.recognize(chain), "minimize " + message);
+            assertEquals(expected, compiled.recognize(chain), "CompiledDFA " + message);
+            assertEquals(expected, compiledMinimal.recognize(chain), "CompiledDFA (минимальный) " + message);
+            RecognitionReport report = streaming.recognize(new StringReader(chain));
+            assertEquals(expected, report.isAccepted(), "StreamingRecognizer " + message);
+            RecognitionReport parallelReport = parallel.recognize(chain);
+            assertEquals(expected, parallelReport.isAccepted(), "ParallelRecognizer " + message);
+            assertEquals(report.getFailureOffset(), parallelReport.getFailureOffset(),
+                    "ParallelRecognizer, смещение ошибки " + message);
+            assertEquals(expected, lazy.recognize(chain), "LazyDFA " + message);
+            assertEquals(expected, lazy.recognize(new StringReader(chain)).isAccepted(),
+                    "LazyDFA (поток) " + message);
+            assertEquals(expected, bitParallel.recognize(chain), "BitParallelNFA " + message);
+            assertEquals(expected, bitParallel.recognize(new StringReader(chain)).isAccepted(),
+                    "BitParallelNFA (поток) " + message);
+        }
+    }
+
+    /**
+     * Перечисляет все цепочки длины не больше {@link #MAX_LENGTH} над
+     * алфавитом автомата и посторонним символом.
+     */
+    private static List<String> chains(char[] alphabet) {
+        char[] symbols = Arrays.copyOf(alphabet, alphabet.length + 1);
+        symbols[alphabet.length] = 'z';
+        List<String> result = new ArrayList<>(List.of(""));
+        for (int from = 0; result.get(from).length() < MAX_LENGTH; from++) {
+            for (char symbol : symbols) {
+                result.add(result.get(from) + symbol);
+            }
+        }
+        return result;
+    }
+
+    private static String randomChain(Random random, char[] alphabet, int length) {
+        StringBuilder chain = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            chain.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return chain.toString();
+    }
+
+    private static String abbreviate(String chain) {
+        return chain.length() <= 20 ? chain : chain.substring(0, 20) + "…(" + chain.length() + ")";
+    }
+
+    /**
+     * Недетерминированный автомат вместе со списками переходов, по
+     * которым он моделируется напрямую.
+     */
+    private static final class Automaton {
+
+        private final NFA nfa = new NFA();
+
+        private final char[] alphabet;
+
+        private final List<Map<Character, Set<Integer>>> moves = new ArrayList<>();
+
+        private final List<Set<Integer>> emptyMoves = new ArrayList<>();
+
+        private final Set<Integer> accepting = new HashSet<>();
+
+        private int start = NFA.NO_STATE;
+
+        private Automaton(int stateCount, char[] alphabet) {
+            this.alphabet = alphabet;
+            for (int state = 0; state < stateCount; state++) {
+                nfa.addState("q" + state);
+                moves.add(new HashMap<>());
+                emptyMoves.add(new HashSet<>());
+            }
+        }
+
+        /**
+         * Строит случайный автомат; с небольшой вероятностью без
+         * начального состояния.
+         */
+        static Automaton random(Random random, int stateCount, int symbolCount) {
+            char[] alphabet = new char[symbolCount];
+            for (int i = 0; i < symbolCount; i++) {
+                alphabet[i] = (char) ('a' + i);
+            }
+            Automaton automaton = new Automaton(stateCount, alphabet);
+            if (random.nextInt(20) > 0) {
+                automaton.start = random.nextInt(stateCount);
+                automaton.nfa.setStart(automaton.start);
+            }
+            int transitions = random.nextInt(3 * stateCount + 1);
+            for (int i = 0; i < transitions; i++) {
+                int from = random.nextInt(stateCount);
+                char symbol = alphabet[random.nextInt(symbolCount)];
+                int to = random.nextInt(stateCount);
+                automaton.nfa.addTransition(from, symbol, to);
+                automaton.moves.get(from).computeIfAbsent(symbol, k -> new HashSet<>()).add(to);
+            }
+            int emptyTransitions = random.nextInt(stateCount);
+            for (int i = 0; i < emptyTransitions; i++) {
+                int from = random.nextInt(stateCount);
+                int to = random.nextInt(stateCount);
+                automaton.nfa.addEmptyTransition(from, to);
+                automaton.emptyMoves.get(from).add(to);
+            }
+            for (int state = 0; state < stateCount; state++) {
+                if (random.nextInt(3) == 0) {
+                    automaton.nfa.setAccepting(state, true);
+                    automaton.accepting.add(state);
+                }
+            }
+            return automaton;
+        }
+
+        /**
+         * Моделирует автомат на цепочке множеством текущих состояний.
+         */
+        boolean simulate(String chain) {
+            Set<Integer> current = new HashSet<>();
+            if (start != NFA.NO_STATE) {
+                current.add(start);
+            }
+            current = closure(current);
+            for (char symbol : chain.toCharArray()) {
+                Set<Integer> next = new HashSet<>();
+                for (int state : current) {
+                    next.addAll(moves.get(state).getOrDefault(symbol, Set.of()));
+                }
+                current = closure(next);
+            }
+            return !Collections.disjoint(current, accepting);
+        }
+
+        private Set<Integer> closure(Set<Integer> states) {
+            Set<Integer> result = new HashSet<>(states);
+            Deque<Integer> pending = new ArrayDeque<>(states);
+            while (!pending.isEmpty()) {
+                for (int target : emptyMoves.get(pending.pop())) {
+                    if (result.add(target)) {
+                        pending.push(target);
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "start=" + start + " accepting=" + accepting
+                    + " moves=" + moves + " λ=" + emptyMoves;
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Моделирование НКА над битовыми множествами на автоматах, построение
+ * подмножеств для которых экспоненциально.
+ */
+class BitParallelNFATest {
+
+    /**
+     * Автомат, допускающий цепочки над {@code a}, {@code b}, в которых
+     * k-й символ с конца - {@code a}: его минимальный ДКА содержит
+     * 2<sup>k</sup> состояний.
+     */
+    static NFA kthFromEnd(int k) {
+        NFA nfa = new NFA();
+        for (int state = 0; state <= k; state++) {
+            nfa.addState("q" + state);
+        }
+        nfa.setStart(0);
+        nfa.setAccepting(k, true);
+        nfa.addTransition(0, 'a', 0);
+        nfa.addTransition(0, 'b', 0);
+        nfa.addTransition(0, 'a', 1);
+        for (int state = 1; state < k; state++) {
+            nfa.addTransition(state, 'a', state + 1);
+            nfa.addTransition(state, 'b', state + 1);
+        }
+        return nfa;
+    }
+
+    /**
+     * Маски с группами из восьми состояний, а после превышения
+     * {@link BitParallelNFA#MAX_MASK_WORDS} - из четырех.
+     */
+    @Test
+    void wideAutomata() throws IOException {
+        Random random = new Random(59);
+        int[] sizes = {3, 63, 64, 999, 1499};
+        long[] maskWords = {2 * 256, 2 * 8 * 256, 2 * 9 * 256 * 2,
+                2 * 125 * 256 * 16, 2 * 375 * 16 * 24};
+        for (int i = 0; i < sizes.length; i++) {
+            int k = sizes[i];
+            BitParallelNFA nfa = new BitParallelNFA(kthFromEnd(k));
+            assertEquals(maskWords[i], nfa.getMaskWords(), "k = " + k);
+            for (int j = 0; j < 20; j++) {
+                StringBuilder chain = new StringBuilder();
+                for (int length = random.nextInt(2 * k + 2); length > 0; length--) {
+                    chain.append(random.nextBoolean() ? 'a' : 'b');
+                }
+                boolean expected = chain.length() >= k && chain.charAt(chain.length() - k) == 'a';
+                assertEquals(expected, nfa.recognize(chain), "k = " + k + ": " + chain);
+                RecognitionReport report = nfa.recognize(new StringReader(chain.toString()));
+                assertEquals(expected, report.isAccepted(), "k = " + k + ": " + chain);
+                assertEquals(chain.length(), report.getLength());
+            }
+        }
+    }
+
+    @Test
+    void maskLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new BitParallelNFA(kthFromEnd(12_000)));
+    }
+
+    /**
+     * Пустое множество состояний после перехода по символу алфавита
+     * отличается от символа вне алфавита только проверкой
+     * {@link BitParallelNFA#isSymbol(char)}.
+     */
+    @Test
+    void foreignSymbols() {
+        BitParallelNFA nfa = new BitParallelNFA(kthFromEnd(2));
+        assertTrue(nfa.isSymbol('a'));
+        assertTrue(nfa.isSymbol('b'));
+        assertFalse(nfa.isSymbol('c'));
+        assertFalse(nfa.isSymbol('\u0000'));
+        assertFalse(nfa.isSymbol('ж'));
+        long[] set = nfa.getStart();
+        assertTrue(nfa.next(set, 'a', set));
+        assertEquals("{q0,q1}", nfa.getStateName(set));
+        assertFalse(nfa.next(set, 'c', set));
+        assertNull(nfa.getStateName(set));
+
+        NFA withoutStart = new NFA();
+        withoutStart.addState("q0");
+        withoutStart.addTransition(0, 'a', 0);
+        BitParallelNFA empty = new BitParallelNFA(withoutStart);
+        set = empty.getStart();
+        assertTrue(empty.isSymbol('a'));
+        assertFalse(empty.next(set, 'a', set));
+    }
+
+}
@@ -0,0 +1,129 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Компиляция конечных автоматов в таблицу переходов: скомпилированный
+ * автомат должен выполнять те же переходы, что и исходный.
+ */
+class CompiledDFATest {
+
+    /** Символы проверяемых цепочек, в том числе не из алфавита. */
+    private static final String SYMBOLS = "abcж\u0000";
+
+    @Test
+    void transitionMaps() {
+        Random random = new Random(41);
+        for (int i = 0; i < 200; i++) {
+            Map<String, Map<Character, String>> transitions = randomTransitions(random);
+            Set<String> endStates = new HashSet<>();
+            for (String state : transitions.keySet()) {
+                if (random.nextInt(3) == 0) {
+                    endStates.add(state);
+                }
+            }
+            DFA dfa = DFA.of("s0", endStates, transitions);
+            CompiledDFA compiled = CompiledDFA.of("s0", endStates, transitions);
+            assertEquals(CompiledDFA.of(dfa), compiled, transitions.toString());
+            assertEquals(CompiledDFA.of(dfa).hashCode(), compiled.hashCode());
+            assertEquals(dfa.getStateCount() + 1, compiled.getStateCount());
+            for (String chain : chains()) {
+                assertEquals(dfa.recognize(chain), compiled.recognize(chain),
+                        transitions + " '" + chain + "'");
+                assertEquals(name(dfa, chain), compiled.getStateName(
+                        compiled.run(compiled.getStart(), chain, 0, chain.length())),
+                        transitions + " '" + chain + "'");
+            }
+        }
+    }
+
+    /**
+     * Пустое имя целевого состояния означает отсутствующий переход, а
+     * символы с одинаковыми столбцами таблицы объединяются в один
+     * класс.
+     */
+    @Test
+    void blankTargetsAndClasses() {
+        Map<String, Map<Character, String>> transitions = new HashMap<>();
+        transitions.put("p", new HashMap<>(Map.of('a', "q", 'b', "q", 'c', " ")));
+        transitions.put("q", new HashMap<>(Map.of('a', "p", 'b', "p", 'c', "")));
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), transitions);
+        assertEquals(3, dfa.getStateCount());
+        assertEquals(3, dfa.getClassCount());
+        assertEquals('c' + 1, dfa.getSymbolLimit());
+        assertTrue(dfa.recognize("abba"));
+        assertFalse(dfa.recognize("abc"));
+        assertFalse(dfa.recognize("a"));
+        assertEquals(CompiledDFA.DEAD, dfa.next(dfa.getStart(), 'c'));
+        assertEquals(CompiledDFA.DEAD, dfa.next(dfa.getStart(), 'ж'));
+        assertNull(dfa.getStateName(CompiledDFA.DEAD));
+        assertEquals("p", dfa.getStateName(dfa.getStart()));
+    }
+
+    /**
+     * Переходы по частям цепочки, заданной строкой или массивом
+     * символов, совпадают с посимвольными.
+     */
+    @Test
+    void runRanges() {
+        Random random = new Random(43);
+        CompiledDFA dfa = CompiledDFA.of("s0", Set.of("s0"), randomTransitions(random));
+        for (String chain : chains()) {
+            for (int from = 0; from <= chain.length(); from++) {
+                for (int to = from; to <= chain.length(); to++) {
+                    int expected = dfa.getStart();
+                    for (int i = from; i < to && expected != CompiledDFA.DEAD; i++) {
+                        expected = dfa.next(expected, chain.charAt(i));
+                    }
+                    assertEquals(expected, dfa.run(dfa.getStart(), chain, from, to));
+                    assertEquals(expected, dfa.run(dfa.getStart(), chain.toCharArray(), from, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * Имя состояния, в котором остановился автомат, или {@code null}.
+     */
+    private static String name(DFA dfa, String chain) {
+        int state = dfa.getStart();
+        for (int i = 0; i < chain.length() && state != DFA.DEAD; i++) {
+            state = dfa.getTarget(state, chain.charAt(i));
+        }
+        return state == DFA.DEAD ? null : dfa.getStateName(state);
+    }
+
+    /**
+     * Строит случайную частичную функцию переходов над символами
+     * {@code a}, {@code b}, {@code c}, {@code ж}.
+     */
+    private static Map<String, Map<Character, String>> randomTransitions(Random random) {
+        int stateCount = 1 + random.nextInt(6);
+        Map<String, Map<Character, String>> transitions = new LinkedHashMap<>();
+        for (int state = 0; state < stateCount; state++) {
+            Map<Character, String> cases = new LinkedHashMap<>();
+            for (char symbol : "abcж".toCharArray()) {
+                if (random.nextInt(4) > 0) {
+                    cases.put(symbol, "s" + random.nextInt(stateCount));
+                }
+            }
+            transitions.put("s" + state, cases);
+        }
+        return transitions;
+    }
+
+    private static List<String> chains() {
+        List<String> result = new ArrayList<>(List.of(""));
+        for (int from = 0; result.get(from).length() < 4; from++) {
+            for (char symbol : SYMBOLS.toCharArray()) {
+                result.add(result.get(from) + symbol);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,262 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+import ru.sibsutis.piratetigo.plttm.chain.parser.LL1Parser;
+import ru.sibsutis.piratetigo.plttm.common.Tools;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarLanguage;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Автоматы с магазинной памятью, построенные по КС-грамматикам:
+ * распознаваемый язык сравнивается с эталоном на всех цепочках длины
+ * не больше {@link #MAX_LENGTH}.
+ */
+class GrammarPDATest {
+
+    /** Наибольшая длина проверяемых цепочек. */
+    private static final int MAX_LENGTH = 6;
+
+    /** Посторонний символ проверяемых цепочек. */
+    private static final char FOREIGN = 'z';
+
+    /** Наибольшее количество тактов работы автомата на цепочке. */
+    private static final int MAX_STEPS = 10_000;
+
+    @Test
+    void deterministicForLL1Grammars() {
+        String[][] grammars = {
+                {"ab", "S;A;", "S→aAb", "A→aAb", "A→λ"},
+                {"i+()", "E;X;T;", "E→TX", "X→+TX", "X→λ", "T→(E)", "T→i"},
+                {"ab", "S;", "S→aS", "S→b"},
+                {"ab", "S;", "S→λ"},
+        };
+        for (String[] description : grammars) {
+            ContextFreeGrammar grammar = grammar(description);
+            GrammarPDA pda = GrammarPDA.of(grammar);
+            String name = grammar.rulesAsList().toString();
+            assertTrue(new LL1Parser(grammar).isLL1(), name);
+            assertTrue(pda.isDeterministic(), name);
+            Set<String> language = GrammarLanguage.of(grammar, MAX_LENGTH);
+            for (String chain : chains(pda)) {
+                assertEquals(language.contains(chain), runDeterministic(pda, chain),
+                        name + ": '" + chain + "'");
+            }
+        }
+    }
+
+    /**
+     * Для грамматик без λ-правил недетерминированный автомат
+     * моделируется поиском в ширину: каждый символ магазина над дном
+     * выводит хотя бы один символ цепочки.
+     */
+    @Test
+    void nondeterministicForOtherGrammars() {
+        String[][] grammars = {
+                {"ab", "S;", "S→Sa", "S→b"},
+                {"ab", "S;", "S→aSb", "S→ab"},
+                {"ab", "S;A;", "S→AS", "S→A", "A→a", "A→b", "A→ab"},
+        };
+        for (String[] description : grammars) {
+            ContextFreeGrammar grammar = grammar(description);
+            GrammarPDA pda = GrammarPDA.of(grammar);
+            String name = grammar.rulesAsList().toString();
+            assertFalse(new LL1Parser(grammar).isLL1(), name);
+            assertFalse(pda.isDeterministic(), name);
+            assertEquals(List.of(GrammarPDA.START_STATE, "q", GrammarPDA.END_STATE),
+                    new ArrayList<>(pda.getStates()), name);
+            assertEquals(grammar.compile().getRuleCount() + pda.getAlphabet().size() + 2,
+                    pda.getRuleCount(), name);
+            Set<String> language = GrammarLanguage.of(grammar, MAX_LENGTH);
+            for (String chain : chains(pda)) {
+                assertEquals(language.contains(chain), runNondeterministic(pda, chain),
+                        name + ": '" + chain + "'");
+            }
+        }
+    }
+
+    @Test
+    void stackSymbolsAreDistinct() {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals("ab");
+        grammar.setNonTerminals("S;Sum;A;");
+        grammar.setGoal("S");
+        grammar.addRule("S→<Sum>");
+        grammar.addRule("Sum→a<A>");
+        grammar.addRule("A→b");
+        GrammarPDA pda = GrammarPDA.of(grammar);
+        assertEquals(Set.of('a', 'b', 'S', 'A', 'B', '⊥'), pda.getStackAlphabet());
+        assertEquals('⊥', pda.getStartStackSymbol());
+        assertTrue(runDeterministic(pda, "ab"));
+        assertFalse(runDeterministic(pda, "a"));
+    }
+
+    @Test
+    void goalIsRequired() {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals("a");
+        grammar.setNonTerminals("S;");
+        assertThrows(IllegalArgumentException.class, () -> GrammarPDA.of(grammar));
+    }
+
+    /**
+     * Запускает детерминированный автомат так же, как распознаватель
+     * ДМПА: правило, читающее символ цепочки, предпочитается λ-правилу.
+     * Проверяет, что в каждой конфигурации применимо не больше одного
+     * правила.
+     */
+    private static boolean runDeterministic(GrammarPDA pda, String chain) {
+        String state = GrammarPDA.START_STATE;
+        Deque<Character> stack = new ArrayDeque<>(List.of(pda.getStartStackSymbol()));
+        int position = 0;
+        for (int step = 0; !stack.isEmpty(); step++) {
+            assertTrue(step < MAX_STEPS, "Автомат зациклился на '" + chain + "'");
+            Character symbol = position < chain.length() ? chain.charAt(position) : Tools.LAMBDA;
+            if (!symbol.equals(Tools.LAMBDA) && !pda.getAlphabet().contains(symbol)) {
+                return false;
+            }
+            List<DPDARule> reading = new ArrayList<>();
+            List<DPDARule> empty = new ArrayList<>();
+            for (DPDARule rule : pda.getRules()) {
+                if (rule.getFromState().equals(state) && rule.getFromStackTop().equals(stack.peek())) {
+                    if (rule.getChainSymbol().equals(Tools.LAMBDA)) {
+                        empty.add(rule);
+                    } else if (rule.getChainSymbol().equals(symbol)) {
+                        reading.add(rule);
+                    }
+                }
+            }
+            assertTrue(reading.size() <= 1 && empty.size() <= 1,
+                    "Неоднозначный переход " + reading + empty);
+            List<DPDARule> applicable = reading.isEmpty() ? empty : reading;
+            if (applicable.isEmpty()) {
+                return false;
+            }
+            DPDARule rule = applicable.get(0);
+            if (!rule.getChainSymbol().equals(Tools.LAMBDA)) {
+                position++;
+            }
+            replaceTop(stack, rule.getToStackTop());
+            state = rule.getToState();
+        }
+        return pda.getEndStates().contains(state) && position == chain.length();
+    }
+
+    /**
+     * Моделирует недетерминированный автомат поиском в ширину по
+     * конфигурациям. Конфигурации, в магазине которых символов над дном
+     * больше, чем непрочитанных символов цепочки, отбрасываются.
+     */
+    private static boolean runNondeterministic(GrammarPDA pda, String chain) {
+        Deque<Configuration> pending = new ArrayDeque<>();
+        Set<Configuration> visited = new HashSet<>();
+        Configuration start = new Configuration(GrammarPDA.START_STATE, 0,
+                String.valueOf(pda.getStartStackSymbol()));
+        pending.add(start);
+        visited.add(start);
+        while (!pending.isEmpty()) {
+            Configuration current = pending.poll();
+            if (current.stack.isEmpty()) {
+                if (pda.getEndStates().contains(current.state) && current.position == chain.length()) {
+                    return true;
+                }
+                continue;
+            }
+            for (DPDARule rule : pda.getRules()) {
+                boolean reads = !rule.getChainSymbol().equals(Tools.LAMBDA);
+                if (!rule.getFromState().equals(current.state)
+                        || rule.getFromStackTop() != current.stack.charAt(0)
+                        || reads && (current.position == chain.length()
+                        || rule.getChainSymbol() != chain.charAt(current.position))) {
+                    continue;
+                }
+                Deque<Character> stack = new ArrayDeque<>();
+                for (char symbol : current.stack.toCharArray()) {
+                    stack.add(symbol);
+                }
+                replaceTop(stack, rule.getToStackTop());
+                StringBuilder next = new StringBuilder();
+                stack.forEach(next::append);
+                int position = current.position + (reads ? 1 : 0);
+                if (next.length() - 1 > chain.length() - position) {
+                    continue;
+                }
+                Configuration configuration = new Configuration(rule.getToState(), position, next.toString());
+                if (visited.add(configuration)) {
+                    pending.add(configuration);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Заменяет вершину магазина цепочкой символов, первый символ
+     * которой становится новой вершиной.
+     */
+    private static void replaceTop(Deque<Character> stack, String top) {
+        stack.pop();
+        if (!top.equals(Tools.LAMBDA.toString())) {
+            for (int i = top.length() - 1; i >= 0; i--) {
+                stack.push(top.charAt(i));
+            }
+        }
+    }
+
+    private static List<String> chains(GrammarPDA pda) {
+        List<Character> symbols = new ArrayList<>(pda.getAlphabet());
+        symbols.add(FOREIGN);
+        return GrammarLanguage.chains(symbols, MAX_LENGTH);
+    }
+
+    private static ContextFreeGrammar grammar(String... description) {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals(description[0]);
+        grammar.setNonTerminals(description[1]);
+        grammar.setGoal(description[1].substring(0, 1));
+        for (int i = 2; i < description.length; i++) {
+            grammar.addRule(description[i]);
+        }
+        return grammar;
+    }
+
+    /**
+     * Конфигурация автомата: состояние, количество прочитанных символов
+     * цепочки и содержимое магазина начиная с вершины.
+     */
+    private static final class Configuration {
+
+        private final String state;
+
+        private final int position;
+
+        private final String stack;
+
+        private Configuration(String state, int position, String stack) {
+            this.state = state;
+            this.position = position;
+            this.stack = stack;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Configuration)) {
+                return false;
+            }
+            Configuration configuration = (Configuration) other;
+            return state.equals(configuration.state)
+                    && position == configuration.position
+                    && stack.equals(configuration.stack);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(state, position, stack);
+        }
+
+    }
+
+}
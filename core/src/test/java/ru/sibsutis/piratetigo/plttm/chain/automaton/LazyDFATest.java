@@ -0,0 +1,99 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.sibsutis.piratetigo.plttm.chain.automaton.BitParallelNFATest.kthFromEnd;
+
+/**
+ * Ленивое построение подмножеств с ограниченным кешем состояний.
+ */
+class LazyDFATest {
+
+    /**
+     * Автомат с 2<sup>20</sup> состояниями после построения подмножеств
+     * проверяется с кешем из 16 состояний: кеш очищается, а на
+     * случайных цепочках проверка переходит к моделированию НКА.
+     */
+    @Test
+    void boundedCache() throws IOException {
+        int k = 20;
+        LazyDFA dfa = new LazyDFA(kthFromEnd(k), 16);
+        Random random = new Random(61);
+        for (int i = 0; i < 30; i++) {
+            StringBuilder chain = new StringBuilder();
+            for (int length = random.nextInt(3000); length > 0; length--) {
+                chain.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            boolean expected = chain.length() >= k && chain.charAt(chain.length() - k) == 'a';
+            assertEquals(expected, dfa.recognize(chain), chain.toString());
+            assertEquals(expected, dfa.recognize(new StringReader(chain.toString())).isAccepted(),
+                    chain.toString());
+            assertTrue(dfa.getCachedStateCount() <= 16);
+        }
+        assertTrue(dfa.getFlushCount() > 0);
+        assertTrue(dfa.getFallbackCount() > 0);
+    }
+
+    /**
+     * Если все состояния помещаются в кеш, повторные проверки не
+     * строят новых состояний.
+     */
+    @Test
+    void cachedStates() {
+        LazyDFA dfa = new LazyDFA(kthFromEnd(3));
+        List<String> chains = new ArrayList<>(List.of(""));
+        for (int from = 0; chains.get(from).length() < 8; from++) {
+            chains.add(chains.get(from) + 'a');
+            chains.add(chains.get(from) + 'b');
+        }
+        for (String chain : chains) {
+            boolean expected = chain.length() >= 3 && chain.charAt(chain.length() - 3) == 'a';
+            assertEquals(expected, dfa.recognize(chain), chain);
+        }
+        assertEquals(8, dfa.getCachedStateCount());
+        for (String chain : chains) {
+            dfa.recognize(chain);
+        }
+        assertEquals(8, dfa.getCachedStateCount());
+        assertEquals(0, dfa.getFlushCount());
+        assertEquals(0, dfa.getFallbackCount());
+    }
+
+    /**
+     * Символ вне алфавита отличается от символа без перехода только
+     * проверкой {@link LazyDFA#isSymbol(char)}; смещение ошибки в
+     * потоке - позиция символа.
+     */
+    @Test
+    void foreignSymbols() throws IOException {
+        LazyDFA dfa = new LazyDFA(kthFromEnd(2));
+        assertTrue(dfa.isSymbol('a'));
+        assertFalse(dfa.isSymbol('c'));
+        assertFalse(dfa.isSymbol('ж'));
+        int start = dfa.getStart();
+        assertEquals("{q0}", dfa.getStateName(start));
+        assertEquals(LazyDFA.DEAD, dfa.next(start, 'c'));
+        assertNull(dfa.getStateName(LazyDFA.DEAD));
+        RecognitionReport report = dfa.recognize(new StringReader("abbacab"));
+        assertFalse(report.isAccepted());
+        assertEquals(4, report.getFailureOffset());
+
+        NFA withoutStart = new NFA();
+        withoutStart.addState("q0");
+        withoutStart.addTransition(0, 'a', 0);
+        LazyDFA empty = new LazyDFA(withoutStart);
+        assertTrue(empty.isSymbol('a'));
+        assertEquals(LazyDFA.DEAD, empty.next(empty.getStart(), 'a'));
+    }
+
+    @Test
+    void cacheSizeLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new LazyDFA(kthFromEnd(2), 1));
+    }
+
+}
@@ -0,0 +1,168 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Минимизация конечных автоматов: количество состояний сравнивается с
+ * эталоном, вычисленным разбиением Мура, а язык - на всех цепочках
+ * длины не больше {@link #MAX_LENGTH}.
+ */
+class MinimizationTest {
+
+    /** Наибольшая длина проверяемых цепочек. */
+    private static final int MAX_LENGTH = 6;
+
+    @Test
+    void randomAutomata() {
+        Random random = new Random(47);
+        for (int i = 0; i < 300; i++) {
+            int stateCount = 1 + random.nextInt(10);
+            Map<String, Map<Character, String>> transitions = new LinkedHashMap<>();
+            Set<String> endStates = new HashSet<>();
+            for (int state = 0; state < stateCount; state++) {
+                Map<Character, String> cases = new LinkedHashMap<>();
+                for (char symbol : "ab".toCharArray()) {
+                    if (random.nextInt(5) > 0) {
+                        cases.put(symbol, "s" + random.nextInt(stateCount));
+                    }
+                }
+                transitions.put("s" + state, cases);
+                if (random.nextInt(3) == 0) {
+                    endStates.add("s" + state);
+                }
+            }
+            checkMinimal(DFA.of("s0", endStates, transitions), transitions.toString());
+        }
+    }
+
+    @Test
+    void determinizedAutomata() {
+        Random random = new Random(53);
+        for (int i = 0; i < 100; i++) {
+            NFA nfa = new NFA();
+            int stateCount = 1 + random.nextInt(6);
+            for (int state = 0; state < stateCount; state++) {
+                nfa.addState("q" + state);
+                nfa.setAccepting(state, random.nextInt(3) == 0);
+            }
+            nfa.setStart(0);
+            for (int j = random.nextInt(3 * stateCount); j >= 0; j--) {
+                nfa.addTransition(random.nextInt(stateCount), (char) ('a' + random.nextInt(2)),
+                        random.nextInt(stateCount));
+            }
+            checkMinimal(nfa.determinize(), "НКА " + i);
+        }
+    }
+
+    /**
+     * Автомат, в котором две пары эквивалентных состояний различаются
+     * только на втором шаге, и недостижимое состояние.
+     */
+    @Test
+    void knownAutomaton() {
+        Map<String, Map<Character, String>> transitions = new LinkedHashMap<>();
+        transitions.put("A", Map.of('a', "B", 'b', "C"));
+        transitions.put("B", Map.of('a', "D", 'b', "E"));
+        transitions.put("C", Map.of('a', "D", 'b', "E"));
+        transitions.put("D", Map.of('a', "D", 'b', "D"));
+        transitions.put("E", Map.of('a', "E", 'b', "E"));
+        transitions.put("U", Map.of('a', "A"));
+        DFA minimal = DFA.of("A", Set.of("D", "E"), transitions).minimize();
+        assertEquals(3, minimal.getStateCount());
+        MinimizationReport report = minimal.getMinimizationReport();
+        assertEquals(6, report.getStateCountBefore());
+        assertEquals(1, report.getUnreachableCount());
+        assertEquals(3, report.getStateCountAfter());
+        assertEquals(Set.of("B", "C"), minimal.getSourceStates(minimal.getTarget(minimal.getStart(), 'a')));
+        assertEquals(Set.of("D", "E"), minimal.getSourceStates(
+                minimal.getTarget(minimal.getTarget(minimal.getStart(), 'a'), 'b')));
+    }
+
+    private static void checkMinimal(DFA dfa, String name) {
+        DFA minimal = dfa.minimize();
+        assertEquals(mooreStateCount(dfa), minimal.getStateCount(), name);
+        assertEquals(minimal.getStateCount(), minimal.minimize().getStateCount(), name);
+        MinimizationReport report = minimal.getMinimizationReport();
+        assertEquals(dfa.getStateCount(), report.getStateCountBefore(), name);
+        assertEquals(minimal.getStateCount(), report.getStateCountAfter(), name);
+        assertEquals(dfa.getStateCount() - reachable(dfa).size(), report.getUnreachableCount(), name);
+        Set<String> sources = new HashSet<>();
+        for (int state = 0; state < minimal.getStateCount(); state++) {
+            for (String source : minimal.getSourceStates(state)) {
+                assertTrue(sources.add(source), name + ": " + source + " в нескольких состояниях");
+            }
+        }
+        List<String> chains = new ArrayList<>(List.of(""));
+        for (int from = 0; chains.get(from).length() < MAX_LENGTH; from++) {
+            for (char symbol : "abc".toCharArray()) {
+                chains.add(chains.get(from) + symbol);
+            }
+        }
+        for (String chain : chains) {
+            assertEquals(dfa.recognize(chain), minimal.recognize(chain), name + ": '" + chain + "'");
+        }
+    }
+
+    /**
+     * Вычисляет количество состояний минимального автомата разбиением
+     * Мура: достижимые состояния, дополненные тупиковым, разбиваются
+     * на конечные и прочие, и разбиение уточняется по классам целевых
+     * состояний, пока оно меняется. Класс состояний, из которых
+     * недостижимы конечные, не считается, но начальное состояние
+     * остается всегда.
+     */
+    static int mooreStateCount(DFA dfa) {
+        List<Integer> states = reachable(dfa);
+        char[] alphabet = dfa.getAlphabet();
+        Map<Integer, Integer> classes = new HashMap<>();
+        classes.put(DFA.DEAD, 0);
+        for (int state : states) {
+            classes.put(state, dfa.isAccepting(state) ? 1 : 0);
+        }
+        int classCount = 0;
+        while (true) {
+            Map<List<Integer>, Integer> signatures = new HashMap<>();
+            Map<Integer, Integer> refined = new HashMap<>();
+            List<Integer> all = new ArrayList<>(states);
+            all.add(DFA.DEAD);
+            for (int state : all) {
+                List<Integer> signature = new ArrayList<>();
+                signature.add(classes.get(state));
+                for (char symbol : alphabet) {
+                    signature.add(classes.get(state == DFA.DEAD ? DFA.DEAD : dfa.getTarget(state, symbol)));
+                }
+                refined.put(state, signatures.computeIfAbsent(signature, key -> signatures.size()));
+            }
+            classes = refined;
+            if (signatures.size() == classCount) {
+                break;
+            }
+            classCount = signatures.size();
+        }
+        int dead = classes.get(DFA.DEAD);
+        boolean startDead = classes.get(dfa.getStart()) == dead;
+        return startDead ? 1 : classCount - 1;
+    }
+
+    /**
+     * Возвращает состояния, достижимые из начального.
+     */
+    private static List<Integer> reachable(DFA dfa) {
+        List<Integer> result = new ArrayList<>(List.of(dfa.getStart()));
+        Set<Integer> seen = new HashSet<>(result);
+        for (int i = 0; i < result.size(); i++) {
+            for (char symbol : dfa.getAlphabet()) {
+                int target = dfa.getTarget(result.get(i), symbol);
+                if (target != DFA.DEAD && seen.add(target)) {
+                    result.add(target);
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,179 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReports.*;
+
+/**
+ * Параллельная проверка цепочек: результат, включая смещение ошибки,
+ * должен совпадать с результатом посимвольных переходов автомата
+ * независимо от деления цепочки на части и окна файла.
+ */
+class ParallelRecognizerTest {
+
+    /** Наименьший допустимый размер части цепочки. */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Счетчик остатка от деления количества символов {@code a} на 5;
+     * символ {@code b} после символа {@code c} не допускается.
+     */
+    private static final Map<String, Map<Character, String>> COUNTER = Map.of(
+            "0", Map.of('a', "1", 'b', "0", 'c', "c0"),
+            "1", Map.of('a', "2", 'b', "1", 'c', "c1"),
+            "2", Map.of('a', "3", 'b', "2"),
+            "3", Map.of('a', "4", 'b', "3"),
+            "4", Map.of('a', "0", 'b', "4"),
+            "c0", Map.of('a', "1", 'c', "c0"),
+            "c1", Map.of('a', "2", 'c', "c1"));
+
+    /** Автомат с символом вне ASCII: файлы проверяются последовательно. */
+    private static final Map<String, Map<Character, String>> CYRILLIC = Map.of(
+            "p", Map.of('a', "p", 'ж', "q"),
+            "q", Map.of('a', "p"));
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void chains() {
+        CompiledDFA dfa = CompiledDFA.of("0", Set.of("0", "c0"), COUNTER);
+        for (int chunkSize : new int[]{CHUNK_SIZE, 300, 1000}) {
+            ParallelRecognizer recognizer = new ParallelRecognizer(dfa, UTF_8, pool, chunkSize);
+            for (String chain : chains(COUNTER, "0", "abcz")) {
+                assertReport(reference(dfa, chain), recognizer.recognize(chain),
+                        "'" + abbreviate(chain) + "', часть " + chunkSize);
+            }
+        }
+    }
+
+    /**
+     * Если предполагаемых состояний больше, чем потоков в пуле, цепочка
+     * проверяется последовательно с тем же результатом.
+     */
+    @Test
+    void sequentialFallback() {
+        CompiledDFA dfa = CompiledDFA.of("0", Set.of("0", "c0"), COUNTER);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            ParallelRecognizer recognizer = new ParallelRecognizer(dfa, UTF_8, single, CHUNK_SIZE);
+            for (String chain : chains(COUNTER, "0", "abcz")) {
+                assertReport(reference(dfa, chain), recognizer.recognize(chain),
+                        "'" + abbreviate(chain) + "'");
+            }
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    /**
+     * Области файла проверяются по окнам, которые короче, длиннее или
+     * не кратны части цепочки.
+     */
+    @Test
+    void files() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        CompiledDFA dfa = CompiledDFA.of("0", Set.of("0", "c0"), COUNTER);
+        for (String chain : chains(COUNTER, "0", "abcжz")) {
+            byte[] content = chain.getBytes(UTF_8);
+            RecognitionReport expected = reference(dfa, new String(content, ISO_8859_1));
+            Files.write(file, content);
+            assertReport(expected, new ParallelRecognizer(dfa, UTF_8, pool, CHUNK_SIZE).recognize(file),
+                    "'" + abbreviate(chain) + "'");
+            Files.write(file, concat(new byte[]{'c', 'c'}, content, new byte[]{'z', '\n'}));
+            for (long window : new long[]{100, CHUNK_SIZE, 700, 5000}) {
+                ParallelRecognizer recognizer = new ParallelRecognizer(dfa, UTF_8, pool, CHUNK_SIZE, window);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    assertReport(expected, recognizer.recognize(channel, 2, content.length),
+                            "'" + abbreviate(chain) + "', окно " + window);
+                    assertEquals(0, channel.position());
+                }
+            }
+        }
+    }
+
+    @Test
+    void decodedFiles() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), CYRILLIC);
+        ParallelRecognizer recognizer = new ParallelRecognizer(dfa, UTF_8, pool, CHUNK_SIZE);
+        for (String chain : chains(CYRILLIC, "p", "aжz")) {
+            Files.writeString(file, chain, UTF_8);
+            assertReport(reference(dfa, chain), recognizer.recognize(file), "'" + abbreviate(chain) + "'");
+        }
+    }
+
+    @Test
+    void invalidArguments() throws IOException {
+        CompiledDFA dfa = CompiledDFA.of("0", Set.of("0"), COUNTER);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelRecognizer(dfa, UTF_8, pool, CHUNK_SIZE - 1));
+        Path file = directory.resolve("chain.txt");
+        Files.writeString(file, "ab");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ParallelRecognizer recognizer = new ParallelRecognizer(dfa, UTF_8, pool, CHUNK_SIZE);
+            assertThrows(IllegalArgumentException.class, () -> recognizer.recognize(channel, -1, 1));
+        }
+    }
+
+    /**
+     * Цепочки разной длины, в том числе короче одной части и с ошибкой
+     * вблизи границ частей.
+     */
+    private static List<String> chains(Map<String, Map<Character, String>> transitions,
+                                       String start, String symbols) {
+        Random random = new Random(31);
+        List<String> result = new ArrayList<>();
+        for (int length : new int[]{0, 1, 255, 256, 257, 511, 512, 513, 1000}) {
+            result.add(randomChain(random, transitions, start, symbols, length));
+        }
+        for (int i = 0; i < 40; i++) {
+            result.add(randomChain(random, transitions, start, symbols, random.nextInt(5000)));
+        }
+        return result;
+    }
+
+    private static String abbreviate(String chain) {
+        return chain.length() <= 20 ? chain : chain.substring(0, 20) + "…(" + chain.length() + ")";
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+}
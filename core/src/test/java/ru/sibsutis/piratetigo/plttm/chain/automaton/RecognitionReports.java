@@ -0,0 +1,66 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Эталон для проверки потоковых распознавателей: результат проверки
+ * цепочки посимвольными переходами автомата.
+ */
+final class RecognitionReports {
+
+    private RecognitionReports() {
+    }
+
+    /**
+     * Проверяет цепочку посимвольными переходами автомата.
+     *
+     * @param dfa Скомпилированный автомат.
+     * @param chain Цепочка.
+     */
+    static RecognitionReport reference(CompiledDFA dfa, CharSequence chain) {
+        int state = dfa.getStart();
+        for (int i = 0; i < chain.length(); i++) {
+            state = dfa.next(state, chain.charAt(i));
+            if (state == CompiledDFA.DEAD) {
+                return RecognitionReport.dead(i);
+            }
+        }
+        return RecognitionReport.finished(dfa, state, chain.length());
+    }
+
+    static void assertReport(RecognitionReport expected, RecognitionReport actual, String message) {
+        assertEquals(expected.isAccepted(), actual.isAccepted(), message);
+        assertEquals(expected.getLength(), actual.getLength(), message);
+        assertEquals(expected.getFailureOffset(), actual.getFailureOffset(), message);
+        assertEquals(expected.getStateName(), actual.getStateName(), message);
+    }
+
+    /**
+     * Строит цепочку, по большей части допускаемую автоматом: символы
+     * выбираются среди переходов текущего состояния, а с вероятностью
+     * 1/2 один символ заменяется любым из заданных.
+     *
+     * @param transitions Переходы автомата по именам состояний.
+     * @param start Имя начального состояния.
+     * @param symbols Символы для замены.
+     * @param length Длина цепочки.
+     */
+    static String randomChain(Random random, Map<String, Map<Character, String>> transitions,
+                              String start, String symbols, int length) {
+        StringBuilder chain = new StringBuilder(length);
+        String state = start;
+        for (int i = 0; i < length; i++) {
+            List<Character> cases = new ArrayList<>(transitions.get(state).keySet());
+            char symbol = cases.get(random.nextInt(cases.size()));
+            chain.append(symbol);
+            state = transitions.get(state).get(symbol);
+        }
+        if (length > 0 && random.nextBoolean()) {
+            chain.setCharAt(random.nextInt(length), symbols.charAt(random.nextInt(symbols.length())));
+        }
+        return chain.toString();
+    }
+
+}
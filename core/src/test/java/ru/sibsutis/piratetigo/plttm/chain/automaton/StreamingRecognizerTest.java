@@ -0,0 +1,232 @@
+package ru.sibsutis.piratetigo.plttm.chain.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReports.*;
+
+/**
+ * Потоковая проверка цепочек: результат, включая смещение ошибки,
+ * сравнивается с посимвольными переходами автомата при разных
+ * размерах буфера и окна файла, отображаемого в память.
+ */
+class StreamingRecognizerTest {
+
+    /** Автомат с ASCII-алфавитом: байты подаются без декодирования. */
+    private static final Map<String, Map<Character, String>> ASCII = Map.of(
+            "p", Map.of('a', "q", 'b', "r"),
+            "q", Map.of('a', "p", 'b', "q"),
+            "r", Map.of('a', "q"));
+
+    /** Автомат с символом вне ASCII: байты декодируются. */
+    private static final Map<String, Map<Character, String>> CYRILLIC = Map.of(
+            "p", Map.of('a', "p", 'ж', "q"),
+            "q", Map.of('a', "p"));
+
+    private static final int[] BUFFER_SIZES = {1, 2, 3, 7, 64, StreamingRecognizer.DEFAULT_BUFFER_SIZE};
+
+    private static final long[] WINDOWS = {1, 3, 64, 1000};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readersAndChannels() throws IOException {
+        for (Map<String, Map<Character, String>> transitions : List.of(ASCII, CYRILLIC)) {
+            CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), transitions);
+            for (String chain : chains(transitions, "abжz")) {
+                for (int bufferSize : BUFFER_SIZES) {
+                    StreamingRecognizer recognizer = new StreamingRecognizer(dfa, UTF_8, bufferSize);
+                    String message = "'" + chain + "', буфер " + bufferSize;
+                    assertReport(reference(dfa, chain), recognizer.recognize(new StringReader(chain)),
+                            "Reader " + message);
+                    assertReport(reference(dfa, bytes(dfa, chain, UTF_8)),
+                            recognizer.recognize(Channels.newChannel(
+                                    new ByteArrayInputStream(chain.getBytes(UTF_8)))),
+                            "ReadableByteChannel " + message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Область файла проверяется без изменения позиции канала, в том
+     * числе когда цепочка пересекает границы окон и буферов.
+     */
+    @Test
+    void fileRegions() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        for (Map<String, Map<Character, String>> transitions : List.of(ASCII, CYRILLIC)) {
+            CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), transitions);
+            for (String chain : chains(transitions, "abжz")) {
+                byte[] content = chain.getBytes(UTF_8);
+                Files.write(file, concat("zz".getBytes(UTF_8), content, "bbж\n".getBytes(UTF_8)));
+                RecognitionReport expected = reference(dfa, bytes(dfa, chain, UTF_8));
+                for (int bufferSize : new int[]{1, 5, 64}) {
+                    for (long window : WINDOWS) {
+                        StreamingRecognizer recognizer = new StreamingRecognizer(dfa, UTF_8, bufferSize, window);
+                        String message = "'" + chain + "', буфер " + bufferSize + ", окно " + window;
+                        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                            assertReport(expected, recognizer.recognize(channel, 2, content.length),
+                                    "FileChannel " + message);
+                            assertEquals(0, channel.position(), message);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void files() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), ASCII);
+        for (String chain : chains(ASCII, "abжz")) {
+            Files.writeString(file, chain, UTF_8);
+            RecognitionReport expected = reference(dfa, bytes(dfa, chain, UTF_8));
+            assertReport(expected, new StreamingRecognizer(dfa).recognize(file), "'" + chain + "'");
+            assertReport(expected, new StreamingRecognizer(dfa, UTF_8, 3, 5).recognize(file),
+                    "'" + chain + "', окно 5");
+        }
+    }
+
+    /**
+     * В UTF-16 файл проверяется с декодированием, а в ISO-8859-1 -
+     * без декодирования, и каждый байт символа вне ASCII становится
+     * отдельным символом.
+     */
+    @Test
+    void charsets() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), CYRILLIC);
+        CompiledDFA ascii = CompiledDFA.of("p", Set.of("p"), ASCII);
+        for (String chain : chains(CYRILLIC, "abж")) {
+            Files.writeString(file, chain, UTF_16);
+            assertReport(reference(dfa, chain),
+                    new StreamingRecognizer(dfa, UTF_16, 3).recognize(file), "UTF-16 '" + chain + "'");
+            Files.writeString(file, chain, UTF_8);
+            assertReport(reference(ascii, new String(chain.getBytes(UTF_8), ISO_8859_1)),
+                    new StreamingRecognizer(ascii, ISO_8859_1, 3, 4).recognize(file),
+                    "ISO-8859-1 '" + chain + "'");
+        }
+    }
+
+    /**
+     * Некорректная последовательность байтов заменяется символом вне
+     * алфавита, и автомат попадает в тупиковое состояние на ней.
+     */
+    @Test
+    void malformedInput() throws IOException {
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), CYRILLIC);
+        byte[] content = concat("aж".getBytes(UTF_8), new byte[]{(byte) 0xFF}, "a".getBytes(UTF_8));
+        for (int bufferSize : BUFFER_SIZES) {
+            RecognitionReport report = new StreamingRecognizer(dfa, UTF_8, bufferSize)
+                    .recognize(Channels.newChannel(new ByteArrayInputStream(content)));
+            assertFalse(report.isAccepted());
+            assertEquals(2, report.getFailureOffset(), "буфер " + bufferSize);
+        }
+    }
+
+    /**
+     * Один завершающий перевод строки в кодировке файла не считается
+     * частью цепочки, а второй и перевод строки внутри цепочки -
+     * считаются.
+     */
+    @Test
+    void lineTerminators() throws IOException {
+        Path file = directory.resolve("chain.txt");
+        String[][] cases = {
+                {"", ""}, {"\n", ""}, {"\r\n", ""}, {"\r", "\r"}, {"\n\n", "\n"},
+                {"aж", "aж"}, {"aж\n", "aж"}, {"aж\r\n", "aж"}, {"aж\n\r\n", "aж\n"},
+                {"a\nж", "a\nж"}, {"aж\r\n\n", "aж\r\n"}};
+        for (Charset charset : List.of(UTF_8, UTF_16, UTF_16LE, ISO_8859_1)) {
+            for (String[] chain : cases) {
+                if (!charset.newEncoder().canEncode(chain[0])) {
+                    continue;
+                }
+                Files.writeString(file, chain[0], charset);
+                String message = charset + " '" + chain[0] + "'";
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = StreamingRecognizer.chainSize(channel, charset);
+                    assertEquals(chain[1], new String(Files.readAllBytes(file), 0, (int) size, charset),
+                            message);
+                    assertEquals(0, channel.position(), message);
+                    StringBuilder read = new StringBuilder();
+                    try (Reader reader = StreamingRecognizer.chainReader(channel, charset)) {
+                        for (int symbol = reader.read(); symbol != -1; symbol = reader.read()) {
+                            read.append((char) symbol);
+                        }
+                    }
+                    assertEquals(chain[1], read.toString(), message);
+                    assertTrue(channel.isOpen(), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void invalidArguments() throws IOException {
+        CompiledDFA dfa = CompiledDFA.of("p", Set.of("p"), ASCII);
+        assertThrows(IllegalArgumentException.class, () -> new StreamingRecognizer(dfa, UTF_8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingRecognizer(dfa, UTF_8, 1, 0));
+        Path file = directory.resolve("chain.txt");
+        Files.writeString(file, "ab");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            StreamingRecognizer recognizer = new StreamingRecognizer(dfa);
+            assertThrows(IllegalArgumentException.class, () -> recognizer.recognize(channel, -1, 1));
+            assertThrows(IllegalArgumentException.class, () -> recognizer.recognize(channel, 0, -1));
+        }
+    }
+
+    /**
+     * Возвращает цепочку, которую автомат видит при чтении байтов
+     * цепочки: при чтении без декодирования каждый байт становится
+     * символом с тем же кодом.
+     */
+    private static String bytes(CompiledDFA dfa, String chain, Charset charset) {
+        return StreamingRecognizer.isDirect(dfa, charset)
+                ? new String(chain.getBytes(charset), ISO_8859_1)
+                : chain;
+    }
+
+    private static List<String> chains(Map<String, Map<Character, String>> transitions, String symbols) {
+        Random random = new Random(19);
+        List<String> result = new ArrayList<>();
+        for (int length = 0; length <= 20; length++) {
+            result.add(randomChain(random, transitions, "p", symbols, length));
+        }
+        for (int i = 0; i < 10; i++) {
+            result.add(randomChain(random, transitions, "p", symbols, 100 + random.nextInt(2000)));
+        }
+        return result;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+}
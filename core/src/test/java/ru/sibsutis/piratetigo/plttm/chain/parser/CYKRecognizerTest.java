@@ -0,0 +1,56 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import org.junit.jupiter.api.Test;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Размер таблицы разбора алгоритма Кока-Янгера-Касами: n(n+1)/2 ячеек
+ * по одному слову на каждые 64 нетерминала.
+ */
+class CYKRecognizerTest {
+
+    /**
+     * Цепочка, таблица разбора которой не помещается в массив,
+     * отклоняется до выделения памяти, и распознаватель остается
+     * пригодным для следующих проверок.
+     */
+    @Test
+    void oversizedChart() {
+        CYKRecognizer small = new CYKRecognizer(grammar(1));
+        assertTrue(small.recognize("ab"));
+        assertFalse(small.recognize("aab"));
+        assertThrows(IllegalArgumentException.class, () -> small.recognize("a".repeat(65_536)));
+        assertThrows(IllegalArgumentException.class, () -> small.parse("a".repeat(100_000)));
+        assertTrue(small.recognize("ab"));
+
+        // 67 нетерминалов занимают в ячейке два слова
+        CYKRecognizer wide = new CYKRecognizer(grammar(64));
+        assertTrue(wide.recognize("ab"));
+        assertThrows(IllegalArgumentException.class, () -> wide.recognize("a".repeat(46_341)));
+    }
+
+    /**
+     * Грамматика {@code S→AB, A→a, B→b} с дополнительными
+     * нетерминалами {@code N1}...{@code Nk}, выводящими {@code a}.
+     */
+    private static ContextFreeGrammar grammar(int extra) {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals("ab");
+        StringBuilder nonTerminals = new StringBuilder("S;A;B;");
+        for (int i = 1; i <= extra; i++) {
+            nonTerminals.append('N').append(i).append(';');
+        }
+        grammar.setNonTerminals(nonTerminals.toString());
+        grammar.setGoal("S");
+        grammar.addRule("S→AB");
+        grammar.addRule("A→a");
+        grammar.addRule("B→b");
+        for (int i = 1; i <= extra; i++) {
+            grammar.addRule("N" + i + "→a");
+        }
+        return grammar;
+    }
+
+}
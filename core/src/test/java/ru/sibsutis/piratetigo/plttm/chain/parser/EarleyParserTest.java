@@ -0,0 +1,85 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import org.junit.jupiter.api.Test;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarLanguage;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Оптимизация Лео в распознавателе Эрли: на праворекурсивных
+ * грамматиках цепочки ситуаций Лео проходят через все множества, а
+ * результат должен совпадать с эталоном и с разбором без ситуаций Лео.
+ */
+class EarleyParserTest {
+
+    /** Наибольшая длина цепочек, сравниваемых с эталоном. */
+    private static final int MAX_LENGTH = 8;
+
+    /** Праворекурсивные грамматики, в том числе через цепное правило. */
+    private static final String[][] GRAMMARS = {
+            {"S→aS", "S→b"},
+            {"S→aA", "A→bS", "A→λ"},
+            {"S→aT", "T→S", "T→b"},
+            {"S→A", "A→B", "B→S", "B→aB", "B→λ"},
+    };
+
+    /**
+     * Короткие цепочки сравниваются с эталоном, а проверка чередуется
+     * с построением леса разбора, которое отключает ситуации Лео, на
+     * одном экземпляре распознавателя.
+     */
+    @Test
+    void shortChains() {
+        for (String[] rules : GRAMMARS) {
+            ContextFreeGrammar grammar = grammar(rules);
+            Set<String> language = GrammarLanguage.of(grammar, MAX_LENGTH);
+            EarleyParser parser = new EarleyParser(grammar);
+            for (String chain : GrammarLanguage.chains(List.of('a', 'b'), MAX_LENGTH)) {
+                String message = Arrays.toString(rules) + ": '" + chain + "'";
+                assertEquals(language.contains(chain), parser.recognize(chain), message);
+                assertEquals(language.contains(chain), parser.parse(chain) != null, message);
+            }
+        }
+    }
+
+    /**
+     * Цепочка ситуаций Лео длиной в десятки тысяч звеньев проходится
+     * при первом завершении и запоминается, а таблицы переиспользуются
+     * следующими проверками.
+     */
+    @Test
+    void longChains() {
+        int n = 50_000;
+        EarleyParser parser = new EarleyParser(grammar("S→aS", "S→b"));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(parser.recognize("a".repeat(n) + "b"));
+            assertFalse(parser.recognize("a".repeat(n)));
+            assertFalse(parser.recognize("a".repeat(n) + "bb"));
+            assertTrue(parser.recognize("b"));
+        }
+
+        EarleyParser alternating = new EarleyParser(grammar("S→aA", "A→bS", "A→λ"));
+        assertTrue(alternating.recognize("ab".repeat(n) + "a"));
+        assertFalse(alternating.recognize("ab".repeat(n)));
+
+        EarleyParser chained = new EarleyParser(grammar("S→aT", "T→S", "T→b"));
+        assertTrue(chained.recognize("a".repeat(n) + "b"));
+        assertFalse(chained.recognize("a".repeat(n)));
+        assertFalse(chained.recognize("b"));
+    }
+
+    private static ContextFreeGrammar grammar(String... rules) {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals("ab");
+        grammar.setNonTerminals("S;A;B;T;");
+        grammar.setGoal("S");
+        for (String rule : rules) {
+            grammar.addRule(rule);
+        }
+        return grammar;
+    }
+
+}
@@ -0,0 +1,160 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import org.junit.jupiter.api.Test;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarLanguage;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сравнение распознавателей КС-грамматик с эталоном: множеством
+ * цепочек длины не больше {@link #MAX_LENGTH}, выводимых из каждого
+ * нетерминала, которое вычисляется итерацией до неподвижной точки.
+ * <p>
+ * Проверяются все цепочки над терминальными символами и одним
+ * посторонним символом.
+ */
+class GrammarDifferentialTest {
+
+    /** Наибольшая длина проверяемых цепочек. */
+    private static final int MAX_LENGTH = 6;
+
+    /** Посторонний символ проверяемых цепочек. */
+    private static final char FOREIGN = 'c';
+
+    /** Количество случайных грамматик. */
+    private static final int RANDOM_GRAMMARS = 300;
+
+    /** Грамматики с известными особенностями разбора. */
+    private static final String[][] FIXED_GRAMMARS = {
+            // Скобочные последовательности, неоднозначная
+            {"S→aSb", "S→SS", "S→λ"},
+            // Левая рекурсия
+            {"S→Sa", "S→b"},
+            // Правая рекурсия
+            {"S→aS", "S→b"},
+            // LL(1)
+            {"S→aAb", "A→aAb", "A→λ"},
+            // LALR(1), но не LL(1)
+            {"S→SaB", "S→B", "B→b"},
+            // Цепные и λ-правила
+            {"S→A", "A→B", "B→S", "B→aB", "B→λ"},
+            // Бесплодный и недостижимый нетерминалы
+            {"S→aS", "S→A", "A→aA", "B→b"},
+            // Пустой язык
+            {"S→aS"},
+            // Палиндромы
+            {"S→aSa", "S→bSb", "S→a", "S→b", "S→λ"},
+    };
+
+    @Test
+    void fixedGrammars() {
+        for (String[] rules : FIXED_GRAMMARS) {
+            ContextFreeGrammar grammar = new ContextFreeGrammar();
+            grammar.setTerminals("ab");
+            grammar.setNonTerminals("S;A;B;");
+            grammar.setGoal("S");
+            for (String rule : rules) {
+                grammar.addRule(rule);
+            }
+            compareEngines(grammar);
+        }
+    }
+
+    @Test
+    void randomGrammars() {
+        Random random = new Random(17);
+        for (int i = 0; i < RANDOM_GRAMMARS; i++) {
+            compareEngines(randomGrammar(random));
+        }
+    }
+
+    /**
+     * Сравнивает все распознаватели грамматики с эталоном.
+     */
+    private static void compareEngines(ContextFreeGrammar grammar) {
+        List<String> chains = chains(grammar.getTerminals());
+        Set<String> language = GrammarLanguage.of(grammar, MAX_LENGTH);
+        String name = grammar.rulesAsList().toString();
+
+        Recognizer recognizer = Recognizer.of(grammar);
+        assertMatches(language, chains, recognizer.recognizeAll(chains),
+                "Recognizer (" + recognizer.getEngine() + ") " + name);
+        assertMatches(language, chains, new EarleyParser(grammar).recognizeAll(chains),
+                "Earley " + name);
+        LALRTable table = new LALRTable(grammar);
+        assertMatches(language, chains, new GLRParser(table).recognizeAll(chains),
+                "GLR " + name);
+        if (table.isLALR1()) {
+            assertMatches(language, chains, new LALRParser(table).recognizeAll(chains),
+                    "LALR " + name);
+        }
+        LL1Parser ll1 = new LL1Parser(grammar);
+        if (ll1.isLL1()) {
+            assertMatches(language, chains, ll1.recognizeAll(chains),
+                    "LL1 " + name);
+        }
+
+        ContextFreeGrammar chomsky = grammar.copy();
+        chomsky.toCanonical();
+        if (chomsky.getGoal() == null) {
+            assertTrue(language.isEmpty(), "Непустой язык удален " + name);
+            return;
+        }
+        chomsky.toChomsky();
+        assertMatches(language, chains, new CYKRecognizer(chomsky).recognizeAll(chains),
+                "CYK " + name);
+    }
+
+    private static void assertMatches(Set<String> language, List<String> chains,
+                                      boolean[] results, String engine) {
+        for (int i = 0; i < chains.size(); i++) {
+            String chain = chains.get(i);
+            assertEquals(language.contains(chain), results[i],
+                    engine + ": '" + chain + "'");
+        }
+    }
+
+    /**
+     * Перечисляет все цепочки длины не больше {@link #MAX_LENGTH} над
+     * терминальными символами и посторонним символом.
+     */
+    private static List<String> chains(Set<Character> terminals) {
+        List<Character> symbols = new ArrayList<>(new TreeSet<>(terminals));
+        symbols.add(FOREIGN);
+        return GrammarLanguage.chains(symbols, MAX_LENGTH);
+    }
+
+    /**
+     * Строит случайную грамматику с терминалами {@code a}, {@code b}
+     * и не больше чем пятью нетерминалами.
+     */
+    private static ContextFreeGrammar randomGrammar(Random random) {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals("ab");
+        int count = 1 + random.nextInt(5);
+        StringBuilder nonTerminals = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            nonTerminals.append((char) ('A' + i)).append(';');
+        }
+        grammar.setNonTerminals(nonTerminals.toString());
+        grammar.setGoal("A");
+        for (int i = 0; i < count; i++) {
+            int bodies = 1 + random.nextInt(3);
+            for (int j = 0; j < bodies; j++) {
+                int length = random.nextInt(5);
+                StringBuilder body = new StringBuilder();
+                for (int k = 0; k < length; k++) {
+                    body.append(random.nextBoolean()
+                            ? (char) ('a' + random.nextInt(2))
+                            : (char) ('A' + random.nextInt(count)));
+                }
+                grammar.addRule((char) ('A' + i) + "→" + (length == 0 ? "λ" : body));
+            }
+        }
+        return grammar;
+    }
+
+}
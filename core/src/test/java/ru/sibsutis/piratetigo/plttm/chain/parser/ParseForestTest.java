@@ -0,0 +1,220 @@
+package ru.sibsutis.piratetigo.plttm.chain.parser;
+
+import org.junit.jupiter.api.Test;
+import ru.sibsutis.piratetigo.plttm.common.InferenceType;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Лес разбора Earley, GLR и CYK: количество деревьев разбора и выводы,
+ * которые извлекаются из леса.
+ */
+class ParseForestTest {
+
+    /**
+     * У цепочки из n символов {@code a} в грамматике {@code S→SS|a}
+     * столько деревьев разбора, сколько бинарных деревьев с n
+     * листьями: число Каталана C<sub>n-1</sub>.
+     */
+    @Test
+    void catalanForest() {
+        ContextFreeGrammar grammar = grammar("a", "S→SS", "S→a");
+        long[] catalan = {1, 1, 2, 5, 14, 42};
+        for (ParseForestEngine engine : engines(grammar)) {
+            for (int n = 1; n <= catalan.length; n++) {
+                String chain = "a".repeat(n);
+                ParseForest forest = engine.parse(chain);
+                assertNotNull(forest, engine + ": " + chain);
+                assertEquals(catalan[n - 1], countTrees(forest), engine + ": " + chain);
+                assertEquals(n > 2, forest.isAmbiguous(), engine + ": " + chain);
+                for (InferenceType type : InferenceType.values()) {
+                    assertEquals(catalan[n - 1], checkDerivations(forest, chain, type),
+                            engine + ", " + type + ": " + chain);
+                }
+            }
+            assertNull(engine.parse(""), engine.toString());
+            assertNull(engine.parse("aab"), engine.toString());
+        }
+    }
+
+    @Test
+    void fiveSymbolsHaveFourteenTrees() {
+        ContextFreeGrammar grammar = grammar("a", "S→SS", "S→a");
+        for (ParseForestEngine engine : engines(grammar)) {
+            ParseForest forest = engine.parse("aaaaa");
+            assertEquals(14, countTrees(forest), engine.toString());
+            assertEquals(14, checkDerivations(forest, "aaaaa", InferenceType.LEFT), engine.toString());
+            assertEquals(14, checkDerivations(forest, "aaaaa", InferenceType.RIGHT), engine.toString());
+        }
+    }
+
+    @Test
+    void unambiguousDerivation() {
+        ContextFreeGrammar grammar = grammar("ab", "S→aSb", "S→λ");
+        for (ParseForestEngine engine : List.of(earley(grammar), glr(grammar))) {
+            ParseForest forest = engine.parse("aabb");
+            assertFalse(forest.isAmbiguous(), engine.toString());
+            CompiledGrammar compiled = forest.getGrammar();
+            List<String> rules = new ArrayList<>();
+            for (int rule : forest.getDerivation(InferenceType.LEFT)) {
+                rules.add(compiled.getRule(rule));
+            }
+            assertEquals(List.of("S→aSb", "S→aSb", "S→λ"), rules, engine.toString());
+            assertEquals(1, checkDerivations(forest, "aabb", InferenceType.RIGHT), engine.toString());
+        }
+    }
+
+    /**
+     * Циклические выводы пустой цепочки дают бесконечно много деревьев,
+     * но перебор выводов конечен.
+     */
+    @Test
+    void cyclicForestIsFinite() {
+        ContextFreeGrammar grammar = grammar("a", "S→SS", "S→a", "S→λ");
+        for (ParseForestEngine engine : List.of(earley(grammar), glr(grammar))) {
+            for (String chain : List.of("", "a", "aa", "aaa")) {
+                ParseForest forest = engine.parse(chain);
+                assertNotNull(forest, engine + ": " + chain);
+                for (InferenceType type : InferenceType.values()) {
+                    assertTrue(checkDerivations(forest, chain, type) > 0,
+                            engine + ", " + type + ": " + chain);
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что каждый вывод итератора выводит цепочку и что
+     * выводы не повторяются.
+     *
+     * @return Количество выводов.
+     */
+    private static int checkDerivations(ParseForest forest, String chain, InferenceType type) {
+        Set<List<Integer>> seen = new HashSet<>();
+        Iterator<int[]> derivations = forest.derivations(type);
+        while (derivations.hasNext()) {
+            int[] derivation = derivations.next();
+            assertEquals(chain, replay(forest.getGrammar(), derivation, type),
+                    type + " " + Arrays.toString(derivation));
+            List<Integer> rules = new ArrayList<>();
+            for (int rule : derivation) {
+                rules.add(rule);
+            }
+            assertTrue(seen.add(rules), "Повтор вывода " + rules);
+        }
+        assertThrows(NoSuchElementException.class, derivations::next);
+        return seen.size();
+    }
+
+    /**
+     * Применяет правила вывода к самому левому или самому правому
+     * нетерминалу сентенциальной формы.
+     *
+     * @return Выведенная цепочка.
+     */
+    private static String replay(CompiledGrammar grammar, int[] derivation, InferenceType type) {
+        List<Integer> form = new ArrayList<>(List.of(grammar.getGoal()));
+        for (int rule : derivation) {
+            int index = -1;
+            for (int i = 0; i < form.size(); i++) {
+                if (!grammar.isTerminal(form.get(i))) {
+                    index = i;
+                    if (type == InferenceType.LEFT) {
+                        break;
+                    }
+                }
+            }
+            assertTrue(index >= 0, "Вывод длиннее дерева разбора");
+            assertEquals(grammar.getRuleHead(rule), form.get(index), grammar.getRule(rule));
+            form.remove(index);
+            for (int i = grammar.getRuleLength(rule) - 1; i >= 0; i--) {
+                form.add(index, grammar.getRuleSymbol(rule, i));
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        for (int symbol : form) {
+            assertTrue(grammar.isTerminal(symbol), "Незавершенный вывод");
+            result.append(grammar.getTerminal(symbol));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Считает деревья разбора леса без циклов.
+     */
+    private static long countTrees(ParseForest forest) {
+        return countTrees(forest, forest.getRoot(), new HashMap<>());
+    }
+
+    private static long countTrees(ParseForest forest, int node, Map<Integer, Long> counts) {
+        Long known = counts.get(node);
+        if (known != null) {
+            return known;
+        }
+        long result = forest.getFirstPacked(node) == ParseForest.NO_NODE ? 1 : 0;
+        for (int packed = forest.getFirstPacked(node); packed != ParseForest.NO_NODE;
+             packed = forest.getNextPacked(packed)) {
+            long trees = 1;
+            int length = forest.getGrammar().getRuleLength(forest.getRule(packed));
+            for (int i = 0; i < length; i++) {
+                trees *= countTrees(forest, forest.getChild(packed, i), counts);
+            }
+            result += trees;
+        }
+        counts.put(node, result);
+        return result;
+    }
+
+    private static ContextFreeGrammar grammar(String terminals, String... rules) {
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setTerminals(terminals);
+        grammar.setNonTerminals("S;");
+        grammar.setGoal("S");
+        for (String rule : rules) {
+            grammar.addRule(rule);
+        }
+        return grammar;
+    }
+
+    /**
+     * Все анализаторы, строящие лес разбора; грамматика уже в Бинарной
+     * Нормальной Форме.
+     */
+    private static List<ParseForestEngine> engines(ContextFreeGrammar grammar) {
+        CYKRecognizer cyk = new CYKRecognizer(grammar);
+        return List.of(earley(grammar), glr(grammar), named("CYK", cyk::parse));
+    }
+
+    private static ParseForestEngine earley(ContextFreeGrammar grammar) {
+        return named("Earley", new EarleyParser(grammar)::parse);
+    }
+
+    private static ParseForestEngine glr(ContextFreeGrammar grammar) {
+        return named("GLR", new GLRParser(grammar)::parse);
+    }
+
+    private static ParseForestEngine named(String name, ParseForestEngine engine) {
+        return new ParseForestEngine() {
+            @Override
+            public ParseForest parse(String chain) {
+                return engine.parse(chain);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    private interface ParseForestEngine {
+
+        ParseForest parse(String chain);
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package ru.sibsutis.piratetigo.plttm.grammar;
+
+import java.util.*;
+
+/**
+ * Эталон для проверки распознавателей: цепочки ограниченной длины,
+ * выводимые из целевого символа грамматики, вычисляются итерацией до
+ * неподвижной точки.
+ */
+public final class GrammarLanguage {
+
+    private GrammarLanguage() {
+    }
+
+    /**
+     * Вычисляет цепочки языка грамматики длины не больше заданной.
+     * Нетерминалы грамматики - заглавные буквы.
+     *
+     * @param grammar КС-грамматика.
+     * @param maxLength Наибольшая длина цепочки.
+     */
+    public static Set<String> of(ContextFreeGrammar grammar, int maxLength) {
+        Set<Character> terminals = grammar.getTerminals();
+        Map<Character, Set<String>> derived = new HashMap<>();
+        for (String nonTerminal : grammar.getNonTerminals()) {
+            derived.put(nonTerminal.charAt(0), new HashSet<>());
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, Set<String>> entry : grammar.getRules().entrySet()) {
+                Set<String> target = derived.get(entry.getKey().charAt(0));
+                for (String body : entry.getValue()) {
+                    Set<String> current = Set.of("");
+                    for (char symbol : body.toCharArray()) {
+                        if (symbol == 'λ') {
+                            continue;
+                        }
+                        Set<String> parts = terminals.contains(symbol)
+                                ? Set.of(String.valueOf(symbol)) : derived.get(symbol);
+                        Set<String> next = new HashSet<>();
+                        for (String prefix : current) {
+                            for (String part : parts) {
+                                if (prefix.length() + part.length() <= maxLength) {
+                                    next.add(prefix + part);
+                                }
+                            }
+                        }
+                        current = next;
+                    }
+                    changed |= target.addAll(current);
+                }
+            }
+        }
+        return derived.get(grammar.getGoal().charAt(0));
+    }
+
+    /**
+     * Перечисляет все цепочки длины не больше заданной над символами
+     * в порядке возрастания длины.
+     *
+     * @param symbols Символы цепочек.
+     * @param maxLength Наибольшая длина цепочки.
+     */
+    public static List<String> chains(Collection<Character> symbols, int maxLength) {
+        List<String> result = new ArrayList<>(List.of(""));
+        for (int from = 0; result.get(from).length() < maxLength; from++) {
+            for (char symbol : symbols) {
+                result.add(result.get(from) + symbol);
+            }
+        }
+        return result;
+    }
+
+}
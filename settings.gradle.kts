@@ -1 +1,3 @@
 rootProject.name = "plttm"
+
+include("core")
\ No newline at end of file
@@ -5,6 +5,6 @@ package ru.sibsutis.piratetigo.plttm.chain.generator;
  */
 public class ChainLengthExceededException extends RuntimeException {
     public ChainLengthExceededException(String msg) {
-        super(msg);
+        super(msg, null, false, false);
     }
 }
@@ -6,46 +6,69 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import lombok.extern.java.Log;
 import ru.sibsutis.piratetigo.plttm.common.InferenceType;
+import ru.sibsutis.piratetigo.plttm.grammar.CompiledGrammar;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
-import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
-
 /**
  * Генератор цепочек символов на основе КС-грамматики.
+ * <p>
+ * Генератор работает со скомпилированным снимком грамматики:
+ * сентенциальные формы хранятся как участки общего массива номеров
+ * символов, а строится цепочка в общем символьном буфере, поэтому
+ * на шаге вывода не создаются строки и списки.
  */
 @Log
 public class Generator {
 
-    private final HashMap<String, Set<String>> rules;
-    private final String goal;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CompiledGrammar grammar;
     private final InferenceType direction;
     private final Integer minLength;
     private final Integer maxLength;
-    private final Set<String> terminals;
 
-    private final List<String> chains = new LinkedList<>();
-    private final LinkedList<String> nonTerminalsUniquePath = new LinkedList<>();
+    private final List<String> chains = new ArrayList<>();
+    private final Set<String> uniqueChains = new HashSet<>();
+
+    /**
+     * Стек нетерминальных символов текущего пути вывода и
+     * число вхождений каждого символа в этот стек.
+     */
+    private int[] nonTerminalsUniquePath = new int[INITIAL_CAPACITY];
+    private int pathSize = 0;
+    private final int[] pathCounters;
+
+    /**
+     * Участки сентенциальных форм всех уровней рекурсии.
+     * Для левостороннего вывода участок имеет вид [правило | остаток],
+     * для правостороннего - [остаток | правило].
+     */
+    private int[] sentence = new int[INITIAL_CAPACITY];
+    private int sentenceSize = 0;
+
+    /**
+     * Буфер строящейся цепочки. При правостороннем выводе символы
+     * записываются в обратном порядке.
+     */
+    private char[] chainBuffer = new char[INITIAL_CAPACITY];
 
     private boolean isCanceled = false;
 
     private boolean isRunning = false;
 
     public Generator(
-            HashMap<String, Set<String>> rules,
-            String goal,
+            CompiledGrammar grammar,
             InferenceType direction,
             Integer minLength,
-            Integer maxLength,
-            Set<String> terminals
+            Integer maxLength
     ) {
-        this.rules = rules;
-        this.goal = goal;
+        this.grammar = grammar;
         this.direction = direction;
         this.minLength = minLength;
         this.maxLength = maxLength;
-        this.terminals = terminals;
+        this.pathCounters = new int[grammar.getSymbolCount()];
     }
 
     /**
@@ -91,27 +114,35 @@ public class Generator {
      */
     public void generate() {
         isCanceled = false;
-        isRunning = true;
         chains.clear();
-        String chain = "";
-        Set<String> mainRules = rules.get(goal);
-        nonTerminalsUniquePath.push(goal);
+        uniqueChains.clear();
+        pathSize = 0;
+        Arrays.fill(pathCounters, 0);
+        int goal = grammar.getGoal();
+        if (goal == CompiledGrammar.NO_SYMBOL) {
+            return;
+        }
+        isRunning = true;
+        String goalName = grammar.getName(goal);
+        pushPath(goal);
         try {
-            if (direction == InferenceType.LEFT) {
-                for (String mainRule : mainRules) {
+            for (int mainRule = grammar.getFirstRule(goal);
+                 mainRule < grammar.getEndRule(goal);
+                 mainRule++) {
+                sentenceSize = 0;
+                int ruleLength = appendRuleBody(mainRule);
+                if (direction == InferenceType.LEFT) {
                     try {
-                        add(generateChainLeft(mainRule, chain, ""));
+                        add(generateChainLeft(0, ruleLength, ruleLength, 0));
                     } catch (MissRuleException
                              | ChainLengthExceededException
                              | LoopDetectionException ex) {
                         LOGGER.info(ex.getMessage()
                                 + ". Переходим к следующему правилу");
                     }
-                }
-            } else {
-                for (String mainRule : mainRules) {
+                } else {
                     try {
-                        add(generateChainRight(mainRule, chain, ""));
+                        add(generateChainRight(0, 0, ruleLength, 0));
                     } catch (MissRuleException ex) {
                         LOGGER.info(ex.getMessage()
                                 + ". Переходим к следующему правилу");
@@ -122,14 +153,15 @@ public class Generator {
                         LOGGER.info(ex.getMessage()
                                 + ". Продолжаем пропуск рекурсивной ветки. "
                                 + "Возврат к обработке нетерминала '"
-                                + goal + "'");
+                                + goalName + "'");
                     }
                 }
             }
-            nonTerminalsUniquePath.pop();
+            popPath();
         } catch (CancelException ex) {
-            nonTerminalsUniquePath.clear();
+            pathSize = 0;
             chains.clear();
+            uniqueChains.clear();
         } finally {
             isRunning = false;
         }
@@ -158,159 +190,133 @@ public class Generator {
         return isRunning;
     }
 
-    private String generateChainLeft(String rule, String chain, String rest) {
-        if (rule.length() > 0) {
-            LinkedList<String> ruleLexemes = stringToLexemes(rule);
-            String handledLexeme = ruleLexemes.get(0);
-            String ruleRest =
-                    lexemesToString(ruleLexemes, 1, ruleLexemes.size());
-            if (terminals.contains(handledLexeme)) {
-                return generateChainLeft(ruleRest, chain + handledLexeme, rest);
-            } else {
-                String handledNonTerminal = fromLexeme(handledLexeme);
-                nonTerminalsUniquePath.push(handledNonTerminal);
-                long deep = nonTerminalsUniquePath.stream()
-                        .filter(handledNonTerminal::equals).count() - 1;
-                if (deep > maxLength) {
-                    nonTerminalsUniquePath.pop();
-                    throw new LoopDetectionException(
-                            String.format(
-                                    "Потенциальная длина генерируемой цепочки превышает максимальное значение {%s}",
-                                    maxLength
-                            ),
-                            handledNonTerminal
-                    );
-                }
-                Set<String> newRules = rules.get(handledNonTerminal);
-                for (String newRule : newRules) {
-                    if (isCanceled) {
-                        throw new CancelException("Процесс отменен");
-                    }
-                    try {
-                        if (newRule.equals(LAMBDA.toString())) {
-                            add(generateChainLeft(
-                                    "",
-                                    chain,
-                                    ruleRest + rest
-                            ));
-                        } else {
-                            add(generateChainLeft(
-                                    newRule,
-                                    chain,
-                                    ruleRest + rest
-                            ));
-                        }
-                    } catch(MissRuleException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Переходим к следующему правилу");
-                    } catch (ChainLengthExceededException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Останавливаем обработку правила");
-                        nonTerminalsUniquePath.pop();
-                        throw new MissRuleException(
-                                "Остановка обработки правила"
-                        );
-                    } catch (LoopDetectionException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Продолжаем пропуск рекурсивной ветки. "
-                                + "Возврат к обработке нетерминала '"
-                                + handledNonTerminal + "'");
-                        if (!handledNonTerminal.equals(ex.getRecursiveNonTerminal())) {
-                            nonTerminalsUniquePath.pop();
-                            throw ex;
-                        }
-                    }
-                }
-                nonTerminalsUniquePath.pop();
-                return "";
+    /**
+     * Строит цепочки левосторонним выводом.
+     * <p>
+     * Правило - участок {@code [ruleStart, ruleEnd)}, остаток
+     * сентенциальной формы - участок {@code [ruleEnd, restEnd)}.
+     *
+     * @return Длина построенной цепочки либо 0, если цепочки
+     * добавлены в список на более глубоких уровнях рекурсии.
+     */
+    private int generateChainLeft(int ruleStart, int ruleEnd, int restEnd, int chainLength) {
+        while (ruleStart < ruleEnd && grammar.isTerminal(sentence[ruleStart])) {
+            appendChain(chainLength++, grammar.getTerminal(sentence[ruleStart++]));
+        }
+        if (ruleStart == ruleEnd) {
+            return restEnd > ruleEnd
+                    ? generateRestChainLeft(ruleEnd, restEnd, chainLength)
+                    : chainLength;
+        }
+        int handledNonTerminal = sentence[ruleStart];
+        checkLoop(handledNonTerminal);
+        int savedSentenceSize = sentenceSize;
+        for (int newRule = grammar.getFirstRule(handledNonTerminal);
+             newRule < grammar.getEndRule(handledNonTerminal);
+             newRule++) {
+            if (isCanceled) {
+                throw new CancelException("Процесс отменен");
+            }
+            try {
+                int newRuleStart = sentenceSize;
+                int newRuleEnd = newRuleStart + appendRuleBody(newRule);
+                appendSentence(ruleStart + 1, restEnd);
+                add(generateChainLeft(
+                        newRuleStart,
+                        newRuleEnd,
+                        sentenceSize,
+                        chainLength
+                ));
+            } catch(MissRuleException ex) {
+                LOGGER.info(ex.getMessage()
+                        + ". Переходим к следующему правилу");
+            } catch (ChainLengthExceededException ex) {
+                LOGGER.info(ex.getMessage()
+                        + ". Останавливаем обработку правила");
+                popPath();
+                throw new MissRuleException(
+                        "Остановка обработки правила"
+                );
+            } catch (LoopDetectionException ex) {
+                handleLoop(handledNonTerminal, ex);
+            } finally {
+                sentenceSize = savedSentenceSize;
             }
-        } else {
-            return rest.length() > 0 ? generateRestChainLeft(rest, chain) : chain;
         }
+        popPath();
+        return 0;
     }
 
-    private String generateChainRight(String rule, String chain, String rest) {
-        if (rule.length() > 0) {
-            LinkedList<String> ruleLexemes = stringToLexemes(rule);
-            String handledLexeme = ruleLexemes.peekLast();
-            String ruleRest =
-                    lexemesToString(ruleLexemes, 0, ruleLexemes.size() - 1);
-            if (terminals.contains(handledLexeme)) {
-                return generateChainRight(ruleRest, handledLexeme + chain, rest);
-            } else {
-                String handledNonTerminal = fromLexeme(handledLexeme);
-                nonTerminalsUniquePath.push(handledNonTerminal);
-                long deep = nonTerminalsUniquePath.stream()
-                        .filter(handledNonTerminal::equals).count() - 1;
-                if (deep > maxLength) {
-                    nonTerminalsUniquePath.pop();
-                    throw new LoopDetectionException(
-                            String.format(
-                                    "Потенциальная длина генерируемой цепочки превышает максимальное значение {%s}",
-                                    maxLength
-                            ),
-                            handledNonTerminal
-                    );
-                }
-                Set<String> newRules = rules.get(handledNonTerminal);
-                for (String newRule : newRules) {
-                    if (isCanceled) {
-                        throw new CancelException("Процесс отменен");
-                    }
-                    try {
-                        if (newRule.equals(LAMBDA.toString())) {
-                            add(generateChainRight(
-                                    "",
-                                    chain,
-                                    rest + ruleRest
-                            ));
-                        } else {
-                            add(generateChainRight(
-                                    newRule,
-                                    chain,
-                                    rest + ruleRest
-                            ));
-                        }
-                    } catch (MissRuleException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Переходим к следующему правилу");
-                    } catch (ChainLengthExceededException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Останавливаем обработку правила");
-                        nonTerminalsUniquePath.pop();
-                        throw new MissRuleException(
-                                "Остановка обработки правила"
-                        );
-                    } catch (LoopDetectionException ex) {
-                        LOGGER.info(ex.getMessage()
-                                + ". Продолжаем пропуск рекурсивной ветки. "
-                                + "Возврат к обработке нетерминала '"
-                                + handledNonTerminal + "'");
-                        if (!handledNonTerminal.equals(ex.getRecursiveNonTerminal())) {
-                            nonTerminalsUniquePath.pop();
-                            throw ex;
-                        }
-                    }
-                }
-                nonTerminalsUniquePath.pop();
-                return "";
+    /**
+     * Строит цепочки правосторонним выводом.
+     * <p>
+     * Остаток сентенциальной формы - участок {@code [restStart, ruleStart)},
+     * правило - участок {@code [ruleStart, ruleEnd)}.
+     *
+     * @return Длина построенной цепочки либо 0, если цепочки
+     * добавлены в список на более глубоких уровнях рекурсии.
+     */
+    private int generateChainRight(int restStart, int ruleStart, int ruleEnd, int chainLength) {
+        while (ruleEnd > ruleStart && grammar.isTerminal(sentence[ruleEnd - 1])) {
+            appendChain(chainLength++, grammar.getTerminal(sentence[--ruleEnd]));
+        }
+        if (ruleStart == ruleEnd) {
+            return restStart < ruleStart
+                    ? generateRestChainRight(restStart, ruleStart, chainLength)
+                    : chainLength;
+        }
+        int handledNonTerminal = sentence[ruleEnd - 1];
+        checkLoop(handledNonTerminal);
+        int savedSentenceSize = sentenceSize;
+        for (int newRule = grammar.getFirstRule(handledNonTerminal);
+             newRule < grammar.getEndRule(handledNonTerminal);
+             newRule++) {
+            if (isCanceled) {
+                throw new CancelException("Процесс отменен");
+            }
+            try {
+                int newRestStart = sentenceSize;
+                appendSentence(restStart, ruleEnd - 1);
+                int newRuleStart = sentenceSize;
+                int newRuleEnd = newRuleStart + appendRuleBody(newRule);
+                add(generateChainRight(
+                        newRestStart,
+                        newRuleStart,
+                        newRuleEnd,
+                        chainLength
+                ));
+            } catch (MissRuleException ex) {
+                LOGGER.info(ex.getMessage()
+                        + ". Переходим к следующему правилу");
+            } catch (ChainLengthExceededException ex) {
+                LOGGER.info(ex.getMessage()
+                        + ". Останавливаем обработку правила");
+                popPath();
+                throw new MissRuleException(
+                        "Остановка обработки правила"
+                );
+            } catch (LoopDetectionException ex) {
+                handleLoop(handledNonTerminal, ex);
+            } finally {
+                sentenceSize = savedSentenceSize;
             }
-        } else {
-            return rest.length() > 0 ? generateRestChainRight(rest, chain) : chain;
         }
+        popPath();
+        return 0;
     }
 
-    private void add(String chain) {
-        if (chain.length() >= minLength) {
-            if (chain.length() <= maxLength) {
-                if (!chains.contains(chain)) {
+    private void add(int chainLength) {
+        if (chainLength >= minLength) {
+            if (chainLength <= maxLength) {
+                String chain = chainToString(chainLength);
+                if (uniqueChains.add(chain)) {
                     chains.add(chain);
                 }
             } else {
                 throw new ChainLengthExceededException(
                         String.format(
                                 "Длина сгенерированной цепочки {%s} превышает заданное значение {%s}",
-                                chain.length(),
+                                chainLength,
                                 maxLength
                         )
                 );
@@ -318,22 +324,113 @@ public class Generator {
         }
     }
 
-    private String generateRestChainLeft(String rest, String chain) {
-        String popItem = nonTerminalsUniquePath.pop();
+    private int generateRestChainLeft(int restStart, int restEnd, int chainLength) {
+        int popItem = popPath();
         try {
-            return generateChainLeft(rest, chain, "");
+            return generateChainLeft(restStart, restEnd, restEnd, chainLength);
         } finally {
-            nonTerminalsUniquePath.push(popItem);
+            pushPath(popItem);
         }
     }
 
-    private String generateRestChainRight(String rest, String chain) {
-        String popItem = nonTerminalsUniquePath.pop();
+    private int generateRestChainRight(int restStart, int restEnd, int chainLength) {
+        int popItem = popPath();
         try {
-            return generateChainRight(rest, chain, "");
+            return generateChainRight(restStart, restStart, restEnd, chainLength);
         } finally {
-            nonTerminalsUniquePath.push(popItem);
+            pushPath(popItem);
+        }
+    }
+
+    /**
+     * Добавляет нетерминальный символ в путь вывода и проверяет
+     * глубину его рекурсии.
+     */
+    private void checkLoop(int handledNonTerminal) {
+        pushPath(handledNonTerminal);
+        int deep = pathCounters[handledNonTerminal] - 1;
+        if (deep > maxLength) {
+            popPath();
+            throw new LoopDetectionException(
+                    String.format(
+                            "Потенциальная длина генерируемой цепочки превышает максимальное значение {%s}",
+                            maxLength
+                    ),
+                    grammar.getName(handledNonTerminal)
+            );
+        }
+    }
+
+    private void handleLoop(int handledNonTerminal, LoopDetectionException ex) {
+        String handledName = grammar.getName(handledNonTerminal);
+        LOGGER.info(ex.getMessage()
+                + ". Продолжаем пропуск рекурсивной ветки. "
+                + "Возврат к обработке нетерминала '"
+                + handledName + "'");
+        if (!handledName.equals(ex.getRecursiveNonTerminal())) {
+            popPath();
+            throw ex;
+        }
+    }
+
+    private void pushPath(int nonTerminal) {
+        if (pathSize == nonTerminalsUniquePath.length) {
+            nonTerminalsUniquePath = Arrays.copyOf(
+                    nonTerminalsUniquePath,
+                    pathSize * 2
+            );
+        }
+        nonTerminalsUniquePath[pathSize++] = nonTerminal;
+        pathCounters[nonTerminal]++;
+    }
+
+    private int popPath() {
+        if (pathSize == 0) {
+            throw new NoSuchElementException();
+        }
+        int nonTerminal = nonTerminalsUniquePath[--pathSize];
+        pathCounters[nonTerminal]--;
+        return nonTerminal;
+    }
+
+    private int appendRuleBody(int rule) {
+        ensureSentenceCapacity(grammar.getRuleLength(rule));
+        int length = grammar.copyRuleBody(rule, sentence, sentenceSize);
+        sentenceSize += length;
+        return length;
+    }
+
+    private void appendSentence(int from, int to) {
+        ensureSentenceCapacity(to - from);
+        System.arraycopy(sentence, from, sentence, sentenceSize, to - from);
+        sentenceSize += to - from;
+    }
+
+    private void ensureSentenceCapacity(int additional) {
+        if (sentenceSize + additional > sentence.length) {
+            sentence = Arrays.copyOf(
+                    sentence,
+                    Math.max(sentence.length * 2, sentenceSize + additional)
+            );
+        }
+    }
+
+    private void appendChain(int position, char terminal) {
+        if (position == chainBuffer.length) {
+            chainBuffer = Arrays.copyOf(chainBuffer, position * 2);
+        }
+        chainBuffer[position] = terminal;
+    }
+
+    private String chainToString(int chainLength) {
+        if (direction == InferenceType.LEFT) {
+            return new String(chainBuffer, 0, chainLength);
+        }
+        char[] chain = new char[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            chain[i] = chainBuffer[chainLength - 1 - i];
         }
+        return new String(chain);
     }
 
 }
@@ -6,7 +6,7 @@ package ru.sibsutis.piratetigo.plttm.chain.generator;
 public class LoopDetectionException extends RuntimeException {
     private final String recursiveNonTerminal;
     public LoopDetectionException(String msg, String recursiveNonTerminal) {
-        super(msg);
+        super(msg, null, false, false);
         this.recursiveNonTerminal = recursiveNonTerminal;
     }
 
@@ -5,6 +5,6 @@ package ru.sibsutis.piratetigo.plttm.chain.generator;
  */
 public class MissRuleException extends RuntimeException {
     public MissRuleException(String msg) {
-        super(msg);
+        super(msg, null, false, false);
     }
 }
@@ -0,0 +1,83 @@
+package ru.sibsutis.piratetigo.plttm.chain.recognizer;
+
+import javafx.application.Platform;
+import javafx.scene.control.ListView;
+import ru.sibsutis.piratetigo.plttm.common.Tools;
+
+import java.util.LinkedList;
+
+/**
+ * Конечный автомат, распознающий цепочки языка с протоколом
+ * распознавания в списке формы.
+ * <p>
+ * Протокол состоит из конфигураций автомата - пар из имени текущего
+ * состояния и непрочитанной части цепочки.
+ */
+public abstract class AbstractFSMRecognizer implements FSMRecognizer {
+
+    /** Непрочитанная часть цепочки. */
+    protected final LinkedList<Character> chain;
+
+    /** Список для протокола распознавания. */
+    private final ListView<String> process;
+
+    /** Имя текущего состояния в протоколе. */
+    protected String currentState;
+
+    /**
+     * @param chain Цепочка.
+     * @param process Список для протокола распознавания.
+     */
+    protected AbstractFSMRecognizer(LinkedList<Character> chain,
+                                    ListView<String> process) {
+        this.chain = chain;
+        this.process = process;
+    }
+
+    /**
+     * Добавляет сообщение в протокол распознавания.
+     *
+     * @param msg Сообщение.
+     */
+    protected void log(String msg) {
+        Platform.runLater(() ->
+                process.getItems().add(msg));
+    }
+
+    /**
+     * Добавляет в протокол текущую конфигурацию автомата.
+     *
+     * @param isFinal Признак последней конфигурации.
+     */
+    protected void logState(boolean isFinal) {
+        String restChain = chainAsString();
+        log(String.format(
+                "(%s, %s)" + (isFinal ? "" : " " + Tools.RULE),
+                currentState,
+                restChain.isEmpty() ? Tools.LAMBDA : restChain
+        ));
+    }
+
+    /**
+     * Завершает распознавание ошибкой.
+     *
+     * @param msg Описание ошибки.
+     * @throws RecognizeException Всегда.
+     */
+    protected void createError(String msg) throws RecognizeException {
+        log("Ошибка");
+        throw new RecognizeException(msg);
+    }
+
+    /**
+     * Возвращает непрочитанную часть цепочки.
+     */
+    protected String chainAsString() {
+        return chain.stream().collect(
+                StringBuilder::new,
+                StringBuilder::append,
+                StringBuilder::append
+        ).toString();
+    }
+
+}
@@ -1,35 +1,85 @@
 package ru.sibsutis.piratetigo.plttm.chain.recognizer;
 
-import javafx.application.Platform;
 import javafx.scene.control.ListView;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.java.Log;
-import ru.sibsutis.piratetigo.plttm.common.Tools;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.CompiledDFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.DFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.ParallelRecognizer;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReport;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.StreamingRecognizer;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Детерминированный конечный автомат, распознающий цепочки языка.
  */
 @Log
-@RequiredArgsConstructor
-public class DFSMRecognizer {
+public class DFSMRecognizer extends AbstractFSMRecognizer {
 
     private final Set<String> states;
     private final Set<Character> alphabet;
     private final String startState;
     private final Set<String> endStates;
     private final Map<String, Map<Character, String>> transitions;
-    private final LinkedList<Character> chain;
-    private final ListView<String> process;
 
-    private String currentState;
+    /** Таблица переходов, компилируемая при первой быстрой проверке. */
+    private CompiledDFA compiled;
+
+    public DFSMRecognizer(Set<String> states,
+                          Set<Character> alphabet,
+                          String startState,
+                          Set<String> endStates,
+                          Map<String, Map<Character, String>> transitions,
+                          LinkedList<Character> chain,
+                          ListView<String> process) {
+        super(chain, process);
+        this.states = states;
+        this.alphabet = alphabet;
+        this.startState = startState;
+        this.endStates = endStates;
+        this.transitions = transitions;
+    }
+
+    /**
+     * Создает распознаватель по детерминированному конечному автомату,
+     * например построенному по регулярной грамматике. Если у автомата
+     * есть имя тупикового состояния, тупиковое состояние записывается
+     * в функцию переходов явно, и протокол показывает переход в него.
+     *
+     * @param dfa Детерминированный конечный автомат.
+     * @param chain Цепочка.
+     * @param process Список для протокола распознавания.
+     * @see DFA#of(ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar)
+     * @see DFA#getDeadStateName()
+     */
+    public static DFSMRecognizer of(DFA dfa,
+                                    LinkedList<Character> chain,
+                                    ListView<String> process) {
+        Map<String, Map<Character, String>> transitions =
+                dfa.toTransitionMap(dfa.getDeadStateName());
+        return new DFSMRecognizer(
+                transitions.keySet(),
+                dfa.getSymbols(),
+                dfa.getStateName(dfa.getStart()),
+                dfa.getEndStateNames(),
+                transitions,
+                chain,
+                process
+        );
+    }
 
     /**
      * Запускает процесс распознавания цепочки языка.
      */
+    @Override
     public void recognize() throws RecognizeException {
         logInputParams();
         currentState = startState;
@@ -48,6 +98,8 @@ public class DFSMRecognizer {
             cases = transitions.get(currentState);
             if (cases != null && cases.containsKey(nextSymbol)) {
                 currentState = cases.get(nextSymbol);
+            } else if (alphabet.contains(nextSymbol)) {
+                createError("Переход ДКА по символу " + nextSymbol + " не определён.");
             } else {
                 createError("В цепочке присутствуют посторонние символы.");
             }
@@ -59,6 +111,73 @@ public class DFSMRecognizer {
         log("Процесс распознавания завершен");
     }
 
+    /**
+     * Проверяет принадлежность цепочки языку без протокола
+     * распознавания.
+     * <p>
+     * При первом вызове функция переходов компилируется в плотную
+     * таблицу {@link CompiledDFA}; проверка не выделяет память на
+     * символ цепочки и подходит для длинных цепочек. Результат
+     * совпадает с результатом {@link #recognize()}.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    @Override
+    public boolean recognize(CharSequence chain) {
+        return compiled().recognize(chain);
+    }
+
+    /**
+     * Проверяет цепочку, записанную в файле. Файл читается буферами
+     * фиксированного размера и не загружается в память целиком,
+     * поэтому подходит для цепочек длиной в несколько гигабайт. Один
+     * завершающий перевод строки не считается частью цепочки.
+     *
+     * @param file Путь к файлу.
+     * @param charset Кодировка файла.
+     * @return Результат проверки со смещением ошибки.
+     */
+    @Override
+    public RecognitionReport recognize(Path file, Charset charset) throws IOException {
+        RecognitionReport report;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            report = new StreamingRecognizer(compiled(), charset, StreamingRecognizer.DEFAULT_BUFFER_SIZE)
+                    .recognize(channel, 0, StreamingRecognizer.chainSize(channel, charset));
+        }
+        LOGGER.info(String.format("Проверка цепочки из файла %s. %s", file, report));
+        return report;
+    }
+
+    /**
+     * Проверяет цепочку, записанную в файле, параллельно частями в
+     * общем пуле потоков. Результат совпадает с результатом
+     * {@link #recognize(Path, Charset)}.
+     *
+     * @param file Путь к файлу.
+     * @param charset Кодировка файла.
+     * @return Результат проверки со смещением ошибки.
+     * @see ParallelRecognizer
+     */
+    @Override
+    public RecognitionReport recognizeParallel(Path file, Charset charset) throws IOException {
+        RecognitionReport report;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            report = new ParallelRecognizer(compiled(), charset,
+                    ForkJoinPool.commonPool(), ParallelRecognizer.DEFAULT_CHUNK_SIZE)
+                    .recognize(channel, 0, StreamingRecognizer.chainSize(channel, charset));
+        }
+        LOGGER.info(String.format("Параллельная проверка цепочки из файла %s. %s", file, report));
+        return report;
+    }
+
+    private CompiledDFA compiled() {
+        if (compiled == null) {
+            compiled = CompiledDFA.of(startState, endStates, transitions);
+        }
+        return compiled;
+    }
+
     private void logInputParams() {
         StringBuilder msg = new StringBuilder();
         msg.append("Параметры ДКА:\n\n");
@@ -83,31 +202,8 @@ public class DFSMRecognizer {
             msg.append("]\n");
         });
         msg.append("Проверяемая цепочка: ");
-        chain.forEach(msg::append);
+        msg.append(chainAsString());
         LOGGER.info(msg.toString());
     }
 
-    private void log(String msg) {
-        Platform.runLater(() ->
-                process.getItems().add(msg));
-    }
-
-    private void logState(boolean isFinal) {
-        String restChain = chain.stream().collect(
-                StringBuilder::new,
-                StringBuilder::append,
-                StringBuilder::append
-        ).toString();
-        log(String.format(
-                "(%s, %s)" + (isFinal ? "" : " " + Tools.RULE),
-                currentState,
-                restChain.isEmpty() ? Tools.LAMBDA : restChain
-        ));
-    }
-
-    private void createError(String msg) throws RecognizeException {
-        log("Ошибка");
-        throw new RecognizeException(msg);
-    }
-
 }
@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.scene.control.ListView;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.DPDARule;
 import ru.sibsutis.piratetigo.plttm.common.Tools;
 
 import java.util.LinkedList;
@@ -0,0 +1,53 @@
+package ru.sibsutis.piratetigo.plttm.chain.recognizer;
+
+import ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReport;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.StreamingRecognizer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * Конечный автомат, распознающий цепочки языка.
+ */
+public interface FSMRecognizer {
+
+    /**
+     * Запускает процесс распознавания цепочки языка с протоколом.
+     */
+    void recognize() throws RecognizeException;
+
+    /**
+     * Проверяет принадлежность цепочки языку без протокола
+     * распознавания.
+     *
+     * @param chain Цепочка.
+     * @return Признак принадлежности цепочки языку.
+     */
+    boolean recognize(CharSequence chain);
+
+    /**
+     * Проверяет цепочку, записанную в файле, не загружая файл в память
+     * целиком. Один завершающий перевод строки не считается частью
+     * цепочки (см. {@link StreamingRecognizer#chainSize}).
+     *
+     * @param file Путь к файлу.
+     * @param charset Кодировка файла.
+     * @return Результат проверки со смещением ошибки.
+     */
+    RecognitionReport recognize(Path file, Charset charset) throws IOException;
+
+    /**
+     * Проверяет цепочку, записанную в файле, параллельно частями, если
+     * автомат это поддерживает, иначе - последовательно. Результат
+     * совпадает с результатом {@link #recognize(Path, Charset)}.
+     *
+     * @param file Путь к файлу.
+     * @param charset Кодировка файла.
+     * @return Результат проверки со смещением ошибки.
+     */
+    default RecognitionReport recognizeParallel(Path file, Charset charset) throws IOException {
+        return recognize(file, charset);
+    }
+
+}
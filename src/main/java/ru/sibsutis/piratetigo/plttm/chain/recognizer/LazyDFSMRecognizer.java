@@ -0,0 +1,98 @@
+package ru.sibsutis.piratetigo.plttm.chain.recognizer;
+
+import javafx.scene.control.ListView;
+import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.LazyDFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReport;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.StreamingRecognizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+
+/**
+ * Детерминированный конечный автомат, состояния которого строятся по
+ * недетерминированному во время распознавания цепочек языка.
+ *
+ * @see LazyDFA
+ */
+@Log
+public class LazyDFSMRecognizer extends AbstractFSMRecognizer {
+
+    private final LazyDFA dfa;
+
+    public LazyDFSMRecognizer(LazyDFA dfa,
+                              LinkedList<Character> chain,
+                              ListView<String> process) {
+        super(chain, process);
+        this.dfa = dfa;
+    }
+
+    /**
+     * Запускает процесс распознавания цепочки языка. Состояния в
+     * протоколе - множества состояний НКА.
+     */
+    @Override
+    public void recognize() throws RecognizeException {
+        LOGGER.info("Проверяемая цепочка: " + chainAsString());
+        int state = dfa.getStart();
+        currentState = dfa.getStateName(state);
+        log("Начинаем процесс распознавания");
+        Character nextSymbol;
+        while (!chain.isEmpty()) {
+            logState(false);
+            nextSymbol = chain.removeFirst();
+            if (!dfa.isSymbol(nextSymbol)) {
+                createError("В цепочке присутствуют посторонние символы.");
+            }
+            state = dfa.next(state, nextSymbol);
+            if (state == LazyDFA.DEAD) {
+                createError("Переход ДКА по символу " + nextSymbol + " не определён.");
+            }
+            currentState = dfa.getStateName(state);
+        }
+        logState(true);
+        logCache();
+        if (!dfa.isAccepting(state)) {
+            createError("После прочтения цепочки ДКА не пришёл в конечное состояние.");
+        }
+        log("Процесс распознавания завершен");
+    }
+
+    @Override
+    public boolean recognize(CharSequence chain) {
+        return dfa.recognize(chain);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Файл читается буферами фиксированного размера с декодированием;
+     * некорректные последовательности байтов заменяются символом, не
+     * принадлежащим алфавиту.
+     */
+    @Override
+    public RecognitionReport recognize(Path file, Charset charset) throws IOException {
+        RecognitionReport report;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = StreamingRecognizer.chainReader(channel, charset)) {
+            report = dfa.recognize(reader);
+        }
+        LOGGER.info(String.format("Проверка цепочки из файла %s. %s", file, report));
+        logCache();
+        return report;
+    }
+
+    private void logCache() {
+        log(String.format(
+                "Кеш ленивого ДКА: состояний %d из %d, очисток %d, переходов к моделированию НКА %d",
+                dfa.getCachedStateCount(), dfa.getCacheSize(),
+                dfa.getFlushCount(), dfa.getFallbackCount()
+        ));
+    }
+
+}
@@ -0,0 +1,88 @@
+package ru.sibsutis.piratetigo.plttm.chain.recognizer;
+
+import javafx.scene.control.ListView;
+import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.BitParallelNFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReport;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.StreamingRecognizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+
+/**
+ * Недетерминированный конечный автомат, распознающий цепочки языка
+ * моделированием над битовыми множествами состояний, без построения
+ * детерминированного автомата.
+ *
+ * @see BitParallelNFA
+ */
+@Log
+public class NFSMRecognizer extends AbstractFSMRecognizer {
+
+    private final BitParallelNFA nfa;
+
+    public NFSMRecognizer(BitParallelNFA nfa,
+                          LinkedList<Character> chain,
+                          ListView<String> process) {
+        super(chain, process);
+        this.nfa = nfa;
+    }
+
+    /**
+     * Запускает процесс распознавания цепочки языка. Состояния в
+     * протоколе - множества активных состояний НКА.
+     */
+    @Override
+    public void recognize() throws RecognizeException {
+        LOGGER.info("Проверяемая цепочка: " + chainAsString());
+        long[] set = nfa.getStart();
+        currentState = nfa.getStateName(set);
+        log("Начинаем процесс распознавания");
+        Character nextSymbol;
+        while (!chain.isEmpty()) {
+            logState(false);
+            nextSymbol = chain.removeFirst();
+            if (!nfa.isSymbol(nextSymbol)) {
+                createError("В цепочке присутствуют посторонние символы.");
+            }
+            if (!nfa.next(set, nextSymbol, set)) {
+                createError("Переход НКА по символу " + nextSymbol + " не определён.");
+            }
+            currentState = nfa.getStateName(set);
+        }
+        logState(true);
+        if (!nfa.isAccepting(set)) {
+            createError("После прочтения цепочки НКА не пришёл в конечное состояние.");
+        }
+        log("Процесс распознавания завершен");
+    }
+
+    @Override
+    public boolean recognize(CharSequence chain) {
+        return nfa.recognize(chain);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Файл читается буферами фиксированного размера с декодированием;
+     * некорректные последовательности байтов заменяются символом, не
+     * принадлежащим алфавиту.
+     */
+    @Override
+    public RecognitionReport recognize(Path file, Charset charset) throws IOException {
+        RecognitionReport report;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = StreamingRecognizer.chainReader(channel, charset)) {
+            report = nfa.recognize(reader);
+        }
+        LOGGER.info(String.format("Проверка цепочки из файла %s. %s", file, report));
+        return report;
+    }
+
+}
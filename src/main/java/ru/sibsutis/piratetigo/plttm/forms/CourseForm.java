@@ -10,12 +10,16 @@ import javafx.stage.Stage;
 import lombok.extern.java.Log;
 import ru.sibsutis.piratetigo.plttm.chain.generator.Generator;
 import ru.sibsutis.piratetigo.plttm.common.InferenceType;
+import ru.sibsutis.piratetigo.plttm.grammar.ChomskyNaming;
 import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarPart;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarSizeExceededException;
 import ru.sibsutis.piratetigo.plttm.windows.MessageWindow;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
@@ -153,6 +157,9 @@ public class CourseForm {
     /** Признак возможности добавления текущего введенного правила вывода в список. */
     private boolean isCorrectRule = false;
 
+    /** Признак отображения изменений КС-грамматики в элементах управления. */
+    private boolean isGrammarRendering = false;
+
     /** Генератор цепочек. */
     private Generator generator;
 
@@ -272,11 +279,11 @@ public class CourseForm {
                 )
         );
 
-        contextFreeGrammar = new ContextFreeGrammar(
-                userTerminals,
-                userNonTerminals,
-                goalCharacter,
-                rules
+        contextFreeGrammar = new ContextFreeGrammar();
+
+        // Обработчик изменений КС-грамматики
+        contextFreeGrammar.addListener(
+                (grammar, parts) -> renderGrammar(parts)
         );
 
         // Обработчик кнопки "Прочитать из файла" для КС-грамматики
@@ -288,13 +295,16 @@ public class CourseForm {
         // Обработчик пользовательского ввода терминальных символов
         userTerminals.textProperty().addListener(
                 (observable, oldValue, newValue) -> {
+                    if (isGrammarRendering) {
+                        return;
+                    }
                     if (newValue.trim().equals(oldValue)) {
                         userTerminals.setText(oldValue);
                     } else {
                         contextFreeGrammar.setTerminals(newValue.trim());
                         rule.textProperty().set("");
                         rules.getItems().clear();
-                        contextFreeGrammar.getRules().clear();
+                        contextFreeGrammar.clearRules();
                         clearChomsky();
                     }
                 }
@@ -303,6 +313,9 @@ public class CourseForm {
         // Обработчик пользовательского ввода нетерминальных символов
         userNonTerminals.textProperty().addListener(
                 (observable, oldValue, newValue) -> {
+                    if (isGrammarRendering) {
+                        return;
+                    }
                     if (newValue.contains(LESS_THAN.toString())
                             || newValue.contains(GREATER_THAN.toString())
                             || newValue.trim().equals(oldValue)) {
@@ -317,7 +330,7 @@ public class CourseForm {
                         );
                         rule.textProperty().set("");
                         rules.getItems().clear();
-                        contextFreeGrammar.getRules().clear();
+                        contextFreeGrammar.clearRules();
                         clearChomsky();
                     }
                 }
@@ -413,7 +426,7 @@ public class CourseForm {
             rules.getItems().removeAll(
                     rules.getSelectionModel().getSelectedItems()
             );
-            contextFreeGrammar.getRules().clear();
+            contextFreeGrammar.clearRules();
             rules.getItems().forEach(rule -> contextFreeGrammar.addRule(rule));
         });
 
@@ -424,13 +437,9 @@ public class CourseForm {
 
         // Обработчик кнопки генерации БНФ-грамматики
         toChomsky.setOnAction(event -> {
-            chomskyGrammar = contextFreeGrammar.clone(
-                    userChomskyTerminals,
-                    userChomskyNonTerminals,
-                    chomskyGoalCharacter,
-                    chomskyRules
-            );
-            chomskyGrammar.toChomsky();
+            chomskyGrammar = contextFreeGrammar.copy();
+            chomskyGrammar.toChomsky(ChomskyNaming.COMPACT);
+            renderChomskyGrammar();
             grammarChomskyToFile.setDisable(false);
         });
 
@@ -481,21 +490,17 @@ public class CourseForm {
             chomskyChainCount.setText(COUNTER_DEFAULT);
 
             generator = new Generator(
-                    contextFreeGrammar.getRules(),
-                    contextFreeGrammar.getGoal(),
+                    contextFreeGrammar.compile(),
                     type,
                     chainSizeFrom.getValue(),
-                    chainSizeTo.getValue(),
-                    symbolsToStrings(contextFreeGrammar.getTerminals())
+                    chainSizeTo.getValue()
             );
 
             chomskyGenerator = new Generator(
-                    chomskyGrammar.getRules(),
-                    chomskyGrammar.getGoal(),
+                    chomskyGrammar.compile(),
                     type,
                     chainSizeFrom.getValue(),
-                    chainSizeTo.getValue(),
-                    symbolsToStrings(chomskyGrammar.getTerminals())
+                    chainSizeTo.getValue()
             );
 
             CompletableFuture<String> generation = new CompletableFuture<>();
@@ -542,13 +547,55 @@ public class CourseForm {
 
         // Обработчик кнопки перевода КС-грамматики в канонический вид
         toCanonical.setOnAction(event -> {
-            contextFreeGrammar.toCanonical();
-            toChomsky.setDisable(false);
+            try {
+                contextFreeGrammar.toCanonical();
+                toChomsky.setDisable(false);
+            } catch (GrammarSizeExceededException ex) {
+                showMessage(ex.getMessage());
+            }
         });
 
         rules.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
     }
 
+    /**
+     * Отображает изменившиеся части КС-грамматики в элементах управления.
+     *
+     * @param parts Изменившиеся части КС-грамматики.
+     */
+    private void renderGrammar(Set<GrammarPart> parts) {
+        isGrammarRendering = true;
+        try {
+            if (parts.contains(GrammarPart.TERMINALS)) {
+                userTerminals.setText(contextFreeGrammar.terminalsAsString());
+            }
+            if (parts.contains(GrammarPart.NON_TERMINALS)) {
+                userNonTerminals.setText(contextFreeGrammar.nonTerminalsAsString());
+                goalCharacter.getItems().setAll(contextFreeGrammar.getNonTerminals());
+                generatingSymbol.getItems().setAll(contextFreeGrammar.getNonTerminals());
+            }
+            if (parts.contains(GrammarPart.NON_TERMINALS)
+                    || parts.contains(GrammarPart.GOAL)) {
+                goalCharacter.setValue(contextFreeGrammar.getGoal());
+            }
+            if (parts.contains(GrammarPart.RULES)) {
+                rules.getItems().setAll(contextFreeGrammar.rulesAsList());
+            }
+        } finally {
+            isGrammarRendering = false;
+        }
+    }
+
+    /**
+     * Отображает грамматику Хомского в элементах управления.
+     */
+    private void renderChomskyGrammar() {
+        userChomskyTerminals.setText(chomskyGrammar.terminalsAsString());
+        userChomskyNonTerminals.setText(chomskyGrammar.nonTerminalsAsString());
+        chomskyGoalCharacter.setValue(chomskyGrammar.getGoal());
+        chomskyRules.getItems().setAll(chomskyGrammar.rulesAsList());
+    }
+
     private void toggleAddRuleButton() {
         addRule.setDisable(
                 generatingSymbol.getValue() == null
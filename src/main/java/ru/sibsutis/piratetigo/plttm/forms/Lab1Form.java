@@ -12,6 +12,7 @@ import lombok.extern.java.Log;
 import ru.sibsutis.piratetigo.plttm.chain.generator.Generator;
 import ru.sibsutis.piratetigo.plttm.common.InferenceType;
 import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
+import ru.sibsutis.piratetigo.plttm.grammar.GrammarPart;
 
 import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
 
@@ -95,28 +96,34 @@ public class Lab1Form {
     /** Признак возможности добавления текущего введенного правила вывода в список. */
     private boolean isCorrectRule = false;
 
+    /** Признак отображения изменений КС-грамматики в элементах управления. */
+    private boolean isGrammarRendering = false;
+
     /** Генератор цепочек. */
     private Generator generator;
 
     @FXML
     private void initialize() {
-        contextFreeGrammar = new ContextFreeGrammar(
-                userTerminals,
-                userNonTerminals,
-                goalCharacter,
-                rules
+        contextFreeGrammar = new ContextFreeGrammar();
+
+        // Обработчик изменений КС-грамматики
+        contextFreeGrammar.addListener(
+                (grammar, parts) -> renderGrammar(parts)
         );
 
         // Обработчик пользовательского ввода терминальных символов
         userTerminals.textProperty().addListener(
                 (observable, oldValue, newValue) -> {
+                    if (isGrammarRendering) {
+                        return;
+                    }
                     if (newValue.trim().equals(oldValue)) {
                         userTerminals.setText(oldValue);
                     } else {
                         contextFreeGrammar.setTerminals(newValue.trim());
                         rule.textProperty().set("");
                         rules.getItems().clear();
-                        contextFreeGrammar.getRules().clear();
+                        contextFreeGrammar.clearRules();
                     }
                 }
         );
@@ -124,6 +131,9 @@ public class Lab1Form {
         // Обработчик пользовательского ввода нетерминальных символов
         userNonTerminals.textProperty().addListener(
                 (observable, oldValue, newValue) -> {
+                    if (isGrammarRendering) {
+                        return;
+                    }
                     if (newValue.contains(LESS_THAN.toString())
                         || newValue.contains(GREATER_THAN.toString())
                         || newValue.trim().equals(oldValue)) {
@@ -138,7 +148,7 @@ public class Lab1Form {
                         );
                         rule.textProperty().set("");
                         rules.getItems().clear();
-                        contextFreeGrammar.getRules().clear();
+                        contextFreeGrammar.clearRules();
                     }
                 }
         );
@@ -224,7 +234,7 @@ public class Lab1Form {
             rules.getItems().removeAll(
                     rules.getSelectionModel().getSelectedItems()
             );
-            contextFreeGrammar.getRules().clear();
+            contextFreeGrammar.clearRules();
             rules.getItems().forEach(rule -> contextFreeGrammar.addRule(rule));
         });
 
@@ -269,14 +279,10 @@ public class Lab1Form {
             chainCount.setText(COUNTER_DEFAULT);
 
             generator = new Generator(
-                    contextFreeGrammar.getRules(),
-                    goalCharacter.getValue(),
+                    contextFreeGrammar.compile(),
                     type,
                     chainSizeFrom.getValue(),
-                    chainSizeTo.getValue(),
-                    symbolsToStrings(
-                            contextFreeGrammar.getTerminals()
-                    )
+                    chainSizeTo.getValue()
             );
 
             Thread chainGenerationTask = new Thread(new Task<List<String>>() {
@@ -322,6 +328,25 @@ public class Lab1Form {
         rules.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
     }
 
+    /**
+     * Отображает изменившиеся части КС-грамматики в элементах управления.
+     *
+     * @param parts Изменившиеся части КС-грамматики.
+     */
+    private void renderGrammar(Set<GrammarPart> parts) {
+        isGrammarRendering = true;
+        try {
+            if (parts.contains(GrammarPart.TERMINALS)) {
+                userTerminals.setText(contextFreeGrammar.terminalsAsString());
+            }
+            if (parts.contains(GrammarPart.NON_TERMINALS)) {
+                userNonTerminals.setText(contextFreeGrammar.nonTerminalsAsString());
+            }
+        } finally {
+            isGrammarRendering = false;
+        }
+    }
+
     private void toggleAddRuleButton() {
         addRule.setDisable(
                 generatingSymbol.getValue() == null
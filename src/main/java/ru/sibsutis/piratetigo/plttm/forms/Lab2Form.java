@@ -9,12 +9,26 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.control.cell.MapValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.stage.FileChooser;
 import javafx.util.converter.DefaultStringConverter;
 import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.BitParallelNFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.DFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.LazyDFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.NFA;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.RecognitionReport;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.StateLimitExceededException;
 import ru.sibsutis.piratetigo.plttm.chain.recognizer.DFSMRecognizer;
+import ru.sibsutis.piratetigo.plttm.chain.recognizer.FSMRecognizer;
+import ru.sibsutis.piratetigo.plttm.chain.recognizer.LazyDFSMRecognizer;
+import ru.sibsutis.piratetigo.plttm.chain.recognizer.NFSMRecognizer;
 import ru.sibsutis.piratetigo.plttm.chain.recognizer.RecognizeException;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
@@ -27,6 +41,12 @@ public class Lab2Form {
 
     private static final String FIRST_COLUMN_ID = "FIRST_COLUMN_ID";
 
+    /** Допустимое по умолчанию количество состояний ДКА, построенного по НКА, или моделируемого НКА. */
+    private static final int DEFAULT_STATE_LIMIT = 1000;
+
+    /** Наибольшее допустимое количество состояний ДКА, построенного по НКА, или моделируемого НКА. */
+    private static final int MAX_STATE_LIMIT = 100_000;
+
     /** Введенное пользователем множество состояний ДКА. */
     @FXML
     TextArea userStates;
@@ -43,6 +63,25 @@ public class Lab2Form {
     @FXML
     ListView<String> userEndStates;
 
+    /** Признак ввода недетерминированного автомата (НКА). */
+    @FXML
+    CheckBox nondeterministic;
+
+    /**
+     * Допустимое количество состояний ДКА, построенного по НКА, а при
+     * моделировании - состояний моделируемого НКА.
+     */
+    @FXML
+    Spinner<Integer> stateLimit;
+
+    /** Признак моделирования НКА без построения ДКА. */
+    @FXML
+    CheckBox simulate;
+
+    /** Признак минимизации ДКА перед распознаванием. */
+    @FXML
+    CheckBox minimize;
+
     /** Вводимая пользователем функция переходов. */
     @FXML
     @SuppressWarnings("rawtypes")
@@ -56,6 +95,10 @@ public class Lab2Form {
     @FXML
     Button test;
 
+    /** Кнопка проверки цепочки, записанной в файле. */
+    @FXML
+    Button testFile;
+
     /** Окно вывода информации во время процесса распознавания цепочки. */
     @FXML
     ListView<String> process;
@@ -84,6 +127,9 @@ public class Lab2Form {
     /** Проверяемая на принадлежность алфавиту языка цепочка символов. */
     private LinkedList<Character> chain = new LinkedList<>();
 
+    /** Диалог выбора файла с цепочкой. */
+    private final FileChooser fileChooser = new FileChooser();
+
     @FXML
     private void initialize() {
         // Обработчик пользовательского ввода множества состояний
@@ -96,7 +142,7 @@ public class Lab2Form {
                         states = (HashSet<String>) calculateUniqueItems(
                                 newValue.trim(),
                                 states,
-                                userStates,
+                                userStates::setText,
                                 excluded
                         );
                         startState.getItems().setAll(states);
@@ -117,11 +163,12 @@ public class Lab2Form {
                     if (newValue.trim().equals(oldValue)) {
                         userAlphabet.setText(oldValue);
                     } else {
-                        Set<String> excluded = new HashSet<>();
+                        // λ обозначает переход без чтения символа в НКА
+                        Set<String> excluded = new HashSet<>(Set.of(LAMBDA.toString()));
                         alphabet = calculateAlphabet(
                                 newValue.trim(),
                                 alphabet,
-                                userAlphabet,
+                                userAlphabet::setText,
                                 excluded
                         );
                     }
@@ -159,6 +206,23 @@ public class Lab2Form {
             toggleTestButton();
         });
 
+        stateLimit.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+                1, MAX_STATE_LIMIT, DEFAULT_STATE_LIMIT));
+
+        // Обработчик переключения между ДКА и НКА
+        nondeterministic.selectedProperty().addListener(
+                (observable, oldValue, newValue) -> {
+                    stateLimit.setDisable(!newValue);
+                    simulate.setDisable(!newValue);
+                    ObservableList<Map<String, String>> data = carryOverTableData(
+                            generateTableData(states, alphabet)
+                    );
+                    transitions.getColumns().setAll(
+                            generateColumns(states, alphabet)
+                    );
+                    transitions.getItems().setAll(data);
+                });
+
         transitions.getSelectionModel().setCellSelectionEnabled(true);
         transitions.setEditable(true);
 
@@ -187,17 +251,9 @@ public class Lab2Form {
 
                 @Override
                 protected Void call() {
-                    DFSMRecognizer dfsmRecognizer = new DFSMRecognizer(
-                            states,
-                            alphabet,
-                            startState.getValue(),
-                            endStates,
-                            extractTableData(),
-                            new LinkedList<>(chain),
-                            process
-                    );
+                    FSMRecognizer recognizer = createRecognizer(new LinkedList<>(chain));
                     try {
-                        dfsmRecognizer.recognize();
+                        recognizer.recognize();
                         resultMsg = "Цепочка принадлежит языку.";
                     } catch (RecognizeException e) {
                         resultMsg = "Цепочка не принадлежит языку.";
@@ -215,6 +271,76 @@ public class Lab2Form {
                         setAllDisable(false);
                     });
                 }
+
+                @Override
+                protected void failed() {
+                    super.failed();
+                    LOGGER.log(Level.SEVERE, "Ошибка распознавания цепочки", getException());
+                    Platform.runLater(() -> {
+                        result.setText("Ошибка распознавания цепочки.");
+                        description.setText(getException().getMessage());
+                        setAllDisable(false);
+                    });
+                }
+            });
+
+            recognizeThread.start();
+        });
+
+        // Обработчик кнопки проверки цепочки из файла
+        testFile.setOnAction(event -> {
+            File file = fileChooser.showOpenDialog(
+                    MainForm.getInstance().getMainStage()
+            );
+            if (file == null) {
+                return;
+            }
+            LOGGER.info(String.format("Указан файл %s с цепочкой", file));
+            setAllDisable(true);
+            process.getItems().clear();
+            Thread recognizeThread = new Thread(new Task<Void>() {
+                private String resultMsg;
+                private String descriptionMsg;
+
+                @Override
+                protected Void call() {
+                    FSMRecognizer recognizer = createRecognizer(new LinkedList<>());
+                    try {
+                        RecognitionReport report = recognizer.recognizeParallel(
+                                file.toPath(),
+                                StandardCharsets.UTF_8
+                        );
+                        resultMsg = report.isAccepted()
+                                ? "Цепочка принадлежит языку."
+                                : "Цепочка не принадлежит языку.";
+                        descriptionMsg = report.toString();
+                    } catch (IOException e) {
+                        resultMsg = "Не удалось прочитать файл.";
+                        descriptionMsg = e.getMessage();
+                    }
+                    return null;
+                }
+
+                @Override
+                protected void succeeded() {
+                    super.succeeded();
+                    Platform.runLater(() -> {
+                        result.setText(resultMsg);
+                        description.setText(descriptionMsg);
+                        setAllDisable(false);
+                    });
+                }
+
+                @Override
+                protected void failed() {
+                    super.failed();
+                    LOGGER.log(Level.SEVERE, "Ошибка распознавания цепочки", getException());
+                    Platform.runLater(() -> {
+                        result.setText("Ошибка распознавания цепочки.");
+                        description.setText(getException().getMessage());
+                        setAllDisable(false);
+                    });
+                }
             });
 
             recognizeThread.start();
@@ -249,26 +375,40 @@ public class Lab2Form {
         );
         table.add(firstColumn);
 
-        // Создаем столбцы "Вход" для алфавита языка
-        if (!srcAlphabet.isEmpty()) {
+        // Создаем столбцы "Вход" для алфавита языка; в НКА ячейка содержит
+        // множество состояний через запятую, а столбец λ - λ-переходы
+        boolean multiple = nondeterministic.isSelected();
+        List<String> inputs = srcAlphabet.stream()
+                .map(Object::toString)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (multiple) {
+            inputs.add(LAMBDA.toString());
+        }
+        if (!inputs.isEmpty()) {
             TableColumn<Map, String> inputColumn = new TableColumn<>("Вход");
-            srcAlphabet.forEach(character -> {
+            inputs.forEach(input -> {
                 TableColumn<Map, String> nextInputColumn =
-                        new TableColumn<>(character.toString());
-                nextInputColumn.setCellValueFactory(new MapValueFactory<>(character.toString()));
-                nextInputColumn.setCellFactory(ComboBoxTableCell.forTableColumn(
-                        new DefaultStringConverter(),
-                        srcStates.toArray(String[]::new)
-                ));
+                        new TableColumn<>(input);
+                nextInputColumn.setCellValueFactory(new MapValueFactory<>(input));
+                nextInputColumn.setCellFactory(multiple
+                        ? TextFieldTableCell.forTableColumn()
+                        : ComboBoxTableCell.forTableColumn(
+                                new DefaultStringConverter(),
+                                srcStates.toArray(String[]::new)
+                        ));
                 nextInputColumn.setEditable(true);
                 nextInputColumn.setPrefWidth(startState.getWidth() + 10);
                 nextInputColumn.setOnEditCommit(event -> {
                     int rowNumber = event.getTablePosition().getRow();
                     String columnName = event.getTablePosition().getTableColumn().getText();
+                    String value = multiple
+                            ? String.join(",", parseTargets(event.getNewValue()))
+                            : event.getNewValue();
                     event.getTableView()
                             .getItems()
                             .get(rowNumber)
-                            .put(columnName, event.getNewValue());
+                            .put(columnName, value);
+                    event.getTableView().refresh();
                 });
                 inputColumn.getColumns().add(nextInputColumn);
             });
@@ -285,6 +425,9 @@ public class Lab2Form {
                 FXCollections.observableArrayList();
         Map<String, String> dataRowTemplate = new HashMap<>();
         srcAlphabet.forEach(item -> dataRowTemplate.put(item.toString(), ""));
+        if (nondeterministic.isSelected()) {
+            dataRowTemplate.put(LAMBDA.toString(), "");
+        }
         srcStates.forEach(state -> {
             Map<String, String> dataRow = new HashMap<>();
             dataRow.put(FIRST_COLUMN_ID, state);
@@ -294,6 +437,42 @@ public class Lab2Form {
         return allData;
     }
 
+    /**
+     * Переносит в новую таблицу переходов ячейки текущей таблицы при
+     * переключении между ДКА и НКА. Переход ДКА становится множеством
+     * из одного состояния; при возврате к ДКА сохраняются ячейки НКА
+     * с единственным состоянием, а λ-переходы отбрасываются.
+     *
+     * @param data Пустая таблица для нового вида автомата.
+     * @return Заполненная таблица.
+     */
+    @SuppressWarnings("unchecked")
+    private ObservableList<Map<String, String>> carryOverTableData(
+            ObservableList<Map<String, String>> data) {
+        boolean multiple = nondeterministic.isSelected();
+        Map<String, Map<String, String>> oldRows = new HashMap<>();
+        transitions.getItems().forEach(map -> {
+            Map<String, String> row = (Map<String, String>) map;
+            oldRows.put(row.get(FIRST_COLUMN_ID), row);
+        });
+        data.forEach(row -> {
+            Map<String, String> oldRow = oldRows.get(row.get(FIRST_COLUMN_ID));
+            if (oldRow == null) {
+                return;
+            }
+            row.replaceAll((column, cell) -> {
+                if (FIRST_COLUMN_ID.equals(column)) {
+                    return cell;
+                }
+                List<String> targets = parseTargets(oldRow.get(column));
+                return multiple || targets.size() == 1
+                        ? String.join(",", targets)
+                        : cell;
+            });
+        });
+        return data;
+    }
+
     private void setAllDisable(boolean disable) {
         userStates.setDisable(disable);
         userAlphabet.setDisable(disable);
@@ -302,6 +481,11 @@ public class Lab2Form {
         transitions.setDisable(disable);
         userChain.setDisable(disable);
         test.setDisable(disable);
+        testFile.setDisable(disable);
+        nondeterministic.setDisable(disable);
+        stateLimit.setDisable(disable || !nondeterministic.isSelected());
+        simulate.setDisable(disable || !nondeterministic.isSelected());
+        minimize.setDisable(disable);
     }
 
     private void toggleTestButton() {
@@ -311,6 +495,126 @@ public class Lab2Form {
                         || startState.getValue() == null
                         || endStates.size() == 0
         );
+        testFile.setDisable(test.isDisable());
+    }
+
+    /**
+     * Создает распознаватель введенного ДКА или, если введен НКА,
+     * ДКА, построенного по нему построением подмножеств. Если выбрана
+     * минимизация, распознаватель создается по минимальному ДКА,
+     * состояния которого названы по объединенным в них состояниям
+     * исходного автомата. Если количество состояний ДКА превышает
+     * допустимое, распознаватель создается по ленивому ДКА, хранящему
+     * не больше допустимого количества состояний. Если выбрано
+     * моделирование НКА, ДКА не строится; ленивый ДКА используется и
+     * тогда, когда моделируемый НКА превышает допустимое количество
+     * состояний или его маски переходов не помещаются в память.
+     *
+     * @param chain Цепочка.
+     */
+    private FSMRecognizer createRecognizer(LinkedList<Character> chain) {
+        DFA dfa;
+        if (nondeterministic.isSelected()) {
+            NFA nfa = NFA.of(startState.getValue(), endStates, extractNondeterministicTableData());
+            if (simulate.isSelected()) {
+                if (nfa.getStateCount() > stateLimit.getValue()) {
+                    log("Количество состояний НКА " + nfa.getStateCount()
+                            + " превышает допустимое " + stateLimit.getValue()
+                            + ". Состояния ДКА строятся во время распознавания");
+                    return createLazyRecognizer(nfa, chain);
+                }
+                BitParallelNFA bitParallelNFA;
+                try {
+                    bitParallelNFA = new BitParallelNFA(nfa);
+                } catch (IllegalArgumentException e) {
+                    log("Моделирование НКА невозможно. " + e.getMessage()
+                            + ". Состояния ДКА строятся во время распознавания");
+                    return createLazyRecognizer(nfa, chain);
+                }
+                log(String.format(
+                        "Моделирование НКА: состояний %d, масок переходов %d слов",
+                        nfa.getStateCount(), bitParallelNFA.getMaskWords()
+                ));
+                return new NFSMRecognizer(bitParallelNFA, chain, process);
+            }
+            try {
+                dfa = nfa.determinize(stateLimit.getValue());
+            } catch (StateLimitExceededException e) {
+                log("Построение подмножеств прервано. " + e.getMessage()
+                        + ". Состояния ДКА строятся во время распознавания");
+                return createLazyRecognizer(nfa, chain);
+            }
+            log(String.format(
+                    "Построение подмножеств: состояний НКА %d, состояний ДКА %d",
+                    nfa.getStateCount(), dfa.getStateCount()
+            ));
+        } else if (minimize.isSelected()) {
+            dfa = DFA.of(startState.getValue(), endStates, extractTableData());
+        } else {
+            return new DFSMRecognizer(
+                    states,
+                    alphabet,
+                    startState.getValue(),
+                    endStates,
+                    extractTableData(),
+                    chain,
+                    process
+            );
+        }
+        if (minimize.isSelected()) {
+            dfa = dfa.minimize();
+            log("Минимизация ДКА. " + dfa.getMinimizationReport());
+            dfa = dfa.withSourceNames();
+        }
+        return DFSMRecognizer.of(dfa, chain, process);
+    }
+
+    /**
+     * Создает распознаватель по ленивому ДКА, хранящему не больше
+     * допустимого количества состояний.
+     */
+    private FSMRecognizer createLazyRecognizer(NFA nfa, LinkedList<Character> chain) {
+        return new LazyDFSMRecognizer(
+                new LazyDFA(nfa, Math.max(2, stateLimit.getValue())),
+                chain,
+                process
+        );
+    }
+
+    private void log(String msg) {
+        LOGGER.info(msg);
+        Platform.runLater(() -> process.getItems().add(msg));
+    }
+
+    /**
+     * Разбирает содержимое ячейки НКА: имена состояний через запятую
+     * или точку с запятой. Неизвестные состояния отбрасываются.
+     */
+    private List<String> parseTargets(String cell) {
+        if (cell == null) {
+            return List.of();
+        }
+        return Arrays.stream(cell.split("[;,]"))
+                .map(String::trim)
+                .filter(states::contains)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<Character, Set<String>>> extractNondeterministicTableData() {
+        Map<String, Map<Character, Set<String>>> table = new HashMap<>();
+        transitions.getItems().forEach(map -> {
+            Map<String, String> row = (Map<String, String>) map;
+            Map<Character, Set<String>> cases = new HashMap<>();
+            row.forEach((column, cell) -> {
+                if (!FIRST_COLUMN_ID.equals(column)) {
+                    cases.put(column.charAt(0), new LinkedHashSet<>(parseTargets(cell)));
+                }
+            });
+            table.put(row.get(FIRST_COLUMN_ID), cases);
+        });
+        return table;
     }
 
     @SuppressWarnings("unchecked")
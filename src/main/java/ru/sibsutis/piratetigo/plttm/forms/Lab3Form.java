@@ -5,14 +5,20 @@ import javafx.collections.ListChangeListener;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import lombok.extern.java.Log;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.DPDARule;
+import ru.sibsutis.piratetigo.plttm.chain.automaton.GrammarPDA;
 import ru.sibsutis.piratetigo.plttm.chain.recognizer.DPDARecognizer;
-import ru.sibsutis.piratetigo.plttm.chain.recognizer.DPDARule;
 import ru.sibsutis.piratetigo.plttm.chain.recognizer.RecognizeException;
+import ru.sibsutis.piratetigo.plttm.grammar.ContextFreeGrammar;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static ru.sibsutis.piratetigo.plttm.common.Tools.*;
 
@@ -122,6 +128,10 @@ public class Lab3Form {
     @FXML
     Button reset;
 
+    /** Кнопка построения ДМПА по КС-грамматике из файла. */
+    @FXML
+    Button fromGrammar;
+
     /** Вычисленное множество состояний ДМПА. */
     private HashSet<String> states = new HashSet<>();
 
@@ -143,6 +153,9 @@ public class Lab3Form {
     /** Проверяемая на принадлежность алфавиту языка цепочка символов. */
     private LinkedList<Character> chain = new LinkedList<>();
 
+    /** Диалог выбора файла с КС-грамматикой. */
+    private final FileChooser fileChooser = new FileChooser();
+
     @FXML
     private void initialize() {
         // Обработчик пользовательского ввода множества состояний
@@ -155,7 +168,7 @@ public class Lab3Form {
                         states = (HashSet<String>) calculateUniqueItems(
                                 newValue.trim(),
                                 states,
-                                userStates,
+                                userStates::setText,
                                 excluded
                         );
                         startState.getItems().setAll(states);
@@ -180,7 +193,7 @@ public class Lab3Form {
                         alphabet = calculateAlphabet(
                                 newValue.trim(),
                                 alphabet,
-                                userAlphabet,
+                                userAlphabet::setText,
                                 excluded
                         );
 
@@ -223,7 +236,7 @@ public class Lab3Form {
                         stackAlphabet = calculateAlphabet(
                                 newValue.trim(),
                                 stackAlphabet,
-                                userStackAlphabet,
+                                userStackAlphabet::setText,
                                 excluded
                         );
                         startStackSymbol.getItems().setAll(stackAlphabet);
@@ -452,6 +465,81 @@ public class Lab3Form {
             userAlphabet.setText("");
             userStackAlphabet.setText("");
         });
+
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(
+                        "Programming Languages Theory and Translation Methods",
+                        "*.plttm"
+                )
+        );
+
+        // Обработчик кнопки построения ДМПА по КС-грамматике
+        fromGrammar.setOnAction(event -> fromGrammarHandler());
+    }
+
+    /**
+     * Обработчик нажатия на кнопку "Из грамматики": строит ДМПА по
+     * КС-грамматике из файла и заполняет им форму.
+     */
+    private void fromGrammarHandler() {
+        File file = fileChooser.showOpenDialog(
+                MainForm.getInstance().getMainStage()
+        );
+        if (file == null) {
+            return;
+        }
+        LOGGER.info(
+                String.format("Указан файл %s для построения ДМПА", file)
+        );
+        GrammarPDA pda;
+        try {
+            ContextFreeGrammar grammar = new ContextFreeGrammar();
+            grammar.load(file);
+            pda = GrammarPDA.of(grammar);
+        } catch (IOException ex) {
+            result.setText("Ошибка чтения файла.");
+            description.setText(ex.getMessage());
+            return;
+        } catch (IllegalArgumentException ex) {
+            result.setText("Не удалось построить ДМПА.");
+            description.setText(ex.getMessage());
+            return;
+        }
+        if (!pda.isDeterministic()) {
+            result.setText("Не удалось построить ДМПА.");
+            description.setText(
+                    "Грамматика не является LL(1)-грамматикой, автомат недетерминирован."
+            );
+            return;
+        }
+        showPDA(pda);
+        result.setText("");
+        description.setText(pda.toString());
+    }
+
+    /**
+     * Заполняет форму автоматом, построенным по КС-грамматике.
+     *
+     * @param pda Детерминированный автомат.
+     */
+    private void showPDA(GrammarPDA pda) {
+        userStates.setText(String.join(";", pda.getStates()) + ";");
+        userAlphabet.setText(pda.getAlphabet().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining()));
+        userStackAlphabet.setText(pda.getStackAlphabet().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining()));
+        startState.setValue(GrammarPDA.START_STATE);
+        userEndStates.getSelectionModel().clearSelection();
+        pda.getEndStates().forEach(userEndStates.getSelectionModel()::select);
+        endStates.clear();
+        endStates.addAll(pda.getEndStates());
+        startStackSymbol.setValue(pda.getStartStackSymbol());
+        rules.clear();
+        rules.addAll(pda.getRules());
+        showRules();
+        toggleTestButton();
     }
 
     private void toggleStackBehaviour(RadioButton radioButton) {
@@ -558,6 +646,7 @@ public class Lab3Form {
         userChain.setDisable(disable);
         process.setDisable(disable);
         reset.setDisable(disable);
+        fromGrammar.setDisable(disable);
         test.setDisable(disable);
     }
 